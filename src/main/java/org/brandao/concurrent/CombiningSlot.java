@@ -0,0 +1,169 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ponto de publicação das ações de um nome usado pela combinação 
+ * (flat combining) de {@link NamedLock#execute(String, Callable)}.
+ * 
+ * <p>As threads publicam as suas ações no ponto e a thread que obtém o 
+ * bloqueio do nome executa um lote das ações publicadas, entregando os 
+ * resultados às threads que as publicaram.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class CombiningSlot {
+
+	/**
+	 * Quantidade máxima de ações executadas por posse do bloqueio.
+	 */
+	private static final int MAX_BATCH = 64;
+	
+	/**
+	 * Ações publicadas e ainda não executadas.
+	 */
+	private final ConcurrentLinkedQueue<Request> requests;
+	
+	/**
+	 * Quantidade de threads usando o ponto. O valor -1 indica que o ponto 
+	 * foi descartado.
+	 */
+	private final AtomicInteger users;
+	
+	public CombiningSlot(){
+		this.requests = new ConcurrentLinkedQueue<Request>();
+		this.users    = new AtomicInteger(1);
+	}
+	
+	public boolean pin(){
+		for(;;){
+			int current = this.users.get();
+			
+			if(current < 0){
+				return false;
+			}
+			
+			if(this.users.compareAndSet(current, current + 1)){
+				return true;
+			}
+		}
+	}
+	
+	/**
+	 * Libera o uso do ponto.
+	 * @return <code>true</code> se o ponto foi descartado. Caso contrário, <code>false</code>.
+	 */
+	public boolean unpin(){
+		for(;;){
+			int current = this.users.get();
+			int next    = current == 1? -1 : current - 1;
+			
+			if(this.users.compareAndSet(current, next)){
+				return next == -1;
+			}
+		}
+	}
+	
+	public void publish(Request request){
+		this.requests.add(request);
+	}
+	
+	public boolean withdraw(Request request){
+		return this.requests.remove(request);
+	}
+	
+	/**
+	 * Verifica se uma ação é a primeira pendente. Somente a thread dessa ação 
+	 * espera pelo bloqueio do nome.
+	 */
+	public boolean isFirst(Request request){
+		return this.requests.peek() == request;
+	}
+	
+	/**
+	 * Executa um lote das ações publicadas. Deve ser chamado somente pela thread 
+	 * que possui o bloqueio do nome.
+	 */
+	public void combine(){
+		Thread current = Thread.currentThread();
+		
+		for(int i=0;i<MAX_BATCH;i++){
+			Request request = this.requests.poll();
+			
+			if(request == null){
+				return;
+			}
+			
+			request.run();
+			
+			if(request.thread != current){
+				LockSupport.unpark(request.thread);
+			}
+		}
+	}
+	
+	/**
+	 * Acorda a thread da primeira ação pendente para que ela espere pelo bloqueio 
+	 * e execute o próximo lote. Deve ser chamado após a liberação do bloqueio e 
+	 * na desistência de uma ação.
+	 */
+	public void signal(){
+		Request next = this.requests.peek();
+		
+		if(next != null){
+			LockSupport.unpark(next.thread);
+		}
+	}
+	
+	static class Request{
+		
+		public final Callable<?> action;
+		
+		public final Thread thread;
+		
+		public Object result;
+		
+		public Throwable error;
+		
+		public volatile boolean done;
+		
+		public Request(Callable<?> action, Thread thread){
+			this.action = action;
+			this.thread = thread;
+		}
+		
+		public void run(){
+			try{
+				this.result = this.action.call();
+			}
+			catch(Throwable e){
+				this.error = e;
+			}
+			this.done = true;
+		}
+		
+	}
+	
+}
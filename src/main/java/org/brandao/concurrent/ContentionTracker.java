@@ -0,0 +1,175 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Identifica os nomes de bloqueio mais disputados.
+ * 
+ * <p>Somente as aquisições com disputa (aquelas em que a thread precisou esperar) 
+ * são registradas. Os nomes são contabilizados em dois esboços Space-Saving de 
+ * capacidade fixa, um classificado pela quantidade de esperas e outro pelo 
+ * tempo total de espera. A memória usada depende somente da capacidade, 
+ * independentemente da quantidade de nomes distintos.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    ContentionTracker tracker = new ContentionTracker(1000);
+ *    namedLock.setContentionTracker(tracker);
+ *    ...
+ *    for(ContentionTracker.Entry e: tracker.getTopByWaitTime(10)){
+ *        System.out.println(e.getLockName() + ": " + e.getWaitTime());
+ *    }
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class ContentionTracker {
+
+	private final SpaceSavingSketch byCount;
+	
+	private final SpaceSavingSketch byWaitTime;
+	
+	/**
+	 * Cria um novo rastreador.
+	 * @param capacity quantidade de nomes monitorados em cada esboço. Quanto maior, 
+	 * menor o erro das estimativas.
+	 */
+	public ContentionTracker(int capacity){
+		this.byCount    = new SpaceSavingSketch(capacity);
+		this.byWaitTime = new SpaceSavingSketch(capacity);
+	}
+	
+	/**
+	 * Registra uma aquisição com disputa.
+	 * @param lockName nome do bloqueio.
+	 * @param waitTime tempo de espera em nanossegundos.
+	 */
+	void record(Object lockName, long waitTime){
+		this.byCount.offer(lockName, 1, waitTime);
+		this.byWaitTime.offer(lockName, waitTime, waitTime);
+	}
+	
+	/**
+	 * Obtém os nomes com a maior quantidade de esperas.
+	 * @param limit quantidade máxima de nomes.
+	 * @return nomes em ordem decrescente de quantidade de esperas.
+	 */
+	public List<Entry> getTopByCount(int limit){
+		return toEntries(this.byCount.top(limit), true);
+	}
+
+	/**
+	 * Obtém os nomes com o maior tempo total de espera.
+	 * @param limit quantidade máxima de nomes.
+	 * @return nomes em ordem decrescente de tempo de espera.
+	 */
+	public List<Entry> getTopByWaitTime(int limit){
+		return toEntries(this.byWaitTime.top(limit), false);
+	}
+	
+	/**
+	 * Descarta todos os dados coletados.
+	 */
+	public void reset(){
+		this.byCount.clear();
+		this.byWaitTime.clear();
+	}
+	
+	private static List<Entry> toEntries(List<SpaceSavingSketch.Counter> counters, boolean byCount){
+		List<Entry> result = new ArrayList<Entry>(counters.size());
+		
+		for(SpaceSavingSketch.Counter c: counters){
+			result.add(
+				byCount?
+					new Entry(c.key, c.value, c.waitTime, c.error) :
+					new Entry(c.key, c.count, c.value, c.error));
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Estimativa da disputa de um nome.
+	 * 
+	 * <p>O valor usado na classificação (quantidade ou tempo) é um limite superior 
+	 * do valor real, com excesso máximo de {@link #getError()}. O outro valor 
+	 * considera somente as esperas ocorridas desde que o nome passou a ser monitorado.</p>
+	 */
+	public static class Entry{
+		
+		private final Object lockName;
+		
+		private final long count;
+		
+		private final long waitTime;
+		
+		private final long error;
+
+		public Entry(Object lockName, long count, long waitTime, long error) {
+			this.lockName = lockName;
+			this.count    = count;
+			this.waitTime = waitTime;
+			this.error    = error;
+		}
+
+		/**
+		 * Obtém o nome do bloqueio.
+		 * @return nome.
+		 */
+		public Object getLockName() {
+			return lockName;
+		}
+
+		/**
+		 * Obtém a quantidade de esperas.
+		 * @return quantidade.
+		 */
+		public long getCount() {
+			return count;
+		}
+
+		/**
+		 * Obtém o tempo total de espera em nanossegundos.
+		 * @return tempo de espera.
+		 */
+		public long getWaitTime() {
+			return waitTime;
+		}
+
+		/**
+		 * Obtém o erro máximo do valor usado na classificação.
+		 * @return erro.
+		 */
+		public long getError() {
+			return error;
+		}
+		
+		public String toString(){
+			return lockName + " [count=" + count + ", waitTime=" + waitTime + ", error=" + error + "]";
+		}
+		
+	}
+	
+}
@@ -21,128 +21,250 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
-class DisposableSingletonContext<T> {
+class DisposableSingletonContext<T> 
+	implements SingletonContext<T>{
 
 	protected ConcurrentMap<String,ObjectFactory> factoryList = 
 			new ConcurrentHashMap<String, ObjectFactory>();
 
-	protected ConcurrentMap<T,Object> beans = 
-			new ConcurrentHashMap<T, Object>();
+	/**
+	 * Instância associada a cada chave e a quantidade de proxies em uso, por 
+	 * tipo de instância.
+	 */
+	protected ConcurrentMap<String,ConcurrentMap<T,Bean>> beans = 
+			new ConcurrentHashMap<String, ConcurrentMap<T,Bean>>();
 	
-	protected ConcurrentMap<T,Set<Object>> references = 
-			new ConcurrentHashMap<T, Set<Object>>();
+	/**
+	 * Tempo, em nanossegundos, que uma instância sem proxies em uso é mantida. 
+	 * Se <code>0</code>, a instância é descartada na liberação do último proxy.
+	 */
+	private volatile long idleTime;
 	
-	private long prefixIndex = 0;
-	
-	private Object getUniqueThreadReference(Thread thread){
-		return Long.toString(thread.getId(), Character.MAX_RADIX) + ":" + 
-				Long.toString(prefixIndex++, Character.MAX_RADIX);
-	}
+	/**
+	 * Descarta as instâncias inativas há mais de {@link #idleTime}.
+	 */
+	private IdleSweeper<DisposableSingletonContext<?>> idleSweeper;
 	
 	public synchronized void registryBeanDefinition(String name, ObjectFactory factory){
 		
 		if(factoryList.containsKey(name))
 			throw new IllegalArgumentException(name);
 		
+		this.beans.put(name, new ConcurrentHashMap<T, Bean>());
 		this.factoryList.put(name, factory);
 	}
 	
 	public Object getBean(T alias, String beanName){
 		
-		Thread currentThread  = Thread.currentThread();
-		Object reference      = getUniqueThreadReference(currentThread);
+		Bean bean = this.acquire(alias, beanName);
 		
-		ObjectFactory factory = factoryList.get(beanName);
+		final ObjectHandler handler = new ObjectHandler(alias, beanName, bean, bean.object);
 		
-		synchronized(factory){
-			Object bean = this.create(alias, beanName);
-			return this.createProxy(alias, beanName, bean, currentThread, reference);
-		}
+		Object proxy =
+				Proxy.newProxyInstance(
+					Thread.currentThread().getContextClassLoader(), 
+					bean.object.getClass().getInterfaces(), handler);
 		
+		handler.releaser = ProxyReleaser.register(proxy, new Runnable(){
+			
+			public void run(){
+				handler.release();
+			}
+			
+		});
+		
+		return proxy;
 	}
 	
-	private Object createProxy(T alias, String beanName, Object bean, 
-			Thread thread, Object reference){
+	private Bean acquire(T alias, String beanName){
 		
-				
-		Set<Object> referenceSet = this.references.get(alias);
+		ObjectFactory factory = this.factoryList.get(beanName);
 		
-		if(referenceSet == null){
-			referenceSet = this.createReferenceSet(alias);
+		if(factory == null){
+			throw new IllegalStateException("bean definition not found: " + beanName);
 		}
-
-		ObjectHandler handler = new ObjectHandler(alias, beanName, reference, bean);
 		
-		referenceSet.add(reference);
+		ConcurrentMap<T,Bean> beanMap = this.beans.get(beanName);
+		Bean newBean                  = null;
 		
-		return
-				Proxy.newProxyInstance(
-					thread.getContextClassLoader(), 
-					bean.getClass().getInterfaces(), handler);
+		for(;;){
+			Bean bean = beanMap.get(alias);
+			
+			if(bean != null){
+				if(bean.acquire()){
+					if(newBean != null){
+						factory.destroy(newBean.object);
+					}
+					return bean;
+				}
+				
+				/*
+				 * A instância foi descartada e a sua entrada ainda não foi removida.
+				 */
+				beanMap.remove(alias, bean);
+				continue;
+			}
+			
+			if(newBean == null){
+				newBean = new Bean(factory.createInstance());
+			}
+			
+			if(beanMap.putIfAbsent(alias, newBean) == null){
+				return newBean;
+			}
+		}
 	}
 	
-	private Object create(T alias, String beanName){
+	void destroy(ObjectHandler handler){
 		
-		Object bean = this.beans.get(alias);
+		Bean bean = handler.bean;
 		
 		if(bean == null){
-			ObjectFactory factory = this.factoryList.get(beanName);
-			
-			if(factory == null){
-				throw new IllegalStateException("bean definition not found: " + beanName);
-			}
-			
-			bean = factory.createInstance();
-			this.beans.put(alias, bean);
+			return;
+		}
+		
+		handler.bean   = null;
+		handler.object = null;
+		
+		/*
+		 * Com um tempo de inatividade, a instância é mantida para ser reaproveitada 
+		 * e somente é descartada pela remoção periódica.
+		 */
+		if(bean.release() && this.idleTime == 0 && bean.discard()){
+			this.destroy(handler.alias, handler.beanName, bean);
 		}
 		
-		return bean;
 	}
 	
-	private Set<Object> createReferenceSet(T name){
-		Set<Object> referenceSet = references.get(name);
+	private void destroy(T alias, String beanName, Bean bean){
+		ObjectFactory factory = factoryList.get(beanName);
 		
-		if(referenceSet == null){
-			referenceSet = new HashSet<Object>();
-			references.put(name, referenceSet);
+		if(factory == null){
+			throw new IllegalStateException("bean definition not found: " + beanName);
 		}
 		
-		return referenceSet;
+		this.beans.get(beanName).remove(alias, bean);
+		factory.destroy(bean.object);
 	}
 	
-	void destroy(ObjectHandler handler){
+	/**
+	 * Define o tempo que uma instância sem proxies em uso é mantida.
+	 * @param value tempo de inatividade em nanossegundos. Se <code>0</code>, a 
+	 * instância é descartada na liberação do último proxy.
+	 */
+	public synchronized void setIdleTime(long value){
+		if(this.idleSweeper != null){
+			this.idleSweeper.cancel();
+			this.idleSweeper = null;
+		}
 		
-		T alias                   = handler.alias;
-		String beanName           = handler.beanName;
-		Object reference          = handler.reference;
-		ObjectFactory factory     = factoryList.get(beanName);
-		Set<Object> referencesSet = references.get(alias);
-
-		synchronized(factory){
-			
-			if(referencesSet != null && referencesSet.contains(reference)){
-				referencesSet.remove(reference);
+		this.idleTime = value;
+		
+		if(value > 0){
+			this.idleSweeper = new IdleBeanSweeper(this);
+			this.idleSweeper.schedule(value);
+		}
+		else{
+			this.sweepIdleBeans();
+		}
+	}
+	
+	/**
+	 * Descarta as instâncias inativas há mais tempo que o definido em 
+	 * {@link #setIdleTime(long)}. Os mapas são percorridos sem bloqueio.
+	 */
+	void sweepIdleBeans(){
+		long idle = this.idleTime;
+		long now  = System.nanoTime();
+		
+		for(Map.Entry<String,ConcurrentMap<T,Bean>> beanMap: this.beans.entrySet()){
+			for(Map.Entry<T,Bean> e: beanMap.getValue().entrySet()){
+				Bean bean = e.getValue();
 				
-				if(referencesSet.isEmpty()){
-					Object bean = handler.object;
-					
-					if(factory == null){
-						throw new IllegalStateException("bean definition not found: " + beanName);
-					}
-					
-					factory.destroy(bean);
-					this.references.remove(alias);
-					this.beans.remove(alias);
+				if(bean.isIdle() && now - bean.idleSince >= idle && bean.discard()){
+					this.destroy(e.getKey(), beanMap.getKey(), bean);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Remoção periódica das instâncias inativas. Não pode ser uma classe interna, 
+	 * pois manteria o contexto alcançável pela thread de remoção.
+	 */
+	private static class IdleBeanSweeper extends IdleSweeper<DisposableSingletonContext<?>>{
+		
+		public IdleBeanSweeper(DisposableSingletonContext<?> target){
+			super(target);
+		}
+		
+		protected void sweep(DisposableSingletonContext<?> target){
+			target.sweepIdleBeans();
+		}
+		
+	}
+	
+	/**
+	 * Instância de uma chave e a quantidade de proxies em uso. Quando a 
+	 * quantidade chega a zero, a instância fica inativa e pode ser reaproveitada 
+	 * até ser descartada. Uma instância descartada não pode mais ser usada.
+	 */
+	static class Bean 
+		extends UseCount{
+		
+		/**
+		 * Quantidade de proxies de uma instância descartada.
+		 */
+		private static final int DISCARDED = -1;
+		
+		public final Object object;
+		
+		/**
+		 * Início da inatividade.
+		 */
+		public volatile long idleSince;
+		
+		public Bean(Object object){
+			super(1);
+			this.object = object;
+		}
+		
+		public boolean acquire(){
+			for(;;){
+				int current = this.getUses();
+				
+				if(current == DISCARDED){
+					return false;
 				}
 				
+				if(this.compareAndSetUses(current, current + 1)){
+					return true;
+				}
 			}
-			
-			handler.object = null;
+		}
+		
+		public boolean release(){
+			if(this.decrementUses() == 0){
+				this.idleSince = System.nanoTime();
+				return true;
+			}
+			return false;
+		}
+		
+		public boolean isIdle(){
+			return this.getUses() == 0;
+		}
+		
+		/**
+		 * Descarta a instância se ela estiver inativa.
+		 * @return <code>true</code> se a instância foi descartada. Caso contrário, <code>false</code>.
+		 */
+		public boolean discard(){
+			return this.compareAndSetUses(0, DISCARDED);
 		}
 		
 	}
@@ -150,7 +272,7 @@ class DisposableSingletonContext<T> {
 	public class ObjectHandler
 		implements InvocationHandler {
 
-		public Object reference;
+		public Bean bean;
 		
 		public Object object;
 	
@@ -158,13 +280,25 @@ class DisposableSingletonContext<T> {
 		
 		public String beanName;
 		
-		public ObjectHandler(T alias, String beanName, Object reference, Object object) {
-			this.reference = reference;
+		/**
+		 * Registro da liberação do proxy no descarte pelo coletor de lixo.
+		 */
+		Object releaser;
+		
+		public ObjectHandler(T alias, String beanName, Bean bean, Object object) {
+			this.bean      = bean;
 			this.object    = object;
 			this.alias 	   = alias;
 			this.beanName  = beanName;
 		}
 	
+		/**
+		 * Libera a instância usada pelo proxy no contexto que a criou.
+		 */
+		void release(){
+			destroy(this);
+		}
+		
 		public Object invoke(Object proxy, Method method, Object[] args)
 				throws Throwable {
 			try{
@@ -175,14 +309,6 @@ class DisposableSingletonContext<T> {
 			}
 		}
 	
-		protected void finalize() throws Throwable{
-			try{
-				destroy(this);
-			}
-			finally{
-				super.finalize();
-			}
-		}
 	}	
 	
 }
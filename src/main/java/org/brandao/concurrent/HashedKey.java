@@ -0,0 +1,70 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Chave do registro de {@link KeyedLock} quando é usado um {@link KeyHasher}.
+ * O código de dispersão é calculado uma única vez.
+ * 
+ * @author Brandao
+ *
+ * @param <K> tipo da chave.
+ */
+final class HashedKey<K> {
+
+	final K key;
+	
+	private final KeyHasher<? super K> hasher;
+	
+	private final int hash;
+	
+	HashedKey(K key, KeyHasher<? super K> hasher){
+		if(key == null){
+			throw new NullPointerException("key");
+		}
+		this.key    = key;
+		this.hasher = hasher;
+		this.hash   = hasher.hashCode(key);
+	}
+	
+	public int hashCode(){
+		return this.hash;
+	}
+	
+	@SuppressWarnings("unchecked")
+	public boolean equals(Object value){
+		if(value == this){
+			return true;
+		}
+		
+		if(!(value instanceof HashedKey)){
+			return false;
+		}
+		
+		HashedKey<K> other = (HashedKey<K>)value;
+		return this.hash == other.hash && 
+				this.hasher == other.hasher && 
+				this.hasher.equals(this.key, other.key);
+	}
+	
+	public String toString(){
+		return String.valueOf(this.key);
+	}
+	
+}
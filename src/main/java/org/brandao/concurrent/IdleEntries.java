@@ -0,0 +1,109 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Nomes sem referências mantidos em um registro e o início da inatividade de 
+ * cada um, em ordem de inatividade.
+ * 
+ * <p>Não é segura para uso concorrente. Deve ser usada sob o bloqueio global do 
+ * registro.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class IdleEntries {
+
+	private final LinkedHashMap<Object,Long> entries;
+	
+	public IdleEntries(){
+		this.entries = new LinkedHashMap<Object, Long>();
+	}
+	
+	/**
+	 * Registra o início da inatividade de um nome.
+	 * @param lockName nome.
+	 */
+	public void add(Object lockName){
+		this.entries.put(lockName, System.nanoTime());
+	}
+	
+	/**
+	 * Remove um nome que voltou a ser usado.
+	 * @param lockName nome.
+	 */
+	public void remove(Object lockName){
+		this.entries.remove(lockName);
+	}
+	
+	/**
+	 * Remove o nome inativo há mais tempo.
+	 * @return nome ou <code>null</code> se não existirem nomes inativos.
+	 */
+	public Object pollEldest(){
+		Iterator<Object> i = this.entries.keySet().iterator();
+		
+		if(!i.hasNext()){
+			return null;
+		}
+		
+		Object eldest = i.next();
+		i.remove();
+		return eldest;
+	}
+	
+	/**
+	 * Remove o nome inativo há mais tempo se a sua inatividade tiver expirado.
+	 * @param now momento atual, em nanossegundos.
+	 * @param idleTime tempo de inatividade, em nanossegundos.
+	 * @return nome ou <code>null</code> se nenhum nome estiver expirado.
+	 */
+	public Object pollExpired(long now, long idleTime){
+		Iterator<Map.Entry<Object,Long>> i = this.entries.entrySet().iterator();
+		
+		if(!i.hasNext()){
+			return null;
+		}
+		
+		Map.Entry<Object,Long> e = i.next();
+		
+		/*
+		 * Os nomes estão em ordem de inatividade.
+		 */
+		if(now - e.getValue() < idleTime){
+			return null;
+		}
+		
+		i.remove();
+		return e.getKey();
+	}
+	
+	public boolean isEmpty(){
+		return this.entries.isEmpty();
+	}
+	
+	public int size(){
+		return this.entries.size();
+	}
+	
+}
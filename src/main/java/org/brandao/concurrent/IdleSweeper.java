@@ -0,0 +1,89 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.lang.ref.WeakReference;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remove periodicamente as entradas inativas de um registro.
+ * 
+ * <p>Todas as instâncias compartilham uma única thread. A tarefa mantém o registro 
+ * por meio de uma referência fraca e é cancelada quando ele é descartado.</p>
+ * 
+ * @author Brandao
+ *
+ * @param <T> Tipo do registro.
+ */
+abstract class IdleSweeper<T> 
+	extends TimerTask{
+
+	private final WeakReference<T> target;
+	
+	public IdleSweeper(T target){
+		this.target = new WeakReference<T>(target);
+	}
+	
+	/**
+	 * Agenda a remoção periódica. As entradas são verificadas a cada metade do tempo 
+	 * de inatividade.
+	 * @param idleTime tempo de inatividade em nanossegundos.
+	 */
+	public void schedule(long idleTime){
+		long period = Math.max(TimeUnit.NANOSECONDS.toMillis(idleTime) / 2, 1);
+		TimerHolder.TIMER.schedule(this, period, period);
+	}
+	
+	public void run(){
+		T value = this.target.get();
+		
+		if(value == null){
+			this.cancel();
+			return;
+		}
+		
+		/*
+		 * Uma exceção encerraria a thread compartilhada por todos os registros. 
+		 * A falha é entregue ao tratador de exceções da thread e a remoção é 
+		 * repetida no próximo período.
+		 */
+		try{
+			this.sweep(value);
+		}
+		catch(RuntimeException e){
+			Thread thread = Thread.currentThread();
+			thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+		}
+	}
+	
+	/**
+	 * Remove as entradas inativas do registro.
+	 * @param target registro.
+	 */
+	protected abstract void sweep(T target);
+	
+	private static class TimerHolder{
+		
+		static final Timer TIMER = new Timer("named-lock-idle-sweeper", true);
+		
+	}
+	
+}
@@ -0,0 +1,63 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Estratégia de comparação das chaves de {@link KeyedLock}.
+ * 
+ * <p>Permite usar como chave objetos que não implementam <code>equals</code> e 
+ * <code>hashCode</code>, como vetores, ou comparar as chaves de forma diferente 
+ * da definida pela classe.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    KeyedLock&lt;long[]&gt; keyedLock = new KeyedLock&lt;long[]&gt;(new KeyHasher&lt;long[]&gt;(){
+ *        public int hashCode(long[] key){
+ *            return Arrays.hashCode(key);
+ *        }
+ *        public boolean equals(long[] a, long[] b){
+ *            return Arrays.equals(a, b);
+ *        }
+ *    });
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ * @param <K> tipo da chave.
+ */
+public interface KeyHasher<K> {
+
+	/**
+	 * Calcula o código de dispersão de uma chave.
+	 * @param key chave.
+	 * @return código de dispersão.
+	 */
+	int hashCode(K key);
+	
+	/**
+	 * Verifica se duas chaves são iguais.
+	 * @param a chave.
+	 * @param b chave.
+	 * @return <code>true</code> se as chaves forem iguais. Caso contrário, <code>false</code>.
+	 */
+	boolean equals(K a, K b);
+	
+}
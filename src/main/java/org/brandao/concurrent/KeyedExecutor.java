@@ -0,0 +1,254 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.LinkedList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Executa tarefas de forma serial por chave.
+ * 
+ * <p>É uma alternativa ao uso de um bloqueio por chave quando a intenção 
+ * é "executar esta tarefa com exclusividade para a chave K". Em vez de 
+ * bloquear uma thread à espera do bloqueio, a tarefa é adicionada à fila da 
+ * chave. As filas são executadas em um {@link Executor} compartilhado com no 
+ * máximo uma tarefa ativa por chave. A fila de uma chave é removida quando 
+ * fica vazia.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    KeyedExecutor&lt;String&gt; executor = 
+ *        new KeyedExecutor&lt;String&gt;(Executors.newFixedThreadPool(8));
+ *    
+ *    executor.execute("nome_do_lock", new Runnable(){
+ *    
+ *        public void run(){
+ *            //ações executadas com exclusividade para a chave.
+ *        }
+ *        
+ *    });
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ * @param <T> Tipo da chave.
+ */
+public class KeyedExecutor<T> {
+
+	/**
+	 * Quantidade máxima de tarefas executadas em sequência por uma fila antes
+	 * de ela ceder a thread às demais filas.
+	 */
+	private static final int MAX_BATCH = 64;
+	
+	/**
+	 * Filas associadas às chaves.
+	 */
+	protected final ConcurrentMap<T, TaskQueue> queues;
+	
+	private final Executor executor;
+	
+	/**
+	 * Cria uma nova instância.
+	 * @param executor executor compartilhado pelas filas.
+	 */
+	public KeyedExecutor(Executor executor){
+		
+		if(executor == null){
+			throw new NullPointerException("executor");
+		}
+		
+		this.executor = executor;
+		this.queues   = new ConcurrentHashMap<T, TaskQueue>();
+	}
+	
+	/**
+	 * Executa uma tarefa após todas as tarefas enviadas anteriormente para a mesma chave.
+	 * @param key chave.
+	 * @param task tarefa.
+	 * @throws RejectedExecutionException Lançada se o executor não aceitar a fila da chave.
+	 */
+	public void execute(T key, Runnable task){
+		
+		if(task == null){
+			throw new NullPointerException("task");
+		}
+		
+		for(;;){
+			TaskQueue queue = this.queues.get(key);
+			
+			if(queue == null){
+				queue = new TaskQueue(key);
+				TaskQueue current = this.queues.putIfAbsent(key, queue);
+				if(current != null){
+					queue = current;
+				}
+			}
+			
+			boolean schedule;
+			
+			synchronized(queue){
+				
+				/*
+				 * A fila foi esvaziada e removida após a sua obtenção.
+				 */
+				if(queue.removed){
+					continue;
+				}
+				
+				queue.tasks.add(task);
+				schedule        = !queue.scheduled;
+				queue.scheduled = true;
+			}
+			
+			if(schedule){
+				try{
+					this.executor.execute(queue);
+				}
+				catch(RejectedExecutionException e){
+					synchronized(queue){
+						queue.tasks.remove(task);
+						queue.scheduled = false;
+						queue.removeIfEmpty();
+					}
+					throw e;
+				}
+			}
+			
+			return;
+		}
+	}
+	
+	/**
+	 * Executa uma tarefa após todas as tarefas enviadas anteriormente para a mesma chave.
+	 * @param key chave.
+	 * @param task tarefa.
+	 * @return resultado pendente da tarefa.
+	 * @throws RejectedExecutionException Lançada se o executor não aceitar a fila da chave.
+	 */
+	public <V> Future<V> submit(T key, Callable<V> task){
+		FutureTask<V> future = new FutureTask<V>(task);
+		this.execute(key, future);
+		return future;
+	}
+	
+	/**
+	 * Obtém a quantidade de chaves com tarefas pendentes ou em execução.
+	 * @return quantidade de chaves.
+	 */
+	public int getActiveKeys(){
+		return this.queues.size();
+	}
+	
+	protected class TaskQueue 
+		implements Runnable{
+		
+		private final T key;
+		
+		private final LinkedList<Runnable> tasks;
+		
+		/**
+		 * Indica que a fila foi enviada ao executor.
+		 */
+		private boolean scheduled;
+		
+		/**
+		 * Indica que a fila foi removida do registro.
+		 */
+		private boolean removed;
+		
+		public TaskQueue(T key){
+			this.key   = key;
+			this.tasks = new LinkedList<Runnable>();
+		}
+		
+		public void run(){
+			for(int executed = 0;;executed++){
+				
+				if(executed == MAX_BATCH){
+					this.reschedule();
+					return;
+				}
+				
+				Runnable task;
+				
+				synchronized(this){
+					task = this.tasks.poll();
+					
+					if(task == null){
+						this.scheduled = false;
+						this.removeIfEmpty();
+						return;
+					}
+				}
+				
+				boolean completed = false;
+				
+				try{
+					task.run();
+					completed = true;
+				}
+				finally{
+					
+					/*
+					 * As demais tarefas da chave continuam em uma nova 
+					 * execução e o erro é repassado ao executor.
+					 */
+					if(!completed){
+						this.reschedule();
+					}
+				}
+			}
+		}
+		
+		private void reschedule(){
+			try{
+				executor.execute(this);
+			}
+			catch(RejectedExecutionException e){
+				
+				/*
+				 * As tarefas pendentes serão executadas quando uma nova 
+				 * tarefa for enviada para a chave.
+				 */
+				synchronized(this){
+					this.scheduled = false;
+					this.removeIfEmpty();
+				}
+			}
+		}
+		
+		private void removeIfEmpty(){
+			if(this.tasks.isEmpty()){
+				this.removed = true;
+				queues.remove(this.key, this);
+			}
+		}
+		
+	}
+	
+}
@@ -0,0 +1,2003 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Provê operações de bloqueio baseado em chaves.
+ * Ele tenta oferecer quase todos os recursos encontrados
+ * em {@link Lock}.
+ * 
+ * <p>A chave pode ser qualquer objeto com <code>equals</code> e <code>hashCode</code>, 
+ * o que permite usar chaves compostas sem construir um nome a cada aquisição. 
+ * Opcionalmente, um {@link KeyHasher} pode substituir o <code>equals</code> e o 
+ * <code>hashCode</code> da chave. {@link NamedLock} é a especialização para chaves 
+ * do tipo {@link String}.</p>
+ * 
+ * <p>Para iniciar um bloqueio, deve-se usar o método {@link #lock(Object)},
+ * {@link #lockInterruptibly(Object)} ou {@link #tryLock(Object)}, e
+ * para desbloquear deve-se usar o método {@link #unlock(Serializable, Object)}</p>
+ * 
+ * <p>Os métodos de bloqueio provêem uma referência que deve ser usado no método de
+ * desbloqueio</p>
+ * 
+ * <p>Uma nova aquisição de um nome pela thread que já possui o seu bloqueio 
+ * devolve a mesma referência e deve ser liberada como as demais.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    NamedLock namedLock = ...;
+ *    Serializable refLock = namedLock.lock("nome_do_lock");
+ *    try{
+ *       //ações protegidas pelo bloqueio.
+ *    }
+ *    finally{
+ *       namedLock.unlock(refLock, "nome_do_lock");
+ *    }
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class KeyedLock<K> {
+
+	/**
+	 * Prioridade usada pelos métodos de bloqueio sem prioridade.
+	 */
+	public static final int DEFAULT_PRIORITY = PriorityLock.DEFAULT_PRIORITY;
+	
+	/*
+	 * As estimativas de memória a seguir consideram uma JVM de 64 bits com 
+	 * referências comprimidas e objetos com cabeçalho de 12 bytes e alinhados em 
+	 * 8 bytes. A memória dos bloqueios é informada pelas suas fábricas.
+	 */
+	
+	/**
+	 * Estimativa, em bytes, de uma entrada de um {@link HashMap}: o nó (32) e a 
+	 * parcela da tabela, que fica entre 0,375 e 0,75 de ocupação (8).
+	 */
+	static final long HASH_ENTRY_MEMORY = 32 + 8;
+	
+	/**
+	 * Estimativa, em bytes, de uma chave sem os caracteres: o objeto {@link String} 
+	 * (24) e o cabeçalho do vetor de caracteres (16).
+	 */
+	static final long KEY_MEMORY = 24 + 16;
+	
+	/**
+	 * Indica se as strings compostas somente por caracteres Latin-1 usam um byte 
+	 * por caractere, o padrão a partir do Java 9.
+	 */
+	private static final boolean COMPACT_STRINGS = 
+			!System.getProperty("java.specification.version").startsWith("1.");
+	
+	/**
+	 * Estimativa, em bytes, de um conjunto de referências: o {@link HashSet} (16), 
+	 * o {@link HashMap} interno (48) e a tabela inicial de 16 posições (80).
+	 */
+	static final long REFERENCE_SET_MEMORY = 16 + 48 + 80;
+	
+	/**
+	 * Estimativa, em bytes, da memória usada por um nome em um dos registros, sem o 
+	 * nome e sem o bloqueio: as entradas nos mapas dos bloqueios e das referências 
+	 * e o conjunto de referências.
+	 */
+	static final long ENTRY_MEMORY = 
+			2 * HASH_ENTRY_MEMORY + REFERENCE_SET_MEMORY;
+	
+	/**
+	 * Estimativa, em bytes, da memória usada por uma referência no registro: a 
+	 * entrada no conjunto de referências e o {@link UUID} (32).
+	 */
+	static final long REFERENCE_MEMORY = HASH_ENTRY_MEMORY + 32;
+	
+	/**
+	 * Estimativa, em bytes, da memória usada por um nome inativo: a entrada do 
+	 * {@link LinkedHashMap} (8 bytes maior que a de um {@link HashMap}) e o 
+	 * início da inatividade (24).
+	 */
+	static final long IDLE_ENTRY_MEMORY = HASH_ENTRY_MEMORY + 8 + 24;
+	
+	/**
+	 * Estimativa, em caracteres, do tamanho das chaves que não são do tipo {@link String}.
+	 */
+	private static final int KEY_LENGTH = 8;
+	
+	/**
+	 * Quantidade máxima de nomes inativos removidos a cada obtenção do bloqueio global.
+	 */
+	private static final int SWEEP_BATCH = 256;
+
+	/**
+	 * A referência de um bloqueio é necessário para se evitar problemas de sincronização na liberação 
+	 * da instância de um {@link Lock}.
+	 * <p>Um contador não pode ser usado porque assim não seria possível identificar a origem e fazer
+	 * a liberação da instância do {@link Lock} de forma segura.</p> 
+	 * Usando a estratégia de armazenar a referência consome-se mais memória em relação ao uso de um
+	 * contador, mas nesse caso o mais importante é a confiabilidade.
+	 * <p>As chaves do mapa são as chaves informadas ou, com uma estratégia de 
+	 * comparação, instâncias de {@link HashedKey}.</p>
+	 */
+	private final Map<Object,Set<UUID>> origins;
+
+	/**
+	 * Lock associado a um determinado nome.
+	 * @see #origins
+	 */
+	private final Map<Object,Lock> locks;
+
+	/**
+	 * Registro dos bloqueios de leitura e escrita.
+	 */
+	private final ReadWriteLockRegistry readWriteRegistry;
+	
+	/**
+	 * Bloqueio global usado para sincronizar a aquisição e liberação dos bloqueios reais.
+	 */
+	protected Lock _lock;
+	
+	/**
+	 * Valida a ordem de aquisição dos bloqueios. Se <code>null</code>, a validação
+	 * está desativada.
+	 */
+	protected volatile LockOrderValidator lockOrderValidator;
+	
+	/**
+	 * Contabiliza as aquisições com disputa. Se <code>null</code>, a contabilização
+	 * está desativada.
+	 */
+	protected volatile ContentionTracker contentionTracker;
+	
+	/**
+	 * Registra quem mantém e quem espera pelos bloqueios. Se <code>null</code>, o 
+	 * registro está desativado.
+	 */
+	protected volatile LockActivityTracker activityTracker;
+	
+	/**
+	 * Detecta os bloqueios não liberados. Se <code>null</code>, a detecção está 
+	 * desativada.
+	 */
+	protected volatile LockLeakDetector leakDetector;
+	
+	/**
+	 * Registra os bloqueios mantidos por cada proprietário. Se <code>null</code>, o 
+	 * rastreamento está desativado.
+	 */
+	private volatile OwnerTracker ownerTracker;
+	
+	/**
+	 * Pontos de publicação das ações usados por {@link #execute(Object, Callable)}.
+	 */
+	protected final ConcurrentMap<Object,CombiningSlot> combiningSlots;
+	
+	/**
+	 * Cria os bloqueios associados aos nomes.
+	 */
+	private final ObjectFactory lockObjectFactory;
+	
+	/**
+	 * Quantidade máxima de nomes no registro. Se <code>0</code>, não existe limite.
+	 */
+	private volatile int maxEntries;
+	
+	/**
+	 * Comportamento da aquisição quando o registro atinge a quantidade máxima de nomes.
+	 */
+	private volatile RegistryOverflowPolicy overflowPolicy;
+	
+	/**
+	 * Bloqueios compartilhados usados pela política {@link RegistryOverflowPolicy#STRIPED}.
+	 */
+	private volatile LockStripes stripes;
+	
+	/**
+	 * Sinaliza a remoção de um nome do registro.
+	 */
+	private final Condition registryNotFull;
+	
+	/**
+	 * Quantidade de referências no registro.
+	 */
+	private long registryReferences;
+	
+	/**
+	 * Soma da memória usada pelos nomes e pelos bloqueios do registro, em bytes.
+	 */
+	private long registryEntryMemory;
+	
+	/**
+	 * Nomes sem referências mantidos no registro.
+	 */
+	private final IdleEntries idleLocks;
+	
+	/**
+	 * Tempo, em nanossegundos, que um nome sem referências permanece no registro. 
+	 * Se <code>0</code>, o nome é removido na liberação da última referência.
+	 */
+	private volatile long idleTime;
+	
+	/**
+	 * Remove os nomes inativos há mais de {@link #idleTime}.
+	 */
+	private IdleSweeper<KeyedLock<?>> idleSweeper;
+	
+	/**
+	 * Bloqueios mantidos pela thread atual, por nome.
+	 */
+	private final ThreadLocal<Map<Object,HeldLock>> heldLocks;
+	
+	/**
+	 * Quantidade de nomes mantidos no cache de cada thread. Se <code>0</code>, 
+	 * o cache está desativado.
+	 */
+	private volatile int threadCacheSize;
+	
+	/**
+	 * Cache da thread atual.
+	 */
+	private final ThreadLocal<ThreadEntryCache> threadCache;
+	
+	/**
+	 * Estratégia de comparação das chaves. Se <code>null</code>, são usados o 
+	 * <code>equals</code> e o <code>hashCode</code> da chave.
+	 */
+	private final KeyHasher<? super K> keyHasher;
+	
+	/**
+	 * Caches de todas as threads.
+	 */
+	private final Queue<ThreadEntryCache> threadCaches;
+	
+	/**
+	 * Cria uma nova instância.
+	 */
+	public KeyedLock(){
+		this((WaitStrategy)null);
+	}
+	
+	/**
+	 * Cria uma nova instância com uma estratégia de espera.
+	 * @param waitStrategy estratégia usada pelas threads à espera de um bloqueio. 
+	 * Se <code>null</code>, são usados bloqueios do tipo {@link ReentrantLock}.
+	 */
+	public KeyedLock(WaitStrategy waitStrategy){
+		this(new LockObjectFactory(waitStrategy), null);
+	}
+	
+	/**
+	 * Cria uma nova instância com uma estratégia de comparação das chaves.
+	 * @param keyHasher estratégia de comparação das chaves.
+	 */
+	public KeyedLock(KeyHasher<? super K> keyHasher){
+		this((WaitStrategy)null, keyHasher);
+	}
+	
+	/**
+	 * Cria uma nova instância com uma estratégia de espera e uma estratégia de 
+	 * comparação das chaves.
+	 * @param waitStrategy estratégia usada pelas threads à espera de um bloqueio. 
+	 * Se <code>null</code>, são usados bloqueios do tipo {@link ReentrantLock}.
+	 * @param keyHasher estratégia de comparação das chaves. Se <code>null</code>, 
+	 * são usados o <code>equals</code> e o <code>hashCode</code> da chave.
+	 */
+	public KeyedLock(WaitStrategy waitStrategy, KeyHasher<? super K> keyHasher){
+		this(new LockObjectFactory(waitStrategy), keyHasher);
+	}
+	
+	/**
+	 * Cria uma nova instância com bloqueios que atendem as threads à espera 
+	 * por ordem de prioridade.
+	 * 
+	 * <p>A prioridade é definida em {@link #lock(Object, int)}, 
+	 * {@link #lockInterruptibly(Object, int)} e {@link #tryLock(Object, int, long, TimeUnit)}. 
+	 * Os demais métodos usam a prioridade {@link #DEFAULT_PRIORITY}. A prioridade 
+	 * efetiva de uma thread à espera aumenta uma unidade a cada intervalo de 
+	 * envelhecimento, evitando que as threads de baixa prioridade esperem 
+	 * indefinidamente.</p>
+	 * @param agingTime intervalo de envelhecimento.
+	 * @param unit unidade de tempo do argumento {@code agingTime}.
+	 */
+	public KeyedLock(long agingTime, TimeUnit unit){
+		this(new PriorityLockObjectFactory(checkAgingTime(unit.toNanos(agingTime))), null);
+	}
+	
+	KeyedLock(ObjectFactory lockObjectFactory, KeyHasher<? super K> keyHasher){
+		this.origins           = new HashMap<Object, Set<UUID>>();
+		this.locks             = new HashMap<Object, Lock>();
+		this._lock             = new ReentrantLock();
+		this.registryNotFull   = this._lock.newCondition();
+		this.readWriteRegistry = new ReadWriteLockRegistry(this._lock);
+		this.lockObjectFactory = lockObjectFactory;
+		this.combiningSlots    = new ConcurrentHashMap<Object, CombiningSlot>();
+		this.threadCache       = new ThreadLocal<ThreadEntryCache>();
+		this.heldLocks         = new ThreadLocal<Map<Object,HeldLock>>();
+		this.threadCaches      = new ConcurrentLinkedQueue<ThreadEntryCache>();
+		this.keyHasher         = keyHasher;
+		this.idleLocks         = new IdleEntries();
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome.
+	 * 
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Serializable lockRef = namedLock.lock("nome_do_lock");
+	 *     try{
+	 *         //ações protegidas pelo bloqueio.
+	 *     }
+	 *     finally{
+	 *         namedLock.unlock(lockRef, "nome_do_lock");
+	 *     }
+	 * </pre>
+	 * </p>
+	 * @param lockName nome do bloqueio.
+	 * @return identificação única do bloqueio associado ao nome.
+	 */
+	public Serializable lock(K lockName){
+		try{
+			return this.acquire(this.registryKey(lockName), -1, false, DEFAULT_PRIORITY);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+
+	/**
+	 * Adquire um bloqueio com um determinado nome a menos que a thread atual seja interrompida.
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Serializable lockRef = namedLock.lockInterruptibly("nome_do_lock");
+	 *     try{
+	 *         //ações protegidas pelo bloqueio.
+	 *     }
+	 *     finally{
+	 *         namedLock.unlock(lockRef, "nome_do_lock");
+	 *     }
+	 * </pre>
+	 * @param lockName nome do bloqueio.
+	 * @return identificação única do bloqueio associado ao nome.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 */
+    public Serializable lockInterruptibly(K lockName) throws InterruptedException{
+		return this.acquire(this.registryKey(lockName), -1, true, DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Tenta adquirir o bloqueio somente se ele estiver livre no momento da invocação.
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Serializable lockRef;
+	 *     if((lockRef = namedLock.tryLock("nome_do_lock")) != null){
+	 *         try{
+	 *             //ações protegidas pelo bloqueio.
+	 *          }
+	 *     	    finally{
+	 *     	        namedLock.unlock(lockRef, "nome_do_lock");
+	 *          }
+	 *     }
+	 *     else{
+	 *         //ações alternativas.
+	 *     }
+	 * </pre>
+	 * @param lockName nome do bloqueio.
+	 * @return identificação única do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não estiver livre ou, com a política {@link RegistryOverflowPolicy#FAIL}, 
+	 * o registro estiver cheio.
+     */
+	public Serializable tryLock(K lockName){
+		try{
+			return this.acquire(this.registryKey(lockName), 0, false, DEFAULT_PRIORITY);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+    
+	/**
+     * Tenta adquirir o bloqueio somente se ele estiver livre dentro de um determinado 
+     * prazo de tempo e a thread atual não for interrompida.
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Serializable lockRef;
+	 *     if((lockRef = namedLock.tryLock("nome_do_lock", 1200, TimeUnit.MILLISECONDS)) != null){
+	 *         try{
+	 *             //ações protegidas pelo bloqueio.
+	 *          }
+	 *     	    finally{
+	 *     	        namedLock.unlock(lockRef, "nome_do_lock");
+	 *          }
+	 *     }
+	 *     else{
+	 *         //ações alternativas.
+	 *     }
+	 * </pre>
+	 * @param lockName nome do bloqueio.
+	 * @param time tempo máximo de espera para adquirir o bloqueio.
+	 * @param unit unidade de tempo do argumento {@code time}.
+	 * @return identificação única do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não for obtido dentro do prazo determinado.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 */
+	public Serializable tryLock(K lockName, long time, TimeUnit unit) throws InterruptedException{
+		return this.acquire(this.registryKey(lockName), Math.max(unit.toNanos(time), 1), true, DEFAULT_PRIORITY);
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome e prioridade.
+	 * 
+	 * <p>A prioridade somente é considerada nas instâncias criadas com 
+	 * {@link #KeyedLock(long, TimeUnit)}. Nas demais, o método equivale a 
+	 * {@link #lock(Object)}.</p>
+	 * @param lockName nome do bloqueio.
+	 * @param priority prioridade. Quanto maior o valor, maior a prioridade.
+	 * @return identificação única do bloqueio associado ao nome.
+	 */
+	public Serializable lock(K lockName, int priority){
+		try{
+			return this.acquire(this.registryKey(lockName), -1, false, priority);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome e prioridade a menos que a thread 
+	 * atual seja interrompida.
+	 * @param lockName nome do bloqueio.
+	 * @param priority prioridade. Quanto maior o valor, maior a prioridade.
+	 * @return identificação única do bloqueio associado ao nome.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see #lock(Object, int)
+	 */
+	public Serializable lockInterruptibly(K lockName, int priority) throws InterruptedException{
+		return this.acquire(this.registryKey(lockName), -1, true, priority);
+	}
+	
+	/**
+	 * Tenta adquirir o bloqueio com uma determinada prioridade somente se ele estiver 
+	 * livre dentro de um determinado prazo de tempo e a thread atual não for interrompida.
+	 * @param lockName nome do bloqueio.
+	 * @param priority prioridade. Quanto maior o valor, maior a prioridade.
+	 * @param time tempo máximo de espera para adquirir o bloqueio.
+	 * @param unit unidade de tempo do argumento {@code time}.
+	 * @return identificação única do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não for obtido dentro do prazo determinado.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see #lock(Object, int)
+	 */
+	public Serializable tryLock(K lockName, int priority, 
+			long time, TimeUnit unit) throws InterruptedException{
+		return this.acquire(this.registryKey(lockName), Math.max(unit.toNanos(time), 1), true, priority);
+	}
+	
+	/**
+	 * Adquire o bloqueio de leitura de um determinado nome.
+	 * 
+	 * <p>Os bloqueios de leitura e escrita são independentes dos bloqueios obtidos 
+	 * em {@link #lock(Object)} para o mesmo nome. A liberação é feita em 
+	 * {@link #unlock(Serializable, Object)}.</p>
+	 * 
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Serializable lockRef = namedLock.lockRead("nome_do_lock");
+	 *     try{
+	 *         //leitura protegida pelo bloqueio.
+	 *     }
+	 *     finally{
+	 *         namedLock.unlock(lockRef, "nome_do_lock");
+	 *     }
+	 * </pre>
+	 * @param lockName nome do bloqueio.
+	 * @return identificação única do bloqueio associado ao nome.
+	 */
+	public Serializable lockRead(K lockName){
+		return this.acquireReadWrite(this.registryKey(lockName), ReadWriteLockRegistry.Ref.READ);
+	}
+	
+	/**
+	 * Adquire o bloqueio de escrita de um determinado nome.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação única do bloqueio associado ao nome.
+	 * @see #lockRead(Object)
+	 */
+	public Serializable lockWrite(K lockName){
+		return this.acquireReadWrite(this.registryKey(lockName), ReadWriteLockRegistry.Ref.WRITE);
+	}
+	
+	/**
+	 * Adquire o bloqueio de leitura atualizável de um determinado nome.
+	 * 
+	 * <p>Somente uma thread por vez possui a leitura atualizável de um nome, 
+	 * que convive com as leituras comuns. A leitura pode ser atualizada para 
+	 * escrita de forma atômica em {@link #upgrade(Serializable, Object)}.</p>
+	 * 
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Serializable lockRef = namedLock.lockUpgradable("nome_do_lock");
+	 *     try{
+	 *         if(//verificação){
+	 *             namedLock.upgrade(lockRef, "nome_do_lock");
+	 *             //alteração.
+	 *         }
+	 *     }
+	 *     finally{
+	 *         namedLock.unlock(lockRef, "nome_do_lock");
+	 *     }
+	 * </pre>
+	 * @param lockName nome do bloqueio.
+	 * @return identificação única do bloqueio associado ao nome.
+	 * @see UpgradableReadWriteLock
+	 */
+	public Serializable lockUpgradable(K lockName){
+		return this.acquireReadWrite(this.registryKey(lockName), ReadWriteLockRegistry.Ref.UPGRADABLE);
+	}
+	
+	/**
+	 * Atualiza uma leitura atualizável para escrita. Espera a saída dos leitores 
+	 * sem liberar a leitura, de modo que nenhuma outra escrita ocorre entre a 
+	 * verificação e a alteração.
+	 * @param ref identificação obtida em {@link #lockUpgradable(Object)}.
+	 * @param lockName nome do bloqueio.
+	 */
+	public void upgrade(Serializable ref, K lockName){
+		ReadWriteLockRegistry.Ref rwRef = this.getUpgradableRef(ref, lockName);
+		
+		if(rwRef.upgraded){
+			throw new IllegalStateException("lock already upgraded: " + lockName + ": " + ref);
+		}
+		
+		this.readWriteRegistry.get(rwRef, this.registryKey(lockName)).writeLock().lock();
+		rwRef.upgraded = true;
+	}
+	
+	/**
+	 * Rebaixa uma escrita obtida em {@link #upgrade(Serializable, Object)} para 
+	 * leitura atualizável.
+	 * @param ref identificação obtida em {@link #lockUpgradable(Object)}.
+	 * @param lockName nome do bloqueio.
+	 */
+	public void downgrade(Serializable ref, K lockName){
+		ReadWriteLockRegistry.Ref rwRef = this.getUpgradableRef(ref, lockName);
+		
+		if(!rwRef.upgraded){
+			throw new IllegalStateException("lock not upgraded: " + lockName + ": " + ref);
+		}
+		
+		this.readWriteRegistry.get(rwRef, this.registryKey(lockName)).writeLock().unlock();
+		rwRef.upgraded = false;
+	}
+	
+	/**
+	 * Libera o bloqueio com um determinado nome e referência.
+	 * @param ref identificação única do bloqueio associado ao nome.
+	 * @param lockName nome do bloqueio.
+	 */
+	public void unlock(Serializable ref, K lockName){
+		this.release(ref, this.registryKey(lockName));
+	}
+	
+	private void release(Serializable ref, Object lockName){
+		if(this.releaseHold(ref, lockName)){
+			return;
+		}
+		
+		if(ref instanceof LockStripes.Ref){
+			this.getStripe(ref, lockName).unlock();
+			this.released(ref, lockName);
+			return;
+		}
+		
+		if(ref instanceof ReadWriteLockRegistry.Ref){
+			this.readWriteRegistry.release((ReadWriteLockRegistry.Ref)ref, lockName, this.idleTime);
+			this.released(ref, lockName);
+			return;
+		}
+		
+		if(ref instanceof ThreadEntryCache.Ref){
+			ThreadEntryCache.Entry entry = this.getCachedEntry(ref, lockName);
+			
+			entry.lock.unlock();
+			
+			this.released(ref, lockName);
+			
+			if(entry.unpin()){
+				this.releaseLock(entry.pin, lockName);
+			}
+			
+			return;
+		}
+		
+		Lock lock = this.locks.get(lockName);
+		
+		if(lock == null){
+			throw new IllegalStateException("lock not found: " + lockName + ": " + ref);
+		}
+		
+		lock.unlock();
+		
+		this.released(ref, lockName);
+		this.releaseLock(ref, lockName);
+	}
+	
+	/**
+	 * Executa uma ação com a posse do bloqueio de um determinado nome.
+	 * 
+	 * <p>As threads que disputam o mesmo nome publicam as suas ações e a thread que 
+	 * obtém o bloqueio executa um lote das ações publicadas enquanto os dados 
+	 * protegidos estão no seu cache, entregando os resultados às demais 
+	 * (flat combining). Isso reduz a troca de posse do bloqueio em nomes muito 
+	 * disputados.</p>
+	 * 
+	 * <p>Como a ação pode ser executada por outra thread, ela não deve depender da 
+	 * identidade da thread atual (ex: {@link ThreadLocal}) nem adquirir outros bloqueios.
+	 * O método pode ser usado em conjunto com os demais métodos de bloqueio do 
+	 * mesmo nome.</p>
+	 * 
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Integer value = namedLock.execute("nome_do_lock", new Callable&lt;Integer&gt;(){
+	 *     
+	 *         public Integer call(){
+	 *             //ações protegidas pelo bloqueio.
+	 *         }
+	 *         
+	 *     });
+	 * </pre>
+	 * @param key nome do bloqueio.
+	 * @param action ação protegida pelo bloqueio.
+	 * @return resultado da ação.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida antes 
+	 * da execução da ação.
+	 * @throws Exception Lançada pela ação.
+	 */
+	@SuppressWarnings("unchecked")
+	public <V> V execute(K key, Callable<V> action) throws Exception{
+		Object lockName                = this.registryKey(key);
+		CombiningSlot slot             = this.pinCombiningSlot(lockName);
+		CombiningSlot.Request request  = new CombiningSlot.Request(action, Thread.currentThread());
+		boolean interrupted            = false;
+		
+		try{
+			slot.publish(request);
+			
+			while(!request.done){
+				Serializable ref;
+				
+				/*
+				 * Somente a primeira ação pendente espera pelo bloqueio. Como o 
+				 * bloqueio pode estar com uma thread que não usa este método, a 
+				 * espera é feita no próprio bloqueio. As demais threads são acordadas 
+				 * quando a sua ação é executada ou quando passam a ser a primeira.
+				 */
+				try{
+					ref = slot.isFirst(request)? 
+							this.acquire(lockName, -1, true, DEFAULT_PRIORITY) :
+							this.acquire(lockName, 0, false, DEFAULT_PRIORITY);
+				}
+				catch(InterruptedException e){
+					if(slot.withdraw(request)){
+						slot.signal();
+						throw e;
+					}
+					interrupted = true;
+					continue;
+				}
+				catch(RuntimeException e){
+					if(slot.withdraw(request)){
+						slot.signal();
+						throw e;
+					}
+					
+					/*
+					 * A ação está sendo executada por outra thread.
+					 */
+					ref = null;
+				}
+				
+				if(ref != null){
+					try{
+						slot.combine();
+					}
+					finally{
+						this.release(ref, lockName);
+					}
+					slot.signal();
+					continue;
+				}
+				
+				/*
+				 * A permissão de uma notificação anterior pode ter sido consumida 
+				 * por uma espera no registro, portanto a condição é verificada 
+				 * novamente antes da espera.
+				 */
+				if(!request.done && !slot.isFirst(request)){
+					LockSupport.park(slot);
+				}
+				
+				if(Thread.interrupted()){
+					if(slot.withdraw(request)){
+						slot.signal();
+						throw new InterruptedException();
+					}
+					interrupted = true;
+				}
+			}
+		}
+		finally{
+			this.unpinCombiningSlot(lockName, slot);
+			
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		if(request.error == null){
+			return (V)request.result;
+		}
+		else
+		if(request.error instanceof Exception){
+			throw (Exception)request.error;
+		}
+		else{
+			throw (Error)request.error;
+		}
+	}
+	
+	/**
+	 * Libera todos os bloqueios mantidos pelo proprietário atual.
+	 * @return quantidade de bloqueios liberados.
+	 * @see #unlockAll(Object)
+	 */
+	public int unlockAll(){
+		OwnerTracker tracker = this.ownerTracker;
+		
+		if(tracker == null){
+			throw new IllegalStateException("owner tracking is disabled");
+		}
+		
+		return this.unlockAll(tracker.getCurrentOwner());
+	}
+	
+	/**
+	 * Libera todos os bloqueios mantidos por um proprietário.
+	 * 
+	 * <p>Os bloqueios são liberados na ordem inversa da aquisição e as entradas 
+	 * do registro são removidas em lote. Deve ser chamado pela thread que 
+	 * adquiriu os bloqueios. O rastreamento dos proprietários deve estar ativado.</p>
+	 * 
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     namedLock.setOwnerTracking(true);
+	 *     ...
+	 *     namedLock.setCurrentOwner(task);
+	 *     try{
+	 *         task.run();
+	 *     }
+	 *     finally{
+	 *         namedLock.unlockAll(task);
+	 *         namedLock.setCurrentOwner(null);
+	 *     }
+	 * </pre>
+	 * @param owner proprietário dos bloqueios. Pode ser uma thread ou um objeto 
+	 * definido em {@link #setCurrentOwner(Object)}.
+	 * @return quantidade de bloqueios liberados.
+	 */
+	public int unlockAll(Object owner){
+		OwnerTracker tracker = this.ownerTracker;
+		
+		if(tracker == null){
+			throw new IllegalStateException("owner tracking is disabled");
+		}
+		
+		Map<Serializable,Object> held = tracker.removeAll(owner);
+		
+		if(held == null){
+			return 0;
+		}
+		
+		List<Map.Entry<Serializable,Object>> entries = 
+				new ArrayList<Map.Entry<Serializable,Object>>(held.entrySet());
+		Map<Object,HeldLock> holds   = this.heldLocks.get();
+		int count                    = 0;
+		RuntimeException error       = null;
+		
+		_lock.lock();
+		try{
+			for(int i=entries.size()-1;i>=0;i--){
+				Serializable ref = entries.get(i).getKey();
+				Object lockName  = entries.get(i).getValue();
+				HeldLock hold    = holds == null? null : holds.get(lockName);
+				
+				if(hold != null && hold.getRef() == ref){
+					holds.remove(lockName);
+					count += hold.count;
+				}
+				else{
+					count++;
+				}
+				
+				try{
+					if(ref instanceof LockStripes.Ref){
+						this.getStripe(ref, lockName).unlock();
+						
+						this.releasedUntracked(ref, lockName);
+						
+						continue;
+					}
+					
+					if(ref instanceof ReadWriteLockRegistry.Ref){
+						this.readWriteRegistry.release(
+								(ReadWriteLockRegistry.Ref)ref, lockName, this.idleTime);
+						
+						this.releasedUntracked(ref, lockName);
+						
+						continue;
+					}
+					
+					if(ref instanceof ThreadEntryCache.Ref){
+						ThreadEntryCache.Entry entry = this.getCachedEntry(ref, lockName);
+						
+						entry.lock.unlock();
+						
+						this.releasedUntracked(ref, lockName);
+						
+						if(entry.unpin()){
+							this.removeReference(entry.pin, lockName);
+						}
+						
+						continue;
+					}
+					
+					Lock lock = this.locks.get(lockName);
+					
+					if(lock == null){
+						throw new IllegalStateException("lock not found: " + lockName + ": " + ref);
+					}
+					
+					lock.unlock();
+					
+					this.releasedUntracked(ref, lockName);
+					
+					this.removeReference(ref, lockName);
+				}
+				catch(RuntimeException e){
+					if(error == null){
+						error = e;
+					}
+				}
+			}
+		}
+		finally{
+			_lock.unlock();
+		}
+		
+		if(error != null){
+			throw error;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Ativa ou desativa o rastreamento dos bloqueios mantidos por cada proprietário.
+	 * <p>O rastreamento é necessário para o uso de {@link #unlockAll(Object)} e deve 
+	 * ser ativado antes do uso dos bloqueios.</p>
+	 * @param value <code>true</code> para ativar o rastreamento. Caso contrário, <code>false</code>.
+	 */
+	public synchronized void setOwnerTracking(boolean value){
+		if(!value){
+			this.ownerTracker = null;
+		}
+		else
+		if(this.ownerTracker == null){
+			this.ownerTracker = new OwnerTracker();
+		}
+	}
+	
+	/**
+	 * Verifica se o rastreamento dos bloqueios mantidos por cada proprietário está ativado.
+	 * @return <code>true</code> se estiver ativado. Caso contrário, <code>false</code>.
+	 */
+	public boolean isOwnerTracking(){
+		return this.ownerTracker != null;
+	}
+	
+	/**
+	 * Define o proprietário dos bloqueios adquiridos pela thread atual a partir 
+	 * deste momento.
+	 * @param owner proprietário ou <code>null</code> para usar a própria thread.
+	 */
+	public void setCurrentOwner(Object owner){
+		OwnerTracker tracker = this.ownerTracker;
+		
+		if(tracker == null){
+			throw new IllegalStateException("owner tracking is disabled");
+		}
+		
+		tracker.setCurrentOwner(owner);
+	}
+	
+	/**
+	 * Obtém o proprietário dos bloqueios adquiridos pela thread atual.
+	 * @return proprietário definido em {@link #setCurrentOwner(Object)} ou a própria thread.
+	 */
+	public Object getCurrentOwner(){
+		OwnerTracker tracker = this.ownerTracker;
+		return tracker == null? Thread.currentThread() : tracker.getCurrentOwner();
+	}
+	
+	/**
+	 * Define a quantidade máxima de nomes no registro e o comportamento da 
+	 * aquisição de um novo nome quando ela for atingida.
+	 * 
+	 * <p>Os nomes que já estão no registro não são afetados pelo limite. Deve ser 
+	 * definido antes do uso dos bloqueios.</p>
+	 * 
+	 * <p>Com o registro cheio e sem nomes inativos, os nomes mantidos apenas pelos 
+	 * caches das threads são descartados antes da aplicação da política.</p>
+	 * 
+	 * <p>O limite também se aplica, separadamente, ao registro dos bloqueios de 
+	 * leitura e escrita. Como essas aquisições não possuem prazo nem bloqueios 
+	 * compartilhados, as políticas {@link RegistryOverflowPolicy#BLOCK} e 
+	 * {@link RegistryOverflowPolicy#STRIPED} esperam, sem interrupção, até que 
+	 * um nome seja removido.</p>
+	 * @param value quantidade máxima de nomes ou <code>0</code> para não limitar o registro.
+	 * @param policy comportamento da aquisição quando o limite for atingido.
+	 */
+	public synchronized void setMaxEntries(int value, RegistryOverflowPolicy policy){
+		if(value < 0){
+			throw new IllegalArgumentException("invalid max entries: " + value);
+		}
+		
+		if(policy == null){
+			throw new NullPointerException("policy");
+		}
+		
+		if(policy == RegistryOverflowPolicy.STRIPED && this.stripes == null){
+			this.stripes = new LockStripes(this.lockObjectFactory);
+		}
+		
+		this.overflowPolicy = policy;
+		this.maxEntries     = value;
+		
+		_lock.lock();
+		try{
+			this.registryNotFull.signalAll();
+		}
+		finally{
+			_lock.unlock();
+		}
+		
+		this.readWriteRegistry.setMaxEntries(value, policy);
+	}
+	
+	/**
+	 * Obtém a quantidade máxima de nomes no registro.
+	 * @return quantidade máxima de nomes ou <code>0</code> se o registro não for limitado.
+	 */
+	public int getMaxEntries(){
+		return this.maxEntries;
+	}
+	
+	/**
+	 * Obtém o comportamento da aquisição quando o registro atinge a quantidade 
+	 * máxima de nomes.
+	 * @return política ou <code>null</code> se o registro não for limitado.
+	 */
+	public RegistryOverflowPolicy getOverflowPolicy(){
+		return this.maxEntries == 0? null : this.overflowPolicy;
+	}
+	
+	/**
+	 * Define o tempo que um nome sem referências permanece no registro.
+	 * 
+	 * <p>Sem esse tempo, um nome bloqueado e liberado repetidamente tem a sua 
+	 * entrada e o seu bloqueio removidos e criados a cada aquisição. Com ele, 
+	 * o nome liberado permanece inativo no registro e é reaproveitado pela 
+	 * próxima aquisição. Os nomes inativos há mais tempo que o definido são 
+	 * removidos em lotes por uma thread compartilhada. Com o registro cheio, 
+	 * o nome inativo há mais tempo é removido para dar lugar a um novo nome.</p>
+	 * 
+	 * <p>Os nomes inativos são contabilizados em {@link #getRegistrySize()}.</p>
+	 * @param time tempo de inatividade. Se <code>0</code>, os nomes são removidos 
+	 * na liberação da última referência.
+	 * @param unit unidade do tempo.
+	 */
+	public synchronized void setIdleTime(long time, TimeUnit unit){
+		if(time < 0){
+			throw new IllegalArgumentException("invalid idle time: " + time);
+		}
+		
+		if(this.idleSweeper != null){
+			this.idleSweeper.cancel();
+			this.idleSweeper = null;
+		}
+		
+		this.idleTime = unit.toNanos(time);
+		
+		if(this.idleTime > 0){
+			this.idleSweeper = new IdleEntrySweeper(this);
+			this.idleSweeper.schedule(this.idleTime);
+		}
+		else{
+			this.sweepIdleEntries();
+		}
+	}
+	
+	/**
+	 * Obtém o tempo que um nome sem referências permanece no registro.
+	 * @param unit unidade do tempo.
+	 * @return tempo de inatividade.
+	 */
+	public long getIdleTime(TimeUnit unit){
+		return unit.convert(this.idleTime, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Remove do registro os nomes inativos há mais tempo que o definido em 
+	 * {@link #setIdleTime(long, TimeUnit)}. O bloqueio global é liberado entre 
+	 * os lotes.
+	 */
+	void sweepIdleEntries(){
+		boolean pending = true;
+		
+		while(pending){
+			long idle = this.idleTime;
+			long now  = System.nanoTime();
+			
+			_lock.lock();
+			try{
+				int removed = 0;
+				Object lockName;
+				
+				while(removed < SWEEP_BATCH && 
+						(lockName = this.idleLocks.pollExpired(now, idle)) != null){
+					this.removeEntry(lockName);
+					removed++;
+				}
+				
+				removed += 
+						this.readWriteRegistry.sweepIdleEntries(now, idle, SWEEP_BATCH - removed);
+				pending  = removed == SWEEP_BATCH;
+			}
+			finally{
+				_lock.unlock();
+			}
+		}
+	}
+	
+	/**
+	 * Obtém a quantidade de nomes no registro.
+	 * @return quantidade de nomes.
+	 */
+	public int getRegistrySize(){
+		_lock.lock();
+		try{
+			return this.locks.size();
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Obtém uma estimativa da memória usada pelo registro.
+	 * 
+	 * <p>A estimativa considera, para cada nome do registro e do registro dos 
+	 * bloqueios de leitura e escrita, as entradas nos mapas, o conjunto de 
+	 * referências, o bloqueio criado e o próprio nome, além de cada referência 
+	 * registrada e de cada nome inativo, em uma JVM de 64 bits com referências 
+	 * comprimidas. A memória de cada bloqueio é informada pela fábrica que o criou. 
+	 * A partir do Java 9, os nomes compostos somente por caracteres Latin-1 são 
+	 * contados com um byte por caractere.</p>
+	 * @return memória usada, em bytes.
+	 */
+	public long getRegistryMemoryUsage(){
+		_lock.lock();
+		try{
+			return 
+				this.locks.size() * (ENTRY_MEMORY + KEY_MEMORY) +
+				this.registryEntryMemory +
+				this.registryReferences * REFERENCE_MEMORY +
+				this.idleLocks.size() * IDLE_ENTRY_MEMORY +
+				this.readWriteRegistry.getMemoryUsage();
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Define o tamanho do cache, por thread, das entradas do registro usadas 
+	 * recentemente.
+	 * 
+	 * <p>Quando ativado, cada thread mantém as entradas dos últimos nomes usados 
+	 * e as novas aquisições desses nomes não acessam o registro. Os bloqueios 
+	 * dos nomes em cache permanecem no registro até que sejam substituídos por 
+	 * outros nomes, o cache seja desativado ou {@link #evictCachedEntries()} 
+	 * seja chamado.</p>
+	 * @param value quantidade de nomes por thread ou <code>0</code> para desativar o cache.
+	 */
+	public synchronized void setThreadCacheSize(int value){
+		if(value < 0){
+			throw new IllegalArgumentException("invalid cache size: " + value);
+		}
+		
+		this.threadCacheSize = value;
+		this.evictCachedEntries();
+	}
+	
+	/**
+	 * Obtém o tamanho do cache, por thread, das entradas do registro usadas 
+	 * recentemente.
+	 * @return quantidade de nomes por thread ou <code>0</code> se o cache estiver desativado.
+	 */
+	public int getThreadCacheSize(){
+		return this.threadCacheSize;
+	}
+	
+	/**
+	 * Define o tipo dos bloqueios de leitura e escrita dos nomes.
+	 * 
+	 * <p>Os bloqueios com preferência para as leituras mantêm um indicador de 
+	 * leitura por processador em vez de um contador compartilhado. As leituras 
+	 * simultâneas de um mesmo nome não disputam entre si, mas a escrita precisa 
+	 * esperar que todos os indicadores sejam zerados. Não oferecem suporte a 
+	 * {@link #lockUpgradable(Object)}.</p>
+	 * 
+	 * <p>Afeta somente os nomes que não possuem bloqueios de leitura e escrita em uso.</p>
+	 * @param value <code>true</code> para usar bloqueios com preferência para as 
+	 * leituras. Caso contrário, <code>false</code>.
+	 * @see LockFactory#LockFactory(WaitStrategy, boolean, boolean)
+	 */
+	public void setReaderBiased(boolean value){
+		this.readWriteRegistry.setReaderBiased(value);
+	}
+	
+	/**
+	 * Verifica se os bloqueios de leitura e escrita dos nomes têm preferência 
+	 * para as leituras.
+	 * @return <code>true</code> se os bloqueios têm preferência para as leituras. 
+	 * Caso contrário, <code>false</code>.
+	 */
+	public boolean isReaderBiased(){
+		return this.readWriteRegistry.isReaderBiased();
+	}
+	
+	/**
+	 * Descarta o cache de todas as threads. As entradas que não estão em uso são 
+	 * removidas do registro imediatamente e as demais na sua liberação.
+	 */
+	public void evictCachedEntries(){
+		ThreadEntryCache cache;
+		
+		while((cache = this.threadCaches.poll()) != null){
+			this.releaseCachedEntries(cache.retire());
+		}
+	}
+	
+	/**
+	 * Define o rastreador dos nomes mais disputados.
+	 * <p>O rastreamento é opcional. Quando ativado, cada aquisição faz uma tentativa 
+	 * sem espera antes de esperar pelo bloqueio para identificar a disputa.</p>
+	 * @param value rastreador ou <code>null</code> para desativar o rastreamento.
+	 */
+	public void setContentionTracker(ContentionTracker value){
+		this.contentionTracker = value;
+	}
+	
+	/**
+	 * Obtém o rastreador dos nomes mais disputados.
+	 * @return rastreador ou <code>null</code> se o rastreamento estiver desativado.
+	 */
+	public ContentionTracker getContentionTracker(){
+		return this.contentionTracker;
+	}
+	
+	/**
+	 * Define o rastreador das threads que mantêm e esperam pelos bloqueios.
+	 * <p>O rastreamento é opcional e deve ser ativado antes do uso dos bloqueios. 
+	 * Quando ativado, cada aquisição faz uma tentativa sem espera antes de esperar 
+	 * pelo bloqueio para registrar a espera.</p>
+	 * @param value rastreador ou <code>null</code> para desativar o rastreamento.
+	 * @see LockActivityTracker#getSnapshot()
+	 */
+	public void setActivityTracker(LockActivityTracker value){
+		this.activityTracker = value;
+	}
+	
+	/**
+	 * Obtém o rastreador das threads que mantêm e esperam pelos bloqueios.
+	 * @return rastreador ou <code>null</code> se o rastreamento estiver desativado.
+	 */
+	public LockActivityTracker getActivityTracker(){
+		return this.activityTracker;
+	}
+	
+	/**
+	 * Define o detector dos bloqueios não liberados.
+	 * <p>A detecção é opcional e deve ser ativada antes do uso dos bloqueios.</p>
+	 * 
+	 * <p>O descarte de uma referência não liberada somente é identificado quando 
+	 * nenhum outro objeto a mantém. O rastreamento dos proprietários, ativado por 
+	 * {@link #setCurrentOwner(Object)}, mantém as referências até a liberação.</p>
+	 * @param value detector ou <code>null</code> para desativar a detecção.
+	 */
+	public void setLeakDetector(LockLeakDetector value){
+		this.leakDetector = value;
+	}
+	
+	/**
+	 * Obtém o detector dos bloqueios não liberados.
+	 * @return detector ou <code>null</code> se a detecção estiver desativada.
+	 */
+	public LockLeakDetector getLeakDetector(){
+		return this.leakDetector;
+	}
+	
+	/**
+	 * Define o validador da ordem de aquisição dos bloqueios.
+	 * <p>A validação é opcional e deve ser ativada antes do uso dos bloqueios.</p>
+	 * @param value validador ou <code>null</code> para desativar a validação.
+	 */
+	public void setLockOrderValidator(LockOrderValidator value){
+		this.lockOrderValidator = value;
+	}
+	
+	/**
+	 * Obtém o validador da ordem de aquisição dos bloqueios.
+	 * @return validador ou <code>null</code> se a validação estiver desativada.
+	 */
+	public LockOrderValidator getLockOrderValidator(){
+		return this.lockOrderValidator;
+	}
+	
+	private CombiningSlot pinCombiningSlot(Object lockName){
+		for(;;){
+			CombiningSlot slot = this.combiningSlots.get(lockName);
+			
+			if(slot == null){
+				slot = new CombiningSlot();
+				CombiningSlot current = this.combiningSlots.putIfAbsent(lockName, slot);
+				
+				if(current == null){
+					return slot;
+				}
+				
+				slot = current;
+			}
+			
+			if(slot.pin()){
+				return slot;
+			}
+			
+			this.combiningSlots.remove(lockName, slot);
+		}
+	}
+	
+	private void unpinCombiningSlot(Object lockName, CombiningSlot slot){
+		if(slot.unpin()){
+			this.combiningSlots.remove(lockName, slot);
+		}
+	}
+	
+	private void checkAcquire(Object lockName){
+		LockOrderValidator validator = this.lockOrderValidator;
+		
+		if(validator != null){
+			validator.checkAcquire(userKey(lockName));
+		}
+	}
+	
+	private void acquired(Serializable ref, Object lockName){
+		LockOrderValidator validator = this.lockOrderValidator;
+		OwnerTracker tracker         = this.ownerTracker;
+		LockActivityTracker activity = this.activityTracker;
+		LockLeakDetector detector    = this.leakDetector;
+		
+		if(validator != null){
+			validator.acquired(userKey(lockName));
+		}
+		
+		if(tracker != null){
+			tracker.register(ref, lockName);
+		}
+		
+		if(activity != null){
+			activity.acquired(userKey(lockName), 
+					tracker == null? Thread.currentThread() : tracker.getCurrentOwner());
+		}
+		
+		if(detector != null){
+			detector.acquired(ref, userKey(lockName));
+		}
+	}
+	
+	private void released(Serializable ref, Object lockName){
+		OwnerTracker tracker = this.ownerTracker;
+		
+		this.releasedUntracked(ref, lockName);
+		
+		if(tracker != null){
+			tracker.unregister(ref);
+		}
+	}
+	
+	/**
+	 * Notifica a liberação de um bloqueio sem atualizar o rastreamento dos proprietários.
+	 */
+	private void releasedUntracked(Serializable ref, Object lockName){
+		LockOrderValidator validator = this.lockOrderValidator;
+		LockActivityTracker activity = this.activityTracker;
+		LockLeakDetector detector    = this.leakDetector;
+		
+		if(validator != null){
+			validator.released(userKey(lockName));
+		}
+		
+		if(activity != null){
+			activity.released(userKey(lockName));
+		}
+		
+		if(detector != null){
+			detector.released(ref);
+		}
+	}
+	
+	/**
+	 * Adquire o bloqueio de um nome.
+	 * @param lockName nome do bloqueio.
+	 * @param timeout tempo máximo de espera em nanossegundos, <code>-1</code> para 
+	 * esperar indefinidamente ou <code>0</code> para não esperar.
+	 * @param interruptibly define se a espera pode ser interrompida.
+	 * @param priority prioridade usada pelos bloqueios do tipo {@link PriorityLock}.
+	 * @return referência do bloqueio ou <code>null</code> se não for obtido.
+	 */
+	private Serializable acquire(Object lockName, long timeout, 
+			boolean interruptibly, int priority) throws InterruptedException{
+		
+		Map<Object,HeldLock> held = this.heldLocks.get();
+		HeldLock hold             = held == null? null : held.get(lockName);
+		
+		/*
+		 * Na reentrância, somente a quantidade de aquisições é atualizada. 
+		 * O registro e o bloqueio não são acessados.
+		 */
+		if(hold != null){
+			Serializable current = hold.getRef();
+			
+			if(current != null){
+				if(interruptibly && Thread.interrupted()){
+					throw new InterruptedException();
+				}
+				
+				hold.count++;
+				return current;
+			}
+			
+			/*
+			 * A referência foi descartada sem a liberação e o vazamento foi 
+			 * notificado ao detector. A aquisição segue pelo registro.
+			 */
+			held.remove(lockName);
+		}
+		
+		if(timeout != 0){
+			this.checkAcquire(lockName);
+		}
+		
+		ThreadEntryCache cache       = this.getThreadCache();
+		ThreadEntryCache.Entry entry = cache == null? null : this.pinCachedEntry(cache, lockName);
+		Serializable ref;
+		Lock lock;
+		
+		if(entry == null){
+			long start = timeout > 0? System.nanoTime() : 0;
+			UUID id    = UUID.randomUUID();
+			lock       = this.getLock(id, lockName, timeout, interruptibly);
+			
+			/*
+			 * Com o detector, a referência devolvida é uma cópia do identificador 
+			 * mantido no registro para que o seu descarte possa ser identificado.
+			 */
+			ref = this.leakDetector == null? 
+					id : 
+					new UUID(id.getMostSignificantBits(), id.getLeastSignificantBits());
+			
+			if(lock == null){
+				LockStripes stripes = this.stripes;
+				
+				if(this.overflowPolicy != RegistryOverflowPolicy.STRIPED || stripes == null){
+					return null;
+				}
+				
+				ref  = stripes.newRef(id, lockName);
+				lock = stripes.getLock(ref, lockName);
+			}
+			else
+			if(timeout > 0){
+				timeout = Math.max(timeout - (System.nanoTime() - start), 1);
+			}
+		}
+		else{
+			lock = entry.lock;
+			ref  = new ThreadEntryCache.Ref(entry);
+		}
+		
+		boolean acquired = false;
+		
+		try{
+			acquired = this.acquire(lock, lockName, timeout, interruptibly, priority);
+		}
+		finally{
+			if(!acquired){
+				if(entry != null){
+					if(entry.unpin()){
+						this.releaseLock(entry.pin, lockName);
+					}
+				}
+				else
+				if(!(ref instanceof LockStripes.Ref)){
+					this.releaseLock(ref, lockName);
+				}
+			}
+		}
+		
+		if(!acquired){
+			return null;
+		}
+		
+		if(held == null){
+			held = new HashMap<Object, HeldLock>(4);
+			this.heldLocks.set(held);
+		}
+		
+		held.put(lockName, new HeldLock(ref, this.leakDetector != null));
+		
+		this.acquired(ref, lockName);
+		return ref;
+	}
+	
+	/**
+	 * Registra a liberação de uma aquisição da thread atual.
+	 * @return <code>true</code> se ainda existirem aquisições do bloqueio pela 
+	 * thread atual. Caso contrário, <code>false</code>.
+	 */
+	private boolean releaseHold(Serializable ref, Object lockName){
+		Map<Object,HeldLock> held = this.heldLocks.get();
+		HeldLock hold             = held == null? null : held.get(lockName);
+		
+		if(hold == null || hold.getRef() != ref){
+			return false;
+		}
+		
+		if(--hold.count > 0){
+			return true;
+		}
+		
+		held.remove(lockName);
+		return false;
+	}
+	
+	private boolean acquire(Lock lock, Object lockName, long timeout, 
+			boolean interruptibly, int priority) throws InterruptedException{
+		
+		ContentionTracker tracker    = this.contentionTracker;
+		LockActivityTracker activity = this.activityTracker;
+		
+		if(timeout == 0 || ((tracker != null || activity != null) && lock.tryLock())){
+			return timeout != 0 || lock.tryLock();
+		}
+		
+		long start    = tracker == null? 0 : System.nanoTime();
+		Object wait   = activity == null? null : activity.startWait(userKey(lockName));
+		boolean value = true;
+		
+		try{
+			if(lock instanceof PriorityLock){
+				value = ((PriorityLock)lock).acquire(priority, timeout, interruptibly);
+			}
+			else
+			if(timeout > 0){
+				value = lock.tryLock(timeout, TimeUnit.NANOSECONDS);
+			}
+			else
+			if(interruptibly){
+				lock.lockInterruptibly();
+			}
+			else{
+				lock.lock();
+			}
+		}
+		finally{
+			if(wait != null){
+				activity.endWait(wait);
+			}
+		}
+		
+		if(tracker != null){
+			tracker.record(userKey(lockName), System.nanoTime() - start);
+		}
+		
+		return value;
+	}
+	
+	private ThreadEntryCache getThreadCache(){
+		int size = this.threadCacheSize;
+		
+		if(size == 0){
+			return null;
+		}
+		
+		ThreadEntryCache cache = this.threadCache.get();
+		
+		if(cache != null && !cache.isRetired() && cache.getCapacity() == size){
+			return cache;
+		}
+		
+		if(cache != null){
+			this.threadCaches.remove(cache);
+			this.releaseCachedEntries(cache.retire());
+		}
+		
+		/*
+		 * Os caches das threads encerradas são descartados na criação de um novo cache.
+		 */
+		for(ThreadEntryCache c: this.threadCaches){
+			if(c.isOrphan() && this.threadCaches.remove(c)){
+				this.releaseCachedEntries(c.retire());
+			}
+		}
+		
+		cache = new ThreadEntryCache(Thread.currentThread(), size);
+		this.threadCache.set(cache);
+		this.threadCaches.add(cache);
+		return cache;
+	}
+	
+	private ThreadEntryCache.Entry pinCachedEntry(ThreadEntryCache cache, 
+			Object lockName) throws InterruptedException{
+		ThreadEntryCache.Entry entry = cache.get(lockName);
+		
+		if(entry != null){
+			/*
+			 * A entrada somente é revogada por outra thread quando o cache é descartado.
+			 */
+			return entry.pin()? entry : null;
+		}
+		
+		UUID pin  = UUID.randomUUID();
+		Lock lock = this.getLock(pin, lockName, 0, false);
+		
+		/*
+		 * Sem espaço no registro, a aquisição segue sem o cache.
+		 */
+		if(lock == null){
+			return null;
+		}
+		
+		entry = new ThreadEntryCache.Entry(lockName, pin, lock);
+		
+		ThreadEntryCache.Entry evicted = cache.put(entry);
+		
+		if(evicted == entry){
+			entry.retire();
+			return entry;
+		}
+		
+		if(evicted != null){
+			this.releaseLock(evicted.pin, evicted.lockName);
+		}
+		
+		/*
+		 * O cache pode ter sido descartado antes da inclusão da entrada.
+		 */
+		if(cache.isRetired()){
+			entry.retire();
+		}
+		
+		return entry;
+	}
+	
+	private ThreadEntryCache.Entry getCachedEntry(Serializable ref, Object lockName){
+		ThreadEntryCache.Entry entry = ((ThreadEntryCache.Ref)ref).entry;
+		
+		if(entry == null || !entry.lockName.equals(lockName)){
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		}
+		
+		return entry;
+	}
+	
+	private void releaseCachedEntries(List<ThreadEntryCache.Entry> entries){
+		if(entries.isEmpty()){
+			return;
+		}
+		
+		_lock.lock();
+		try{
+			for(ThreadEntryCache.Entry entry: entries){
+				this.removeReference(entry.pin, entry.lockName);
+			}
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Registra uma referência no registro e obtém o bloqueio do nome.
+	 * @param ref referência.
+	 * @param lockName nome do bloqueio.
+	 * @param timeout tempo máximo de espera por espaço no registro em nanossegundos, 
+	 * <code>-1</code> para esperar indefinidamente ou <code>0</code> para não esperar.
+	 * @param interruptibly define se a espera pode ser interrompida.
+	 * @return bloqueio ou <code>null</code> se não houver espaço no registro.
+	 */
+	private Lock getLock(UUID ref, Object lockName, 
+			long timeout, boolean interruptibly) throws InterruptedException{
+		_lock.lock();
+		try{
+			Set<UUID> originSet;
+			Lock lock;
+			boolean evicted = false;
+			
+			for(;;){
+				originSet = this.origins.get(lockName);
+				lock      = this.locks.get(lockName);
+				
+				if(originSet != null){
+					if(originSet.isEmpty()){
+						this.idleLocks.remove(lockName);
+					}
+					break;
+				}
+				
+				int max = this.maxEntries;
+				
+				/*
+				 * Com o registro cheio, o nome inativo há mais tempo cede o seu lugar.
+				 */
+				if(max != 0 && this.locks.size() >= max && !this.idleLocks.isEmpty()){
+					this.removeEntry(this.idleLocks.pollEldest());
+				}
+				
+				/*
+				 * Sem nomes inativos, os nomes mantidos pelos caches das threads 
+				 * são descartados uma vez antes da aplicação da política.
+				 */
+				if(max != 0 && this.locks.size() >= max && !evicted && 
+						!this.threadCaches.isEmpty()){
+					this.evictCachedEntries();
+					evicted = true;
+					continue;
+				}
+				
+				if(max == 0 || this.locks.size() < max){
+					originSet = new HashSet<UUID>();
+					this.origins.put(lockName, originSet);
+					
+					if(lock != null){
+						throw new IllegalStateException("bug!");
+					}
+					
+					lock = (Lock)this.lockObjectFactory.createInstance();
+					this.locks.put(lockName, lock);
+					this.registryEntryMemory += 
+							keyMemory(lockName) + this.lockObjectFactory.getInstanceSize();
+					break;
+				}
+				
+				RegistryOverflowPolicy policy = this.overflowPolicy;
+				
+				/*
+				 * Sem espera, a falha é informada como um bloqueio não obtido.
+				 */
+				if(policy == RegistryOverflowPolicy.FAIL && timeout != 0){
+					throw new RegistryOverflowException(String.valueOf(userKey(lockName)), max);
+				}
+				
+				if(policy == RegistryOverflowPolicy.STRIPED || timeout == 0){
+					return null;
+				}
+				
+				if(timeout > 0){
+					timeout = this.registryNotFull.awaitNanos(timeout);
+					timeout = timeout > 0? timeout : 0;
+				}
+				else
+				if(interruptibly){
+					this.registryNotFull.await();
+				}
+				else{
+					this.registryNotFull.awaitUninterruptibly();
+				}
+				
+				evicted = false;
+			}
+			
+			originSet.add(ref);
+			this.registryReferences++;
+			return lock;
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	private Lock getStripe(Serializable ref, Object lockName){
+		LockStripes stripes = this.stripes;
+		
+		if(stripes == null){
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		}
+		
+		return stripes.getLock(ref, lockName);
+	}
+	
+	private void releaseLock(Serializable ref, Object lockName){
+		_lock.lock();
+		try{
+			this.removeReference(ref, lockName);
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	private void removeReference(Serializable ref, Object lockName){
+		Set<UUID> originSet = this.origins.get(lockName);
+		
+		if(originSet == null){
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		}
+		
+		if(!originSet.remove(ref)){
+			throw new IllegalStateException("lock reference not found: " + lockName + ": " + ref);
+		}
+		
+		this.registryReferences--;
+
+		if(originSet.isEmpty()){
+			if(this.idleTime > 0){
+				this.idleLocks.add(lockName);
+			}
+			else{
+				this.removeEntry(lockName);
+			}
+		}
+	}
+	
+	private void removeEntry(Object lockName){
+		if(this.locks.remove(lockName) != null){
+			if(this.origins.remove(lockName) == null){
+				throw new IllegalStateException("origins can not be empty: " + lockName);
+			}
+			
+			this.registryEntryMemory -= 
+					keyMemory(lockName) + this.lockObjectFactory.getInstanceSize();
+			this.registryNotFull.signal();
+		}
+		else{
+			throw new IllegalStateException("lock not found: " + lockName);
+		}
+	}
+
+	private Serializable acquireReadWrite(Object lockName, int mode){
+		this.checkAcquire(lockName);
+		
+		ReadWriteLockRegistry.Ref ref = new ReadWriteLockRegistry.Ref(UUID.randomUUID(), mode);
+		ReadWriteLock rw              = this.readWriteRegistry.register(ref, lockName);
+		boolean acquired              = false;
+		
+		try{
+			Lock lock                    = this.readWriteRegistry.getModeLock(rw, mode);
+			LockActivityTracker activity = this.activityTracker;
+			
+			if(activity == null){
+				lock.lock();
+			}
+			else
+			if(!lock.tryLock()){
+				Object wait = activity.startWait(userKey(lockName));
+				try{
+					lock.lock();
+				}
+				finally{
+					activity.endWait(wait);
+				}
+			}
+			
+			acquired = true;
+		}
+		finally{
+			if(!acquired){
+				this.readWriteRegistry.unregister(ref, lockName, this.idleTime);
+			}
+		}
+		
+		this.acquired(ref, lockName);
+		return ref;
+	}
+	
+	private ReadWriteLockRegistry.Ref getUpgradableRef(Serializable ref, Object lockName){
+		if(!(ref instanceof ReadWriteLockRegistry.Ref) || 
+				((ReadWriteLockRegistry.Ref)ref).mode != ReadWriteLockRegistry.Ref.UPGRADABLE){
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		}
+		
+		return (ReadWriteLockRegistry.Ref)ref;
+	}
+	
+	/**
+	 * Obtém o registro dos nomes. Usado pelas subclasses que expõem o registro com 
+	 * chaves de outro tipo.
+	 */
+	Map<Object,Set<UUID>> getRegistryOrigins(){
+		return this.origins;
+	}
+	
+	/**
+	 * Obtém os bloqueios do registro.
+	 * @see #getRegistryOrigins()
+	 */
+	Map<Object,Lock> getRegistryLocks(){
+		return this.locks;
+	}
+	
+	/**
+	 * Obtém a quantidade de nomes no registro dos bloqueios de leitura e escrita.
+	 * @return quantidade de nomes.
+	 */
+	int getReadWriteRegistrySize(){
+		_lock.lock();
+		try{
+			return this.readWriteRegistry.size();
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Obtém a chave usada no registro. Com uma estratégia de comparação, a chave 
+	 * é envolvida por um {@link HashedKey}.
+	 */
+	private Object registryKey(K key){
+		KeyHasher<? super K> hasher = this.keyHasher;
+		return hasher == null? key : new HashedKey<K>(key, hasher);
+	}
+	
+	/**
+	 * Obtém a chave informada pelo usuário a partir da chave do registro.
+	 */
+	static Object userKey(Object lockName){
+		return lockName instanceof HashedKey? ((HashedKey<?>)lockName).key : lockName;
+	}
+	
+	/**
+	 * Obtém uma estimativa da memória usada pelos caracteres de um nome, em bytes.
+	 */
+	static long keyMemory(Object lockName){
+		Object key = userKey(lockName);
+		
+		if(!(key instanceof String)){
+			return KEY_LENGTH * 2;
+		}
+		
+		String value = (String)key;
+		int length   = value.length();
+		
+		if(COMPACT_STRINGS){
+			for(int i=0;i<length;i++){
+				if(value.charAt(i) > 0xFF){
+					return length * 2;
+				}
+			}
+			return length;
+		}
+		
+		return length * 2;
+	}
+	
+	private static long checkAgingTime(long value){
+		if(value <= 0){
+			throw new IllegalArgumentException("invalid aging time: " + value);
+		}
+		return value;
+	}
+	
+	/**
+	 * Aquisição mantida pela thread atual. Com o detector dos bloqueios não 
+	 * liberados, a referência é mantida de forma fraca para que o seu descarte 
+	 * possa ser identificado.
+	 */
+	private static class HeldLock{
+		
+		private final Object ref;
+		
+		public int count;
+		
+		public HeldLock(Serializable ref, boolean weak){
+			this.ref   = weak? new WeakReference<Serializable>(ref) : ref;
+			this.count = 1;
+		}
+		
+		@SuppressWarnings("unchecked")
+		public Serializable getRef(){
+			return this.ref instanceof WeakReference? 
+					((WeakReference<Serializable>)this.ref).get() : 
+					(Serializable)this.ref;
+		}
+		
+	}
+	
+	/**
+	 * Remoção periódica dos nomes inativos. Não pode ser uma classe interna, pois 
+	 * manteria o registro alcançável pela thread de remoção.
+	 */
+	private static class IdleEntrySweeper extends IdleSweeper<KeyedLock<?>>{
+		
+		public IdleEntrySweeper(KeyedLock<?> target){
+			super(target);
+		}
+		
+		protected void sweep(KeyedLock<?> target){
+			target.sweepIdleEntries();
+		}
+		
+	}
+	
+}
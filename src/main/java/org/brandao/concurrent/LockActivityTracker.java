@@ -0,0 +1,367 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registra quem mantém e quem espera pelos bloqueios de cada nome.
+ * 
+ * <p>Cada nome em uso possui a sua própria entrada, com as threads que mantêm o 
+ * bloqueio e as threads à espera. A consulta em {@link #getSnapshot()} percorre 
+ * as entradas sem interromper as aquisições: cada entrada é copiada de forma 
+ * consistente, mas entradas distintas podem ser copiadas em momentos diferentes.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    LockActivityTracker tracker = new LockActivityTracker();
+ *    namedLock.setActivityTracker(tracker);
+ *    ...
+ *    logger.info(tracker.dump());
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class LockActivityTracker {
+
+	private final ConcurrentMap<Object, Activity> activities;
+	
+	/**
+	 * Cria um novo rastreador.
+	 */
+	public LockActivityTracker(){
+		this.activities = new ConcurrentHashMap<Object, Activity>();
+	}
+	
+	/**
+	 * Registra o início da espera da thread atual pelo bloqueio de um nome.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação da espera usada em {@link #endWait(Object)}.
+	 */
+	Object startWait(Object lockName){
+		Thread thread = Thread.currentThread();
+		
+		for(;;){
+			Activity activity = this.getActivity(lockName);
+			
+			synchronized(activity){
+				if(activity.removed){
+					continue;
+				}
+				
+				activity.waiters.put(thread, System.nanoTime());
+				return activity;
+			}
+		}
+	}
+	
+	/**
+	 * Registra o fim da espera da thread atual.
+	 * @param wait identificação da espera.
+	 */
+	void endWait(Object wait){
+		Activity activity = (Activity)wait;
+		
+		synchronized(activity){
+			activity.waiters.remove(Thread.currentThread());
+			this.removeIfEmpty(activity);
+		}
+	}
+	
+	/**
+	 * Registra a aquisição do bloqueio de um nome pela thread atual.
+	 * @param lockName nome do bloqueio.
+	 * @param owner proprietário do bloqueio.
+	 */
+	void acquired(Object lockName, Object owner){
+		Thread thread = Thread.currentThread();
+		
+		for(;;){
+			Activity activity = this.getActivity(lockName);
+			
+			synchronized(activity){
+				if(activity.removed){
+					continue;
+				}
+				
+				Holder holder = activity.holders.get(thread);
+				
+				if(holder == null){
+					activity.holders.put(thread, new Holder(thread, owner, System.nanoTime()));
+				}
+				else{
+					holder.count++;
+				}
+				
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Registra a liberação do bloqueio de um nome pela thread atual.
+	 * @param lockName nome do bloqueio.
+	 */
+	void released(Object lockName){
+		Activity activity = this.activities.get(lockName);
+		
+		if(activity == null){
+			return;
+		}
+		
+		Thread thread = Thread.currentThread();
+		
+		synchronized(activity){
+			Holder holder = activity.holders.get(thread);
+			
+			if(holder != null && --holder.count == 0){
+				activity.holders.remove(thread);
+				this.removeIfEmpty(activity);
+			}
+		}
+	}
+	
+	/**
+	 * Obtém a situação de todos os nomes em uso.
+	 * @return situação de cada nome com pelo menos um bloqueio mantido ou em espera.
+	 */
+	public List<Entry> getSnapshot(){
+		List<Entry> result = new ArrayList<Entry>();
+		long now           = System.nanoTime();
+		
+		for(Activity activity: this.activities.values()){
+			synchronized(activity){
+				if(activity.removed){
+					continue;
+				}
+				
+				List<Holder> holders = new ArrayList<Holder>(activity.holders.size());
+				
+				for(Holder h: activity.holders.values()){
+					holders.add(new Holder(h.thread, h.owner, now - h.since));
+				}
+				
+				long oldestWait = 0;
+				
+				for(Long start: activity.waiters.values()){
+					oldestWait = Math.max(oldestWait, now - start);
+				}
+				
+				result.add(new Entry(activity.lockName, 
+						Collections.unmodifiableList(holders), 
+						activity.waiters.size(), oldestWait));
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Descreve a situação de todos os nomes em uso, um nome por linha.
+	 * @return descrição.
+	 */
+	public String dump(){
+		StringBuilder result = new StringBuilder();
+		String separator     = System.getProperty("line.separator");
+		
+		for(Entry e: this.getSnapshot()){
+			result.append(e).append(separator);
+		}
+		
+		return result.toString();
+	}
+	
+	private Activity getActivity(Object lockName){
+		Activity activity = this.activities.get(lockName);
+		
+		if(activity == null){
+			activity         = new Activity(lockName);
+			Activity current = this.activities.putIfAbsent(lockName, activity);
+			
+			if(current != null){
+				activity = current;
+			}
+		}
+		
+		return activity;
+	}
+	
+	private void removeIfEmpty(Activity activity){
+		if(activity.holders.isEmpty() && activity.waiters.isEmpty()){
+			activity.removed = true;
+			this.activities.remove(activity.lockName, activity);
+		}
+	}
+	
+	/**
+	 * Threads que mantêm e esperam pelo bloqueio de um nome. Protegida pelo seu 
+	 * próprio monitor.
+	 */
+	private static class Activity{
+		
+		final Object lockName;
+		
+		final Map<Thread, Holder> holders;
+		
+		/**
+		 * Início da espera de cada thread.
+		 */
+		final Map<Thread, Long> waiters;
+		
+		/**
+		 * Define se a entrada foi removida do rastreador.
+		 */
+		boolean removed;
+		
+		Activity(Object lockName){
+			this.lockName = lockName;
+			this.holders  = new LinkedHashMap<Thread, Holder>(2);
+			this.waiters  = new LinkedHashMap<Thread, Long>(2);
+		}
+		
+	}
+	
+	/**
+	 * Thread que mantém o bloqueio de um nome.
+	 */
+	public static class Holder{
+		
+		private final Thread thread;
+		
+		private final Object owner;
+		
+		/**
+		 * Início da posse no rastreador ou tempo de posse na consulta.
+		 */
+		private final long since;
+		
+		/**
+		 * Quantidade de aquisições da thread.
+		 */
+		private int count;
+
+		Holder(Thread thread, Object owner, long since) {
+			this.thread = thread;
+			this.owner  = owner;
+			this.since  = since;
+			this.count  = 1;
+		}
+
+		/**
+		 * Obtém a thread que mantém o bloqueio.
+		 * @return thread.
+		 */
+		public Thread getThread() {
+			return thread;
+		}
+
+		/**
+		 * Obtém o proprietário do bloqueio.
+		 * @return proprietário ou a própria thread.
+		 */
+		public Object getOwner() {
+			return owner;
+		}
+
+		/**
+		 * Obtém o tempo de posse em nanossegundos.
+		 * @return tempo de posse.
+		 */
+		public long getHoldTime() {
+			return since;
+		}
+		
+		public String toString(){
+			return thread.getName() + 
+				(owner == thread? "" : " (" + owner + ")") + 
+				" for " + TimeUnit.NANOSECONDS.toMillis(since) + " ms";
+		}
+		
+	}
+	
+	/**
+	 * Situação de um nome.
+	 */
+	public static class Entry{
+		
+		private final Object lockName;
+		
+		private final List<Holder> holders;
+		
+		private final int waiterCount;
+		
+		private final long oldestWaitTime;
+
+		public Entry(Object lockName, List<Holder> holders, int waiterCount, long oldestWaitTime) {
+			this.lockName       = lockName;
+			this.holders        = holders;
+			this.waiterCount    = waiterCount;
+			this.oldestWaitTime = oldestWaitTime;
+		}
+
+		/**
+		 * Obtém o nome do bloqueio.
+		 * @return nome.
+		 */
+		public Object getLockName() {
+			return lockName;
+		}
+
+		/**
+		 * Obtém as threads que mantêm o bloqueio.
+		 * @return threads que mantêm o bloqueio, em ordem de aquisição.
+		 */
+		public List<Holder> getHolders() {
+			return holders;
+		}
+
+		/**
+		 * Obtém a quantidade de threads à espera.
+		 * @return quantidade.
+		 */
+		public int getWaiterCount() {
+			return waiterCount;
+		}
+
+		/**
+		 * Obtém o tempo de espera, em nanossegundos, da thread que espera há mais tempo.
+		 * @return tempo de espera ou <code>0</code> se não houver threads à espera.
+		 */
+		public long getOldestWaitTime() {
+			return oldestWaitTime;
+		}
+		
+		public String toString(){
+			return lockName + " [holders=" + holders + ", waiters=" + waiterCount + 
+					", oldestWait=" + TimeUnit.NANOSECONDS.toMillis(oldestWaitTime) + " ms]";
+		}
+		
+	}
+	
+}
@@ -0,0 +1,40 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Associa o nome de um bloqueio a uma classe de bloqueio.
+ * 
+ * <p>A validação da ordem de aquisição ({@link LockOrderValidator}) 
+ * aprende a ordem entre classes de bloqueio e não entre nomes. Por exemplo, 
+ * os nomes "user:1" e "user:2" podem pertencer à classe "user".</p>
+ * 
+ * @author Brandao
+ *
+ */
+public interface LockClassifier {
+
+	/**
+	 * Obtém a classe associada ao nome do bloqueio.
+	 * @param lockName nome do bloqueio.
+	 * @return classe do bloqueio.
+	 */
+	Object getLockClass(Object lockName);
+	
+}
@@ -17,6 +17,7 @@
 
 package org.brandao.concurrent;
 
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
@@ -34,15 +35,103 @@ public abstract class LockFactory<T> {
 	/**
 	 * Controla as instâncias dos bloqueadores.
 	 */
-	private final DisposableSingletonContext<Object> disposableSingletonContext;
+	private final SingletonContext<Object> disposableSingletonContext;
+	
+	/**
+	 * Indica se os bloqueadores de leitura e escrita têm preferência para as leituras.
+	 */
+	private final boolean readerBiased;
+	
+	/**
+	 * Valida a ordem de aquisição dos bloqueios. Se <code>null</code>, a validação
+	 * está desativada.
+	 */
+	private volatile LockOrderValidator lockOrderValidator;
+	
+	/**
+	 * Contabiliza as aquisições com disputa. Se <code>null</code>, a contabilização
+	 * está desativada.
+	 */
+	private volatile ContentionTracker contentionTracker;
+	
+	/**
+	 * Registra quem mantém e quem espera pelos bloqueios. Se <code>null</code>, o 
+	 * registro está desativado.
+	 */
+	private volatile LockActivityTracker activityTracker;
+	
+	/**
+	 * Detecta os bloqueios não liberados. Se <code>null</code>, a detecção está 
+	 * desativada.
+	 */
+	private volatile LockLeakDetector leakDetector;
 	
 	/**
 	 * Cria uma nova instância da fábrica.
 	 */
 	public LockFactory(){
-		disposableSingletonContext = new DisposableSingletonContext<Object>();
-		disposableSingletonContext.registryBeanDefinition("lock", 			new LockObjectFactory());
-		disposableSingletonContext.registryBeanDefinition("readWriteLock", 	new ReadWriteLockObjectFactory());
+		this(null);
+	}
+	
+	/**
+	 * Cria uma nova instância da fábrica com uma estratégia de espera.
+	 * @param waitStrategy estratégia usada pelas threads à espera de um bloqueio 
+	 * do tipo {@link Lock}. Se <code>null</code>, são usados bloqueios do tipo 
+	 * {@link java.util.concurrent.locks.ReentrantLock}. Os bloqueios do tipo 
+	 * {@link ReadWriteLock} não são afetados.
+	 */
+	public LockFactory(WaitStrategy waitStrategy){
+		this(waitStrategy, false);
+	}
+	
+	/**
+	 * Cria uma nova instância da fábrica com uma estratégia de espera e o modo de 
+	 * controle das instâncias dos bloqueadores.
+	 * 
+	 * <p>No modo padrão, cada bloqueador obtido é um proxy e as suas referências são 
+	 * registradas para identificar quando o bloqueador da chave não está mais em uso. 
+	 * No modo com referências fracas, existe um único bloqueador por chave, devolvido 
+	 * diretamente. Ele é descartado quando não existirem mais referências a ele. Nesse 
+	 * modo, a obtenção de um bloqueador é uma consulta a um mapa concorrente.</p>
+	 * @param waitStrategy estratégia usada pelas threads à espera de um bloqueio.
+	 * @param weakReferences <code>true</code> para usar o modo com referências fracas. 
+	 * Caso contrário, <code>false</code>.
+	 * @see #LockFactory(WaitStrategy)
+	 */
+	public LockFactory(WaitStrategy waitStrategy, boolean weakReferences){
+		this(waitStrategy, weakReferences, false);
+	}
+	
+	/**
+	 * Cria uma nova instância da fábrica com uma estratégia de espera, o modo de 
+	 * controle das instâncias dos bloqueadores e o tipo dos bloqueadores de 
+	 * leitura e escrita.
+	 * 
+	 * <p>Os bloqueadores com preferência para as leituras mantêm um indicador de 
+	 * leitura por processador, cada um na sua própria linha de cache, em vez de um 
+	 * contador compartilhado. A aquisição da leitura não disputa com as outras 
+	 * leituras, mas a escrita precisa revogar a preferência e esperar que todos os 
+	 * indicadores sejam zerados. São indicados para chaves com muitas leituras 
+	 * simultâneas e poucas escritas. Cada bloqueador ocupa cerca de 128 bytes por 
+	 * processador. Não oferecem suporte a {@link #getUpgradableReadWriteLock(Object)}.</p>
+	 * @param waitStrategy estratégia usada pelas threads à espera de um bloqueio.
+	 * @param weakReferences <code>true</code> para usar o modo com referências fracas. 
+	 * Caso contrário, <code>false</code>.
+	 * @param readerBiased <code>true</code> para que {@link #getReadWriteLock(Object)} 
+	 * forneça bloqueadores com preferência para as leituras. Caso contrário, 
+	 * <code>false</code>.
+	 * @see #LockFactory(WaitStrategy, boolean)
+	 */
+	public LockFactory(WaitStrategy waitStrategy, boolean weakReferences, boolean readerBiased){
+		disposableSingletonContext = weakReferences? 
+				new WeakSingletonContext<Object>() : 
+				new DisposableSingletonContext<Object>();
+		this.readerBiased = readerBiased;
+		disposableSingletonContext.registryBeanDefinition("lock", 			new LockObjectFactory(waitStrategy));
+		disposableSingletonContext.registryBeanDefinition("readWriteLock", 	
+				readerBiased? 
+					new ReaderBiasedReadWriteLockObjectFactory() : 
+					new UpgradableReadWriteLockObjectFactory());
 	}
 	
 	/**
@@ -51,7 +140,14 @@ public abstract class LockFactory<T> {
 	 * @return instância do bloqueador do tipo {@link Lock} associado à chave.
 	 */
 	public Lock getLock(T key){
-		return (Lock)disposableSingletonContext.getBean(key, "lock");
+		Lock lock = (Lock)disposableSingletonContext.getBean(key, "lock");
+		LockOrderValidator validator = this.lockOrderValidator;
+		ContentionTracker tracker    = this.contentionTracker;
+		LockActivityTracker activity = this.activityTracker;
+		LockLeakDetector detector    = this.leakDetector;
+		return validator == null && tracker == null && activity == null && detector == null? 
+				lock : 
+				new MonitoredLock(key, lock, lock, validator, tracker, activity, detector);
 	}
 
 	/**
@@ -60,7 +156,135 @@ public abstract class LockFactory<T> {
 	 * @return instância do bloqueador do tipo {@link ReadWriteLock} associado à chave.
 	 */
 	public ReadWriteLock getReadWriteLock(T key){
-		return (ReadWriteLock)disposableSingletonContext.getBean(key, "readWriteLock");
+		ReadWriteLock lock = (ReadWriteLock)disposableSingletonContext.getBean(key, "readWriteLock");
+		LockOrderValidator validator = this.lockOrderValidator;
+		ContentionTracker tracker    = this.contentionTracker;
+		LockActivityTracker activity = this.activityTracker;
+		LockLeakDetector detector    = this.leakDetector;
+		return validator == null && tracker == null && activity == null && detector == null? 
+				lock : 
+				new MonitoredReadWriteLock(key, lock, validator, tracker, activity, detector);
+	}
+	
+	/**
+	 * Obtém o bloqueador do tipo {@link UpgradableReadWriteLock} associado à chave.
+	 * <p>É o mesmo bloqueador obtido em {@link #getReadWriteLock(Object)} para a 
+	 * mesma chave. Assim, as leituras e escritas de ambos se excluem mutuamente.</p>
+	 * @param key chave associada ao bloqueador do tipo {@link UpgradableReadWriteLock}.
+	 * @return instância do bloqueador do tipo {@link UpgradableReadWriteLock} associado à chave.
+	 * @throws UnsupportedOperationException Lançada quando os bloqueadores de leitura e 
+	 * escrita têm preferência para as leituras.
+	 */
+	public UpgradableReadWriteLock getUpgradableReadWriteLock(T key){
+		if(this.readerBiased){
+			throw new UnsupportedOperationException("upgradable lock");
+		}
+		
+		UpgradableReadWriteLock lock = 
+				(UpgradableReadWriteLock)disposableSingletonContext.getBean(key, "readWriteLock");
+		LockOrderValidator validator = this.lockOrderValidator;
+		ContentionTracker tracker    = this.contentionTracker;
+		LockActivityTracker activity = this.activityTracker;
+		LockLeakDetector detector    = this.leakDetector;
+		return validator == null && tracker == null && activity == null && detector == null? 
+				lock : 
+				new MonitoredUpgradableReadWriteLock(key, lock, validator, tracker, activity, detector);
+	}
+	
+	/**
+	 * Define o rastreador dos nomes mais disputados.
+	 * <p>O rastreamento é opcional e afeta somente os bloqueadores obtidos após a sua ativação.</p>
+	 * @param value rastreador ou <code>null</code> para desativar o rastreamento.
+	 */
+	public void setContentionTracker(ContentionTracker value){
+		this.contentionTracker = value;
+	}
+	
+	/**
+	 * Obtém o rastreador dos nomes mais disputados.
+	 * @return rastreador ou <code>null</code> se o rastreamento estiver desativado.
+	 */
+	public ContentionTracker getContentionTracker(){
+		return this.contentionTracker;
+	}
+	
+	/**
+	 * Define o rastreador das threads que mantêm e esperam pelos bloqueios.
+	 * <p>O rastreamento é opcional e afeta somente os bloqueadores obtidos após a sua ativação.</p>
+	 * @param value rastreador ou <code>null</code> para desativar o rastreamento.
+	 * @see LockActivityTracker#getSnapshot()
+	 */
+	public void setActivityTracker(LockActivityTracker value){
+		this.activityTracker = value;
+	}
+	
+	/**
+	 * Obtém o rastreador das threads que mantêm e esperam pelos bloqueios.
+	 * @return rastreador ou <code>null</code> se o rastreamento estiver desativado.
+	 */
+	public LockActivityTracker getActivityTracker(){
+		return this.activityTracker;
+	}
+	
+	/**
+	 * Define o detector dos bloqueios não liberados.
+	 * <p>A detecção é opcional e afeta somente os bloqueadores obtidos após a sua 
+	 * ativação. Um bloqueador descartado pelo coletor de lixo enquanto mantido é 
+	 * notificado ao {@link LockLeakListener} do detector.</p>
+	 * @param value detector ou <code>null</code> para desativar a detecção.
+	 */
+	public void setLeakDetector(LockLeakDetector value){
+		this.leakDetector = value;
+	}
+	
+	/**
+	 * Obtém o detector dos bloqueios não liberados.
+	 * @return detector ou <code>null</code> se a detecção estiver desativada.
+	 */
+	public LockLeakDetector getLeakDetector(){
+		return this.leakDetector;
+	}
+	
+	/**
+	 * Define o tempo que o bloqueador de uma chave sem proxies em uso é mantido.
+	 * 
+	 * <p>Sem esse tempo, uma chave obtida e liberada repetidamente tem o seu 
+	 * bloqueador descartado e criado a cada uso. Com ele, o bloqueador fica inativo 
+	 * e é reaproveitado pelo próximo uso da chave. Os bloqueadores inativos há mais 
+	 * tempo que o definido são descartados por uma thread compartilhada.</p>
+	 * @param time tempo de inatividade. Se <code>0</code>, o bloqueador é descartado 
+	 * na liberação do último proxy.
+	 * @param unit unidade do tempo.
+	 * @throws UnsupportedOperationException Lançada no modo com referências fracas, em 
+	 * que o descarte é feito pelo coletor de lixo.
+	 */
+	public void setIdleTime(long time, TimeUnit unit){
+		if(time < 0){
+			throw new IllegalArgumentException("invalid idle time: " + time);
+		}
+		
+		if(!(this.disposableSingletonContext instanceof DisposableSingletonContext)){
+			throw new UnsupportedOperationException("weak references");
+		}
+		
+		((DisposableSingletonContext<Object>)this.disposableSingletonContext).setIdleTime(unit.toNanos(time));
+	}
+	
+	/**
+	 * Define o validador da ordem de aquisição dos bloqueios.
+	 * <p>A validação é opcional e afeta somente os bloqueadores obtidos após a sua ativação.</p>
+	 * @param value validador ou <code>null</code> para desativar a validação.
+	 */
+	public void setLockOrderValidator(LockOrderValidator value){
+		this.lockOrderValidator = value;
+	}
+	
+	/**
+	 * Obtém o validador da ordem de aquisição dos bloqueios.
+	 * @return validador ou <code>null</code> se a validação estiver desativada.
+	 */
+	public LockOrderValidator getLockOrderValidator(){
+		return this.lockOrderValidator;
 	}
 	
 }
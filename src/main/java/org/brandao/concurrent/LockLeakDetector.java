@@ -0,0 +1,307 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Detecta os bloqueios adquiridos e não liberados.
+ * 
+ * <p>Somente uma fração das aquisições é acompanhada. Para cada aquisição 
+ * amostrada, é registrado o rastro da pilha, o que permite identificar o 
+ * ponto do código que não fez a liberação. As demais aquisições têm o custo de 
+ * um sorteio. Com uma fração pequena, o detector pode permanecer ativo em 
+ * produção.</p>
+ * 
+ * <p>São detectados os bloqueios mantidos há mais tempo que o esperado, 
+ * em {@link #getLeaks(long, TimeUnit)}, e os bloqueios cuja referência foi 
+ * descartada pelo coletor de lixo antes da liberação, notificados ao 
+ * {@link LockLeakListener}.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    LockLeakDetector detector = new LockLeakDetector(0.01, listener);
+ *    namedLock.setLeakDetector(detector);
+ *    ...
+ *    for(LockLeakException e: detector.getLeaks(5, TimeUnit.MINUTES)){
+ *        logger.warn(e.getMessage(), e);
+ *    }
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class LockLeakDetector {
+
+	/**
+	 * Aquisições amostradas ainda não liberadas, por referência e thread.
+	 */
+	private final ConcurrentMap<Object, Trace> traces;
+	
+	/**
+	 * Referências descartadas pelo coletor de lixo.
+	 */
+	private final ReferenceQueue<Object> collected;
+	
+	private final ThreadLocal<Random> random;
+	
+	private final double samplingRate;
+	
+	private final LockLeakListener listener;
+	
+	/**
+	 * Cria um novo detector. Os bloqueios cujas referências foram descartadas 
+	 * são entregues ao {@link Thread.UncaughtExceptionHandler} da thread que 
+	 * identificou o descarte, sem interrompê-la.
+	 * @param samplingRate fração das aquisições acompanhadas, entre <code>0</code> 
+	 * e <code>1</code>.
+	 */
+	public LockLeakDetector(double samplingRate){
+		this(samplingRate, null);
+	}
+	
+	/**
+	 * Cria um novo detector.
+	 * @param samplingRate fração das aquisições acompanhadas, entre <code>0</code> 
+	 * e <code>1</code>.
+	 * @param listener recebe os bloqueios cujas referências foram descartadas. 
+	 * Se <code>null</code>, eles são entregues ao 
+	 * {@link Thread.UncaughtExceptionHandler} da thread que identificou o descarte, 
+	 * sem interrompê-la. O tratador padrão os escreve na saída de erro.
+	 */
+	public LockLeakDetector(double samplingRate, LockLeakListener listener){
+		if(!(samplingRate >= 0 && samplingRate <= 1)){
+			throw new IllegalArgumentException("invalid sampling rate: " + samplingRate);
+		}
+		
+		this.samplingRate = samplingRate;
+		this.listener     = listener;
+		this.traces       = new ConcurrentHashMap<Object, Trace>();
+		this.collected    = new ReferenceQueue<Object>();
+		this.random       = new ThreadLocal<Random>(){
+			
+			protected Random initialValue(){
+				return new Random();
+			}
+			
+		};
+	}
+	
+	/**
+	 * Registra a aquisição de um bloqueio pela thread atual.
+	 * @param handle referência usada na liberação do bloqueio.
+	 * @param lockName nome do bloqueio.
+	 */
+	void acquired(Object handle, Object lockName){
+		Thread thread = Thread.currentThread();
+		
+		/*
+		 * A reentrância de uma aquisição amostrada é contabilizada para que a 
+		 * liberação interna não encerre o acompanhamento.
+		 */
+		if(!this.traces.isEmpty()){
+			Trace trace = this.traces.get(new Probe(handle, thread));
+			
+			if(trace != null){
+				trace.count++;
+				return;
+			}
+		}
+		
+		if(!this.sample()){
+			return;
+		}
+		
+		this.expungeCollected();
+		
+		Trace trace = new Trace(handle, thread, this.collected, 
+				new LockLeakException(lockName, thread.getName(), System.nanoTime()));
+		this.traces.put(trace, trace);
+	}
+	
+	/**
+	 * Registra a liberação de um bloqueio pela thread atual.
+	 * @param handle referência usada na liberação do bloqueio.
+	 */
+	void released(Object handle){
+		if(this.traces.isEmpty()){
+			return;
+		}
+		
+		Probe probe = new Probe(handle, Thread.currentThread());
+		Trace trace = this.traces.get(probe);
+		
+		if(trace != null && --trace.count == 0){
+			this.traces.remove(trace);
+		}
+	}
+	
+	/**
+	 * Obtém os bloqueios amostrados mantidos há pelo menos um determinado tempo.
+	 * @param time tempo mínimo de posse.
+	 * @param unit unidade do tempo.
+	 * @return bloqueios não liberados, incluindo os descartados pelo coletor de lixo 
+	 * ainda não notificados.
+	 */
+	public List<LockLeakException> getLeaks(long time, TimeUnit unit){
+		this.expungeCollected();
+		
+		List<LockLeakException> result = new ArrayList<LockLeakException>();
+		long now                       = System.nanoTime();
+		long minHoldTime               = unit.toNanos(time);
+		
+		for(Trace trace: this.traces.values()){
+			if(now - trace.leak.getAcquireTime() >= minHoldTime){
+				result.add(trace.leak);
+			}
+		}
+		
+		return result;
+	}
+	
+	/**
+	 * Obtém a quantidade de aquisições amostradas ainda não liberadas.
+	 * @return quantidade.
+	 */
+	public int getTrackedCount(){
+		return this.traces.size();
+	}
+	
+	/**
+	 * Notifica os bloqueios cujas referências foram descartadas sem a liberação.
+	 */
+	public void expungeCollected(){
+		Reference<?> ref;
+		
+		while((ref = this.collected.poll()) != null){
+			Trace trace = (Trace)ref;
+			
+			if(this.traces.remove(trace) == null){
+				continue;
+			}
+			
+			trace.leak.setCollected(true);
+			
+			if(this.listener == null){
+				Thread thread = Thread.currentThread();
+				thread.getUncaughtExceptionHandler().uncaughtException(thread, trace.leak);
+			}
+			else{
+				this.listener.leakDetected(trace.leak);
+			}
+		}
+	}
+	
+	private boolean sample(){
+		double rate = this.samplingRate;
+		return rate >= 1 || (rate > 0 && this.random.get().nextDouble() < rate);
+	}
+	
+	/**
+	 * Chave de consulta de uma aquisição.
+	 */
+	private static final class Probe{
+		
+		final Object handle;
+		
+		final Thread thread;
+		
+		final int hash;
+		
+		Probe(Object handle, Thread thread){
+			this.handle = handle;
+			this.thread = thread;
+			this.hash   = hash(handle, thread);
+		}
+		
+		public int hashCode(){
+			return this.hash;
+		}
+		
+		public boolean equals(Object value){
+			if(!(value instanceof Trace)){
+				return value == this;
+			}
+			
+			Trace trace = (Trace)value;
+			return trace.thread == this.thread && trace.get() == this.handle;
+		}
+		
+	}
+	
+	/**
+	 * Aquisição amostrada. A referência do bloqueio é mantida de forma fraca para 
+	 * identificar o seu descarte.
+	 */
+	private static final class Trace extends WeakReference<Object>{
+		
+		final Thread thread;
+		
+		final int hash;
+		
+		final LockLeakException leak;
+		
+		/**
+		 * Quantidade de aquisições. Acessada somente pela thread da aquisição.
+		 */
+		int count;
+		
+		Trace(Object handle, Thread thread, 
+				ReferenceQueue<Object> queue, LockLeakException leak){
+			super(handle, queue);
+			this.thread = thread;
+			this.hash   = hash(handle, thread);
+			this.leak   = leak;
+			this.count  = 1;
+		}
+		
+		public int hashCode(){
+			return this.hash;
+		}
+		
+		public boolean equals(Object value){
+			if(value == this){
+				return true;
+			}
+			
+			if(!(value instanceof Probe)){
+				return false;
+			}
+			
+			Probe probe = (Probe)value;
+			return probe.thread == this.thread && probe.handle == this.get();
+		}
+		
+	}
+	
+	private static int hash(Object handle, Thread thread){
+		return System.identityHashCode(handle) * 31 + System.identityHashCode(thread);
+	}
+	
+}
@@ -0,0 +1,86 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Descreve um bloqueio que não foi liberado, detectado por um {@link LockLeakDetector}.
+ * 
+ * <p>O rastro da pilha indica o ponto onde o bloqueio foi adquirido.</p>
+ * 
+ * @author Brandao
+ *
+ */
+public class LockLeakException 
+	extends IllegalStateException{
+
+	private static final long serialVersionUID = -2931856241876470315L;
+
+	private final Object lockName;
+	
+	private final String threadName;
+	
+	private final long acquireTime;
+	
+	private volatile boolean collected;
+	
+	public LockLeakException(Object lockName, String threadName, long acquireTime){
+		super("lock not released: " + lockName + " acquired by " + threadName);
+		this.lockName    = lockName;
+		this.threadName  = threadName;
+		this.acquireTime = acquireTime;
+	}
+
+	/**
+	 * Obtém o nome do bloqueio.
+	 * @return nome do bloqueio.
+	 */
+	public Object getLockName() {
+		return lockName;
+	}
+
+	/**
+	 * Obtém o nome da thread que adquiriu o bloqueio.
+	 * @return nome da thread.
+	 */
+	public String getThreadName() {
+		return threadName;
+	}
+
+	/**
+	 * Obtém o momento da aquisição, em nanossegundos, medido por {@link System#nanoTime()}.
+	 * @return momento da aquisição.
+	 */
+	public long getAcquireTime() {
+		return acquireTime;
+	}
+
+	/**
+	 * Verifica se a referência do bloqueio foi descartada pelo coletor de lixo 
+	 * antes da liberação.
+	 * @return <code>true</code> se a referência foi descartada. Caso contrário, <code>false</code>.
+	 */
+	public boolean isCollected() {
+		return collected;
+	}
+	
+	void setCollected(boolean value) {
+		this.collected = value;
+	}
+	
+}
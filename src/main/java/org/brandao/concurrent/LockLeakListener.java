@@ -0,0 +1,38 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Recebe os bloqueios cujas referências foram descartadas sem a liberação, 
+ * detectados por um {@link LockLeakDetector}.
+ * 
+ * @author Brandao
+ *
+ */
+public interface LockLeakListener {
+
+	/**
+	 * Notifica a detecção de um bloqueio não liberado. Cada bloqueio é 
+	 * notificado somente uma vez.
+	 * @param leak descrição do bloqueio. O rastro da pilha indica 
+	 * o ponto onde o bloqueio foi adquirido.
+	 */
+	void leakDetected(LockLeakException leak);
+	
+}
@@ -22,11 +22,33 @@ import java.util.concurrent.locks.ReentrantLock;
 class LockObjectFactory 
 	implements ObjectFactory{
 
+	private final WaitStrategy waitStrategy;
+	
+	public LockObjectFactory(){
+		this(null);
+	}
+	
+	public LockObjectFactory(WaitStrategy waitStrategy){
+		this.waitStrategy = waitStrategy;
+	}
+	
 	public Object createInstance() {
-		return new ReentrantLock();
+		return this.waitStrategy == null? 
+				new ReentrantLock() : 
+				new StrategyLock(this.waitStrategy);
 	}
 	
 	public void destroy(Object instance) {
 	}
+	
+	/**
+	 * Um {@link ReentrantLock} (16) e o seu sincronizador (32), ou um 
+	 * {@link StrategyLock} (48), a sua fila (24) e o nó inicial da fila (24).
+	 */
+	public long getInstanceSize() {
+		return this.waitStrategy == null? 
+				16 + 32 : 
+				48 + 24 + 24;
+	}
 
 }
@@ -0,0 +1,38 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Recebe as inversões na ordem de aquisição dos bloqueios detectadas 
+ * por um {@link LockOrderValidator}.
+ * 
+ * @author Brandao
+ *
+ */
+public interface LockOrderListener {
+
+	/**
+	 * Notifica a detecção de uma inversão. Cada inversão é notificada 
+	 * somente na primeira vez em que é observada.
+	 * @param violation descrição da inversão. O rastro da pilha indica 
+	 * o ponto onde a inversão foi detectada.
+	 */
+	void violationDetected(LockOrderViolationException violation);
+	
+}
@@ -0,0 +1,262 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Valida a ordem de aquisição dos bloqueios.
+ * 
+ * <p>O validador aprende as arestas de ordenação entre classes de bloqueio
+ * (classe A adquirida antes da classe B) e informa uma potencial inversão 
+ * na primeira vez em que ela é observada, muito antes de ocorrer um impasse real. 
+ * Cada thread mantém a pilha dos bloqueios que possui e as arestas 
+ * aprendidas são compartilhadas por todas as threads.</p>
+ * 
+ * <p>Bloqueios da mesma classe não geram arestas e a reentrância de um
+ * nome já mantido pela thread é ignorada.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    NamedLock namedLock = ...;
+ *    namedLock.setLockOrderValidator(new LockOrderValidator(new LockClassifier(){
+ *    
+ *        public Object getLockClass(Object lockName){
+ *            String name = (String)lockName;
+ *            return name.substring(0, name.indexOf(':'));
+ *        }
+ *        
+ *    }));
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class LockOrderValidator {
+
+	/**
+	 * Arestas aprendidas. A chave é a classe adquirida primeiro e o valor é o 
+	 * conjunto de classes adquiridas enquanto ela era mantida.
+	 */
+	private final ConcurrentMap<Object, ConcurrentMap<Object,Boolean>> edges;
+	
+	/**
+	 * Pilha dos bloqueios mantidos pela thread atual.
+	 */
+	private final ThreadLocal<List<HeldLock>> heldLocks;
+	
+	private final LockClassifier classifier;
+	
+	private final LockOrderListener listener;
+	
+	/**
+	 * Cria um novo validador em que cada nome é a sua própria classe. 
+	 * As inversões são lançadas como {@link LockOrderViolationException}.
+	 */
+	public LockOrderValidator(){
+		this(null, null);
+	}
+	
+	/**
+	 * Cria um novo validador. As inversões são lançadas como 
+	 * {@link LockOrderViolationException}.
+	 * @param classifier associa os nomes às classes de bloqueio.
+	 */
+	public LockOrderValidator(LockClassifier classifier){
+		this(classifier, null);
+	}
+	
+	/**
+	 * Cria um novo validador.
+	 * @param classifier associa os nomes às classes de bloqueio. Se <code>null</code>, 
+	 * cada nome é a sua própria classe.
+	 * @param listener recebe as inversões detectadas. Se <code>null</code>, 
+	 * as inversões são lançadas como {@link LockOrderViolationException}.
+	 */
+	public LockOrderValidator(LockClassifier classifier, LockOrderListener listener){
+		this.classifier = classifier;
+		this.listener   = listener;
+		this.edges      = new ConcurrentHashMap<Object, ConcurrentMap<Object,Boolean>>();
+		this.heldLocks  = new ThreadLocal<List<HeldLock>>();
+	}
+
+	/**
+	 * Verifica se a aquisição do bloqueio respeita a ordem aprendida. Deve ser 
+	 * chamado antes de uma aquisição que pode bloquear a thread.
+	 * @param lockName nome do bloqueio.
+	 * @throws LockOrderViolationException Lançada se uma inversão for detectada 
+	 * e não existir um {@link LockOrderListener}.
+	 */
+	void checkAcquire(Object lockName){
+		List<HeldLock> held = this.heldLocks.get();
+		
+		if(held == null){
+			return;
+		}
+		
+		Object lockClass = this.getLockClass(lockName);
+		
+		for(int i=held.size()-1;i>=0;i--){
+			if(held.get(i).lockName.equals(lockName)){
+				return;
+			}
+		}
+		
+		for(int i=0;i<held.size();i++){
+			HeldLock h = held.get(i);
+			if(!h.lockClass.equals(lockClass)){
+				this.addEdge(h, lockName, lockClass);
+			}
+		}
+	}
+	
+	/**
+	 * Registra a aquisição do bloqueio pela thread atual.
+	 * @param lockName nome do bloqueio.
+	 */
+	void acquired(Object lockName){
+		List<HeldLock> held = this.heldLocks.get();
+		
+		if(held == null){
+			held = new ArrayList<HeldLock>(4);
+			this.heldLocks.set(held);
+		}
+		
+		held.add(new HeldLock(lockName, this.getLockClass(lockName)));
+	}
+
+	/**
+	 * Registra a liberação do bloqueio pela thread atual.
+	 * @param lockName nome do bloqueio.
+	 */
+	void released(Object lockName){
+		List<HeldLock> held = this.heldLocks.get();
+		
+		if(held == null){
+			return;
+		}
+		
+		for(int i=held.size()-1;i>=0;i--){
+			if(held.get(i).lockName.equals(lockName)){
+				held.remove(i);
+				break;
+			}
+		}
+		
+		if(held.isEmpty()){
+			this.heldLocks.remove();
+		}
+	}
+	
+	/**
+	 * Verifica se a ordem <code>first -&gt; second</code> foi aprendida, 
+	 * direta ou indiretamente.
+	 * @param first classe adquirida primeiro.
+	 * @param second classe adquirida depois.
+	 * @return <code>true</code> se a ordem foi aprendida. Caso contrário, <code>false</code>.
+	 */
+	public boolean isOrdered(Object first, Object second){
+		return this.isReachable(first, second);
+	}
+	
+	private Object getLockClass(Object lockName){
+		return this.classifier == null? lockName : this.classifier.getLockClass(lockName);
+	}
+	
+	private void addEdge(HeldLock held, Object lockName, Object lockClass){
+		ConcurrentMap<Object,Boolean> after = this.edges.get(held.lockClass);
+		
+		if(after == null){
+			after = new ConcurrentHashMap<Object, Boolean>();
+			ConcurrentMap<Object,Boolean> current = this.edges.putIfAbsent(held.lockClass, after);
+			if(current != null){
+				after = current;
+			}
+		}
+		
+		/*
+		 * Somente uma aresta nova pode produzir uma nova inversão. A
+		 * verificação do caminho inverso ocorre uma única vez por aresta.
+		 */
+		if(after.putIfAbsent(lockClass, Boolean.TRUE) != null){
+			return;
+		}
+		
+		if(this.isReachable(lockClass, held.lockClass)){
+			LockOrderViolationException e = 
+				new LockOrderViolationException(held.lockName, held.lockClass, lockName, lockClass);
+			
+			if(this.listener == null){
+				throw e;
+			}
+			
+			this.listener.violationDetected(e);
+		}
+	}
+	
+	private boolean isReachable(Object from, Object to){
+		List<Object> pending = new ArrayList<Object>();
+		Set<Object> visited  = new HashSet<Object>();
+		
+		pending.add(from);
+		visited.add(from);
+		
+		while(!pending.isEmpty()){
+			Object current = pending.remove(pending.size() - 1);
+			ConcurrentMap<Object,Boolean> after = this.edges.get(current);
+			
+			if(after == null){
+				continue;
+			}
+			
+			for(Object next: after.keySet()){
+				if(next.equals(to)){
+					return true;
+				}
+				
+				if(visited.add(next)){
+					pending.add(next);
+				}
+			}
+		}
+		
+		return false;
+	}
+	
+	private static class HeldLock{
+		
+		public final Object lockName;
+		
+		public final Object lockClass;
+
+		public HeldLock(Object lockName, Object lockClass) {
+			this.lockName  = lockName;
+			this.lockClass = lockClass;
+		}
+		
+	}
+	
+}
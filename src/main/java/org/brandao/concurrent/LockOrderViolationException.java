@@ -0,0 +1,87 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Lançada quando uma inversão na ordem de aquisição dos bloqueios é detectada.
+ * 
+ * <p>A inversão indica um potencial impasse (deadlock), mesmo que ele ainda 
+ * não tenha ocorrido.</p>
+ * 
+ * @author Brandao
+ *
+ */
+public class LockOrderViolationException 
+	extends IllegalStateException{
+
+	private static final long serialVersionUID = 6395426207474512427L;
+
+	private final Object heldLockName;
+	
+	private final Object heldLockClass;
+
+	private final Object requestedLockName;
+	
+	private final Object requestedLockClass;
+	
+	public LockOrderViolationException(Object heldLockName, Object heldLockClass,
+			Object requestedLockName, Object requestedLockClass){
+		super(
+			"lock order inversion: " + requestedLockName + " (" + requestedLockClass + ")" +
+			" acquired while holding " + heldLockName + " (" + heldLockClass + ")" +
+			", but " + requestedLockClass + " -> " + heldLockClass + " was observed before");
+		this.heldLockName       = heldLockName;
+		this.heldLockClass      = heldLockClass;
+		this.requestedLockName  = requestedLockName;
+		this.requestedLockClass = requestedLockClass;
+	}
+
+	/**
+	 * Obtém o nome do bloqueio mantido pela thread.
+	 * @return nome do bloqueio.
+	 */
+	public Object getHeldLockName() {
+		return heldLockName;
+	}
+
+	/**
+	 * Obtém a classe do bloqueio mantido pela thread.
+	 * @return classe do bloqueio.
+	 */
+	public Object getHeldLockClass() {
+		return heldLockClass;
+	}
+
+	/**
+	 * Obtém o nome do bloqueio solicitado.
+	 * @return nome do bloqueio.
+	 */
+	public Object getRequestedLockName() {
+		return requestedLockName;
+	}
+
+	/**
+	 * Obtém a classe do bloqueio solicitado.
+	 * @return classe do bloqueio.
+	 */
+	public Object getRequestedLockClass() {
+		return requestedLockClass;
+	}
+	
+}
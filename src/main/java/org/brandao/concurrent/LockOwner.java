@@ -0,0 +1,59 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Posse de um bloqueio, obtida com uma única operação atômica.
+ * 
+ * <p>A posse é mantida em um campo do próprio bloqueio, sem um objeto atômico 
+ * por bloqueio. No Java 21 ou superior, a classe é substituída pela versão de 
+ * <code>src/main/java21</code>, que usa um <code>VarHandle</code> e 
+ * <code>Thread.onSpinWait()</code>.</p>
+ * 
+ * @author Brandao
+ *
+ */
+abstract class LockOwner {
+
+	private static final AtomicReferenceFieldUpdater<LockOwner,Thread> OWNER = 
+			AtomicReferenceFieldUpdater.newUpdater(LockOwner.class, Thread.class, "owner");
+	
+	private volatile Thread owner;
+	
+	final Thread getOwner(){
+		return this.owner;
+	}
+	
+	final boolean compareAndSetOwner(Thread expect, Thread update){
+		return OWNER.compareAndSet(this, expect, update);
+	}
+	
+	final void setOwner(Thread value){
+		this.owner = value;
+	}
+	
+	/**
+	 * Indica ao processador que a thread está em espera ativa.
+	 */
+	static void onSpinWait(){
+	}
+	
+}
@@ -0,0 +1,103 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Bloqueios compartilhados usados pela política {@link RegistryOverflowPolicy#STRIPED}. 
+ * O bloqueio de um nome é escolhido a partir do seu hash, fora do registro.
+ * 
+ * @author Brandao
+ *
+ */
+class LockStripes {
+
+	/**
+	 * Quantidade de bloqueios compartilhados.
+	 */
+	private static final int STRIPES = 64;
+	
+	private final Lock[] stripes;
+	
+	public LockStripes(ObjectFactory lockObjectFactory){
+		this.stripes = new Lock[STRIPES];
+		
+		for(int i=0;i<this.stripes.length;i++){
+			this.stripes[i] = (Lock)lockObjectFactory.createInstance();
+		}
+	}
+	
+	/**
+	 * Cria a referência de uma aquisição do bloqueio compartilhado de um nome.
+	 * @param id identificador da aquisição.
+	 * @param lockName nome do bloqueio.
+	 * @return referência.
+	 */
+	public Ref newRef(UUID id, Object lockName){
+		return new Ref(id, getIndex(lockName));
+	}
+	
+	/**
+	 * Obtém o bloqueio compartilhado de uma aquisição.
+	 * @param ref referência da aquisição.
+	 * @param lockName nome do bloqueio.
+	 * @return bloqueio.
+	 */
+	public Lock getLock(Serializable ref, Object lockName){
+		int index = ((Ref)ref).index;
+		
+		if(index != getIndex(lockName)){
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		}
+		
+		return this.stripes[index];
+	}
+	
+	private static int getIndex(Object lockName){
+		int h = lockName.hashCode();
+		h ^= (h >>> 16);
+		return h & (STRIPES - 1);
+	}
+	
+	/**
+	 * Referência de uma aquisição feita em um bloqueio compartilhado, fora do registro.
+	 */
+	static class Ref implements Serializable{
+		
+		private static final long serialVersionUID = 2305719843614218736L;
+
+		public final UUID id;
+		
+		public final int index;
+		
+		public Ref(UUID id, int index){
+			this.id    = id;
+			this.index = index;
+		}
+		
+		public String toString(){
+			return this.id.toString() + ":" + this.index;
+		}
+		
+	}
+	
+}
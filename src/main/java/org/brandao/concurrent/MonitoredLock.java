@@ -0,0 +1,206 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Bloqueador que notifica as aquisições, disputas e liberações de um bloqueador 
+ * obtido de um {@link LockFactory}.
+ * 
+ * @author Brandao
+ *
+ */
+class MonitoredLock 
+	implements Lock{
+
+	private final Object key;
+	
+	private final Lock lock;
+	
+	private final LockOrderValidator validator;
+	
+	private final ContentionTracker tracker;
+	
+	private final LockActivityTracker activity;
+	
+	private final LockLeakDetector detector;
+	
+	/**
+	 * Mantém o bloqueador de origem alcançável enquanto esta instância for usada.
+	 */
+	private final Object source;
+	
+	public MonitoredLock(Object key, Lock lock, Object source, 
+			LockOrderValidator validator, ContentionTracker tracker, 
+			LockActivityTracker activity, LockLeakDetector detector){
+		this.key       = key;
+		this.lock      = lock;
+		this.source    = source;
+		this.validator = validator;
+		this.tracker   = tracker;
+		this.activity  = activity;
+		this.detector  = detector;
+	}
+	
+	public void lock() {
+		if(this.validator != null){
+			this.validator.checkAcquire(this.key);
+		}
+		
+		if(this.tracker == null && this.activity == null){
+			this.lock.lock();
+		}
+		else
+		if(!this.lock.tryLock()){
+			long start  = System.nanoTime();
+			Object wait = this.startWait();
+			try{
+				this.lock.lock();
+			}
+			finally{
+				this.endWait(wait);
+			}
+			
+			if(this.tracker != null){
+				this.tracker.record(this.key, System.nanoTime() - start);
+			}
+		}
+		
+		this.acquired();
+	}
+
+	public void lockInterruptibly() throws InterruptedException {
+		if(this.validator != null){
+			this.validator.checkAcquire(this.key);
+		}
+		
+		if(this.tracker == null && this.activity == null){
+			this.lock.lockInterruptibly();
+		}
+		else
+		if(!this.lock.tryLock()){
+			long start  = System.nanoTime();
+			Object wait = this.startWait();
+			try{
+				this.lock.lockInterruptibly();
+			}
+			finally{
+				this.endWait(wait);
+			}
+			
+			if(this.tracker != null){
+				this.tracker.record(this.key, System.nanoTime() - start);
+			}
+		}
+		
+		this.acquired();
+	}
+
+	public boolean tryLock() {
+		if(this.lock.tryLock()){
+			this.acquired();
+			return true;
+		}
+		return false;
+	}
+
+	public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+		if(this.validator != null){
+			this.validator.checkAcquire(this.key);
+		}
+		
+		boolean acquired;
+		
+		if(this.tracker == null && this.activity == null){
+			acquired = this.lock.tryLock(time, unit);
+		}
+		else
+		if(this.lock.tryLock()){
+			acquired = true;
+		}
+		else{
+			long start  = System.nanoTime();
+			Object wait = this.startWait();
+			try{
+				acquired = this.lock.tryLock(time, unit);
+			}
+			finally{
+				this.endWait(wait);
+			}
+			
+			if(this.tracker != null){
+				this.tracker.record(this.key, System.nanoTime() - start);
+			}
+		}
+		
+		if(acquired){
+			this.acquired();
+		}
+		
+		return acquired;
+	}
+
+	public void unlock() {
+		this.lock.unlock();
+		
+		if(this.validator != null){
+			this.validator.released(this.key);
+		}
+		
+		if(this.activity != null){
+			this.activity.released(this.key);
+		}
+		
+		if(this.detector != null){
+			this.detector.released(this);
+		}
+	}
+
+	public Condition newCondition() {
+		return this.lock.newCondition();
+	}
+	
+	private Object startWait(){
+		return this.activity == null? null : this.activity.startWait(this.key);
+	}
+	
+	private void endWait(Object wait){
+		if(wait != null){
+			this.activity.endWait(wait);
+		}
+	}
+	
+	private void acquired(){
+		if(this.validator != null){
+			this.validator.acquired(this.key);
+		}
+		
+		if(this.activity != null){
+			this.activity.acquired(this.key, Thread.currentThread());
+		}
+		
+		if(this.detector != null){
+			this.detector.acquired(this, this.key);
+		}
+	}
+
+}
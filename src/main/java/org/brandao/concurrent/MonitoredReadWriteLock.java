@@ -0,0 +1,53 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Bloqueador de leitura e escrita cujos bloqueios notificam as aquisições, 
+ * disputas e liberações.
+ * 
+ * @author Brandao
+ *
+ */
+class MonitoredReadWriteLock 
+	implements ReadWriteLock{
+
+	private final Lock readLock;
+	
+	private final Lock writeLock;
+	
+	public MonitoredReadWriteLock(Object key, ReadWriteLock readWriteLock, 
+			LockOrderValidator validator, ContentionTracker tracker, 
+			LockActivityTracker activity, LockLeakDetector detector){
+		this.readLock  = new MonitoredLock(key, readWriteLock.readLock(), readWriteLock, validator, tracker, activity, detector);
+		this.writeLock = new MonitoredLock(key, readWriteLock.writeLock(), readWriteLock, validator, tracker, activity, detector);
+	}
+	
+	public Lock readLock() {
+		return this.readLock;
+	}
+
+	public Lock writeLock() {
+		return this.writeLock;
+	}
+	
+}
@@ -15,14 +15,14 @@
  * limitations under the License.
  */
 
+
 package org.brandao.concurrent;
 
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -39,6 +39,11 @@ import java.util.concurrent.locks.ReentrantLock;
  * <p>Os métodos de bloqueio provêem uma referência que deve ser usado no método de
  * desbloqueio</p>
  * 
+ * <p>Uma nova aquisição de um nome pela thread que já possui o seu bloqueio 
+ * devolve a mesma referência e deve ser liberada como as demais.</p>
+ * 
+ * <p>Para chaves compostas, deve-se usar {@link KeyedLock}.</p>
+ * 
  * <pre>
  * ex:
  * 
@@ -56,7 +61,7 @@ import java.util.concurrent.locks.ReentrantLock;
  * @author Brandao
  *
  */
-public class NamedLock {
+public class NamedLock extends KeyedLock<String> {
 
 	/**
 	 * A referência de um bloqueio é necessário para se evitar problemas de sincronização na liberação 
@@ -65,26 +70,56 @@ public class NamedLock {
 	 * a liberação da instância do {@link Lock} de forma segura.</p> 
 	 * Usando a estratégia de armazenar a referência consome-se mais memória em relação ao uso de um
 	 * contador, mas nesse caso o mais importante é a confiabilidade.
+	 * <p>É uma visão do registro mantido por {@link KeyedLock}.</p>
 	 */
 	protected Map<String,Set<UUID>> origins;
 
 	/**
 	 * Lock associado a um determinado nome.
+	 * <p>É uma visão do registro mantido por {@link KeyedLock}.</p>
 	 */
 	protected Map<String,Lock> locks;
 
 	/**
-	 * Bloqueio global usado para sincronizar a aquisição e liberação dos bloqueios reais.
+	 * Cria uma nova instância usando bloqueios do tipo {@link ReentrantLock}.
 	 */
-	protected Lock _lock;
+	public NamedLock(){
+		super();
+		this.initRegistryViews();
+	}
 	
 	/**
-	 * Cria uma nova instância.
+	 * Cria uma nova instância com uma estratégia de espera.
+	 * @param waitStrategy estratégia usada pelas threads à espera de um bloqueio. 
+	 * Se <code>null</code>, são usados bloqueios do tipo {@link ReentrantLock}.
 	 */
-	public NamedLock(){
-		this.origins = new HashMap<String, Set<UUID>>();
-		this.locks   = new HashMap<String, Lock>();
-		this._lock   = new ReentrantLock();
+	public NamedLock(WaitStrategy waitStrategy){
+		super(waitStrategy);
+		this.initRegistryViews();
+	}
+	
+	/**
+	 * Cria uma nova instância com suporte a prioridades.
+	 * @param agingTime intervalo de envelhecimento das solicitações em espera.
+	 * @param unit unidade do intervalo.
+	 * @see KeyedLock#KeyedLock(long, TimeUnit)
+	 */
+	public NamedLock(long agingTime, TimeUnit unit){
+		super(agingTime, unit);
+		this.initRegistryViews();
+	}
+	
+	NamedLock(ObjectFactory lockObjectFactory){
+		super(lockObjectFactory, null);
+		this.initRegistryViews();
+	}
+	
+	/**
+	 * Sem uma estratégia de comparação, as chaves do registro são os próprios nomes.
+	 */
+	private void initRegistryViews(){
+		this.origins = new StringKeyMap<Set<UUID>>(this.getRegistryOrigins());
+		this.locks   = new StringKeyMap<Lock>(this.getRegistryLocks());
 	}
 	
 	/**
@@ -106,15 +141,9 @@ public class NamedLock {
 	 * @return identificação única do bloqueio associado ao nome.
 	 */
 	public Serializable lock(String lockName){
-		
-		UUID ref  = UUID.randomUUID();
-		Lock lock = this.getLock(ref, lockName);
-		
-		lock.lock();
-		
-		return ref;
+		return super.lock(lockName);
 	}
-
+	
 	/**
 	 * Adquire um bloqueio com um determinado nome a menos que a thread atual seja interrompida.
 	 * <p>Um uso típico desse método seria:
@@ -133,26 +162,11 @@ public class NamedLock {
 	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
 	 * obter o bloqueio.
 	 */
-    public Serializable lockInterruptibly(String lockName) throws InterruptedException{
-		UUID ref  = UUID.randomUUID();
-		Lock lock = this.getLock(ref, lockName);
-		
-		try{
-			lock.lockInterruptibly();
-		}
-		catch(InterruptedException e){
-			this.releaseLock(ref, lockName);
-			throw e;
-		}
-		catch(Throwable e){
-			this.releaseLock(ref, lockName);
-			throw new InterruptedException("bug: " + e.toString());
-		}
-		
-		return ref;
-    }
-
-    /**
+	public Serializable lockInterruptibly(String lockName) throws InterruptedException{
+		return super.lockInterruptibly(lockName);
+	}
+	
+	/**
      * Tenta adquirir o bloqueio somente se ele estiver livre no momento da invocação.
 	 * <p>Um uso típico desse método seria:
 	 * <pre>
@@ -171,22 +185,14 @@ public class NamedLock {
 	 *     }
 	 * </pre>
 	 * @param lockName nome do bloqueio.
-	 * @return identificação única do bloqueio associado ao nome.
+	 * @return identificação única do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não estiver livre ou, com a política {@link RegistryOverflowPolicy#FAIL}, 
+	 * o registro estiver cheio.
      */
 	public Serializable tryLock(String lockName){
-		
-		UUID ref  = UUID.randomUUID();
-		Lock lock = this.getLock(ref, lockName);
-		
-		if(lock.tryLock()){
-			return ref;
-		}
-		else{
-			this.releaseLock(ref, lockName);
-			return null;
-		}
+		return super.tryLock(lockName);
 	}
-    
+	
 	/**
      * Tenta adquirir o bloqueio somente se ele estiver livre dentro de um determinado 
      * prazo de tempo e a thread atual não for interrompida.
@@ -215,29 +221,138 @@ public class NamedLock {
 	 * obter o bloqueio.
 	 */
 	public Serializable tryLock(String lockName, long time, TimeUnit unit) throws InterruptedException{
-		
-		UUID ref  = UUID.randomUUID();
-		Lock lock = this.getLock(ref, lockName);
-		
-		try{
-			if(lock.tryLock(time, unit)){
-				return ref;
-			}
-			else{
-				this.releaseLock(ref, lockName);
-				return null;
-			}
-		}
-		catch(InterruptedException e){
-			try{
-				this.releaseLock(ref, lockName);
-			}
-			catch(Throwable x){
-				throw new InterruptedException("bug: " + x.toString());
-			}
-			
-			throw e;
-		}
+		return super.tryLock(lockName, time, unit);
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome e prioridade.
+	 * 
+	 * <p>A prioridade somente é considerada nas instâncias criadas com 
+	 * {@link #NamedLock(long, TimeUnit)}. Nas demais, o método equivale a 
+	 * {@link #lock(String)}.</p>
+	 * @param lockName nome do bloqueio.
+	 * @param priority prioridade. Quanto maior o valor, maior a prioridade.
+	 * @return identificação única do bloqueio associado ao nome.
+	 */
+	public Serializable lock(String lockName, int priority){
+		return super.lock(lockName, priority);
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome e prioridade a menos que a thread 
+	 * atual seja interrompida.
+	 * @param lockName nome do bloqueio.
+	 * @param priority prioridade. Quanto maior o valor, maior a prioridade.
+	 * @return identificação única do bloqueio associado ao nome.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see #lock(String, int)
+	 */
+	public Serializable lockInterruptibly(String lockName, int priority) throws InterruptedException{
+		return super.lockInterruptibly(lockName, priority);
+	}
+	
+	/**
+	 * Tenta adquirir o bloqueio com uma determinada prioridade somente se ele estiver 
+	 * livre dentro de um determinado prazo de tempo e a thread atual não for interrompida.
+	 * @param lockName nome do bloqueio.
+	 * @param priority prioridade. Quanto maior o valor, maior a prioridade.
+	 * @param time tempo máximo de espera para adquirir o bloqueio.
+	 * @param unit unidade de tempo do argumento {@code time}.
+	 * @return identificação única do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não for obtido dentro do prazo determinado.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see #lock(String, int)
+	 */
+	public Serializable tryLock(String lockName, int priority, 
+			long time, TimeUnit unit) throws InterruptedException{
+		return super.tryLock(lockName, priority, time, unit);
+	}
+	
+	/**
+	 * Adquire o bloqueio de leitura de um determinado nome.
+	 * 
+	 * <p>Os bloqueios de leitura e escrita são independentes dos bloqueios obtidos 
+	 * em {@link #lock(String)} para o mesmo nome. A liberação é feita em 
+	 * {@link #unlock(Serializable, String)}.</p>
+	 * 
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Serializable lockRef = namedLock.lockRead("nome_do_lock");
+	 *     try{
+	 *         //leitura protegida pelo bloqueio.
+	 *     }
+	 *     finally{
+	 *         namedLock.unlock(lockRef, "nome_do_lock");
+	 *     }
+	 * </pre>
+	 * @param lockName nome do bloqueio.
+	 * @return identificação única do bloqueio associado ao nome.
+	 */
+	public Serializable lockRead(String lockName){
+		return super.lockRead(lockName);
+	}
+	
+	/**
+	 * Adquire o bloqueio de escrita de um determinado nome.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação única do bloqueio associado ao nome.
+	 * @see #lockRead(String)
+	 */
+	public Serializable lockWrite(String lockName){
+		return super.lockWrite(lockName);
+	}
+	
+	/**
+	 * Adquire o bloqueio de leitura atualizável de um determinado nome.
+	 * 
+	 * <p>Somente uma thread por vez possui a leitura atualizável de um nome, 
+	 * que convive com as leituras comuns. A leitura pode ser atualizada para 
+	 * escrita de forma atômica em {@link #upgrade(Serializable, String)}.</p>
+	 * 
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Serializable lockRef = namedLock.lockUpgradable("nome_do_lock");
+	 *     try{
+	 *         if(//verificação){
+	 *             namedLock.upgrade(lockRef, "nome_do_lock");
+	 *             //alteração.
+	 *         }
+	 *     }
+	 *     finally{
+	 *         namedLock.unlock(lockRef, "nome_do_lock");
+	 *     }
+	 * </pre>
+	 * @param lockName nome do bloqueio.
+	 * @return identificação única do bloqueio associado ao nome.
+	 * @see UpgradableReadWriteLock
+	 */
+	public Serializable lockUpgradable(String lockName){
+		return super.lockUpgradable(lockName);
+	}
+	
+	/**
+	 * Atualiza uma leitura atualizável para escrita. Espera a saída dos leitores 
+	 * sem liberar a leitura, de modo que nenhuma outra escrita ocorre entre a 
+	 * verificação e a alteração.
+	 * @param ref identificação obtida em {@link #lockUpgradable(String)}.
+	 * @param lockName nome do bloqueio.
+	 */
+	public void upgrade(Serializable ref, String lockName){
+		super.upgrade(ref, lockName);
+	}
+	
+	/**
+	 * Rebaixa uma escrita obtida em {@link #upgrade(Serializable, String)} para 
+	 * leitura atualizável.
+	 * @param ref identificação obtida em {@link #lockUpgradable(String)}.
+	 * @param lockName nome do bloqueio.
+	 */
+	public void downgrade(Serializable ref, String lockName){
+		super.downgrade(ref, lockName);
 	}
 	
 	/**
@@ -246,70 +361,43 @@ public class NamedLock {
 	 * @param lockName nome do bloqueio.
 	 */
 	public void unlock(Serializable ref, String lockName){
-		Lock lock = this.locks.get(lockName);
-		
-		if(lock == null){
-			throw new IllegalStateException("lock not found: " + lockName + ": " + ref);
-		}
-		
-		lock.unlock();
-		
-		this.releaseLock(ref, lockName);
+		super.unlock(ref, lockName);
 	}
 	
-	private Lock getLock(UUID ref, String lockName){
-		_lock.lock();
-		try{
-			Set<UUID> originSet = this.origins.get(lockName);
-			Lock lock = this.locks.get(lockName);
-			
-			if(originSet == null){
-				originSet = new HashSet<UUID>();
-				this.origins.put(lockName, originSet);
-				
-				if(lock != null){
-					throw new IllegalStateException("bug!");
-				}
-				
-				lock = new ReentrantLock();
-				this.locks.put(lockName, lock);
-			}
-			originSet.add(ref);
-			return lock;
-		}
-		finally{
-			_lock.unlock();
-		}
+	/**
+	 * Executa uma ação com a posse do bloqueio de um determinado nome.
+	 * 
+	 * <p>As threads que disputam o mesmo nome publicam as suas ações e a thread que 
+	 * obtém o bloqueio executa um lote das ações publicadas enquanto os dados 
+	 * protegidos estão no seu cache, entregando os resultados às demais 
+	 * (flat combining). Isso reduz a troca de posse do bloqueio em nomes muito 
+	 * disputados.</p>
+	 * 
+	 * <p>Como a ação pode ser executada por outra thread, ela não deve depender da 
+	 * identidade da thread atual (ex: {@link ThreadLocal}) nem adquirir outros bloqueios.
+	 * O método pode ser usado em conjunto com os demais métodos de bloqueio do 
+	 * mesmo nome.</p>
+	 * 
+	 * <p>Um uso típico desse método seria:
+	 * <pre>
+	 *     NamedLock namedLock = ...;
+	 *     Integer value = namedLock.execute("nome_do_lock", new Callable&lt;Integer&gt;(){
+	 *     
+	 *         public Integer call(){
+	 *             //ações protegidas pelo bloqueio.
+	 *         }
+	 *         
+	 *     });
+	 * </pre>
+	 * @param lockName nome do bloqueio.
+	 * @param action ação protegida pelo bloqueio.
+	 * @return resultado da ação.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida antes 
+	 * da execução da ação.
+	 * @throws Exception Lançada pela ação.
+	 */
+	public <V> V execute(String lockName, Callable<V> action) throws Exception{
+		return super.execute(lockName, action);
 	}
 	
-	private void releaseLock(Serializable ref, String lockName){
-		_lock.lock();
-		try{
-			Set<UUID> originSet = this.origins.get(lockName);
-			
-			if(originSet == null){
-				throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
-			}
-			
-			if(!originSet.remove(ref)){
-				throw new IllegalStateException("lock reference not found: " + lockName + ": " + ref);
-			}
-
-			if(originSet.isEmpty()){
-				 if(this.locks.remove(lockName) != null){
-				 	if(this.origins.remove(lockName) == null){
-						 throw new IllegalStateException("origins can not be empty: " + lockName + ": " + ref);
-				 	}
-				 }
-				 else{
-					 throw new IllegalStateException("lock not found: " + lockName + ": " + ref);
-				 }
-			}
-			
-		}
-		finally{
-			_lock.unlock();
-		}
-	}
-
 }
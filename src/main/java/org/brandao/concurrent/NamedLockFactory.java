@@ -64,4 +64,47 @@ import java.util.concurrent.locks.Lock;
 public class NamedLockFactory 
 	extends LockFactory<String>{
 
+	/**
+	 * Cria uma nova instância da fábrica.
+	 */
+	public NamedLockFactory(){
+		super();
+	}
+	
+	/**
+	 * Cria uma nova instância da fábrica com uma estratégia de espera.
+	 * @param waitStrategy estratégia usada pelas threads à espera de um bloqueio.
+	 * @see LockFactory#LockFactory(WaitStrategy)
+	 */
+	public NamedLockFactory(WaitStrategy waitStrategy){
+		super(waitStrategy);
+	}
+	
+	/**
+	 * Cria uma nova instância da fábrica com uma estratégia de espera e o modo de 
+	 * controle das instâncias dos bloqueadores.
+	 * @param waitStrategy estratégia usada pelas threads à espera de um bloqueio.
+	 * @param weakReferences <code>true</code> para usar o modo com referências fracas. 
+	 * Caso contrário, <code>false</code>.
+	 * @see LockFactory#LockFactory(WaitStrategy, boolean)
+	 */
+	public NamedLockFactory(WaitStrategy waitStrategy, boolean weakReferences){
+		super(waitStrategy, weakReferences);
+	}
+	
+	/**
+	 * Cria uma nova instância da fábrica com uma estratégia de espera, o modo de 
+	 * controle das instâncias dos bloqueadores e o tipo dos bloqueadores de 
+	 * leitura e escrita.
+	 * @param waitStrategy estratégia usada pelas threads à espera de um bloqueio.
+	 * @param weakReferences <code>true</code> para usar o modo com referências fracas. 
+	 * Caso contrário, <code>false</code>.
+	 * @param readerBiased <code>true</code> para usar bloqueadores de leitura e escrita 
+	 * com preferência para as leituras. Caso contrário, <code>false</code>.
+	 * @see LockFactory#LockFactory(WaitStrategy, boolean, boolean)
+	 */
+	public NamedLockFactory(WaitStrategy waitStrategy, boolean weakReferences, boolean readerBiased){
+		super(waitStrategy, weakReferences, readerBiased);
+	}
+	
 }
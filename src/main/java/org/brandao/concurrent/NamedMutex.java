@@ -0,0 +1,119 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Provê a posse exclusiva de nomes sem espera.
+ * 
+ * <p>É indicado quando o bloqueio é usado somente com {@link NamedLock#tryLock(String)}, 
+ * para verificar se outra thread já está trabalhando em um nome. Não existem 
+ * bloqueios, conjuntos de referências nem filas de espera. A obtenção de um 
+ * nome é a inclusão de uma marca de posse no registro e a liberação é a remoção 
+ * condicional dessa marca, ambas uma única operação sobre o registro.</p>
+ * 
+ * <p>A posse não é reentrante e não pertence a uma thread: uma nova tentativa 
+ * da mesma thread falha e a referência pode ser liberada por qualquer thread.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    NamedMutex namedMutex = ...;
+ *    Serializable ref = namedMutex.tryLock("nome_do_lock");
+ *    if(ref != null){
+ *       try{
+ *          //ações protegidas pelo bloqueio.
+ *       }
+ *       finally{
+ *          namedMutex.unlock(ref, "nome_do_lock");
+ *       }
+ *    }
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class NamedMutex {
+
+	/**
+	 * Marcas de posse associadas aos nomes.
+	 */
+	protected ConcurrentMap<String,Claim> claims;
+	
+	/**
+	 * Cria uma nova instância.
+	 */
+	public NamedMutex(){
+		this.claims = new ConcurrentHashMap<String, Claim>();
+	}
+	
+	/**
+	 * Tenta obter a posse de um nome somente se ele estiver livre no momento da invocação.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação da posse ou <code>null</code> se o nome já estiver em uso.
+	 */
+	public Serializable tryLock(String lockName){
+		Claim claim = new Claim();
+		return this.claims.putIfAbsent(lockName, claim) == null? claim : null;
+	}
+	
+	/**
+	 * Libera a posse de um nome.
+	 * @param ref identificação da posse.
+	 * @param lockName nome do bloqueio.
+	 */
+	public void unlock(Serializable ref, String lockName){
+		if(!(ref instanceof Claim) || !this.claims.remove(lockName, ref)){
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		}
+	}
+	
+	/**
+	 * Verifica se um nome está em uso.
+	 * @param lockName nome do bloqueio.
+	 * @return <code>true</code> se o nome estiver em uso. Caso contrário, <code>false</code>.
+	 */
+	public boolean isLocked(String lockName){
+		return this.claims.containsKey(lockName);
+	}
+	
+	/**
+	 * Obtém a quantidade de nomes no registro.
+	 * @return quantidade de nomes.
+	 */
+	public int getRegistrySize(){
+		return this.claims.size();
+	}
+	
+	/**
+	 * Marca de posse. A igualdade é a identidade do objeto, portanto somente a 
+	 * referência devolvida na obtenção libera o nome.
+	 */
+	protected static final class Claim 
+		implements Serializable{
+		
+		private static final long serialVersionUID = 4470215287623491052L;
+		
+	}
+	
+}
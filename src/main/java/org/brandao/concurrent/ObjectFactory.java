@@ -23,4 +23,11 @@ interface ObjectFactory {
 	
 	void destroy(Object instance);
 	
+	/**
+	 * Obtém uma estimativa da memória usada por uma instância criada pela fábrica, 
+	 * em uma JVM de 64 bits com referências comprimidas.
+	 * @return memória usada, em bytes.
+	 */
+	long getInstanceSize();
+	
 }
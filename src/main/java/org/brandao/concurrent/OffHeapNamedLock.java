@@ -0,0 +1,230 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provê operações de bloqueio baseado em nomes com o registro fora do heap.
+ * 
+ * <p>Oferece as mesmas operações de bloqueio de {@link NamedLock}, mas as entradas 
+ * do registro ficam em tabelas fora do heap, identificadas por uma impressão 
+ * digital de 64 bits do nome e confirmadas pelo nome completo. Um nome adquirido 
+ * e sem disputa ocupa {@link OffHeapSegment#SLOT_SIZE} bytes, mais dois bytes 
+ * por caractere, e não é visitado pelo coletor de lixo. Somente as threads à 
+ * espera de um nome usam objetos no heap.</p>
+ * 
+ * <p>O bloqueio é reentrante e pertence à thread que o adquiriu. Os recursos 
+ * opcionais de {@link NamedLock} (validação da ordem, rastreamento, cache por 
+ * thread, etc.) não estão disponíveis.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    OffHeapNamedLock namedLock = ...;
+ *    Serializable refLock = namedLock.lock("nome_do_lock");
+ *    try{
+ *       //ações protegidas pelo bloqueio.
+ *    }
+ *    finally{
+ *       namedLock.unlock(refLock, "nome_do_lock");
+ *    }
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class OffHeapNamedLock {
+
+	private final OffHeapSegment[] segments;
+	
+	private final int segmentShift;
+	
+	/**
+	 * Cria uma nova instância com 16 segmentos.
+	 */
+	public OffHeapNamedLock(){
+		this(16, 64);
+	}
+	
+	/**
+	 * Cria uma nova instância.
+	 * @param segments quantidade de segmentos do registro. Deve ser uma potência de 2.
+	 * @param initialCapacity quantidade inicial de entradas de cada segmento. Deve ser 
+	 * uma potência de 2.
+	 */
+	public OffHeapNamedLock(int segments, int initialCapacity){
+		if(segments <= 0 || (segments & (segments - 1)) != 0){
+			throw new IllegalArgumentException("invalid segments: " + segments);
+		}
+		
+		if(initialCapacity < 2 || (initialCapacity & (initialCapacity - 1)) != 0){
+			throw new IllegalArgumentException("invalid initial capacity: " + initialCapacity);
+		}
+		
+		this.segments     = new OffHeapSegment[segments];
+		this.segmentShift = 64 - Integer.numberOfTrailingZeros(segments);
+		
+		for(int i=0;i<segments;i++){
+			this.segments[i] = new OffHeapSegment(initialCapacity);
+		}
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação do bloqueio associado ao nome.
+	 * @see NamedLock#lock(String)
+	 */
+	public Serializable lock(String lockName){
+		try{
+			return this.acquire(lockName, -1, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome a menos que a thread atual seja interrompida.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação do bloqueio associado ao nome.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see NamedLock#lockInterruptibly(String)
+	 */
+	public Serializable lockInterruptibly(String lockName) throws InterruptedException{
+		return this.acquire(lockName, -1, true);
+	}
+	
+	/**
+	 * Tenta adquirir o bloqueio somente se ele estiver livre no momento da invocação.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não for obtido.
+	 * @see NamedLock#tryLock(String)
+	 */
+	public Serializable tryLock(String lockName){
+		try{
+			return this.acquire(lockName, 0, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Tenta adquirir o bloqueio somente se ele estiver livre dentro de um determinado 
+	 * prazo de tempo e a thread atual não for interrompida.
+	 * @param lockName nome do bloqueio.
+	 * @param time tempo máximo de espera para adquirir o bloqueio.
+	 * @param unit unidade de tempo do argumento {@code time}.
+	 * @return identificação do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não for obtido dentro do prazo determinado.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see NamedLock#tryLock(String, long, TimeUnit)
+	 */
+	public Serializable tryLock(String lockName, long time, TimeUnit unit) throws InterruptedException{
+		return this.acquire(lockName, Math.max(unit.toNanos(time), 1), true);
+	}
+	
+	/**
+	 * Libera o bloqueio com um determinado nome e referência.
+	 * @param ref identificação do bloqueio associado ao nome.
+	 * @param lockName nome do bloqueio.
+	 */
+	public void unlock(Serializable ref, String lockName){
+		long fingerprint = fingerprint(lockName);
+		
+		if(!(ref instanceof Long) || ((Long)ref).longValue() != fingerprint){
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		}
+		
+		this.segmentFor(fingerprint).release(fingerprint, lockName, Thread.currentThread().getId());
+	}
+	
+	/**
+	 * Obtém a quantidade de nomes no registro.
+	 * @return quantidade de nomes.
+	 */
+	public int getRegistrySize(){
+		int value = 0;
+		
+		for(OffHeapSegment segment: this.segments){
+			value += segment.size();
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Obtém a memória fora do heap reservada pelo registro.
+	 * @return memória reservada, em bytes.
+	 */
+	public long getRegistryMemoryUsage(){
+		long value = 0;
+		
+		for(OffHeapSegment segment: this.segments){
+			value += segment.getMemoryUsage();
+		}
+		
+		return value;
+	}
+	
+	private Serializable acquire(String lockName, long timeout, 
+			boolean interruptibly) throws InterruptedException{
+		
+		long fingerprint = fingerprint(lockName);
+		long owner       = Thread.currentThread().getId();
+		
+		return this.segmentFor(fingerprint)
+				.acquire(fingerprint, lockName, owner, timeout, interruptibly)?
+			Long.valueOf(fingerprint) :
+			null;
+	}
+	
+	private OffHeapSegment segmentFor(long fingerprint){
+		return this.segments.length == 1? 
+				this.segments[0] : 
+				this.segments[(int)(fingerprint >>> this.segmentShift)];
+	}
+	
+	/**
+	 * Calcula a impressão digital de um nome (FNV-1a de 64 bits com mistura final). 
+	 * O valor <code>0</code> é reservado para as entradas livres.
+	 */
+	static long fingerprint(String lockName){
+		long h = 0xcbf29ce484222325L;
+		
+		for(int i=0;i<lockName.length();i++){
+			h ^= lockName.charAt(i);
+			h *= 0x100000001b3L;
+		}
+		
+		h ^= (h >>> 33);
+		h *= 0xff51afd7ed558ccdL;
+		h ^= (h >>> 33);
+		
+		return h == 0? 1 : h;
+	}
+	
+}
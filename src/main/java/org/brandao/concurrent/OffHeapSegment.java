@@ -0,0 +1,451 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Segmento do registro de {@link OffHeapNamedLock}.
+ * 
+ * <p>As entradas ficam em uma tabela fora do heap com endereçamento aberto 
+ * (sondagem linear e remoção por deslocamento). Cada entrada ocupa 
+ * {@link #SLOT_SIZE} bytes e o nome é mantido em uma área separada, também 
+ * fora do heap. Somente as threads à espera de um nome usam objetos no heap.</p>
+ * 
+ * <p>Todas as operações são feitas com a posse do bloqueio do segmento.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class OffHeapSegment {
+
+	/*
+	 * Estrutura de uma entrada:
+	 * 0  long impressão digital do nome (0 indica entrada livre).
+	 * 8  long identificação da thread proprietária (0 indica sem proprietário).
+	 * 16 int  quantidade de aquisições da thread proprietária.
+	 * 20 int  quantidade de threads à espera.
+	 * 24 int  posição do nome na área de nomes.
+	 * 28 int  tamanho do nome em caracteres.
+	 */
+	
+	public static final int SLOT_SIZE = 32;
+	
+	private static final int FINGERPRINT = 0;
+	
+	private static final int OWNER = 8;
+	
+	private static final int HOLDS = 16;
+	
+	private static final int WAITERS = 20;
+	
+	private static final int KEY_OFFSET = 24;
+	
+	private static final int KEY_LENGTH = 28;
+	
+	private final ReentrantLock lock;
+	
+	/**
+	 * Condições de espera dos nomes disputados.
+	 */
+	private final Map<String,Condition> conditions;
+	
+	private ByteBuffer table;
+	
+	private ByteBuffer keys;
+	
+	private int mask;
+	
+	private int size;
+	
+	/**
+	 * Bytes da área de nomes que não estão mais em uso.
+	 */
+	private int garbage;
+	
+	public OffHeapSegment(int capacity){
+		this.lock       = new ReentrantLock();
+		this.conditions = new HashMap<String, Condition>();
+		this.table      = ByteBuffer.allocateDirect(capacity*SLOT_SIZE);
+		this.keys       = ByteBuffer.allocateDirect(capacity*16);
+		this.mask       = capacity - 1;
+	}
+
+	/**
+	 * Adquire o nome.
+	 * @param fingerprint impressão digital do nome.
+	 * @param lockName nome.
+	 * @param owner identificação da thread atual.
+	 * @param timeout tempo máximo de espera em nanossegundos, <code>-1</code> para 
+	 * esperar indefinidamente ou <code>0</code> para não esperar.
+	 * @param interruptibly define se a espera pode ser interrompida.
+	 * @return <code>true</code> se o nome foi adquirido. Caso contrário, <code>false</code>.
+	 */
+	public boolean acquire(long fingerprint, String lockName, long owner, 
+			long timeout, boolean interruptibly) throws InterruptedException{
+		
+		if(interruptibly){
+			this.lock.lockInterruptibly();
+		}
+		else{
+			this.lock.lock();
+		}
+		
+		try{
+			int slot = this.find(fingerprint, lockName);
+			
+			if(slot < 0){
+				this.insert(fingerprint, lockName, owner);
+				return true;
+			}
+			
+			long current = this.table.getLong(slot + OWNER);
+			
+			if(current == owner){
+				this.table.putInt(slot + HOLDS, this.table.getInt(slot + HOLDS) + 1);
+				return true;
+			}
+			
+			if(current == 0){
+				this.setOwner(slot, owner);
+				return true;
+			}
+			
+			if(timeout == 0){
+				return false;
+			}
+			
+			return this.await(fingerprint, lockName, owner, slot, timeout, interruptibly);
+		}
+		finally{
+			this.lock.unlock();
+		}
+	}
+	
+	/**
+	 * Libera o nome.
+	 * @param fingerprint impressão digital do nome.
+	 * @param lockName nome.
+	 * @param owner identificação da thread atual.
+	 */
+	public void release(long fingerprint, String lockName, long owner){
+		this.lock.lock();
+		try{
+			int slot = this.find(fingerprint, lockName);
+			
+			if(slot < 0){
+				throw new IllegalStateException("lock not found: " + lockName);
+			}
+			
+			if(this.table.getLong(slot + OWNER) != owner){
+				throw new IllegalMonitorStateException(lockName);
+			}
+			
+			int holds = this.table.getInt(slot + HOLDS) - 1;
+			
+			if(holds > 0){
+				this.table.putInt(slot + HOLDS, holds);
+				return;
+			}
+			
+			this.table.putLong(slot + OWNER, 0);
+			this.table.putInt(slot + HOLDS, 0);
+			
+			if(this.table.getInt(slot + WAITERS) > 0){
+				this.conditions.get(lockName).signal();
+			}
+			else{
+				this.delete(slot);
+			}
+		}
+		finally{
+			this.lock.unlock();
+		}
+	}
+	
+	public int size(){
+		this.lock.lock();
+		try{
+			return this.size;
+		}
+		finally{
+			this.lock.unlock();
+		}
+	}
+	
+	public long getMemoryUsage(){
+		this.lock.lock();
+		try{
+			return this.table.capacity() + this.keys.capacity();
+		}
+		finally{
+			this.lock.unlock();
+		}
+	}
+	
+	private boolean await(long fingerprint, String lockName, long owner, 
+			int slot, long timeout, boolean interruptibly) throws InterruptedException{
+		
+		Condition condition = this.conditions.get(lockName);
+		
+		if(condition == null){
+			condition = this.lock.newCondition();
+			this.conditions.put(lockName, condition);
+		}
+		
+		this.addWaiters(slot, 1);
+		
+		boolean timed    = timeout > 0;
+		boolean acquired = false;
+		
+		try{
+			for(;;){
+				if(timed){
+					timeout = condition.awaitNanos(timeout);
+				}
+				else
+				if(interruptibly){
+					condition.await();
+				}
+				else{
+					condition.awaitUninterruptibly();
+				}
+				
+				/*
+				 * A entrada pode ter sido deslocada por uma remoção.
+				 */
+				slot = this.find(fingerprint, lockName);
+				
+				if(this.table.getLong(slot + OWNER) == 0){
+					this.setOwner(slot, owner);
+					acquired = true;
+					return true;
+				}
+				
+				if(timed && timeout <= 0){
+					return false;
+				}
+			}
+		}
+		finally{
+			slot = this.find(fingerprint, lockName);
+			
+			if(this.addWaiters(slot, -1) == 0){
+				this.conditions.remove(lockName);
+				
+				if(this.table.getLong(slot + OWNER) == 0){
+					this.delete(slot);
+				}
+			}
+			else
+			if(!acquired && this.table.getLong(slot + OWNER) == 0){
+				/*
+				 * O sinal recebido é repassado para outra thread.
+				 */
+				condition.signal();
+			}
+		}
+	}
+	
+	private void setOwner(int slot, long owner){
+		this.table.putLong(slot + OWNER, owner);
+		this.table.putInt(slot + HOLDS, 1);
+	}
+	
+	private int addWaiters(int slot, int value){
+		int waiters = this.table.getInt(slot + WAITERS) + value;
+		this.table.putInt(slot + WAITERS, waiters);
+		return waiters;
+	}
+	
+	private int find(long fingerprint, String lockName){
+		int index = this.indexOf(fingerprint);
+		
+		for(;;){
+			int slot = index*SLOT_SIZE;
+			long f   = this.table.getLong(slot + FINGERPRINT);
+			
+			if(f == 0){
+				return -1;
+			}
+			
+			if(f == fingerprint && this.keyEquals(slot, lockName)){
+				return slot;
+			}
+			
+			index = (index + 1) & this.mask;
+		}
+	}
+	
+	private boolean keyEquals(int slot, String lockName){
+		int length = this.table.getInt(slot + KEY_LENGTH);
+		
+		if(length != lockName.length()){
+			return false;
+		}
+		
+		int offset = this.table.getInt(slot + KEY_OFFSET);
+		
+		for(int i=0;i<length;i++){
+			if(this.keys.getChar(offset + i*2) != lockName.charAt(i)){
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private void insert(long fingerprint, String lockName, long owner){
+		if((this.size + 1)*4 > (this.mask + 1)*3){
+			this.resize((this.mask + 1)*2, 0);
+		}
+		
+		int offset = this.storeKey(lockName);
+		int index  = this.indexOf(fingerprint);
+		int slot   = index*SLOT_SIZE;
+		
+		while(this.table.getLong(slot + FINGERPRINT) != 0){
+			index = (index + 1) & this.mask;
+			slot  = index*SLOT_SIZE;
+		}
+		
+		this.table.putLong(slot + FINGERPRINT, fingerprint);
+		this.table.putLong(slot + OWNER, owner);
+		this.table.putInt(slot + HOLDS, 1);
+		this.table.putInt(slot + WAITERS, 0);
+		this.table.putInt(slot + KEY_OFFSET, offset);
+		this.table.putInt(slot + KEY_LENGTH, lockName.length());
+		this.size++;
+	}
+	
+	/**
+	 * Remove uma entrada. As entradas seguintes da mesma sequência são 
+	 * deslocadas para que não existam lacunas na sondagem.
+	 */
+	private void delete(int slot){
+		this.garbage += this.table.getInt(slot + KEY_LENGTH)*2;
+		this.size--;
+		
+		int i = slot / SLOT_SIZE;
+		int j = i;
+		
+		for(;;){
+			j = (j + 1) & this.mask;
+			
+			int next = j*SLOT_SIZE;
+			long f   = this.table.getLong(next + FINGERPRINT);
+			
+			if(f == 0){
+				break;
+			}
+			
+			int k = this.indexOf(f);
+			
+			if(i <= j? (i < k && k <= j) : (i < k || k <= j)){
+				continue;
+			}
+			
+			this.copySlot(next, i*SLOT_SIZE);
+			i = j;
+		}
+		
+		this.table.putLong(i*SLOT_SIZE + FINGERPRINT, 0);
+	}
+	
+	private void copySlot(int from, int to){
+		for(int i=0;i<SLOT_SIZE;i += 8){
+			this.table.putLong(to + i, this.table.getLong(from + i));
+		}
+	}
+	
+	private int storeKey(String lockName){
+		int length = lockName.length()*2;
+		int offset = this.keys.position();
+		
+		if(offset + length > this.keys.capacity()){
+			this.resize(this.mask + 1, length);
+			offset = this.keys.position();
+		}
+		
+		for(int i=0;i<lockName.length();i++){
+			this.keys.putChar(offset + i*2, lockName.charAt(i));
+		}
+		
+		this.keys.position(offset + length);
+		return offset;
+	}
+	
+	/**
+	 * Recria a tabela e a área de nomes, descartando os nomes que não estão mais em uso.
+	 * @param capacity quantidade de entradas da nova tabela.
+	 * @param reserve bytes adicionais necessários na área de nomes.
+	 */
+	private void resize(int capacity, int reserve){
+		ByteBuffer oldTable = this.table;
+		ByteBuffer oldKeys  = this.keys;
+		int used            = oldKeys.position() - this.garbage;
+		int keysCapacity    = Math.max(oldKeys.capacity(), (used + reserve)*2);
+		
+		this.table   = ByteBuffer.allocateDirect(capacity*SLOT_SIZE);
+		this.keys    = ByteBuffer.allocateDirect(keysCapacity);
+		this.mask    = capacity - 1;
+		this.garbage = 0;
+		
+		for(int slot=0;slot<oldTable.capacity();slot += SLOT_SIZE){
+			long f = oldTable.getLong(slot + FINGERPRINT);
+			
+			if(f == 0){
+				continue;
+			}
+			
+			int keyOffset = oldTable.getInt(slot + KEY_OFFSET);
+			int keyLength = oldTable.getInt(slot + KEY_LENGTH);
+			int offset    = this.keys.position();
+			
+			for(int i=0;i<keyLength*2;i += 2){
+				this.keys.putChar(offset + i, oldKeys.getChar(keyOffset + i));
+			}
+			
+			this.keys.position(offset + keyLength*2);
+			
+			int index = this.indexOf(f);
+			int to    = index*SLOT_SIZE;
+			
+			while(this.table.getLong(to + FINGERPRINT) != 0){
+				index = (index + 1) & this.mask;
+				to    = index*SLOT_SIZE;
+			}
+			
+			for(int i=0;i<SLOT_SIZE;i += 8){
+				this.table.putLong(to + i, oldTable.getLong(slot + i));
+			}
+			
+			this.table.putInt(to + KEY_OFFSET, offset);
+		}
+	}
+	
+	private int indexOf(long fingerprint){
+		return (int)(fingerprint ^ (fingerprint >>> 32)) & this.mask;
+	}
+	
+}
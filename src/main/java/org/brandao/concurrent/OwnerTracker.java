@@ -0,0 +1,145 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Registra os bloqueios mantidos por cada proprietário.
+ * 
+ * <p>O proprietário é a thread atual ou um objeto associado a ela por 
+ * {@link #setCurrentOwner(Object)}. Não existe um bloqueio global. Os 
+ * bloqueios de um proprietário são sincronizados somente por ele.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class OwnerTracker {
+
+	/**
+	 * Bloqueios mantidos por proprietário, em ordem de aquisição.
+	 */
+	private final ConcurrentMap<Object, Map<Serializable,Object>> holds;
+	
+	/**
+	 * Proprietário de cada referência de bloqueio.
+	 */
+	private final ConcurrentMap<Serializable, Object> owners;
+	
+	private final ThreadLocal<Object> currentOwner;
+	
+	public OwnerTracker(){
+		this.holds        = new ConcurrentHashMap<Object, Map<Serializable,Object>>();
+		this.owners       = new ConcurrentHashMap<Serializable, Object>();
+		this.currentOwner = new ThreadLocal<Object>();
+	}
+	
+	public void setCurrentOwner(Object owner){
+		if(owner == null){
+			this.currentOwner.remove();
+		}
+		else{
+			this.currentOwner.set(owner);
+		}
+	}
+	
+	public Object getCurrentOwner(){
+		Object owner = this.currentOwner.get();
+		return owner == null? Thread.currentThread() : owner;
+	}
+	
+	public void register(Serializable ref, Object lockName){
+		Object owner = this.getCurrentOwner();
+		
+		for(;;){
+			Map<Serializable,Object> held = this.holds.get(owner);
+			
+			if(held == null){
+				held = new LinkedHashMap<Serializable, Object>(4);
+				Map<Serializable,Object> current = this.holds.putIfAbsent(owner, held);
+				if(current != null){
+					held = current;
+				}
+			}
+			
+			synchronized(held){
+				/*
+				 * O conjunto pode ter sido descartado por unregister ou 
+				 * removeAll entre a sua obtenção e a sincronização.
+				 */
+				if(this.holds.get(owner) != held){
+					continue;
+				}
+				
+				held.put(ref, lockName);
+				this.owners.put(ref, owner);
+			}
+			
+			return;
+		}
+	}
+	
+	public void unregister(Serializable ref){
+		Object owner = this.owners.remove(ref);
+		
+		if(owner == null){
+			return;
+		}
+		
+		Map<Serializable,Object> held = this.holds.get(owner);
+		
+		if(held == null){
+			return;
+		}
+		
+		synchronized(held){
+			held.remove(ref);
+			
+			if(held.isEmpty()){
+				this.holds.remove(owner, held);
+			}
+		}
+	}
+	
+	/**
+	 * Remove todos os bloqueios de um proprietário.
+	 * @param owner proprietário.
+	 * @return bloqueios removidos (referência e nome) em ordem de aquisição ou 
+	 * <code>null</code> se o proprietário não tiver bloqueios.
+	 */
+	public Map<Serializable,Object> removeAll(Object owner){
+		Map<Serializable,Object> held = this.holds.remove(owner);
+		
+		if(held == null){
+			return null;
+		}
+		
+		synchronized(held){
+			for(Serializable ref: held.keySet()){
+				this.owners.remove(ref);
+			}
+			return held;
+		}
+	}
+	
+}
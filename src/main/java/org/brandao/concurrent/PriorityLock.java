@@ -0,0 +1,276 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloqueador reentrante que entrega a posse à thread à espera com a maior prioridade.
+ * 
+ * <p>A prioridade efetiva de uma thread à espera aumenta uma unidade a cada 
+ * intervalo de envelhecimento, evitando que as threads de baixa prioridade 
+ * esperem indefinidamente. Em caso de empate, a thread que espera há mais tempo 
+ * é escolhida. A posse é transferida diretamente para a thread escolhida e uma 
+ * nova thread somente obtém o bloqueio livre se não houver threads à espera.</p>
+ * 
+ * <p>Não oferece suporte a {@link Condition}.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class PriorityLock 
+	implements Lock{
+
+	/**
+	 * Prioridade usada pelos métodos de {@link Lock}.
+	 */
+	public static final int DEFAULT_PRIORITY = 0;
+	
+	/**
+	 * Intervalo de envelhecimento em nanossegundos.
+	 */
+	private final long agingTime;
+	
+	/**
+	 * Sincroniza a fila e a transferência da posse.
+	 */
+	private final ReentrantLock guard;
+	
+	private final List<Waiter> waiters;
+	
+	private volatile Thread owner;
+	
+	/**
+	 * Quantidade de aquisições da thread que possui o bloqueio.
+	 */
+	private int holds;
+	
+	public PriorityLock(long agingTime){
+		this.agingTime = agingTime;
+		this.guard     = new ReentrantLock();
+		this.waiters   = new ArrayList<Waiter>(2);
+	}
+	
+	public void lock() {
+		try{
+			this.acquire(DEFAULT_PRIORITY, -1, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+
+	public void lockInterruptibly() throws InterruptedException {
+		this.acquire(DEFAULT_PRIORITY, -1, true);
+	}
+
+	public boolean tryLock() {
+		try{
+			return this.acquire(DEFAULT_PRIORITY, 0, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+
+	public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+		return this.acquire(DEFAULT_PRIORITY, Math.max(unit.toNanos(time), 1), true);
+	}
+	
+	/**
+	 * Adquire o bloqueio com uma determinada prioridade.
+	 * @param priority prioridade. Quanto maior o valor, maior a prioridade.
+	 * @param timeout tempo máximo de espera em nanossegundos, <code>-1</code> para 
+	 * esperar indefinidamente ou <code>0</code> para não esperar.
+	 * @param interruptibly define se a espera pode ser interrompida.
+	 * @return <code>true</code> se o bloqueio foi obtido. Caso contrário, <code>false</code>.
+	 */
+	public boolean acquire(int priority, long timeout, 
+			boolean interruptibly) throws InterruptedException{
+		
+		if(interruptibly && Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		
+		Thread current = Thread.currentThread();
+		Waiter waiter;
+		
+		this.guard.lock();
+		try{
+			if(this.owner == current){
+				this.holds++;
+				return true;
+			}
+			
+			if(this.owner == null && this.waiters.isEmpty()){
+				this.owner = current;
+				this.holds = 1;
+				return true;
+			}
+			
+			if(timeout == 0){
+				return false;
+			}
+			
+			waiter = new Waiter(current, priority, System.nanoTime());
+			this.waiters.add(waiter);
+		}
+		finally{
+			this.guard.unlock();
+		}
+		
+		long deadline       = timeout > 0? waiter.since + timeout : 0;
+		boolean interrupted = false;
+		
+		try{
+			while(!waiter.granted){
+				if(timeout < 0){
+					LockSupport.park(this);
+				}
+				else{
+					long remaining = deadline - System.nanoTime();
+					
+					if(remaining <= 0){
+						return this.cancel(waiter);
+					}
+					
+					LockSupport.parkNanos(this, remaining);
+				}
+				
+				if(Thread.interrupted()){
+					if(interruptibly && !this.cancel(waiter)){
+						throw new InterruptedException();
+					}
+					interrupted = true;
+				}
+			}
+			
+			return true;
+		}
+		finally{
+			if(interrupted){
+				current.interrupt();
+			}
+		}
+	}
+
+	public void unlock() {
+		if(this.owner != Thread.currentThread()){
+			throw new IllegalMonitorStateException();
+		}
+		
+		if(--this.holds > 0){
+			return;
+		}
+		
+		Waiter next;
+		
+		this.guard.lock();
+		try{
+			next = this.select();
+			
+			if(next == null){
+				this.owner = null;
+			}
+			else{
+				this.waiters.remove(next);
+				this.owner   = next.thread;
+				this.holds   = 1;
+				next.granted = true;
+			}
+		}
+		finally{
+			this.guard.unlock();
+		}
+		
+		if(next != null){
+			LockSupport.unpark(next.thread);
+		}
+	}
+
+	public Condition newCondition() {
+		throw new UnsupportedOperationException();
+	}
+	
+	/**
+	 * Remove uma thread da fila.
+	 * @return <code>true</code> se a posse já foi transferida para a thread. 
+	 * Caso contrário, <code>false</code>.
+	 */
+	private boolean cancel(Waiter waiter){
+		this.guard.lock();
+		try{
+			if(waiter.granted){
+				return true;
+			}
+			
+			this.waiters.remove(waiter);
+			return false;
+		}
+		finally{
+			this.guard.unlock();
+		}
+	}
+	
+	/**
+	 * Escolhe a thread com a maior prioridade efetiva. A fila está em ordem de 
+	 * chegada, portanto o empate favorece a thread que espera há mais tempo.
+	 */
+	private Waiter select(){
+		long now     = System.nanoTime();
+		Waiter best  = null;
+		long current = Long.MIN_VALUE;
+		
+		for(Waiter w: this.waiters){
+			long value = w.priority + (now - w.since) / this.agingTime;
+			
+			if(value > current){
+				best    = w;
+				current = value;
+			}
+		}
+		
+		return best;
+	}
+	
+	private static class Waiter{
+		
+		public final Thread thread;
+		
+		public final int priority;
+		
+		public final long since;
+		
+		public volatile boolean granted;
+		
+		public Waiter(Thread thread, int priority, long since){
+			this.thread   = thread;
+			this.priority = priority;
+			this.since    = since;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,59 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Executa uma ação quando um proxy é descartado pelo coletor de lixo.
+ * 
+ * <p>A ação é executada na finalização de um objeto que deve ser mantido pelo 
+ * <code>InvocationHandler</code> do proxy, portanto ela não pode manter o proxy 
+ * alcançável. No Java 21 ou superior, a classe é substituída pela versão de 
+ * <code>src/main/java21</code>, que usa um <code>Cleaner</code>.</p>
+ * 
+ * @author Brandao
+ *
+ */
+final class ProxyReleaser {
+
+	private final Runnable action;
+	
+	private ProxyReleaser(Runnable action){
+		this.action = action;
+	}
+	
+	/**
+	 * Registra a ação executada no descarte de um proxy.
+	 * @param proxy proxy.
+	 * @param action ação.
+	 * @return registro que deve ser mantido pelo <code>InvocationHandler</code> do proxy.
+	 */
+	public static Object register(Object proxy, Runnable action){
+		return new ProxyReleaser(action);
+	}
+	
+	protected void finalize() throws Throwable{
+		try{
+			this.action.run();
+		}
+		finally{
+			super.finalize();
+		}
+	}
+	
+}
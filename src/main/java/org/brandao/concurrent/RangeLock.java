@@ -0,0 +1,347 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Provê bloqueios de intervalos de chaves numéricas.
+ * 
+ * <p>Um intervalo <code>[start, end)</code> é adquirido com uma única operação, 
+ * em vez de um bloqueio por chave. Os intervalos sem sobreposição são concedidos 
+ * simultaneamente. Os intervalos compartilhados se sobrepõem entre si, mas não 
+ * com os exclusivos. Os intervalos concedidos ficam em uma árvore de intervalos 
+ * e a verificação de conflito tem custo logarítmico.</p>
+ * 
+ * <p>As aquisições em espera são atendidas na ordem de chegada entre as que se 
+ * sobrepõem: um intervalo não é concedido enquanto existir uma aquisição anterior 
+ * em espera que conflita com ele. Os bloqueios não são reentrantes e não 
+ * pertencem a uma thread. A referência devolvida na aquisição pode ser liberada 
+ * por qualquer thread.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    RangeLock rangeLock = ...;
+ *    Serializable refLock = rangeLock.lock(1000, 2000);
+ *    try{
+ *       //ações protegidas pelo bloqueio.
+ *    }
+ *    finally{
+ *       rangeLock.unlock(refLock);
+ *    }
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class RangeLock {
+
+	/**
+	 * Intervalos concedidos.
+	 */
+	protected RangeTree granted;
+	
+	/**
+	 * Aquisições em espera, na ordem de chegada.
+	 */
+	protected LinkedList<Waiter> waiters;
+	
+	protected ReentrantLock _lock;
+	
+	private long ids;
+	
+	/**
+	 * Cria uma nova instância.
+	 */
+	public RangeLock(){
+		this.granted = new RangeTree();
+		this.waiters = new LinkedList<Waiter>();
+		this._lock   = new ReentrantLock();
+	}
+	
+	/**
+	 * Adquire um intervalo exclusivo.
+	 * @param start início do intervalo, incluído.
+	 * @param end fim do intervalo, excluído.
+	 * @return identificação do bloqueio.
+	 */
+	public Serializable lock(long start, long end){
+		try{
+			return this.acquire(start, end, false, -1, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Adquire um intervalo compartilhado.
+	 * @param start início do intervalo, incluído.
+	 * @param end fim do intervalo, excluído.
+	 * @return identificação do bloqueio.
+	 */
+	public Serializable lockShared(long start, long end){
+		try{
+			return this.acquire(start, end, true, -1, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Adquire um intervalo a menos que a thread atual seja interrompida.
+	 * @param start início do intervalo, incluído.
+	 * @param end fim do intervalo, excluído.
+	 * @param shared <code>true</code> para um intervalo compartilhado. Caso contrário, 
+	 * <code>false</code>.
+	 * @return identificação do bloqueio.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 */
+	public Serializable lockInterruptibly(long start, long end, boolean shared) throws InterruptedException{
+		return this.acquire(start, end, shared, -1, true);
+	}
+	
+	/**
+	 * Tenta adquirir um intervalo somente se ele estiver livre no momento da invocação.
+	 * @param start início do intervalo, incluído.
+	 * @param end fim do intervalo, excluído.
+	 * @param shared <code>true</code> para um intervalo compartilhado. Caso contrário, 
+	 * <code>false</code>.
+	 * @return identificação do bloqueio ou <code>null</code> se o bloqueio não for obtido.
+	 */
+	public Serializable tryLock(long start, long end, boolean shared){
+		try{
+			return this.acquire(start, end, shared, 0, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Tenta adquirir um intervalo somente se ele estiver livre dentro de um determinado 
+	 * prazo de tempo e a thread atual não for interrompida.
+	 * @param start início do intervalo, incluído.
+	 * @param end fim do intervalo, excluído.
+	 * @param shared <code>true</code> para um intervalo compartilhado. Caso contrário, 
+	 * <code>false</code>.
+	 * @param time tempo máximo de espera para adquirir o bloqueio.
+	 * @param unit unidade de tempo do argumento {@code time}.
+	 * @return identificação do bloqueio ou <code>null</code> se o bloqueio não for 
+	 * obtido dentro do prazo determinado.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 */
+	public Serializable tryLock(long start, long end, boolean shared, 
+			long time, TimeUnit unit) throws InterruptedException{
+		return this.acquire(start, end, shared, Math.max(unit.toNanos(time), 1), true);
+	}
+	
+	/**
+	 * Libera um intervalo.
+	 * @param ref identificação do bloqueio.
+	 */
+	public void unlock(Serializable ref){
+		if(!(ref instanceof RangeTree.Interval)){
+			throw new IllegalStateException("invalid lock reference: " + ref);
+		}
+		
+		_lock.lock();
+		try{
+			if(!this.granted.remove((RangeTree.Interval)ref)){
+				throw new IllegalStateException("lock not found: " + ref);
+			}
+			
+			this.grantWaiters();
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Obtém a quantidade de intervalos concedidos.
+	 * @return quantidade de intervalos.
+	 */
+	public int getGrantedCount(){
+		_lock.lock();
+		try{
+			return this.granted.size();
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Obtém a quantidade de aquisições em espera.
+	 * @return quantidade de aquisições.
+	 */
+	public int getWaitingCount(){
+		_lock.lock();
+		try{
+			return this.waiters.size();
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	private Serializable acquire(long start, long end, boolean shared, 
+			long timeout, boolean interruptibly) throws InterruptedException{
+		
+		if(start >= end){
+			throw new IllegalArgumentException("invalid range: [" + start + ", " + end + ")");
+		}
+		
+		if(interruptibly && Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		
+		_lock.lock();
+		try{
+			RangeTree.Interval interval = new RangeTree.Interval(++this.ids, start, end, shared);
+			
+			if(this.isGrantable(interval, this.waiters.size())){
+				this.granted.insert(interval);
+				return interval;
+			}
+			
+			if(timeout == 0){
+				return null;
+			}
+			
+			Waiter waiter = new Waiter(interval, _lock.newCondition());
+			boolean timed = timeout > 0;
+			this.waiters.add(waiter);
+			
+			try{
+				while(!waiter.granted){
+					try{
+						if(timed){
+							if(timeout <= 0){
+								break;
+							}
+							timeout = waiter.condition.awaitNanos(timeout);
+						}
+						else
+						if(interruptibly){
+							waiter.condition.await();
+						}
+						else{
+							waiter.condition.awaitUninterruptibly();
+						}
+					}
+					catch(InterruptedException e){
+						/*
+						 * O intervalo foi concedido antes da interrupção. A concessão 
+						 * é mantida e a interrupção é reafirmada.
+						 */
+						if(waiter.granted){
+							Thread.currentThread().interrupt();
+							break;
+						}
+						throw e;
+					}
+				}
+			}
+			finally{
+				/*
+				 * A desistência de uma aquisição pode liberar as aquisições seguintes.
+				 */
+				if(!waiter.granted){
+					this.waiters.remove(waiter);
+					this.grantWaiters();
+				}
+			}
+			
+			return waiter.granted? interval : null;
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Verifica se um intervalo pode ser concedido. Ele não pode conflitar com os 
+	 * intervalos concedidos nem com as aquisições que estão à sua frente na fila.
+	 */
+	private boolean isGrantable(RangeTree.Interval interval, int before){
+		if(this.granted.findConflict(interval.start, interval.end, interval.shared) != null){
+			return false;
+		}
+		
+		Iterator<Waiter> i = this.waiters.iterator();
+		
+		for(int n=0;n<before && i.hasNext();n++){
+			if(i.next().interval.conflicts(interval)){
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Concede os intervalos das aquisições em espera que não possuem conflito.
+	 */
+	private void grantWaiters(){
+		int index          = 0;
+		Iterator<Waiter> i = this.waiters.iterator();
+		
+		while(i.hasNext()){
+			Waiter waiter = i.next();
+			
+			if(this.isGrantable(waiter.interval, index)){
+				i.remove();
+				waiter.granted = true;
+				this.granted.insert(waiter.interval);
+				waiter.condition.signal();
+			}
+			else{
+				index++;
+			}
+		}
+	}
+	
+	static class Waiter{
+		
+		public final RangeTree.Interval interval;
+		
+		public final Condition condition;
+		
+		public boolean granted;
+		
+		public Waiter(RangeTree.Interval interval, Condition condition){
+			this.interval  = interval;
+			this.condition = condition;
+			this.granted   = false;
+		}
+		
+	}
+	
+}
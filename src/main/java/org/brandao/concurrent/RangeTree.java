@@ -0,0 +1,283 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.Random;
+
+/**
+ * Árvore de intervalos usada por {@link RangeLock}.
+ * 
+ * <p>É uma treap ordenada pelo início e pela identificação dos intervalos. Cada nó 
+ * mantém o maior fim da sua subárvore e o maior fim dos intervalos exclusivos da 
+ * sua subárvore, o que permite descartar as subárvores sem conflito na busca. A 
+ * busca por um conflito visita O(log n) nós mais os intervalos sobrepostos que não 
+ * conflitam.</p>
+ * 
+ * <p>Não é segura para uso concorrente.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class RangeTree {
+
+	private final Random random;
+	
+	private Node root;
+	
+	private int size;
+	
+	public RangeTree(){
+		this.random = new Random();
+	}
+	
+	public void insert(Interval value){
+		this.root = this.insert(this.root, new Node(value, this.random.nextInt()));
+		this.size++;
+	}
+	
+	/**
+	 * Remove um intervalo.
+	 * @param value intervalo.
+	 * @return <code>true</code> se o intervalo foi removido. Caso contrário, <code>false</code>.
+	 */
+	public boolean remove(Interval value){
+		int size  = this.size;
+		this.root = this.remove(this.root, value);
+		return this.size != size;
+	}
+	
+	/**
+	 * Procura um intervalo que conflita com <code>[start, end)</code>. Dois intervalos 
+	 * conflitam se eles se sobrepõem e pelo menos um deles é exclusivo.
+	 * @param start início do intervalo, incluído.
+	 * @param end fim do intervalo, excluído.
+	 * @param shared indica se o intervalo é compartilhado.
+	 * @return intervalo em conflito ou <code>null</code>.
+	 */
+	public Interval findConflict(long start, long end, boolean shared){
+		return this.findConflict(this.root, start, end, shared);
+	}
+	
+	public int size(){
+		return this.size;
+	}
+	
+	private Node insert(Node node, Node value){
+		if(node == null){
+			return value;
+		}
+		
+		if(compare(value.interval, node.interval) < 0){
+			node.left = this.insert(node.left, value);
+			
+			if(node.left.priority > node.priority){
+				node = rotateRight(node);
+			}
+		}
+		else{
+			node.right = this.insert(node.right, value);
+			
+			if(node.right.priority > node.priority){
+				node = rotateLeft(node);
+			}
+		}
+		
+		update(node);
+		return node;
+	}
+	
+	private Node remove(Node node, Interval value){
+		if(node == null){
+			return null;
+		}
+		
+		int c = compare(value, node.interval);
+		
+		if(c < 0){
+			node.left = this.remove(node.left, value);
+		}
+		else
+		if(c > 0){
+			node.right = this.remove(node.right, value);
+		}
+		else{
+			if(node.interval != value){
+				return node;
+			}
+			
+			this.size--;
+			return merge(node.left, node.right);
+		}
+		
+		update(node);
+		return node;
+	}
+	
+	private Interval findConflict(Node node, long start, long end, boolean shared){
+		if(node == null || (shared? node.maxExclusiveEnd : node.maxEnd) <= start){
+			return null;
+		}
+		
+		Interval result = this.findConflict(node.left, start, end, shared);
+		
+		if(result != null){
+			return result;
+		}
+		
+		Interval value = node.interval;
+		
+		/*
+		 * Os intervalos da subárvore direita iniciam após o fim do intervalo procurado.
+		 */
+		if(value.start >= end){
+			return null;
+		}
+		
+		if(value.end > start && (!shared || !value.shared)){
+			return value;
+		}
+		
+		return this.findConflict(node.right, start, end, shared);
+	}
+	
+	private static Node merge(Node left, Node right){
+		if(left == null){
+			return right;
+		}
+		
+		if(right == null){
+			return left;
+		}
+		
+		if(left.priority > right.priority){
+			left.right = merge(left.right, right);
+			update(left);
+			return left;
+		}
+		else{
+			right.left = merge(left, right.left);
+			update(right);
+			return right;
+		}
+	}
+	
+	private static Node rotateRight(Node node){
+		Node left  = node.left;
+		node.left  = left.right;
+		left.right = node;
+		update(node);
+		update(left);
+		return left;
+	}
+	
+	private static Node rotateLeft(Node node){
+		Node right = node.right;
+		node.right = right.left;
+		right.left = node;
+		update(node);
+		update(right);
+		return right;
+	}
+	
+	private static void update(Node node){
+		long maxEnd          = node.interval.end;
+		long maxExclusiveEnd = node.interval.shared? Long.MIN_VALUE : node.interval.end;
+		
+		if(node.left != null){
+			maxEnd          = Math.max(maxEnd, node.left.maxEnd);
+			maxExclusiveEnd = Math.max(maxExclusiveEnd, node.left.maxExclusiveEnd);
+		}
+		
+		if(node.right != null){
+			maxEnd          = Math.max(maxEnd, node.right.maxEnd);
+			maxExclusiveEnd = Math.max(maxExclusiveEnd, node.right.maxExclusiveEnd);
+		}
+		
+		node.maxEnd          = maxEnd;
+		node.maxExclusiveEnd = maxExclusiveEnd;
+	}
+	
+	private static int compare(Interval a, Interval b){
+		if(a.start != b.start){
+			return a.start < b.start? -1 : 1;
+		}
+		
+		return a.id < b.id? -1 : (a.id == b.id? 0 : 1);
+	}
+	
+	/**
+	 * Intervalo <code>[start, end)</code>. É também a referência devolvida por 
+	 * {@link RangeLock}.
+	 */
+	static class Interval implements Serializable{
+		
+		private static final long serialVersionUID = 7310582248410370294L;
+
+		public final long id;
+		
+		public final long start;
+		
+		public final long end;
+		
+		public final boolean shared;
+		
+		public Interval(long id, long start, long end, boolean shared){
+			this.id     = id;
+			this.start  = start;
+			this.end    = end;
+			this.shared = shared;
+		}
+		
+		/**
+		 * Verifica se este intervalo conflita com outro.
+		 */
+		public boolean conflicts(Interval value){
+			return this.start < value.end && value.start < this.end && 
+					(!this.shared || !value.shared);
+		}
+		
+		public String toString(){
+			return "[" + this.start + ", " + this.end + ")" + (this.shared? "S" : "X") + ":" + this.id;
+		}
+		
+	}
+	
+	private static class Node{
+		
+		public final Interval interval;
+		
+		public final int priority;
+		
+		public long maxEnd;
+		
+		public long maxExclusiveEnd;
+		
+		public Node left;
+		
+		public Node right;
+		
+		public Node(Interval interval, int priority){
+			this.interval = interval;
+			this.priority = priority;
+			update(this);
+		}
+		
+	}
+	
+}
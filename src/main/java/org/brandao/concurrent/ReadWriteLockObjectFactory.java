@@ -28,6 +28,14 @@ class ReadWriteLockObjectFactory
 	
 	public void destroy(Object instance) {
 	}
+	
+	/**
+	 * Um {@link ReentrantReadWriteLock} (24), o seu sincronizador (48), o contador 
+	 * das leituras por thread (16) e os dois bloqueios de modo (32).
+	 */
+	public long getInstanceSize() {
+		return 24 + 48 + 16 + 32;
+	}
 
 
 }
@@ -0,0 +1,392 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Registro dos bloqueios de leitura e escrita de um {@link KeyedLock}.
+ * 
+ * <p>Usa o bloqueio global do {@link KeyedLock} e o seu limite de nomes, mas 
+ * mantém as suas próprias entradas, referências e nomes inativos.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class ReadWriteLockRegistry {
+
+	/**
+	 * Cria os bloqueios de leitura e escrita atualizáveis.
+	 */
+	private static final ObjectFactory UPGRADABLE_LOCK_FACTORY = 
+			new UpgradableReadWriteLockObjectFactory();
+	
+	/**
+	 * Cria os bloqueios de leitura e escrita com preferência para as leituras.
+	 */
+	private static final ObjectFactory READER_BIASED_LOCK_FACTORY = 
+			new ReaderBiasedReadWriteLockObjectFactory();
+	
+	/**
+	 * Bloqueio global do {@link KeyedLock}.
+	 */
+	private final Lock _lock;
+	
+	/**
+	 * Referências dos bloqueios associados a cada nome.
+	 */
+	private final Map<Object,Set<UUID>> origins;
+	
+	/**
+	 * Bloqueio associado a um determinado nome.
+	 */
+	private final Map<Object,ReadWriteLock> locks;
+	
+	/**
+	 * Nomes sem referências mantidos no registro.
+	 */
+	private final IdleEntries idleLocks;
+	
+	/**
+	 * Sinaliza a remoção de um nome do registro.
+	 */
+	private final Condition notFull;
+	
+	/**
+	 * Cria os bloqueios associados aos nomes.
+	 */
+	private volatile ObjectFactory lockObjectFactory;
+	
+	/**
+	 * Quantidade máxima de nomes no registro. Se <code>0</code>, não existe limite.
+	 */
+	private volatile int maxEntries;
+	
+	/**
+	 * Comportamento da aquisição quando o registro atinge a quantidade máxima de nomes.
+	 */
+	private volatile RegistryOverflowPolicy overflowPolicy;
+	
+	/**
+	 * Quantidade de referências no registro.
+	 */
+	private long references;
+	
+	/**
+	 * Soma da memória usada pelos nomes e pelos bloqueios do registro, em bytes.
+	 */
+	private long entryMemory;
+	
+	public ReadWriteLockRegistry(Lock _lock){
+		this._lock             = _lock;
+		this.origins           = new HashMap<Object, Set<UUID>>();
+		this.locks             = new HashMap<Object, ReadWriteLock>();
+		this.idleLocks         = new IdleEntries();
+		this.notFull           = _lock.newCondition();
+		this.lockObjectFactory = UPGRADABLE_LOCK_FACTORY;
+	}
+	
+	/**
+	 * Define o limite do registro e acorda as threads à espera de espaço.
+	 * @param value quantidade máxima de nomes ou <code>0</code> para não limitar o registro.
+	 * @param policy comportamento da aquisição quando o limite for atingido.
+	 */
+	public void setMaxEntries(int value, RegistryOverflowPolicy policy){
+		_lock.lock();
+		try{
+			this.overflowPolicy = policy;
+			this.maxEntries     = value;
+			this.notFull.signalAll();
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Define o tipo dos bloqueios criados a partir deste momento.
+	 * @param value <code>true</code> para criar bloqueios com preferência para as 
+	 * leituras. Caso contrário, <code>false</code>.
+	 */
+	public void setReaderBiased(boolean value){
+		_lock.lock();
+		try{
+			this.lockObjectFactory = value? 
+					READER_BIASED_LOCK_FACTORY : 
+					UPGRADABLE_LOCK_FACTORY;
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	public boolean isReaderBiased(){
+		return this.lockObjectFactory == READER_BIASED_LOCK_FACTORY;
+	}
+	
+	/**
+	 * Registra uma referência e obtém o bloqueio do nome. Com o registro cheio, 
+	 * espera, sem interrupção, até que um nome seja removido.
+	 * @param ref referência.
+	 * @param lockName nome do bloqueio.
+	 * @return bloqueio.
+	 */
+	public ReadWriteLock register(Ref ref, Object lockName){
+		_lock.lock();
+		try{
+			Set<UUID> originSet;
+			ReadWriteLock rw;
+			
+			for(;;){
+				originSet = this.origins.get(lockName);
+				rw        = this.locks.get(lockName);
+				
+				if(originSet != null){
+					if(originSet.isEmpty()){
+						this.idleLocks.remove(lockName);
+					}
+					break;
+				}
+				
+				int max = this.maxEntries;
+				
+				if(max != 0 && this.locks.size() >= max && !this.idleLocks.isEmpty()){
+					this.removeEntry(this.idleLocks.pollEldest());
+				}
+				
+				if(max == 0 || this.locks.size() < max){
+					ObjectFactory factory = this.lockObjectFactory;
+					originSet = new HashSet<UUID>();
+					rw        = (ReadWriteLock)factory.createInstance();
+					this.origins.put(lockName, originSet);
+					this.locks.put(lockName, rw);
+					this.entryMemory += KeyedLock.keyMemory(lockName) + factory.getInstanceSize();
+					break;
+				}
+				
+				if(this.overflowPolicy == RegistryOverflowPolicy.FAIL){
+					throw new RegistryOverflowException(String.valueOf(KeyedLock.userKey(lockName)), max);
+				}
+				
+				this.notFull.awaitUninterruptibly();
+			}
+			
+			originSet.add(ref.id);
+			this.references++;
+			return rw;
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Obtém o bloqueio de uma referência registrada.
+	 * @param ref referência.
+	 * @param lockName nome do bloqueio.
+	 * @return bloqueio.
+	 */
+	public ReadWriteLock get(Ref ref, Object lockName){
+		_lock.lock();
+		try{
+			ReadWriteLock rw    = this.locks.get(lockName);
+			Set<UUID> originSet = this.origins.get(lockName);
+			
+			if(rw == null || !originSet.contains(ref.id)){
+				throw new IllegalStateException("lock not found: " + lockName + ": " + ref);
+			}
+			
+			return rw;
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Libera o bloqueio de uma referência e a remove do registro.
+	 * @param ref referência.
+	 * @param lockName nome do bloqueio.
+	 * @param idleTime tempo que o nome sem referências permanece no registro, em nanossegundos.
+	 */
+	public void release(Ref ref, Object lockName, long idleTime){
+		ReadWriteLock rw = this.get(ref, lockName);
+		
+		if(ref.upgraded){
+			rw.writeLock().unlock();
+			ref.upgraded = false;
+		}
+		
+		this.getModeLock(rw, ref.mode).unlock();
+		this.unregister(ref, lockName, idleTime);
+	}
+	
+	/**
+	 * Remove uma referência do registro.
+	 * @param ref referência.
+	 * @param lockName nome do bloqueio.
+	 * @param idleTime tempo que o nome sem referências permanece no registro, em nanossegundos.
+	 */
+	public void unregister(Ref ref, Object lockName, long idleTime){
+		_lock.lock();
+		try{
+			Set<UUID> originSet = this.origins.get(lockName);
+			
+			if(originSet == null || !originSet.remove(ref.id)){
+				throw new IllegalStateException("lock reference not found: " + lockName + ": " + ref);
+			}
+			
+			this.references--;
+			
+			if(originSet.isEmpty()){
+				if(idleTime > 0){
+					this.idleLocks.add(lockName);
+				}
+				else{
+					this.removeEntry(lockName);
+				}
+			}
+		}
+		finally{
+			_lock.unlock();
+		}
+	}
+	
+	/**
+	 * Obtém o bloqueio de um modo de aquisição.
+	 * @param rw bloqueio de leitura e escrita.
+	 * @param mode modo de aquisição.
+	 * @return bloqueio do modo.
+	 */
+	public Lock getModeLock(ReadWriteLock rw, int mode){
+		switch(mode){
+		case Ref.READ:
+			return rw.readLock();
+		case Ref.WRITE:
+			return rw.writeLock();
+		default:
+			if(!(rw instanceof UpgradableReadWriteLock)){
+				throw new UnsupportedOperationException("upgradable lock");
+			}
+			return ((UpgradableReadWriteLock)rw).upgradableLock();
+		}
+	}
+	
+	/**
+	 * Remove os nomes inativos há mais tempo que o definido. Deve ser chamado 
+	 * sob o bloqueio global.
+	 * @param now momento atual, em nanossegundos.
+	 * @param idleTime tempo de inatividade, em nanossegundos.
+	 * @param limit quantidade máxima de nomes removidos.
+	 * @return quantidade de nomes removidos.
+	 */
+	public int sweepIdleEntries(long now, long idleTime, int limit){
+		int removed = 0;
+		Object lockName;
+		
+		while(removed < limit && (lockName = this.idleLocks.pollExpired(now, idleTime)) != null){
+			this.removeEntry(lockName);
+			removed++;
+		}
+		
+		return removed;
+	}
+	
+	/**
+	 * Obtém a quantidade de nomes no registro. Deve ser chamado sob o bloqueio global.
+	 * @return quantidade de nomes.
+	 */
+	public int size(){
+		return this.locks.size();
+	}
+	
+	/**
+	 * Obtém uma estimativa da memória usada pelo registro. Deve ser chamado sob o 
+	 * bloqueio global.
+	 * @return memória usada, em bytes.
+	 * @see KeyedLock#getRegistryMemoryUsage()
+	 */
+	public long getMemoryUsage(){
+		return 
+			this.locks.size() * (KeyedLock.ENTRY_MEMORY + KeyedLock.KEY_MEMORY) +
+			this.entryMemory +
+			this.references * KeyedLock.REFERENCE_MEMORY +
+			this.idleLocks.size() * KeyedLock.IDLE_ENTRY_MEMORY;
+	}
+	
+	private void removeEntry(Object lockName){
+		ReadWriteLock rw = this.locks.remove(lockName);
+		
+		if(rw == null || this.origins.remove(lockName) == null){
+			throw new IllegalStateException("lock not found: " + lockName);
+		}
+		
+		/*
+		 * O tipo dos bloqueios pode ter sido alterado após a criação deste bloqueio.
+		 */
+		ObjectFactory factory = rw instanceof ReaderBiasedReadWriteLock? 
+				READER_BIASED_LOCK_FACTORY : 
+				UPGRADABLE_LOCK_FACTORY;
+		
+		this.entryMemory -= KeyedLock.keyMemory(lockName) + factory.getInstanceSize();
+		this.notFull.signal();
+	}
+	
+	/**
+	 * Referência de uma aquisição de um bloqueio de leitura e escrita.
+	 */
+	static class Ref implements Serializable{
+		
+		private static final long serialVersionUID = -6084133958123940512L;
+
+		public static final int READ = 0;
+		
+		public static final int WRITE = 1;
+		
+		public static final int UPGRADABLE = 2;
+		
+		public final UUID id;
+		
+		public final int mode;
+		
+		/**
+		 * Indica que a leitura atualizável foi atualizada para escrita.
+		 */
+		public boolean upgraded;
+		
+		public Ref(UUID id, int mode){
+			this.id   = id;
+			this.mode = mode;
+		}
+		
+		public String toString(){
+			return this.id.toString();
+		}
+		
+	}
+	
+}
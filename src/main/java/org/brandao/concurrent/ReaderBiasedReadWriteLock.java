@@ -0,0 +1,374 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bloqueio de leitura e escrita com preferência para as leituras.
+ * 
+ * <p>Os leitores não compartilham um contador. Cada thread registra a sua leitura 
+ * em um indicador escolhido pelo seu identificador, e cada indicador ocupa a sua 
+ * própria linha de cache. Enquanto não houver escrita, a aquisição da leitura é 
+ * somente um incremento no indicador e a leitura de uma variável volátil, sem 
+ * disputa entre os processadores.</p>
+ * 
+ * <p>O escritor obtém o bloqueio interno, revoga a preferência dos leitores e 
+ * espera que todos os indicadores sejam zerados. Os leitores que encontram a 
+ * preferência revogada desfazem o seu registro e esperam pelo bloqueio interno. 
+ * A escrita é mais custosa que em {@link java.util.concurrent.locks.ReentrantReadWriteLock}, 
+ * portanto esse bloqueio somente é indicado para os nomes com muitas leituras e 
+ * poucas escritas.</p>
+ * 
+ * <p>As leituras e a escrita são reentrantes. Uma thread que possui a escrita pode 
+ * obter a leitura. Uma thread que possui somente a leitura não pode obter a escrita. 
+ * Não oferece suporte a {@link Condition}.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class ReaderBiasedReadWriteLock 
+	implements ReadWriteLock{
+
+	private static final int READ = 0;
+	
+	private static final int WRITE = 1;
+	
+	/**
+	 * Quantidade de posições entre dois indicadores. Separa os indicadores em 
+	 * linhas de cache distintas, inclusive com a pré-busca da linha adjacente.
+	 */
+	private static final int PADDING = 16;
+	
+	/**
+	 * Quantidade de tentativas em espera ativa do escritor antes de ceder o processador.
+	 */
+	private static final int SPINS = 100;
+	
+	/**
+	 * Tempo de suspensão do escritor, em nanossegundos, entre as verificações 
+	 * dos indicadores.
+	 */
+	private static final long PARK_TIME = 50000;
+	
+	/**
+	 * Quantidade de indicadores de leitura.
+	 */
+	static final int STRIPES = stripes(Runtime.getRuntime().availableProcessors());
+	
+	/**
+	 * Indicadores de leitura.
+	 */
+	private final AtomicLongArray indicators;
+	
+	/**
+	 * Quantidade de leituras da thread.
+	 */
+	private final ThreadLocal<int[]> readHolds;
+	
+	/**
+	 * Bloqueio dos escritores.
+	 */
+	private final ReentrantLock mutex;
+	
+	private final Lock readLock;
+	
+	private final Lock writeLock;
+	
+	/**
+	 * Indica que a preferência dos leitores foi revogada por um escritor.
+	 */
+	private volatile boolean revoked;
+	
+	public ReaderBiasedReadWriteLock(){
+		this.indicators = new AtomicLongArray(STRIPES*PADDING);
+		this.mutex      = new ReentrantLock();
+		this.readLock   = new ModeLock(READ);
+		this.writeLock  = new ModeLock(WRITE);
+		this.readHolds  = new ThreadLocal<int[]>(){
+			
+			protected int[] initialValue(){
+				return new int[1];
+			}
+			
+		};
+	}
+	
+	public Lock readLock() {
+		return this.readLock;
+	}
+
+	public Lock writeLock() {
+		return this.writeLock;
+	}
+	
+	private boolean acquireRead(long timeout, 
+			boolean interruptibly) throws InterruptedException{
+		
+		if(interruptibly && Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		
+		int[] holds = this.readHolds.get();
+		int index   = indicator();
+		
+		/*
+		 * As leituras reentrantes e as leituras do escritor não esperam.
+		 */
+		if(holds[0] > 0 || this.mutex.isHeldByCurrentThread()){
+			this.indicators.incrementAndGet(index);
+			holds[0]++;
+			return true;
+		}
+		
+		this.indicators.incrementAndGet(index);
+		
+		if(!this.revoked){
+			holds[0]++;
+			return true;
+		}
+		
+		this.indicators.decrementAndGet(index);
+		
+		/*
+		 * A preferência somente é revogada com a posse do bloqueio interno. 
+		 * Com a sua posse, não existe escritor ativo.
+		 */
+		if(!this.lockMutex(timeout, interruptibly)){
+			return false;
+		}
+		
+		try{
+			this.indicators.incrementAndGet(index);
+			holds[0]++;
+			return true;
+		}
+		finally{
+			this.mutex.unlock();
+		}
+	}
+	
+	private boolean acquireWrite(long timeout, 
+			boolean interruptibly) throws InterruptedException{
+		
+		if(interruptibly && Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		
+		if(this.mutex.isHeldByCurrentThread()){
+			this.mutex.lock();
+			return true;
+		}
+		
+		long deadline = timeout > 0? System.nanoTime() + timeout : 0;
+		
+		if(!this.lockMutex(timeout, interruptibly)){
+			return false;
+		}
+		
+		boolean drained = false;
+		
+		this.revoked = true;
+		try{
+			drained = this.drain(timeout, deadline, interruptibly);
+			return drained;
+		}
+		finally{
+			if(!drained){
+				this.revoked = false;
+				this.mutex.unlock();
+			}
+		}
+	}
+	
+	private boolean lockMutex(long timeout, 
+			boolean interruptibly) throws InterruptedException{
+		
+		if(timeout == 0){
+			return this.mutex.tryLock();
+		}
+		else
+		if(timeout > 0){
+			return this.mutex.tryLock(timeout, TimeUnit.NANOSECONDS);
+		}
+		else
+		if(interruptibly){
+			this.mutex.lockInterruptibly();
+		}
+		else{
+			this.mutex.lock();
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Espera que todos os indicadores de leitura sejam zerados.
+	 */
+	private boolean drain(long timeout, long deadline, 
+			boolean interruptibly) throws InterruptedException{
+		
+		boolean interrupted = false;
+		
+		try{
+			for(int attempt = 0; !this.isDrained(); attempt++){
+				if(timeout == 0 || (timeout > 0 && deadline - System.nanoTime() <= 0)){
+					return false;
+				}
+				
+				if(Thread.interrupted()){
+					if(interruptibly){
+						throw new InterruptedException();
+					}
+					interrupted = true;
+				}
+				
+				if(attempt < SPINS){
+					continue;
+				}
+				else
+				if(attempt < SPINS*2){
+					Thread.yield();
+				}
+				else{
+					LockSupport.parkNanos(PARK_TIME);
+				}
+			}
+			
+			return true;
+		}
+		finally{
+			if(interrupted){
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	private boolean isDrained(){
+		for(int i=0;i<STRIPES;i++){
+			if(this.indicators.get(i*PADDING) != 0){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	private void releaseRead(){
+		int[] holds = this.readHolds.get();
+		
+		if(holds[0] == 0){
+			throw new IllegalMonitorStateException();
+		}
+		
+		holds[0]--;
+		this.indicators.decrementAndGet(indicator());
+	}
+	
+	private void releaseWrite(){
+		if(!this.mutex.isHeldByCurrentThread()){
+			throw new IllegalMonitorStateException();
+		}
+		
+		if(this.mutex.getHoldCount() == 1){
+			this.revoked = false;
+		}
+		
+		this.mutex.unlock();
+	}
+	
+	/**
+	 * Obtém a posição do indicador da thread atual. Os identificadores das threads 
+	 * são sequenciais e se distribuem de forma uniforme entre os indicadores.
+	 */
+	private static int indicator(){
+		return ((int)Thread.currentThread().getId() & (STRIPES - 1))*PADDING;
+	}
+	
+	private static int stripes(int processors){
+		int value = 1;
+		
+		while(value < processors){
+			value <<= 1;
+		}
+		
+		return value;
+	}
+	
+	private class ModeLock 
+		implements Lock{
+		
+		private final int mode;
+		
+		public ModeLock(int mode){
+			this.mode = mode;
+		}
+		
+		private boolean acquire(long timeout, boolean interruptibly) throws InterruptedException{
+			return this.mode == READ?
+					acquireRead(timeout, interruptibly) :
+					acquireWrite(timeout, interruptibly);
+		}
+		
+		public void lock() {
+			try{
+				this.acquire(-1, false);
+			}
+			catch(InterruptedException e){
+				throw new IllegalStateException("bug: " + e.toString());
+			}
+		}
+
+		public void lockInterruptibly() throws InterruptedException {
+			this.acquire(-1, true);
+		}
+
+		public boolean tryLock() {
+			try{
+				return this.acquire(0, false);
+			}
+			catch(InterruptedException e){
+				throw new IllegalStateException("bug: " + e.toString());
+			}
+		}
+
+		public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+			return this.acquire(Math.max(unit.toNanos(time), 1), true);
+		}
+
+		public void unlock() {
+			if(this.mode == READ){
+				releaseRead();
+			}
+			else{
+				releaseWrite();
+			}
+		}
+
+		public Condition newCondition() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,40 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent;
+
+class ReaderBiasedReadWriteLockObjectFactory  
+	implements ObjectFactory{
+
+	public Object createInstance() {
+		return new ReaderBiasedReadWriteLock();
+	}
+	
+	public void destroy(Object instance) {
+	}
+	
+	/**
+	 * Um {@link ReaderBiasedReadWriteLock} (40), os indicadores de leitura, com 
+	 * 128 bytes por indicador (32 mais o vetor), o seu 
+	 * {@link java.util.concurrent.locks.ReentrantLock} (48), o contador das 
+	 * leituras por thread (16) e os dois bloqueios de modo (48).
+	 */
+	public long getInstanceSize() {
+		return 40 + 32 + ReaderBiasedReadWriteLock.STRIPES*128L + 48 + 16 + 48;
+	}
+
+}
@@ -0,0 +1,308 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Implementação reentrante de {@link UpgradableReadWriteLock}.
+ * 
+ * <p>Todas as decisões são tomadas com a posse de um bloqueio interno. 
+ * Enquanto houver uma thread à espera da escrita, novas leituras e leituras 
+ * atualizáveis esperam, exceto as reentrantes. Uma thread que possui o bloqueio 
+ * de escrita pode obter os demais bloqueios. Uma thread que possui somente o 
+ * bloqueio de leitura comum não pode obter o bloqueio de escrita.</p>
+ * 
+ * <p>Não oferece suporte a {@link Condition}.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class ReentrantUpgradableReadWriteLock 
+	implements UpgradableReadWriteLock{
+
+	private static final int READ = 0;
+	
+	private static final int UPGRADABLE = 1;
+	
+	private static final int WRITE = 2;
+	
+	private final ReentrantLock guard;
+	
+	/**
+	 * Sinaliza as liberações.
+	 */
+	private final Condition released;
+	
+	/**
+	 * Quantidade de leituras de cada thread.
+	 */
+	private final Map<Thread,int[]> readHolds;
+	
+	private final Lock readLock;
+	
+	private final Lock writeLock;
+	
+	private final Lock upgradableLock;
+	
+	private int readers;
+	
+	private Thread upgrader;
+	
+	private int upgradeHolds;
+	
+	private Thread writer;
+	
+	private int writeHolds;
+	
+	private int writeWaiters;
+	
+	public ReentrantUpgradableReadWriteLock(){
+		this.guard          = new ReentrantLock();
+		this.released       = this.guard.newCondition();
+		this.readHolds      = new HashMap<Thread, int[]>(4);
+		this.readLock       = new ModeLock(READ);
+		this.writeLock      = new ModeLock(WRITE);
+		this.upgradableLock = new ModeLock(UPGRADABLE);
+	}
+	
+	public Lock readLock() {
+		return this.readLock;
+	}
+
+	public Lock writeLock() {
+		return this.writeLock;
+	}
+
+	public Lock upgradableLock() {
+		return this.upgradableLock;
+	}
+	
+	private boolean acquire(int mode, long timeout, 
+			boolean interruptibly) throws InterruptedException{
+		
+		if(interruptibly && Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		
+		Thread current = Thread.currentThread();
+		boolean waiter = false;
+		
+		this.guard.lock();
+		try{
+			while(!this.tryAcquire(mode, current)){
+				if(timeout == 0){
+					return false;
+				}
+				
+				if(mode == WRITE && !waiter){
+					this.writeWaiters++;
+					waiter = true;
+				}
+				
+				if(timeout > 0){
+					timeout = this.released.awaitNanos(timeout);
+					timeout = timeout > 0? timeout : 0;
+				}
+				else
+				if(interruptibly){
+					this.released.await();
+				}
+				else{
+					this.released.awaitUninterruptibly();
+				}
+			}
+			
+			return true;
+		}
+		finally{
+			if(waiter){
+				this.writeWaiters--;
+				
+				/*
+				 * As leituras bloqueadas pela escrita podem prosseguir.
+				 */
+				if(this.writeWaiters == 0){
+					this.released.signalAll();
+				}
+			}
+			
+			this.guard.unlock();
+		}
+	}
+	
+	private boolean tryAcquire(int mode, Thread current){
+		switch(mode){
+		case READ:
+			int[] holds = this.readHolds.get(current);
+			
+			if(holds == null){
+				if(this.writer != current && 
+					(this.writer != null || (this.writeWaiters > 0 && this.upgrader != current))){
+					return false;
+				}
+				
+				holds = new int[1];
+				this.readHolds.put(current, holds);
+			}
+			
+			holds[0]++;
+			this.readers++;
+			return true;
+		case UPGRADABLE:
+			if(this.upgrader == current){
+				this.upgradeHolds++;
+				return true;
+			}
+			
+			if(this.writer != current && 
+				(this.writer != null || this.upgrader != null || this.writeWaiters > 0)){
+				return false;
+			}
+			
+			this.upgrader     = current;
+			this.upgradeHolds = 1;
+			return true;
+		default:
+			if(this.writer == current){
+				this.writeHolds++;
+				return true;
+			}
+			
+			if(this.writer != null || (this.upgrader != null && this.upgrader != current)){
+				return false;
+			}
+			
+			int others = this.readers;
+			
+			/*
+			 * As leituras da própria thread somente são desconsideradas na 
+			 * atualização, pois existe somente uma thread atualizável.
+			 */
+			if(this.upgrader == current){
+				int[] own = this.readHolds.get(current);
+				others   -= own == null? 0 : own[0];
+			}
+			
+			if(others > 0){
+				return false;
+			}
+			
+			this.writer     = current;
+			this.writeHolds = 1;
+			return true;
+		}
+	}
+	
+	private void release(int mode){
+		Thread current = Thread.currentThread();
+		
+		this.guard.lock();
+		try{
+			switch(mode){
+			case READ:
+				int[] holds = this.readHolds.get(current);
+				
+				if(holds == null){
+					throw new IllegalMonitorStateException();
+				}
+				
+				if(--holds[0] == 0){
+					this.readHolds.remove(current);
+				}
+				
+				this.readers--;
+				break;
+			case UPGRADABLE:
+				if(this.upgrader != current){
+					throw new IllegalMonitorStateException();
+				}
+				
+				if(--this.upgradeHolds == 0){
+					this.upgrader = null;
+				}
+				break;
+			default:
+				if(this.writer != current){
+					throw new IllegalMonitorStateException();
+				}
+				
+				if(--this.writeHolds == 0){
+					this.writer = null;
+				}
+			}
+			
+			this.released.signalAll();
+		}
+		finally{
+			this.guard.unlock();
+		}
+	}
+	
+	private class ModeLock 
+		implements Lock{
+		
+		private final int mode;
+		
+		public ModeLock(int mode){
+			this.mode = mode;
+		}
+		
+		public void lock() {
+			try{
+				acquire(this.mode, -1, false);
+			}
+			catch(InterruptedException e){
+				throw new IllegalStateException("bug: " + e.toString());
+			}
+		}
+
+		public void lockInterruptibly() throws InterruptedException {
+			acquire(this.mode, -1, true);
+		}
+
+		public boolean tryLock() {
+			try{
+				return acquire(this.mode, 0, false);
+			}
+			catch(InterruptedException e){
+				throw new IllegalStateException("bug: " + e.toString());
+			}
+		}
+
+		public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+			return acquire(this.mode, Math.max(unit.toNanos(time), 1), true);
+		}
+
+		public void unlock() {
+			release(this.mode);
+		}
+
+		public Condition newCondition() {
+			throw new UnsupportedOperationException();
+		}
+		
+	}
+	
+}
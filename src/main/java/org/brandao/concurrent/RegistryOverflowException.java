@@ -0,0 +1,59 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Lançada quando o registro de {@link NamedLock} atinge a quantidade máxima 
+ * de nomes e a política {@link RegistryOverflowPolicy#FAIL} está em uso.
+ * 
+ * @author Brandao
+ *
+ */
+public class RegistryOverflowException 
+	extends IllegalStateException{
+
+	private static final long serialVersionUID = -4870145283915318046L;
+
+	private final String lockName;
+	
+	private final int maxEntries;
+	
+	public RegistryOverflowException(String lockName, int maxEntries){
+		super("registry is full: " + lockName + ": " + maxEntries);
+		this.lockName   = lockName;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Obtém o nome do bloqueio solicitado.
+	 * @return nome do bloqueio.
+	 */
+	public String getLockName() {
+		return lockName;
+	}
+
+	/**
+	 * Obtém a quantidade máxima de nomes do registro.
+	 * @return quantidade máxima de nomes.
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+	
+}
@@ -0,0 +1,48 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Define o comportamento de {@link NamedLock} quando o registro atinge a 
+ * quantidade máxima de nomes.
+ * 
+ * @author Brandao
+ *
+ */
+public enum RegistryOverflowPolicy {
+
+	/**
+	 * A aquisição espera até que um nome seja removido do registro. A espera 
+	 * respeita o prazo e a interrupção do método de bloqueio usado.
+	 */
+	BLOCK,
+	
+	/**
+	 * A aquisição falha com {@link RegistryOverflowException}. Uma tentativa sem 
+	 * prazo, como {@link NamedLock#tryLock(String)}, devolve <code>null</code>.
+	 */
+	FAIL,
+	
+	/**
+	 * A aquisição usa um bloqueio compartilhado, escolhido a partir do hash do 
+	 * nome. Nomes diferentes podem compartilhar o mesmo bloqueio.
+	 */
+	STRIPED;
+	
+}
@@ -0,0 +1,222 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Compartilha uma única execução entre as chamadas simultâneas de uma chave.
+ * 
+ * <p>É uma alternativa ao uso de um bloqueio por chave quando a intenção 
+ * é "calcular o valor da chave K uma única vez", como no preenchimento de 
+ * um cache. Com um bloqueio, cada thread à espera ainda refaz o cálculo 
+ * ou a consulta após obter o bloqueio. Aqui, a primeira chamada de uma 
+ * chave executa a ação e as chamadas que chegam durante a execução recebem 
+ * o mesmo resultado ou a mesma exceção. A chave é removida quando a execução 
+ * termina, e a próxima chamada inicia uma nova execução.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    SingleFlight&lt;String, Object&gt; singleFlight = new SingleFlight&lt;String, Object&gt;();
+ *    
+ *    Object value = singleFlight.execute("chave", new Callable&lt;Object&gt;(){
+ *    
+ *        public Object call() throws Exception{
+ *            return loadFromDatabase("chave");
+ *        }
+ *        
+ *    });
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ * @param <K> Tipo da chave.
+ * @param <V> Tipo do resultado.
+ */
+public class SingleFlight<K, V> {
+
+	/**
+	 * Execuções em andamento associadas às chaves.
+	 */
+	protected final ConcurrentMap<K, Call> calls;
+	
+	private final Executor executor;
+	
+	/**
+	 * Cria uma nova instância em que as ações são executadas somente pelas 
+	 * threads que chamam {@link #execute(Object, Callable)}.
+	 */
+	public SingleFlight(){
+		this(null);
+	}
+	
+	/**
+	 * Cria uma nova instância.
+	 * @param executor executor das ações enviadas em {@link #submit(Object, Callable)}.
+	 */
+	public SingleFlight(Executor executor){
+		this.executor = executor;
+		this.calls    = new ConcurrentHashMap<K, Call>();
+	}
+	
+	/**
+	 * Executa uma ação ou espera pela execução em andamento da mesma chave.
+	 * <p>Se não houver uma execução em andamento, a ação é executada pela thread atual.</p>
+	 * @param key chave.
+	 * @param action ação.
+	 * @return resultado da execução.
+	 * @throws Exception Lançada pela execução compartilhada.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto 
+	 * espera pela execução de outra thread.
+	 */
+	public V execute(K key, Callable<V> action) throws Exception{
+		
+		if(action == null){
+			throw new NullPointerException("action");
+		}
+		
+		Call call    = new Call(key, action);
+		Call current = this.calls.putIfAbsent(key, call);
+		
+		if(current == null){
+			call.run();
+		}
+		else
+		if(current.runner == Thread.currentThread()){
+			throw new IllegalStateException("recursive call: " + key);
+		}
+		else{
+			call = current;
+		}
+		
+		try{
+			return call.get();
+		}
+		catch(ExecutionException e){
+			Throwable cause = e.getCause();
+			
+			if(cause instanceof Exception){
+				throw (Exception)cause;
+			}
+			else{
+				throw (Error)cause;
+			}
+		}
+	}
+	
+	/**
+	 * Envia uma ação ao executor ou obtém a execução em andamento da mesma chave.
+	 * <p>O resultado pendente é compartilhado pelas chamadas. O cancelamento 
+	 * afeta todas elas.</p>
+	 * @param key chave.
+	 * @param action ação.
+	 * @return resultado pendente da execução.
+	 * @throws RejectedExecutionException Lançada se o executor não aceitar a ação.
+	 */
+	public Future<V> submit(K key, Callable<V> action){
+		
+		if(action == null){
+			throw new NullPointerException("action");
+		}
+		
+		if(this.executor == null){
+			throw new IllegalStateException("executor not defined");
+		}
+		
+		Call call    = new Call(key, action);
+		Call current = this.calls.putIfAbsent(key, call);
+		
+		if(current != null){
+			return current;
+		}
+		
+		try{
+			this.executor.execute(call);
+		}
+		catch(RejectedExecutionException e){
+			call.cancel(false);
+			throw e;
+		}
+		
+		return call;
+	}
+	
+	/**
+	 * Obtém a quantidade de chaves com execuções em andamento.
+	 * @return quantidade de chaves.
+	 */
+	public int getActiveKeys(){
+		return this.calls.size();
+	}
+	
+	protected class Call 
+		extends FutureTask<V>{
+		
+		private final K key;
+		
+		/**
+		 * Thread que executa a ação.
+		 */
+		private volatile Thread runner;
+		
+		public Call(K key, Callable<V> action){
+			super(action);
+			this.key = key;
+		}
+		
+		public void run(){
+			this.runner = Thread.currentThread();
+			try{
+				super.run();
+			}
+			finally{
+				this.runner = null;
+			}
+		}
+		
+		/*
+		 * A chave é removida antes que os resultados sejam entregues. Assim, 
+		 * uma chamada que chega após o término inicia uma nova execução.
+		 */
+		protected void set(V value){
+			calls.remove(this.key, this);
+			super.set(value);
+		}
+		
+		protected void setException(Throwable e){
+			calls.remove(this.key, this);
+			super.setException(e);
+		}
+		
+		protected void done(){
+			calls.remove(this.key, this);
+		}
+		
+	}
+	
+}
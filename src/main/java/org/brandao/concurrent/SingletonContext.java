@@ -0,0 +1,46 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Controla as instâncias únicas associadas a uma chave.
+ * 
+ * @author Brandao
+ *
+ * @param <T> Tipo da chave associada a uma instância.
+ */
+interface SingletonContext<T> {
+
+	/**
+	 * Registra a fábrica de um tipo de instância.
+	 * @param name nome do tipo de instância.
+	 * @param factory fábrica das instâncias.
+	 */
+	void registryBeanDefinition(String name, ObjectFactory factory);
+	
+	/**
+	 * Obtém a instância associada a uma chave. A instância é mantida enquanto 
+	 * houver referências ao objeto devolvido.
+	 * @param alias chave.
+	 * @param beanName nome do tipo de instância.
+	 * @return instância.
+	 */
+	Object getBean(T alias, String beanName);
+	
+}
@@ -0,0 +1,272 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Implementação do algoritmo Space-Saving ponderado. 
+ * 
+ * <p>Mantém no máximo <code>capacity</code> contadores. Quando uma chave 
+ * nova chega e não existe espaço, ela substitui a chave de menor valor e herda o 
+ * seu valor como erro. O valor estimado de uma chave nunca é menor que o real 
+ * e o excesso é limitado pelo erro.</p>
+ * 
+ * <p>Para que as threads não disputem um único monitor, as chaves são divididas 
+ * pelo hash em partições independentes, cada uma com uma parte da capacidade. 
+ * Como cada chave pertence a uma única partição, a consulta somente une e 
+ * ordena os contadores das partições.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class SpaceSavingSketch {
+
+	/**
+	 * Capacidade mínima de uma partição.
+	 */
+	private static final int MIN_STRIPE_CAPACITY = 32;
+	
+	private static final Comparator<Counter> DESCENDING = new Comparator<Counter>() {
+		
+		public int compare(Counter o1, Counter o2) {
+			return o1.value < o2.value? 1 : (o1.value == o2.value? 0 : -1);
+		}
+		
+	};
+	
+	private final Stripe[] stripes;
+	
+	public SpaceSavingSketch(int capacity){
+		this(capacity, stripes(capacity));
+	}
+	
+	SpaceSavingSketch(int capacity, int stripes){
+		
+		if(capacity <= 0){
+			throw new IllegalArgumentException("capacity: " + capacity);
+		}
+		
+		if(stripes <= 0 || (stripes & (stripes - 1)) != 0){
+			throw new IllegalArgumentException("stripes: " + stripes);
+		}
+		
+		this.stripes = new Stripe[stripes];
+		
+		for(int i=0;i<stripes;i++){
+			this.stripes[i] = new Stripe((capacity + stripes - 1) / stripes);
+		}
+	}
+	
+	/**
+	 * Adiciona uma ocorrência da chave.
+	 * @param key chave.
+	 * @param weight peso usado na classificação.
+	 * @param waitTime tempo de espera da ocorrência.
+	 */
+	public void offer(Object key, long weight, long waitTime){
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		this.stripes[h & (this.stripes.length - 1)].offer(key, weight, waitTime);
+	}
+
+	/**
+	 * Obtém as chaves com os maiores valores.
+	 * @param limit quantidade máxima de chaves.
+	 * @return cópia dos contadores em ordem decrescente de valor.
+	 */
+	public List<Counter> top(int limit){
+		List<Counter> copy = new ArrayList<Counter>();
+		
+		for(Stripe stripe: this.stripes){
+			stripe.copyTo(copy);
+		}
+		
+		Collections.sort(copy, DESCENDING);
+		
+		return copy.size() <= limit? 
+				copy : 
+				new ArrayList<Counter>(copy.subList(0, limit));
+	}
+	
+	public void clear(){
+		for(Stripe stripe: this.stripes){
+			stripe.clear();
+		}
+	}
+	
+	/**
+	 * Define a quantidade de partições: uma potência de dois não maior que a 
+	 * quantidade de processadores e que mantém a capacidade mínima de cada partição.
+	 */
+	private static int stripes(int capacity){
+		int max = Runtime.getRuntime().availableProcessors();
+		int n   = 1;
+		
+		while(n < max && capacity / (n << 1) >= MIN_STRIPE_CAPACITY){
+			n <<= 1;
+		}
+		
+		return n;
+	}
+	
+	/**
+	 * Partição do esboço. Protegida pelo seu próprio monitor.
+	 */
+	private static class Stripe{
+		
+		private final Map<Object,Counter> counters;
+		
+		/**
+		 * Heap mínimo ordenado pelo valor dos contadores.
+		 */
+		private final Counter[] heap;
+		
+		private int size;
+		
+		public Stripe(int capacity){
+			this.counters = new HashMap<Object, Counter>(capacity*2);
+			this.heap     = new Counter[capacity];
+			this.size     = 0;
+		}
+		
+		public synchronized void offer(Object key, long weight, long waitTime){
+			Counter counter = this.counters.get(key);
+			
+			if(counter == null){
+				if(this.size < this.heap.length){
+					counter = new Counter();
+					counter.index = this.size;
+					this.heap[this.size++] = counter;
+				}
+				else{
+					counter = this.heap[0];
+					this.counters.remove(counter.key);
+					counter.error    = counter.value;
+					counter.count    = 0;
+					counter.waitTime = 0;
+				}
+				
+				counter.key = key;
+				this.counters.put(key, counter);
+			}
+			
+			counter.value    += weight;
+			counter.count    += 1;
+			counter.waitTime += waitTime;
+			
+			this.siftDown(this.siftUp(counter.index));
+		}
+		
+		public synchronized void copyTo(List<Counter> result){
+			for(int i=0;i<this.size;i++){
+				result.add(this.heap[i].copy());
+			}
+		}
+		
+		public synchronized void clear(){
+			this.counters.clear();
+			Arrays.fill(this.heap, null);
+			this.size = 0;
+		}
+		
+		private int siftUp(int index){
+			Counter counter = this.heap[index];
+			
+			while(index > 0){
+				int parent = (index - 1) >>> 1;
+				Counter p  = this.heap[parent];
+				
+				if(p.value <= counter.value){
+					break;
+				}
+				
+				this.heap[index] = p;
+				p.index          = index;
+				index            = parent;
+			}
+			
+			this.heap[index] = counter;
+			counter.index    = index;
+			return index;
+		}
+		
+		private void siftDown(int index){
+			Counter counter = this.heap[index];
+			int half        = this.size >>> 1;
+			
+			while(index < half){
+				int child = (index << 1) + 1;
+				Counter c = this.heap[child];
+				int right = child + 1;
+				
+				if(right < this.size && this.heap[right].value < c.value){
+					child = right;
+					c     = this.heap[right];
+				}
+				
+				if(counter.value <= c.value){
+					break;
+				}
+				
+				this.heap[index] = c;
+				c.index          = index;
+				index            = child;
+			}
+			
+			this.heap[index] = counter;
+			counter.index    = index;
+		}
+		
+	}
+	
+	static class Counter{
+		
+		public Object key;
+		
+		public long value;
+		
+		public long error;
+		
+		public long count;
+		
+		public long waitTime;
+		
+		public int index;
+		
+		public Counter copy(){
+			Counter c  = new Counter();
+			c.key      = this.key;
+			c.value    = this.value;
+			c.error    = this.error;
+			c.count    = this.count;
+			c.waitTime = this.waitTime;
+			c.index    = -1;
+			return c;
+		}
+		
+	}
+	
+}
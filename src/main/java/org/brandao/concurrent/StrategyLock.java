@@ -0,0 +1,233 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Bloqueador reentrante cuja espera é definida por uma {@link WaitStrategy}.
+ * 
+ * <p>A posse do bloqueio é obtida com uma única operação atômica. As threads 
+ * somente são enfileiradas quando a estratégia decide suspendê-las.</p>
+ * 
+ * <p>Não oferece suporte a {@link Condition}.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class StrategyLock 
+	extends LockOwner
+	implements Lock{
+
+	private final WaitStrategy strategy;
+	
+	private final boolean holdTimeRequired;
+	
+	/**
+	 * Threads suspensas à espera do bloqueio.
+	 */
+	private final ConcurrentLinkedQueue<Thread> waiters;
+	
+	/**
+	 * Quantidade de aquisições da thread que possui o bloqueio.
+	 */
+	private int holds;
+	
+	/**
+	 * Momento da aquisição do bloqueio pela thread que o possui.
+	 */
+	private long acquireTime;
+	
+	/**
+	 * Média móvel do tempo de posse do bloqueio.
+	 */
+	private volatile long averageHoldTime;
+	
+	public StrategyLock(WaitStrategy strategy){
+		this.strategy         = strategy;
+		this.holdTimeRequired = strategy.isHoldTimeRequired();
+		this.waiters          = new ConcurrentLinkedQueue<Thread>();
+	}
+	
+	public void lock() {
+		if(!this.tryLock()){
+			try{
+				this.acquire(false, -1);
+			}
+			catch(InterruptedException e){
+				throw new IllegalStateException("bug: " + e.toString());
+			}
+		}
+	}
+
+	public void lockInterruptibly() throws InterruptedException {
+		if(Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		
+		if(!this.tryLock()){
+			this.acquire(true, -1);
+		}
+	}
+
+	public boolean tryLock() {
+		Thread current = Thread.currentThread();
+		Thread o       = this.getOwner();
+		
+		if(o == null){
+			if(this.compareAndSetOwner(null, current)){
+				this.acquired();
+				return true;
+			}
+			return false;
+		}
+		
+		if(o == current){
+			this.holds++;
+			return true;
+		}
+		
+		return false;
+	}
+
+	public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+		if(Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		
+		return this.tryLock() || this.acquire(true, unit.toNanos(time));
+	}
+
+	public void unlock() {
+		if(this.getOwner() != Thread.currentThread()){
+			throw new IllegalMonitorStateException();
+		}
+		
+		if(--this.holds > 0){
+			return;
+		}
+		
+		if(this.holdTimeRequired){
+			long avg = this.averageHoldTime;
+			this.averageHoldTime = avg + ((System.nanoTime() - this.acquireTime - avg) >> 3);
+		}
+		
+		this.setOwner(null);
+		this.signal();
+	}
+
+	public Condition newCondition() {
+		throw new UnsupportedOperationException();
+	}
+	
+	private boolean acquire(boolean interruptible, long nanos) throws InterruptedException{
+		Thread current      = Thread.currentThread();
+		long deadline       = nanos < 0? 0 : System.nanoTime() + nanos;
+		boolean queued      = false;
+		boolean interrupted = false;
+		boolean acquired    = false;
+		
+		try{
+			for(int attempt = 0;;attempt++){
+				
+				if(this.getOwner() == null && this.compareAndSetOwner(null, current)){
+					this.acquired();
+					acquired = true;
+					return true;
+				}
+				
+				long remaining = 0;
+				
+				if(nanos >= 0 && (remaining = deadline - System.nanoTime()) <= 0){
+					return false;
+				}
+				
+				if(this.strategy.idle(attempt, this.averageHoldTime)){
+					
+					/*
+					 * A thread é enfileirada antes de uma nova tentativa. Assim, a 
+					 * liberação do bloqueio ou enxerga a thread na fila ou 
+					 * a thread enxerga o bloqueio livre.
+					 */
+					if(!queued){
+						this.waiters.add(current);
+						queued = true;
+						continue;
+					}
+					
+					if(nanos < 0){
+						LockSupport.park();
+					}
+					else{
+						LockSupport.parkNanos(remaining);
+					}
+					
+				}
+				else{
+					onSpinWait();
+				}
+				
+				if(Thread.interrupted()){
+					if(interruptible){
+						throw new InterruptedException();
+					}
+					interrupted = true;
+				}
+			}
+		}
+		finally{
+			if(queued){
+				this.waiters.remove(current);
+				
+				/*
+				 * Um sinal recebido por uma thread que desistiu do bloqueio
+				 * é repassado para a próxima da fila.
+				 */
+				if(!acquired && this.getOwner() == null){
+					this.signal();
+				}
+			}
+			
+			if(interrupted){
+				current.interrupt();
+			}
+		}
+	}
+	
+	private void acquired(){
+		this.holds = 1;
+		
+		if(this.holdTimeRequired){
+			this.acquireTime = System.nanoTime();
+		}
+	}
+	
+	private void signal(){
+		Thread next = this.waiters.peek();
+		
+		if(next != null){
+			LockSupport.unpark(next);
+		}
+	}
+	
+}
@@ -0,0 +1,135 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Visão, com chaves do tipo {@link String}, de um mapa cujas chaves são todas 
+ * do tipo {@link String}, mas declaradas como {@link Object}.
+ * 
+ * <p>As alterações feitas na visão são refletidas no mapa e vice-versa.</p>
+ * 
+ * @author Brandao
+ *
+ * @param <V> Tipo dos valores.
+ */
+class StringKeyMap<V> 
+	extends AbstractMap<String,V>{
+
+	private final Map<Object,V> map;
+	
+	public StringKeyMap(Map<Object,V> map){
+		this.map = map;
+	}
+	
+	public int size(){
+		return this.map.size();
+	}
+	
+	public boolean containsKey(Object key){
+		return this.map.containsKey(key);
+	}
+	
+	public V get(Object key){
+		return this.map.get(key);
+	}
+	
+	public V put(String key, V value){
+		return this.map.put(key, value);
+	}
+	
+	public V remove(Object key){
+		return this.map.remove(key);
+	}
+	
+	public void clear(){
+		this.map.clear();
+	}
+	
+	public Set<Map.Entry<String,V>> entrySet(){
+		return new AbstractSet<Map.Entry<String,V>>(){
+			
+			public int size(){
+				return map.size();
+			}
+			
+			public Iterator<Map.Entry<String,V>> iterator(){
+				final Iterator<Map.Entry<Object,V>> i = map.entrySet().iterator();
+				
+				return new Iterator<Map.Entry<String,V>>(){
+					
+					public boolean hasNext(){
+						return i.hasNext();
+					}
+					
+					public Map.Entry<String,V> next(){
+						return new StringKeyEntry<V>(i.next());
+					}
+					
+					public void remove(){
+						i.remove();
+					}
+					
+				};
+			}
+			
+		};
+	}
+	
+	private static class StringKeyEntry<V> 
+		implements Map.Entry<String,V>{
+		
+		private final Map.Entry<Object,V> entry;
+		
+		public StringKeyEntry(Map.Entry<Object,V> entry){
+			this.entry = entry;
+		}
+		
+		public String getKey(){
+			return (String)this.entry.getKey();
+		}
+		
+		public V getValue(){
+			return this.entry.getValue();
+		}
+		
+		public V setValue(V value){
+			return this.entry.setValue(value);
+		}
+		
+		public boolean equals(Object o){
+			return this.entry.equals(o);
+		}
+		
+		public int hashCode(){
+			return this.entry.hashCode();
+		}
+		
+		public String toString(){
+			return this.entry.toString();
+		}
+		
+	}
+	
+}
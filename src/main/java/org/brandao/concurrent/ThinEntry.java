@@ -0,0 +1,299 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Entrada do registro de {@link ThinNamedLock}.
+ * 
+ * <p>O estado da entrada é uma única palavra que combina o bit de posse, o bit 
+ * de inflação e a quantidade de referências (a thread que possui o bloqueio e as 
+ * threads à espera). A aquisição sem disputa é uma única operação CAS. A fila de 
+ * espera somente é criada quando uma segunda thread precisa esperar e é mantida 
+ * até o descarte da entrada.</p>
+ * 
+ * <p>Quando a última referência é removida, a entrada é marcada como descartada 
+ * e não pode mais ser usada. As threads que encontram uma entrada descartada 
+ * devem obter uma nova entrada no registro.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class ThinEntry implements Serializable{
+
+	private static final long serialVersionUID = 4502613379034157921L;
+
+	/**
+	 * A aquisição foi concluída.
+	 */
+	public static final int ACQUIRED = 0;
+	
+	/**
+	 * O bloqueio está em uso e a thread não foi registrada.
+	 */
+	public static final int BUSY = 1;
+	
+	/**
+	 * O bloqueio está em uso e a thread foi registrada. A thread deve esperar 
+	 * em {@link #await(Thread, long, boolean)}.
+	 */
+	public static final int WAIT = 2;
+	
+	/**
+	 * A entrada foi descartada.
+	 */
+	public static final int DISPOSED = 3;
+	
+	private static final long LOCKED = 1L;
+	
+	private static final long INFLATED = 2L;
+	
+	private static final long REFERENCE = 4L;
+	
+	private static final long DEAD = -1L;
+	
+	private static final AtomicLongFieldUpdater<ThinEntry> STATE = 
+			AtomicLongFieldUpdater.newUpdater(ThinEntry.class, "state");
+	
+	private static final AtomicReferenceFieldUpdater<ThinEntry,Monitor> MONITOR = 
+			AtomicReferenceFieldUpdater.newUpdater(ThinEntry.class, Monitor.class, "monitor");
+	
+	private volatile long state;
+	
+	/**
+	 * Fila de espera. Criada somente na primeira disputa.
+	 */
+	private transient volatile Monitor monitor;
+	
+	/**
+	 * Thread que possui o bloqueio. Somente é alterada pela própria thread.
+	 */
+	private transient Thread owner;
+	
+	private transient int holds;
+	
+	/**
+	 * Cria uma nova entrada com o bloqueio em posse de uma thread.
+	 * @param owner thread que possui o bloqueio.
+	 */
+	public ThinEntry(Thread owner){
+		this.state = REFERENCE | LOCKED;
+		this.owner = owner;
+		this.holds = 1;
+	}
+	
+	/**
+	 * Tenta adquirir o bloqueio. Se ele estiver em uso, a thread pode ser 
+	 * registrada para esperar.
+	 * @param current thread atual.
+	 * @param register registra a thread se o bloqueio estiver em uso.
+	 * @return {@link #ACQUIRED}, {@link #BUSY}, {@link #WAIT} ou {@link #DISPOSED}.
+	 */
+	public int enter(Thread current, boolean register){
+		if(this.owner == current){
+			this.holds++;
+			return ACQUIRED;
+		}
+		
+		for(;;){
+			long s = this.state;
+			
+			if(s == DEAD){
+				return DISPOSED;
+			}
+			
+			if((s & LOCKED) == 0){
+				if(STATE.compareAndSet(this, s, (s + REFERENCE) | LOCKED)){
+					this.owner = current;
+					this.holds = 1;
+					return ACQUIRED;
+				}
+			}
+			else
+			if(!register){
+				return BUSY;
+			}
+			else
+			if(STATE.compareAndSet(this, s, s + REFERENCE)){
+				return WAIT;
+			}
+		}
+	}
+	
+	/**
+	 * Espera pelo bloqueio. A thread deve estar registrada. Se o bloqueio não for 
+	 * obtido, o registro deve ser desfeito em {@link #leave()}.
+	 * @param current thread atual.
+	 * @param timeout tempo máximo de espera em nanossegundos ou <code>-1</code> 
+	 * para esperar indefinidamente.
+	 * @param interruptibly permite a interrupção da espera.
+	 * @return <code>true</code> se o bloqueio foi obtido. Caso contrário, <code>false</code>.
+	 * @throws InterruptedException Lançada se a thread for interrompida durante a espera.
+	 */
+	public boolean await(Thread current, long timeout, 
+			boolean interruptibly) throws InterruptedException{
+		
+		Monitor m = this.inflate();
+		boolean acquired = false;
+		
+		m.guard.lock();
+		try{
+			for(;;){
+				long s = this.state;
+				
+				if((s & LOCKED) == 0){
+					if(STATE.compareAndSet(this, s, s | LOCKED)){
+						this.owner = current;
+						this.holds = 1;
+						acquired   = true;
+						return true;
+					}
+					continue;
+				}
+				
+				if(timeout == 0){
+					return false;
+				}
+				
+				if(timeout > 0){
+					timeout = m.released.awaitNanos(timeout);
+					timeout = timeout > 0? timeout : 0;
+				}
+				else
+				if(interruptibly){
+					m.released.await();
+				}
+				else{
+					m.released.awaitUninterruptibly();
+				}
+			}
+		}
+		finally{
+			/*
+			 * Um sinal recebido por uma thread que desistiu é repassado.
+			 */
+			if(!acquired){
+				m.released.signal();
+			}
+			m.guard.unlock();
+		}
+	}
+	
+	/**
+	 * Desfaz o registro de uma thread que não obteve o bloqueio.
+	 * @return <code>true</code> se a entrada foi descartada e deve ser removida 
+	 * do registro. Caso contrário, <code>false</code>.
+	 */
+	public boolean leave(){
+		for(;;){
+			long s = this.state;
+			long n = this.dereference(s);
+			
+			if(STATE.compareAndSet(this, s, n)){
+				return n == DEAD;
+			}
+		}
+	}
+	
+	/**
+	 * Libera o bloqueio.
+	 * @param current thread atual.
+	 * @return <code>true</code> se a entrada foi descartada e deve ser removida 
+	 * do registro. Caso contrário, <code>false</code>.
+	 */
+	public boolean release(Thread current){
+		if(this.owner != current){
+			throw new IllegalMonitorStateException();
+		}
+		
+		if(--this.holds > 0){
+			return false;
+		}
+		
+		this.owner = null;
+		
+		for(;;){
+			long s = this.state;
+			long n = this.dereference(s & ~LOCKED);
+			
+			if(STATE.compareAndSet(this, s, n)){
+				if(n != DEAD && (n & INFLATED) != 0){
+					this.signal();
+				}
+				return n == DEAD;
+			}
+		}
+	}
+	
+	private long dereference(long s){
+		long n = s - REFERENCE;
+		return (n & ~INFLATED) == 0? DEAD : n;
+	}
+	
+	/**
+	 * Cria a fila de espera e marca a entrada como inflada. As liberações 
+	 * posteriores sinalizam a fila.
+	 */
+	private Monitor inflate(){
+		Monitor m = this.monitor;
+		
+		if(m == null){
+			MONITOR.compareAndSet(this, null, new Monitor());
+			m = this.monitor;
+		}
+		
+		for(;;){
+			long s = this.state;
+			
+			if((s & INFLATED) != 0 || STATE.compareAndSet(this, s, s | INFLATED)){
+				return m;
+			}
+		}
+	}
+	
+	private void signal(){
+		Monitor m = this.monitor;
+		
+		m.guard.lock();
+		try{
+			m.released.signal();
+		}
+		finally{
+			m.guard.unlock();
+		}
+	}
+	
+	private static class Monitor{
+		
+		public final ReentrantLock guard;
+		
+		public final Condition released;
+		
+		public Monitor(){
+			this.guard    = new ReentrantLock();
+			this.released = this.guard.newCondition();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,205 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provê operações de bloqueio baseado em nomes com entradas de registro mínimas.
+ * 
+ * <p>Oferece as mesmas operações de bloqueio de {@link NamedLock}, mas cada nome 
+ * do registro é uma única entrada cujo estado combina a contagem de referências 
+ * e o bit de posse. Não existem os conjuntos de referências nem um 
+ * {@link java.util.concurrent.locks.ReentrantLock} por nome. A aquisição sem 
+ * disputa é uma consulta ao registro e uma operação CAS, ou a inclusão da entrada 
+ * já adquirida se o nome não estiver no registro. A fila de espera somente é 
+ * criada quando uma segunda thread precisa esperar pelo nome.</p>
+ * 
+ * <p>O bloqueio é reentrante e pertence à thread que o adquiriu. A referência 
+ * devolvida é a própria entrada, portanto as aquisições não criam objetos. Os 
+ * recursos opcionais de {@link NamedLock} (validação da ordem, rastreamento, 
+ * cache por thread, etc.) não estão disponíveis.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    ThinNamedLock namedLock = ...;
+ *    Serializable refLock = namedLock.lock("nome_do_lock");
+ *    try{
+ *       //ações protegidas pelo bloqueio.
+ *    }
+ *    finally{
+ *       namedLock.unlock(refLock, "nome_do_lock");
+ *    }
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class ThinNamedLock {
+
+	/**
+	 * Entradas do registro.
+	 */
+	protected ConcurrentMap<String,ThinEntry> entries;
+	
+	/**
+	 * Cria uma nova instância.
+	 */
+	public ThinNamedLock(){
+		this.entries = new ConcurrentHashMap<String, ThinEntry>();
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação do bloqueio associado ao nome.
+	 * @see NamedLock#lock(String)
+	 */
+	public Serializable lock(String lockName){
+		try{
+			return this.acquire(lockName, -1, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome a menos que a thread atual seja interrompida.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação do bloqueio associado ao nome.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see NamedLock#lockInterruptibly(String)
+	 */
+	public Serializable lockInterruptibly(String lockName) throws InterruptedException{
+		return this.acquire(lockName, -1, true);
+	}
+	
+	/**
+	 * Tenta adquirir o bloqueio somente se ele estiver livre no momento da invocação.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não for obtido.
+	 * @see NamedLock#tryLock(String)
+	 */
+	public Serializable tryLock(String lockName){
+		try{
+			return this.acquire(lockName, 0, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Tenta adquirir o bloqueio somente se ele estiver livre dentro de um determinado 
+	 * prazo de tempo e a thread atual não for interrompida.
+	 * @param lockName nome do bloqueio.
+	 * @param time tempo máximo de espera para adquirir o bloqueio.
+	 * @param unit unidade de tempo do argumento {@code time}.
+	 * @return identificação do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não for obtido dentro do prazo determinado.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see NamedLock#tryLock(String, long, TimeUnit)
+	 */
+	public Serializable tryLock(String lockName, long time, TimeUnit unit) throws InterruptedException{
+		return this.acquire(lockName, Math.max(unit.toNanos(time), 1), true);
+	}
+	
+	/**
+	 * Libera o bloqueio com um determinado nome e referência.
+	 * @param ref identificação do bloqueio associado ao nome.
+	 * @param lockName nome do bloqueio.
+	 */
+	public void unlock(Serializable ref, String lockName){
+		ThinEntry entry = this.entries.get(lockName);
+		
+		if(entry == null || entry != ref){
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		}
+		
+		if(entry.release(Thread.currentThread())){
+			this.entries.remove(lockName, entry);
+		}
+	}
+	
+	/**
+	 * Obtém a quantidade de nomes no registro.
+	 * @return quantidade de nomes.
+	 */
+	public int getRegistrySize(){
+		return this.entries.size();
+	}
+	
+	private Serializable acquire(String lockName, long timeout, 
+			boolean interruptibly) throws InterruptedException{
+		
+		if(interruptibly && Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		
+		Thread current = Thread.currentThread();
+		
+		for(;;){
+			ThinEntry entry = this.entries.get(lockName);
+			
+			if(entry == null){
+				entry = new ThinEntry(current);
+				ThinEntry old = this.entries.putIfAbsent(lockName, entry);
+				
+				if(old == null){
+					return entry;
+				}
+				
+				entry = old;
+			}
+			
+			switch(entry.enter(current, timeout != 0)){
+			case ThinEntry.ACQUIRED:
+				return entry;
+			case ThinEntry.BUSY:
+				return null;
+			case ThinEntry.DISPOSED:
+				/*
+				 * A entrada foi descartada, mas ainda pode não ter sido removida.
+				 */
+				this.entries.remove(lockName, entry);
+				continue;
+			default:
+				boolean acquired = false;
+				try{
+					acquired = entry.await(current, timeout, interruptibly);
+					return acquired? entry : null;
+				}
+				finally{
+					if(!acquired && entry.leave()){
+						this.entries.remove(lockName, entry);
+					}
+				}
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,271 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Cache, por thread, das entradas do registro usadas recentemente.
+ * 
+ * <p>Cada entrada do cache mantém uma referência no registro, de modo que o 
+ * bloqueio do nome não é descartado enquanto estiver no cache. Uma nova 
+ * aquisição do mesmo nome pela mesma thread obtém o bloqueio diretamente da 
+ * entrada, sem acessar o registro.</p>
+ * 
+ * <p>Somente a thread proprietária altera o cache. Qualquer thread pode 
+ * descartar o cache por meio de {@link #retire()}. As entradas ociosas são 
+ * revogadas imediatamente e as demais na sua última liberação.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class ThreadEntryCache {
+
+	private final WeakReference<Thread> thread;
+	
+	private final AtomicReferenceArray<Entry> entries;
+	
+	private volatile boolean retired;
+	
+	/**
+	 * Relógio lógico usado para identificar a entrada usada há mais tempo.
+	 */
+	private long clock;
+	
+	public ThreadEntryCache(Thread thread, int capacity){
+		this.thread  = new WeakReference<Thread>(thread);
+		this.entries = new AtomicReferenceArray<Entry>(capacity);
+	}
+	
+	/**
+	 * Obtém a entrada de um nome.
+	 * @param lockName nome do bloqueio.
+	 * @return entrada ou <code>null</code> se o nome não estiver no cache.
+	 */
+	public Entry get(Object lockName){
+		int hash = lockName.hashCode();
+		
+		for(int i=0;i<this.entries.length();i++){
+			Entry e = this.entries.get(i);
+			
+			if(e != null && e.hash == hash && e.lockName.equals(lockName)){
+				e.lastUse = ++this.clock;
+				return e;
+			}
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * Adiciona uma entrada no cache. Se não houver espaço, a entrada ociosa usada 
+	 * há mais tempo é revogada e substituída.
+	 * @param entry entrada.
+	 * @return entrada revogada, que deve ser removida do registro, a própria entrada 
+	 * se não for possível adicioná-la ou <code>null</code>.
+	 */
+	public Entry put(Entry entry){
+		int index    = -1;
+		long lastUse = Long.MAX_VALUE;
+		
+		for(int i=0;i<this.entries.length();i++){
+			Entry e = this.entries.get(i);
+			
+			if(e == null || e.isRevoked()){
+				index = i;
+				break;
+			}
+			
+			if(e.isIdle() && e.lastUse < lastUse){
+				index   = i;
+				lastUse = e.lastUse;
+			}
+		}
+		
+		if(index == -1){
+			return entry;
+		}
+		
+		Entry evicted = this.entries.get(index);
+		
+		if(evicted != null && evicted.isRevoked()){
+			evicted = null;
+		}
+		else
+		if(evicted != null && !evicted.revoke()){
+			return entry;
+		}
+		
+		entry.lastUse = ++this.clock;
+		this.entries.set(index, entry);
+		return evicted;
+	}
+
+	/**
+	 * Descarta o cache. Pode ser usado por qualquer thread.
+	 * @return entradas revogadas, que devem ser removidas do registro.
+	 */
+	public List<Entry> retire(){
+		List<Entry> revoked = new ArrayList<Entry>();
+		
+		this.retired = true;
+		
+		for(int i=0;i<this.entries.length();i++){
+			Entry e = this.entries.get(i);
+			
+			if(e != null && e.retire()){
+				revoked.add(e);
+			}
+		}
+		
+		return revoked;
+	}
+	
+	public boolean isRetired(){
+		return this.retired;
+	}
+	
+	public int getCapacity(){
+		return this.entries.length();
+	}
+	
+	/**
+	 * Verifica se a thread proprietária foi encerrada.
+	 * @return <code>true</code> se a thread foi encerrada. Caso contrário, <code>false</code>.
+	 */
+	public boolean isOrphan(){
+		Thread t = this.thread.get();
+		return t == null || !t.isAlive();
+	}
+	
+	/**
+	 * Entrada do cache. Mantém a referência do registro associada ao nome.
+	 */
+	static class Entry{
+		
+		public final Object lockName;
+		
+		public final UUID pin;
+		
+		public final Lock lock;
+		
+		private final int hash;
+		
+		/**
+		 * Quantidade de aquisições em andamento pela thread proprietária ou 
+		 * -1 se a entrada foi revogada.
+		 */
+		private final AtomicInteger state;
+		
+		/**
+		 * Indica que a entrada deve ser revogada na última liberação.
+		 */
+		private volatile boolean retired;
+		
+		private long lastUse;
+		
+		public Entry(Object lockName, UUID pin, Lock lock){
+			this.lockName = lockName;
+			this.pin      = pin;
+			this.lock     = lock;
+			this.hash     = lockName.hashCode();
+			this.state    = new AtomicInteger(1);
+		}
+		
+		/**
+		 * Registra uma aquisição.
+		 * @return <code>false</code> se a entrada foi revogada. Caso contrário, <code>true</code>.
+		 */
+		public boolean pin(){
+			for(;;){
+				int current = this.state.get();
+				
+				if(current < 0){
+					return false;
+				}
+				
+				if(this.state.compareAndSet(current, current + 1)){
+					return true;
+				}
+			}
+		}
+		
+		/**
+		 * Registra uma liberação.
+		 * @return <code>true</code> se a entrada foi revogada e deve ser removida 
+		 * do registro. Caso contrário, <code>false</code>.
+		 */
+		public boolean unpin(){
+			return this.state.decrementAndGet() == 0 && this.retired && this.revoke();
+		}
+		
+		/**
+		 * Marca a entrada para ser revogada na última liberação.
+		 * @return <code>true</code> se a entrada está ociosa e foi revogada imediatamente. 
+		 * Nesse caso, deve ser removida do registro. Caso contrário, <code>false</code>.
+		 */
+		public boolean retire(){
+			this.retired = true;
+			return this.revoke();
+		}
+		
+		public boolean revoke(){
+			return this.state.compareAndSet(0, -1);
+		}
+		
+		public boolean isIdle(){
+			return this.state.get() == 0;
+		}
+
+		public boolean isRevoked(){
+			return this.state.get() < 0;
+		}
+		
+	}
+	
+	/**
+	 * Referência devolvida pelas aquisições feitas por meio do cache.
+	 */
+	static class Ref implements Serializable{
+		
+		private static final long serialVersionUID = -3218456377095521305L;
+
+		public final transient Entry entry;
+		
+		private final UUID id;
+		
+		public Ref(Entry entry){
+			this.entry = entry;
+			this.id    = entry.pin;
+		}
+		
+		public String toString(){
+			return this.id.toString();
+		}
+		
+	}
+	
+}
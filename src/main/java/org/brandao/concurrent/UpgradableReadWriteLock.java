@@ -0,0 +1,69 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Bloqueador de leitura e escrita com um modo de leitura atualizável.
+ * 
+ * <p>O bloqueio de leitura atualizável pode ser mantido por somente uma thread 
+ * por vez e convive com os bloqueios de leitura comuns. A thread que o possui 
+ * pode obter o bloqueio de escrita sem liberar a leitura (atualização atômica), 
+ * esperando somente a saída dos leitores, e voltar ao modo atualizável liberando 
+ * o bloqueio de escrita (rebaixamento). Nenhuma outra escrita ocorre entre a 
+ * leitura atualizável e a escrita.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    UpgradableReadWriteLock lock = lockFactory.getUpgradableReadWriteLock("nome_do_lock");
+ *    
+ *    lock.upgradableLock().lock();
+ *    try{
+ *       if(//verificação){
+ *          lock.writeLock().lock();
+ *          try{
+ *             //alteração.
+ *          }
+ *          finally{
+ *             lock.writeLock().unlock();
+ *          }
+ *       }
+ *    }
+ *    finally{
+ *      lock.upgradableLock().unlock();
+ *    }
+ * 
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public interface UpgradableReadWriteLock 
+	extends ReadWriteLock{
+
+	/**
+	 * Obtém o bloqueio de leitura atualizável.
+	 * @return bloqueio de leitura atualizável.
+	 */
+	Lock upgradableLock();
+	
+}
@@ -0,0 +1,56 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Contador de uso alterado com operações atômicas.
+ * 
+ * <p>O valor é mantido em um campo do próprio objeto, sem um objeto atômico 
+ * por instância. No Java 21 ou superior, a classe é substituída pela versão de 
+ * <code>src/main/java21</code>, que usa um <code>VarHandle</code>.</p>
+ * 
+ * @author Brandao
+ *
+ */
+abstract class UseCount {
+
+	private static final AtomicIntegerFieldUpdater<UseCount> USES = 
+			AtomicIntegerFieldUpdater.newUpdater(UseCount.class, "uses");
+	
+	private volatile int uses;
+	
+	UseCount(int initialValue){
+		this.uses = initialValue;
+	}
+	
+	final int getUses(){
+		return this.uses;
+	}
+	
+	final boolean compareAndSetUses(int expect, int update){
+		return USES.compareAndSet(this, expect, update);
+	}
+	
+	final int decrementUses(){
+		return USES.decrementAndGet(this);
+	}
+	
+}
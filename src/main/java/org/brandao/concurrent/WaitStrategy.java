@@ -0,0 +1,165 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+/**
+ * Define o que uma thread faz enquanto espera por um bloqueio.
+ * 
+ * <p>Seções críticas muito curtas são prejudicadas pelo custo da suspensão 
+ * e retomada das threads. As estratégias permitem trocar uso de processador 
+ * por latência:</p>
+ * <ul>
+ * <li>{@link #BUSY_SPIN}: a thread fica em espera ativa até obter o bloqueio;</li>
+ * <li>{@link #SPIN_THEN_YIELD}: espera ativa por algumas tentativas e depois cede 
+ * o processador a cada tentativa;</li>
+ * <li>{@link #ADAPTIVE}: espera ativa somente se o tempo médio recente de posse do 
+ * bloqueio for curto e, caso contrário, suspende a thread;</li>
+ * <li>{@link #PARK}: suspende a thread imediatamente.</li>
+ * </ul>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    NamedLock namedLock = new NamedLock(WaitStrategy.ADAPTIVE);
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public abstract class WaitStrategy {
+
+	/**
+	 * Espera ativa até obter o bloqueio.
+	 */
+	public static final WaitStrategy BUSY_SPIN = new BusySpinWaitStrategy();
+
+	/**
+	 * Espera ativa por 100 tentativas e depois cede o processador a cada tentativa.
+	 */
+	public static final WaitStrategy SPIN_THEN_YIELD = spinThenYield(100);
+	
+	/**
+	 * Espera ativa por até 1000 tentativas se o tempo médio de posse do bloqueio 
+	 * for inferior a 10 microssegundos. Caso contrário, suspende a thread.
+	 */
+	public static final WaitStrategy ADAPTIVE = adaptive(10000, 1000);
+	
+	/**
+	 * Suspende a thread imediatamente.
+	 */
+	public static final WaitStrategy PARK = new ParkWaitStrategy();
+	
+	/**
+	 * Cria uma estratégia que faz espera ativa por algumas tentativas e depois 
+	 * cede o processador a cada tentativa.
+	 * @param spins quantidade de tentativas em espera ativa.
+	 * @return estratégia.
+	 */
+	public static WaitStrategy spinThenYield(int spins){
+		return new SpinThenYieldWaitStrategy(spins);
+	}
+	
+	/**
+	 * Cria uma estratégia que faz espera ativa somente se o tempo médio recente 
+	 * de posse do bloqueio for curto.
+	 * @param maxHoldTime tempo médio máximo de posse, em nanossegundos, para que a
+	 * espera ativa seja usada.
+	 * @param spins quantidade máxima de tentativas em espera ativa antes da suspensão 
+	 * da thread.
+	 * @return estratégia.
+	 */
+	public static WaitStrategy adaptive(long maxHoldTime, int spins){
+		return new AdaptiveWaitStrategy(maxHoldTime, spins);
+	}
+	
+	/**
+	 * Executada a cada tentativa frustrada de obter o bloqueio. 
+	 * A espera ativa ou a cessão do processador devem ser feitas por este método. 
+	 * A suspensão da thread é feita pelo bloqueador.
+	 * @param attempt quantidade de tentativas frustradas anteriores.
+	 * @param averageHoldTime tempo médio recente de posse do bloqueio em nanossegundos. 
+	 * Somente é calculado se {@link #isHoldTimeRequired()} retornar <code>true</code>.
+	 * @return <code>true</code> se a thread deve ser suspensa. Caso contrário, <code>false</code>.
+	 */
+	protected abstract boolean idle(int attempt, long averageHoldTime);
+	
+	/**
+	 * Indica se o tempo médio de posse do bloqueio deve ser calculado.
+	 * @return <code>true</code> se o tempo deve ser calculado. Caso contrário, <code>false</code>.
+	 */
+	protected boolean isHoldTimeRequired(){
+		return false;
+	}
+	
+	private static class BusySpinWaitStrategy extends WaitStrategy{
+		
+		protected boolean idle(int attempt, long averageHoldTime) {
+			return false;
+		}
+		
+	}
+
+	private static class ParkWaitStrategy extends WaitStrategy{
+		
+		protected boolean idle(int attempt, long averageHoldTime) {
+			return true;
+		}
+		
+	}
+	
+	private static class SpinThenYieldWaitStrategy extends WaitStrategy{
+		
+		private final int spins;
+		
+		public SpinThenYieldWaitStrategy(int spins){
+			this.spins = spins;
+		}
+		
+		protected boolean idle(int attempt, long averageHoldTime) {
+			if(attempt >= this.spins){
+				Thread.yield();
+			}
+			return false;
+		}
+		
+	}
+	
+	private static class AdaptiveWaitStrategy extends WaitStrategy{
+		
+		private final long maxHoldTime;
+		
+		private final int spins;
+		
+		public AdaptiveWaitStrategy(long maxHoldTime, int spins){
+			this.maxHoldTime = maxHoldTime;
+			this.spins       = spins;
+		}
+		
+		protected boolean idle(int attempt, long averageHoldTime) {
+			return attempt >= this.spins || averageHoldTime > this.maxHoldTime;
+		}
+		
+		protected boolean isHoldTimeRequired(){
+			return true;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,134 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Mantém uma instância canônica por chave usando referências fracas.
+ * 
+ * <p>Diferente de {@link DisposableSingletonContext}, a instância é devolvida 
+ * diretamente, sem um proxy e sem o registro de cada referência. A instância 
+ * é descartada pelo coletor de lixo quando não existirem mais referências a 
+ * ela e a sua entrada é removida nos acessos seguintes.</p>
+ * 
+ * <p>O método {@link ObjectFactory#destroy(Object)} não é chamado.</p>
+ * 
+ * @author Brandao
+ *
+ * @param <T> Tipo da chave associada a uma instância.
+ */
+class WeakSingletonContext<T> 
+	implements SingletonContext<T>{
+
+	protected ConcurrentMap<String,ObjectFactory> factoryList = 
+			new ConcurrentHashMap<String, ObjectFactory>();
+
+	protected ConcurrentMap<String,ConcurrentMap<T,BeanReference<T>>> beans = 
+			new ConcurrentHashMap<String, ConcurrentMap<T,BeanReference<T>>>();
+	
+	private final ReferenceQueue<Object> queue = new ReferenceQueue<Object>();
+	
+	public synchronized void registryBeanDefinition(String name, ObjectFactory factory){
+		
+		if(factoryList.containsKey(name))
+			throw new IllegalArgumentException(name);
+		
+		this.beans.put(name, new ConcurrentHashMap<T, BeanReference<T>>());
+		this.factoryList.put(name, factory);
+	}
+	
+	public Object getBean(T alias, String beanName){
+		
+		this.purge();
+		
+		ConcurrentMap<T,BeanReference<T>> beanMap = this.beans.get(beanName);
+		
+		if(beanMap == null){
+			throw new IllegalStateException("bean definition not found: " + beanName);
+		}
+		
+		BeanReference<T> ref = beanMap.get(alias);
+		Object bean          = ref == null? null : ref.get();
+		
+		if(bean != null){
+			return bean;
+		}
+		
+		bean = this.factoryList.get(beanName).createInstance();
+		BeanReference<T> newRef = new BeanReference<T>(alias, beanMap, bean, this.queue);
+		
+		for(;;){
+			if(ref == null){
+				ref = beanMap.putIfAbsent(alias, newRef);
+				
+				if(ref == null){
+					return bean;
+				}
+			}
+			else
+			if(beanMap.replace(alias, ref, newRef)){
+				return bean;
+			}
+			else{
+				ref = beanMap.get(alias);
+			}
+			
+			Object current = ref == null? null : ref.get();
+			
+			if(current != null){
+				return current;
+			}
+		}
+	}
+	
+	/**
+	 * Remove as entradas das instâncias descartadas pelo coletor de lixo.
+	 */
+	@SuppressWarnings("unchecked")
+	private void purge(){
+		Reference<?> ref;
+		
+		while((ref = this.queue.poll()) != null){
+			BeanReference<T> beanRef = (BeanReference<T>)ref;
+			beanRef.beanMap.remove(beanRef.alias, beanRef);
+		}
+	}
+	
+	private static class BeanReference<T> 
+		extends WeakReference<Object>{
+		
+		public final T alias;
+		
+		public final ConcurrentMap<T,BeanReference<T>> beanMap;
+		
+		public BeanReference(T alias, ConcurrentMap<T,BeanReference<T>> beanMap, 
+				Object bean, ReferenceQueue<Object> queue){
+			super(bean, queue);
+			this.alias   = alias;
+			this.beanMap = beanMap;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,270 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent.net;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servidor de bloqueios baseados em nomes.
+ * 
+ * <p>Permite que várias JVMs compartilhem um registro de nomes com a semântica de 
+ * {@link org.brandao.concurrent.NamedLock}: o bloqueio pertence à thread do cliente 
+ * que o adquiriu, é reentrante e as aquisições em espera são atendidas na ordem de 
+ * chegada. Os clientes usam {@link RemoteNamedLock}.</p>
+ * 
+ * <p>As conexões são atendidas por threads com um {@link java.nio.channels.Selector} 
+ * cada, por padrão uma por processador. O protocolo é binário e os clientes podem 
+ * enviar várias requisições por conexão sem esperar as respostas. As aquisições em 
+ * espera não ocupam threads do servidor.</p>
+ * 
+ * <p>Cada conexão possui uma concessão renovada a cada requisição recebida. Os 
+ * bloqueios de uma conexão encerrada ou com a concessão expirada são liberados e 
+ * as suas aquisições em espera são descartadas.</p>
+ * 
+ * <p>Uma falha inesperada em um worker encerra todos os workers. A falha fica 
+ * disponível em {@link #getFailure()} e o servidor deve ser parado com 
+ * {@link #stop()}.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    LockServer server = new LockServer(new InetSocketAddress("127.0.0.1", 8765));
+ *    server.start();
+ *    ...
+ *    server.stop();
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class LockServer {
+
+	private final SocketAddress address;
+	
+	private final int workerCount;
+	
+	private final long leaseTime;
+	
+	private final LockTable table;
+	
+	private final AtomicInteger next;
+	
+	private ServerSocketChannel channel;
+	
+	private volatile LockServerWorker[] workers;
+	
+	private Thread[] threads;
+	
+	private volatile Throwable failure;
+	
+	/**
+	 * Cria um servidor com uma thread por processador e concessão de 10 segundos.
+	 * @param address endereço do servidor.
+	 */
+	public LockServer(SocketAddress address){
+		this(address, Runtime.getRuntime().availableProcessors(), 10, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Cria um servidor.
+	 * @param address endereço do servidor.
+	 * @param workers quantidade de threads que atendem as conexões.
+	 * @param leaseTime tempo máximo sem requisições de uma conexão.
+	 * @param unit unidade de tempo do argumento {@code leaseTime}.
+	 */
+	public LockServer(SocketAddress address, int workers, long leaseTime, TimeUnit unit){
+		if(workers <= 0){
+			throw new IllegalArgumentException("invalid workers: " + workers);
+		}
+		
+		if(leaseTime <= 0){
+			throw new IllegalArgumentException("invalid lease time: " + leaseTime);
+		}
+		
+		this.address     = address;
+		this.workerCount = workers;
+		this.leaseTime   = unit.toNanos(leaseTime);
+		this.table       = new LockTable();
+		this.next        = new AtomicInteger();
+	}
+	
+	/**
+	 * Inicia o servidor.
+	 * @throws IOException Lançada se o endereço não puder ser usado.
+	 */
+	public synchronized void start() throws IOException{
+		if(this.channel != null){
+			throw new IllegalStateException("server already started");
+		}
+		
+		ServerSocketChannel channel = ServerSocketChannel.open();
+		LockServerWorker[] workers  = new LockServerWorker[this.workerCount];
+		
+		try{
+			channel.configureBlocking(false);
+			channel.socket().bind(this.address);
+			
+			for(int i=0;i<workers.length;i++){
+				workers[i] = new LockServerWorker(this, this.table, this.leaseTime);
+			}
+			
+			workers[0].listen(channel);
+		}
+		catch(IOException e){
+			channel.close();
+			throw e;
+		}
+		
+		this.channel = channel;
+		this.workers = workers;
+		this.failure = null;
+		this.threads = new Thread[workers.length];
+		
+		for(int i=0;i<workers.length;i++){
+			this.threads[i] = new Thread(workers[i], "lock-server-" + i);
+			this.threads[i].start();
+		}
+	}
+	
+	/**
+	 * Encerra o servidor e todas as conexões.
+	 */
+	public synchronized void stop(){
+		if(this.channel == null){
+			return;
+		}
+		
+		for(LockServerWorker worker: this.workers){
+			worker.shutdown();
+		}
+		
+		boolean interrupted = false;
+		
+		for(Thread thread: this.threads){
+			for(;;){
+				try{
+					thread.join();
+					break;
+				}
+				catch(InterruptedException e){
+					interrupted = true;
+				}
+			}
+		}
+		
+		try{
+			this.channel.close();
+		}
+		catch(IOException e){
+		}
+		
+		this.channel = null;
+		this.workers = null;
+		this.threads = null;
+		
+		if(interrupted){
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	/**
+	 * Verifica se o servidor foi iniciado e está atendendo as conexões.
+	 * @return <code>true</code> se o servidor está em execução. Caso contrário, 
+	 * <code>false</code>.
+	 */
+	public synchronized boolean isRunning(){
+		return this.channel != null && this.failure == null;
+	}
+	
+	/**
+	 * Obtém a falha que encerrou os workers.
+	 * @return falha ou <code>null</code> se não ocorreu falha.
+	 */
+	public Throwable getFailure(){
+		return this.failure;
+	}
+	
+	/**
+	 * Obtém o endereço em uso pelo servidor.
+	 * @return endereço ou <code>null</code> se o servidor não foi iniciado.
+	 */
+	public synchronized InetSocketAddress getLocalAddress(){
+		return this.channel == null? 
+				null : 
+				(InetSocketAddress)this.channel.socket().getLocalSocketAddress();
+	}
+	
+	/**
+	 * Obtém a quantidade de nomes no registro.
+	 * @return quantidade de nomes.
+	 */
+	public int getRegistrySize(){
+		return this.table.size();
+	}
+	
+	/**
+	 * Obtém a quantidade de conexões abertas.
+	 * @return quantidade de conexões.
+	 */
+	public synchronized int getConnections(){
+		int value = 0;
+		
+		if(this.workers != null){
+			for(LockServerWorker worker: this.workers){
+				value += worker.getSessions();
+			}
+		}
+		
+		return value;
+	}
+	
+	/**
+	 * Registra a falha de um worker e encerra os demais. Não pode depender do 
+	 * monitor do servidor, pois {@link #stop()} espera as threads dos workers 
+	 * com ele.
+	 */
+	void failed(Throwable e){
+		if(this.failure == null){
+			this.failure = e;
+		}
+		
+		LockServerWorker[] workers = this.workers;
+		
+		if(workers != null){
+			for(LockServerWorker worker: workers){
+				worker.shutdown();
+			}
+		}
+	}
+	
+	/**
+	 * Distribui uma nova conexão entre os workers.
+	 */
+	void assign(SocketChannel client){
+		LockServerWorker[] workers = this.workers;
+		workers[(this.next.getAndIncrement() & Integer.MAX_VALUE) % workers.length].accept(client);
+	}
+	
+}
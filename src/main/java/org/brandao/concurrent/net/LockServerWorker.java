@@ -0,0 +1,386 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent.net;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Thread de {@link LockServer} que atende um conjunto de conexões com um 
+ * {@link Selector}.
+ * 
+ * <p>As requisições recebidas em uma leitura são processadas em sequência e as 
+ * respostas produzidas são enviadas juntas ao final. Periodicamente, encerra as 
+ * aquisições com prazo esgotado e as conexões com a concessão expirada.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class LockServerWorker implements Runnable{
+
+	private final LockServer server;
+	
+	private final LockTable table;
+	
+	private final Selector selector;
+	
+	/**
+	 * Conexões aceitas e ainda não registradas.
+	 */
+	private final Queue<SocketChannel> accepted;
+	
+	/**
+	 * Conexões com respostas a enviar.
+	 */
+	private final Queue<Session> scheduled;
+	
+	private final Set<Session> sessions;
+	
+	private volatile int sessionCount;
+	
+	private final long leaseTime;
+	
+	private volatile Thread thread;
+	
+	private volatile boolean running;
+	
+	/**
+	 * Momento da próxima verificação dos prazos. Somente usado pela thread do worker.
+	 */
+	private long nextCheck;
+	
+	public LockServerWorker(LockServer server, LockTable table, long leaseTime) throws IOException{
+		this.server    = server;
+		this.table     = table;
+		this.leaseTime = leaseTime;
+		this.selector  = Selector.open();
+		this.accepted  = new ConcurrentLinkedQueue<SocketChannel>();
+		this.scheduled = new ConcurrentLinkedQueue<Session>();
+		this.sessions  = new HashSet<Session>();
+		this.running   = true;
+	}
+	
+	public void listen(ServerSocketChannel channel) throws IOException{
+		channel.register(this.selector, SelectionKey.OP_ACCEPT);
+	}
+	
+	/**
+	 * Entrega uma nova conexão ao worker.
+	 */
+	public void accept(SocketChannel channel){
+		this.accepted.add(channel);
+		this.wakeup();
+	}
+	
+	/**
+	 * Agenda o envio das respostas de uma conexão.
+	 */
+	public void schedule(Session session){
+		if(session.scheduled.compareAndSet(false, true)){
+			this.scheduled.add(session);
+			this.wakeup();
+		}
+	}
+	
+	public int getSessions(){
+		return this.sessionCount;
+	}
+	
+	public void shutdown(){
+		this.running = false;
+		this.selector.wakeup();
+	}
+	
+	public void run(){
+		this.thread    = Thread.currentThread();
+		this.nextCheck = System.nanoTime();
+		
+		try{
+			while(this.running){
+				long wait = TimeUnit.NANOSECONDS.toMillis(this.nextCheck - System.nanoTime());
+				
+				this.selector.select(Math.max(wait, 1));
+				this.register();
+				
+				Iterator<SelectionKey> keys = this.selector.selectedKeys().iterator();
+				
+				while(keys.hasNext()){
+					SelectionKey key = keys.next();
+					keys.remove();
+					
+					if(!key.isValid()){
+						continue;
+					}
+					
+					if(key.isAcceptable()){
+						this.acceptAll((ServerSocketChannel)key.channel());
+						continue;
+					}
+					
+					Session session = (Session)key.attachment();
+					
+					if(key.isReadable()){
+						this.read(session);
+					}
+					
+					if(key.isValid() && key.isWritable()){
+						this.flush(session);
+					}
+				}
+				
+				this.flushScheduled();
+				this.check();
+			}
+		}
+		catch(Throwable e){
+			this.server.failed(e);
+			
+			if(e instanceof Error){
+				throw (Error)e;
+			}
+		}
+		finally{
+			for(Session session: new HashSet<Session>(this.sessions)){
+				this.close(session);
+			}
+			
+			try{
+				this.selector.close();
+			}
+			catch(IOException e){
+			}
+		}
+	}
+	
+	private void wakeup(){
+		if(Thread.currentThread() != this.thread){
+			this.selector.wakeup();
+		}
+	}
+	
+	private void acceptAll(ServerSocketChannel channel) throws IOException{
+		SocketChannel client;
+		
+		while((client = channel.accept()) != null){
+			this.server.assign(client);
+		}
+	}
+	
+	private void register() throws IOException{
+		SocketChannel channel;
+		
+		while((channel = this.accepted.poll()) != null){
+			Session session = new Session(channel, this);
+			
+			try{
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				session.key = channel.register(this.selector, SelectionKey.OP_READ, session);
+				this.sessions.add(session);
+				this.sessionCount = this.sessions.size();
+			}
+			catch(IOException e){
+				channel.close();
+			}
+		}
+	}
+	
+	private void read(Session session){
+		try{
+			if(session.channel.read(session.in) < 0){
+				this.close(session);
+				return;
+			}
+			
+			session.lastActivity = System.nanoTime();
+			session.in.flip();
+			
+			while(session.in.remaining() >= 4){
+				int size = session.in.getInt(session.in.position());
+				
+				if(size < Protocol.REQUEST_HEADER || size > Protocol.REQUEST_HEADER + Protocol.MAX_NAME_SIZE){
+					throw new IOException("invalid frame: " + size);
+				}
+				
+				if(session.in.remaining() < 4 + size){
+					if(session.in.capacity() < 4 + size){
+						ByteBuffer in = ByteBuffer.allocate(4 + size);
+						in.put(session.in);
+						in.flip();
+						session.in = in;
+					}
+					break;
+				}
+				
+				session.in.getInt();
+				this.process(session, size);
+			}
+			
+			session.in.compact();
+		}
+		catch(IOException e){
+			this.close(session);
+		}
+		catch(RuntimeException e){
+			/*
+			 * Falha no tratamento de uma requisição. Somente a conexão é encerrada.
+			 */
+			this.close(session);
+		}
+	}
+	
+	private void process(Session session, int size) throws IOException{
+		ByteBuffer in    = session.in;
+		byte op          = in.get();
+		long requestId   = in.getLong();
+		long owner       = in.getLong();
+		long arg         = in.getLong();
+		short nameLength = in.getShort();
+		
+		if(nameLength < 0 || Protocol.REQUEST_HEADER + nameLength != size){
+			throw new IOException("invalid name length: " + nameLength);
+		}
+		
+		byte[] name = new byte[nameLength];
+		in.get(name);
+		
+		switch(op){
+		case Protocol.LOCK:
+			long now       = System.nanoTime();
+			long remaining = this.table.acquire(session, requestId, owner, 
+					new String(name, Protocol.CHARSET), arg, now);
+			
+			if(remaining != Long.MAX_VALUE && now + remaining - this.nextCheck < 0){
+				this.nextCheck = now + remaining;
+			}
+			break;
+		case Protocol.UNLOCK:
+			this.table.release(session, requestId, owner, new String(name, Protocol.CHARSET), arg);
+			break;
+		case Protocol.CANCEL:
+			this.table.cancel(session, arg);
+			break;
+		case Protocol.PING:
+			break;
+		default:
+			throw new IOException("invalid operation: " + op);
+		}
+	}
+	
+	private void flushScheduled(){
+		Session session;
+		
+		while((session = this.scheduled.poll()) != null){
+			session.scheduled.set(false);
+			this.flush(session);
+		}
+	}
+	
+	private void flush(Session session){
+		if(session.closed){
+			return;
+		}
+		
+		try{
+			ByteBuffer response;
+			
+			for(;;){
+				while(session.out.remaining() >= Protocol.RESPONSE_SIZE && 
+						(response = session.responses.poll()) != null){
+					session.out.put(response);
+				}
+				
+				session.out.flip();
+				session.channel.write(session.out);
+				boolean pending = session.out.hasRemaining();
+				session.out.compact();
+				
+				if(pending){
+					session.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+					return;
+				}
+				
+				if(session.responses.isEmpty()){
+					session.key.interestOps(SelectionKey.OP_READ);
+					return;
+				}
+			}
+		}
+		catch(IOException e){
+			this.close(session);
+		}
+	}
+	
+	/**
+	 * Encerra as aquisições com prazo esgotado e as conexões com a concessão 
+	 * expirada.
+	 */
+	private void check(){
+		long now = System.nanoTime();
+		
+		if(now - this.nextCheck < 0){
+			return;
+		}
+		
+		long next = this.leaseTime/4;
+		
+		for(Session session: new HashSet<Session>(this.sessions)){
+			if(now - session.lastActivity > this.leaseTime){
+				this.close(session);
+				continue;
+			}
+			
+			next = Math.min(next, this.table.expire(session, now));
+		}
+		
+		this.nextCheck = now + next;
+		this.flushScheduled();
+	}
+	
+	private void close(Session session){
+		if(session.closed){
+			return;
+		}
+		
+		session.closed = true;
+		this.sessions.remove(session);
+		this.sessionCount = this.sessions.size();
+		this.table.close(session);
+		
+		if(session.key != null){
+			session.key.cancel();
+		}
+		
+		try{
+			session.channel.close();
+		}
+		catch(IOException e){
+		}
+	}
+	
+}
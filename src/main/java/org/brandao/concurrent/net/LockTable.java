@@ -0,0 +1,330 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent.net;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro dos nomes de {@link LockServer}.
+ * 
+ * <p>Reproduz a semântica de {@link org.brandao.concurrent.NamedLock}: o bloqueio 
+ * pertence a um dono (a thread do cliente em uma conexão), é reentrante e as 
+ * aquisições em espera são atendidas na ordem de chegada. As esperas não ocupam 
+ * threads: a aquisição fica na fila do nome e a resposta é enviada na concessão, 
+ * no cancelamento ou no fim do prazo.</p>
+ * 
+ * <p>Cada nome possui o seu próprio monitor, portanto os workers somente disputam 
+ * entre si quando usam o mesmo nome. Uma aquisição em espera pertence à fila do 
+ * nome enquanto estiver nela: quem a remove da fila, sob o monitor do nome, decide 
+ * se ela foi concedida, cancelada ou expirada.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class LockTable {
+
+	private final ConcurrentMap<String,Entry> entries;
+	
+	private final AtomicLong tokens;
+	
+	public LockTable(){
+		this.entries = new ConcurrentHashMap<String, Entry>();
+		this.tokens  = new AtomicLong();
+	}
+	
+	/**
+	 * Adquire um nome. A resposta é enviada imediatamente ou quando a aquisição 
+	 * em espera for concluída.
+	 * @return tempo restante, em nanossegundos, do prazo da aquisição em espera ou 
+	 * {@link Long#MAX_VALUE} se não existir prazo.
+	 */
+	public long acquire(Session session, long requestId, long owner, 
+			String name, long timeout, long now){
+		
+		for(;;){
+			Entry entry = this.entries.get(name);
+			
+			if(entry == null){
+				entry = new Entry();
+				Entry current = this.entries.putIfAbsent(name, entry);
+				if(current != null){
+					entry = current;
+				}
+			}
+			
+			synchronized(entry){
+				
+				/*
+				 * O nome foi liberado e removido após a sua obtenção.
+				 */
+				if(entry.removed){
+					continue;
+				}
+				
+				if(entry.session == null){
+					if(!this.grant(entry, name, session, requestId, owner)){
+						this.grantNext(entry, name);
+					}
+					return Long.MAX_VALUE;
+				}
+				
+				if(entry.session == session && entry.owner == owner){
+					entry.holds++;
+					session.respond(Protocol.OK, requestId, entry.token);
+					return Long.MAX_VALUE;
+				}
+				
+				if(timeout == 0){
+					session.respond(Protocol.NOT_ACQUIRED, requestId, 0);
+					return Long.MAX_VALUE;
+				}
+				
+				Waiter waiter = new Waiter(entry, session, requestId, owner, timeout > 0, now + timeout);
+				entry.waiters.add(waiter);
+				session.waiters.put(requestId, waiter);
+				return waiter.timed? timeout : Long.MAX_VALUE;
+			}
+		}
+	}
+	
+	/**
+	 * Libera um nome.
+	 */
+	public void release(Session session, long requestId, long owner, String name, long token){
+		Entry entry = this.entries.get(name);
+		
+		if(entry == null){
+			session.respond(Protocol.INVALID_REFERENCE, requestId, 0);
+			return;
+		}
+		
+		synchronized(entry){
+			if(entry.removed || entry.token != token){
+				session.respond(Protocol.INVALID_REFERENCE, requestId, 0);
+				return;
+			}
+			
+			if(entry.session != session || entry.owner != owner){
+				session.respond(Protocol.ILLEGAL_MONITOR, requestId, 0);
+				return;
+			}
+			
+			if(--entry.holds == 0){
+				session.names.remove(name);
+				this.grantNext(entry, name);
+			}
+			
+			session.respond(Protocol.OK, requestId, token);
+		}
+	}
+	
+	/**
+	 * Cancela uma aquisição em espera. Se a aquisição já foi concluída, nada é feito.
+	 */
+	public void cancel(Session session, long requestId){
+		Waiter waiter = session.waiters.get(requestId);
+		
+		if(waiter != null && this.remove(waiter)){
+			session.respond(Protocol.CANCELLED, requestId, 0);
+		}
+	}
+	
+	/**
+	 * Encerra as aquisições em espera de uma conexão com o prazo esgotado.
+	 * @return menor tempo restante, em nanossegundos, das aquisições com prazo ou 
+	 * {@link Long#MAX_VALUE}.
+	 */
+	public long expire(Session session, long now){
+		long next = Long.MAX_VALUE;
+		
+		for(Waiter waiter: session.waiters.values()){
+			if(!waiter.timed){
+				continue;
+			}
+			
+			long remaining = waiter.deadline - now;
+			
+			if(remaining <= 0){
+				if(this.remove(waiter)){
+					session.respond(Protocol.NOT_ACQUIRED, waiter.requestId, 0);
+				}
+			}
+			else
+			if(remaining < next){
+				next = remaining;
+			}
+		}
+		
+		return next;
+	}
+	
+	/**
+	 * Remove as aquisições em espera e libera os nomes de uma conexão encerrada. 
+	 * A conexão deve estar marcada como encerrada.
+	 */
+	public void close(Session session){
+		for(Waiter waiter: session.waiters.values()){
+			this.remove(waiter);
+		}
+		
+		/*
+		 * Uma concessão feita por outro worker durante o encerramento inclui o 
+		 * nome antes de verificar o encerramento, portanto ele é liberado aqui 
+		 * ou pela própria concessão.
+		 */
+		for(String name: session.names.keySet()){
+			Entry entry = this.entries.get(name);
+			
+			if(entry == null){
+				continue;
+			}
+			
+			synchronized(entry){
+				if(!entry.removed && entry.session == session){
+					session.names.remove(name);
+					this.grantNext(entry, name);
+				}
+			}
+		}
+	}
+	
+	public int size(){
+		return this.entries.size();
+	}
+	
+	/**
+	 * Remove uma aquisição da fila do seu nome.
+	 * @return <code>true</code> se a aquisição ainda estava na fila. Caso contrário, 
+	 * <code>false</code>.
+	 */
+	private boolean remove(Waiter waiter){
+		boolean removed;
+		
+		synchronized(waiter.entry){
+			removed = waiter.entry.waiters.remove(waiter);
+		}
+		
+		if(removed){
+			waiter.session.waiters.remove(waiter.requestId, waiter);
+		}
+		
+		return removed;
+	}
+	
+	/**
+	 * Concede o nome à próxima aquisição em espera ou o remove do registro. 
+	 * Deve ser chamado com o monitor do nome.
+	 */
+	private void grantNext(Entry entry, String name){
+		for(;;){
+			Iterator<Waiter> i = entry.waiters.iterator();
+			
+			if(!i.hasNext()){
+				entry.session = null;
+				entry.removed = true;
+				this.entries.remove(name, entry);
+				return;
+			}
+			
+			Waiter waiter = i.next();
+			i.remove();
+			waiter.session.waiters.remove(waiter.requestId, waiter);
+			
+			if(this.grant(entry, name, waiter.session, waiter.requestId, waiter.owner)){
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Concede o nome. Deve ser chamado com o monitor do nome.
+	 * @return <code>false</code> se a conexão foi encerrada e o nome não foi concedido.
+	 */
+	private boolean grant(Entry entry, String name, Session session, long requestId, long owner){
+		session.names.put(name, Boolean.TRUE);
+		
+		if(session.closed){
+			session.names.remove(name);
+			return false;
+		}
+		
+		entry.session = session;
+		entry.owner   = owner;
+		entry.token   = this.tokens.incrementAndGet();
+		entry.holds   = 1;
+		session.respond(Protocol.OK, requestId, entry.token);
+		return true;
+	}
+	
+	/**
+	 * Estado de um nome. Protegido pelo seu próprio monitor.
+	 */
+	private static class Entry{
+		
+		public Session session;
+		
+		public long owner;
+		
+		public long token;
+		
+		public int holds;
+		
+		/**
+		 * Indica que o nome foi removido do registro.
+		 */
+		public boolean removed;
+		
+		/**
+		 * Aquisições em espera na ordem de chegada.
+		 */
+		public final LinkedHashSet<Waiter> waiters = new LinkedHashSet<Waiter>();
+		
+	}
+	
+	static class Waiter{
+		
+		private final Entry entry;
+		
+		public final Session session;
+		
+		public final long requestId;
+		
+		public final long owner;
+		
+		public final boolean timed;
+		
+		public final long deadline;
+		
+		public Waiter(Entry entry, Session session, long requestId, long owner, 
+				boolean timed, long deadline){
+			this.entry     = entry;
+			this.session   = session;
+			this.requestId = requestId;
+			this.owner     = owner;
+			this.timed     = timed;
+			this.deadline  = deadline;
+		}
+		
+	}
+	
+}
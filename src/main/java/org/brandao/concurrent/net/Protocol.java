@@ -0,0 +1,111 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Protocolo binário entre {@link LockServer} e {@link RemoteNamedLock}.
+ * 
+ * <p>Requisição: tamanho do restante do quadro (int), operação (byte), 
+ * identificação da requisição (long), identificação do dono no cliente (long), 
+ * argumento (long), tamanho do nome (short) e nome em UTF-8.</p>
+ * 
+ * <p>Resposta: situação (byte), identificação da requisição (long) e valor (long).</p>
+ * 
+ * <p>As requisições de uma conexão podem ser enviadas sem esperar as respostas 
+ * das anteriores. As respostas podem chegar fora de ordem e são associadas às 
+ * requisições pela identificação.</p>
+ * 
+ * @author Brandao
+ *
+ */
+final class Protocol {
+
+	/**
+	 * Aquisição. O argumento é o tempo máximo de espera em nanossegundos, 
+	 * <code>0</code> para não esperar ou <code>-1</code> para esperar indefinidamente.
+	 */
+	public static final byte LOCK = 1;
+	
+	/**
+	 * Liberação. O argumento é a identificação do bloqueio devolvida na aquisição.
+	 */
+	public static final byte UNLOCK = 2;
+	
+	/**
+	 * Cancelamento de uma aquisição em espera. O argumento é a identificação da 
+	 * requisição de aquisição.
+	 */
+	public static final byte CANCEL = 3;
+	
+	/**
+	 * Renovação da concessão da conexão.
+	 */
+	public static final byte PING = 4;
+	
+	public static final byte OK = 0;
+	
+	public static final byte NOT_ACQUIRED = 1;
+	
+	public static final byte CANCELLED = 2;
+	
+	public static final byte ILLEGAL_MONITOR = 3;
+	
+	public static final byte INVALID_REFERENCE = 4;
+	
+	public static final byte ERROR = 5;
+	
+	/**
+	 * Tamanho do cabeçalho da requisição, sem o tamanho do quadro e o nome.
+	 */
+	public static final int REQUEST_HEADER = 1 + 8 + 8 + 8 + 2;
+	
+	public static final int RESPONSE_SIZE = 1 + 8 + 8;
+	
+	public static final int MAX_NAME_SIZE = Short.MAX_VALUE;
+	
+	public static final String CHARSET = "UTF-8";
+	
+	private Protocol(){
+	}
+	
+	public static ByteBuffer request(byte op, long requestId, long owner, long arg, byte[] name){
+		if(name.length > MAX_NAME_SIZE){
+			throw new IllegalArgumentException("lock name too long: " + name.length);
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(4 + REQUEST_HEADER + name.length);
+		buffer.putInt(REQUEST_HEADER + name.length);
+		buffer.put(op);
+		buffer.putLong(requestId);
+		buffer.putLong(owner);
+		buffer.putLong(arg);
+		buffer.putShort((short)name.length);
+		buffer.put(name);
+		buffer.flip();
+		return buffer;
+	}
+	
+	public static void response(ByteBuffer buffer, byte status, long requestId, long value){
+		buffer.put(status);
+		buffer.putLong(requestId);
+		buffer.putLong(value);
+	}
+	
+}
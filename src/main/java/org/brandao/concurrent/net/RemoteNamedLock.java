@@ -0,0 +1,427 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent.net;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provê operações de bloqueio baseado em nomes registrados em um {@link LockServer}.
+ * 
+ * <p>Oferece as mesmas operações de bloqueio de {@link org.brandao.concurrent.NamedLock}. 
+ * O bloqueio pertence à thread que o adquiriu e é reentrante. Todas as threads 
+ * compartilham uma conexão e as suas requisições são enviadas sem esperar as 
+ * respostas das demais.</p>
+ * 
+ * <p>A concessão da conexão é renovada periodicamente. Se a JVM for encerrada ou 
+ * a conexão for perdida, o servidor libera os bloqueios adquiridos. Após a perda 
+ * da conexão, as operações lançam {@link IllegalStateException}.</p>
+ * 
+ * <pre>
+ * ex:
+ * 
+ *    RemoteNamedLock namedLock = new RemoteNamedLock(new InetSocketAddress("127.0.0.1", 8765));
+ *    Serializable refLock = namedLock.lock("nome_do_lock");
+ *    try{
+ *       //ações protegidas pelo bloqueio.
+ *    }
+ *    finally{
+ *       namedLock.unlock(refLock, "nome_do_lock");
+ *    }
+ *    
+ * </pre>
+ * 
+ * @author Brandao
+ *
+ */
+public class RemoteNamedLock {
+
+	private final SocketChannel channel;
+	
+	/**
+	 * Requisições à espera da resposta.
+	 */
+	private final ConcurrentMap<Long,Call> calls;
+	
+	private final AtomicLong requests;
+	
+	private final Object writeLock;
+	
+	private final Thread reader;
+	
+	private final Timer renewal;
+	
+	private volatile boolean closed;
+	
+	/**
+	 * Conecta ao servidor e renova a concessão a cada segundo.
+	 * @param address endereço do servidor.
+	 * @throws IOException Lançada se não for possível conectar ao servidor.
+	 */
+	public RemoteNamedLock(SocketAddress address) throws IOException{
+		this(address, 1, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Conecta ao servidor.
+	 * @param address endereço do servidor.
+	 * @param renewInterval intervalo de renovação da concessão. Deve ser inferior 
+	 * à concessão do servidor.
+	 * @param unit unidade de tempo do argumento {@code renewInterval}.
+	 * @throws IOException Lançada se não for possível conectar ao servidor.
+	 */
+	public RemoteNamedLock(SocketAddress address, long renewInterval, TimeUnit unit) throws IOException{
+		long interval = Math.max(unit.toMillis(renewInterval), 1);
+		
+		this.channel   = SocketChannel.open(address);
+		this.channel.socket().setTcpNoDelay(true);
+		this.calls     = new ConcurrentHashMap<Long, Call>();
+		this.requests  = new AtomicLong();
+		this.writeLock = new Object();
+		this.reader    = new Thread(new Reader(), "remote-named-lock-reader");
+		this.renewal   = new Timer("remote-named-lock-renewal", true);
+		
+		this.reader.setDaemon(true);
+		this.reader.start();
+		this.renewal.scheduleAtFixedRate(new Renewal(), interval, interval);
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação do bloqueio associado ao nome.
+	 * @see org.brandao.concurrent.NamedLock#lock(String)
+	 */
+	public Serializable lock(String lockName){
+		try{
+			return this.acquire(lockName, -1, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Adquire um bloqueio com um determinado nome a menos que a thread atual seja interrompida.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação do bloqueio associado ao nome.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see org.brandao.concurrent.NamedLock#lockInterruptibly(String)
+	 */
+	public Serializable lockInterruptibly(String lockName) throws InterruptedException{
+		return this.acquire(lockName, -1, true);
+	}
+	
+	/**
+	 * Tenta adquirir o bloqueio somente se ele estiver livre no momento da invocação.
+	 * @param lockName nome do bloqueio.
+	 * @return identificação do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não for obtido.
+	 * @see org.brandao.concurrent.NamedLock#tryLock(String)
+	 */
+	public Serializable tryLock(String lockName){
+		try{
+			return this.acquire(lockName, 0, false);
+		}
+		catch(InterruptedException e){
+			throw new IllegalStateException("bug: " + e.toString());
+		}
+	}
+	
+	/**
+	 * Tenta adquirir o bloqueio somente se ele estiver livre dentro de um determinado 
+	 * prazo de tempo e a thread atual não for interrompida. O prazo é controlado 
+	 * pelo servidor.
+	 * @param lockName nome do bloqueio.
+	 * @param time tempo máximo de espera para adquirir o bloqueio.
+	 * @param unit unidade de tempo do argumento {@code time}.
+	 * @return identificação do bloqueio associado ao nome ou <code>null</code> se 
+	 * o bloqueio não for obtido dentro do prazo determinado.
+	 * @throws InterruptedException Lançada se a thread atual for interrompida enquanto se está tentando
+	 * obter o bloqueio.
+	 * @see org.brandao.concurrent.NamedLock#tryLock(String, long, TimeUnit)
+	 */
+	public Serializable tryLock(String lockName, long time, TimeUnit unit) throws InterruptedException{
+		return this.acquire(lockName, Math.max(unit.toNanos(time), 1), true);
+	}
+	
+	/**
+	 * Libera o bloqueio com um determinado nome e referência.
+	 * @param ref identificação do bloqueio associado ao nome.
+	 * @param lockName nome do bloqueio.
+	 */
+	public void unlock(Serializable ref, String lockName){
+		if(!(ref instanceof Long)){
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		}
+		
+		Call call = this.invoke(Protocol.UNLOCK, 
+				Thread.currentThread().getId(), ((Long)ref).longValue(), lockName);
+		
+		this.await(call);
+		
+		switch(call.status){
+		case Protocol.OK:
+			return;
+		case Protocol.ILLEGAL_MONITOR:
+			throw new IllegalMonitorStateException(lockName);
+		case Protocol.INVALID_REFERENCE:
+			throw new IllegalStateException("invalid lock reference: " + lockName + ": " + ref);
+		default:
+			throw new IllegalStateException("connection closed");
+		}
+	}
+	
+	/**
+	 * Encerra a conexão. O servidor libera os bloqueios adquiridos por meio dela.
+	 */
+	public void close(){
+		this.closed = true;
+		this.renewal.cancel();
+		
+		try{
+			this.channel.close();
+		}
+		catch(IOException e){
+		}
+	}
+	
+	private Serializable acquire(String lockName, long timeout, 
+			boolean interruptibly) throws InterruptedException{
+		
+		if(interruptibly && Thread.interrupted()){
+			throw new InterruptedException();
+		}
+		
+		Call call = this.invoke(Protocol.LOCK, Thread.currentThread().getId(), timeout, lockName);
+		
+		if(interruptibly){
+			try{
+				call.done.await();
+			}
+			catch(InterruptedException e){
+				this.abandon(call);
+				throw e;
+			}
+		}
+		else{
+			this.await(call);
+		}
+		
+		switch(call.status){
+		case Protocol.OK:
+			return Long.valueOf(call.value);
+		case Protocol.NOT_ACQUIRED:
+		case Protocol.CANCELLED:
+			return null;
+		default:
+			throw new IllegalStateException("connection closed");
+		}
+	}
+	
+	private Call invoke(byte op, long owner, long arg, String lockName){
+		Call call = new Call(this.requests.incrementAndGet(), op, owner, lockName);
+		this.calls.put(call.id, call);
+		
+		try{
+			this.send(op, call.id, owner, arg, lockName);
+		}
+		catch(IOException e){
+			this.calls.remove(call.id);
+			throw new IllegalStateException("connection closed", e);
+		}
+		
+		/*
+		 * A conexão pode ter sido perdida antes do registro da requisição.
+		 */
+		if(this.closed){
+			this.complete(call.id, Protocol.ERROR, 0);
+		}
+		
+		return call;
+	}
+	
+	private void send(byte op, long requestId, long owner, long arg, String lockName) throws IOException{
+		ByteBuffer buffer = 
+				Protocol.request(op, requestId, owner, arg, lockName.getBytes(Protocol.CHARSET));
+		
+		synchronized(this.writeLock){
+			while(buffer.hasRemaining()){
+				this.channel.write(buffer);
+			}
+		}
+	}
+	
+	/**
+	 * Desiste de uma aquisição. Se ela já foi concluída, o bloqueio é liberado.
+	 */
+	private void abandon(Call call){
+		boolean release;
+		boolean cancel;
+		
+		synchronized(call){
+			call.abandoned = true;
+			release        = call.finished && call.status == Protocol.OK;
+			cancel         = !call.finished;
+		}
+		
+		try{
+			if(release){
+				this.send(Protocol.UNLOCK, this.requests.incrementAndGet(), call.owner, call.value, call.name);
+			}
+			else
+			if(cancel){
+				this.send(Protocol.CANCEL, this.requests.incrementAndGet(), call.owner, call.id, call.name);
+			}
+		}
+		catch(IOException e){
+		}
+	}
+	
+	private void complete(long requestId, byte status, long value){
+		Call call = this.calls.remove(requestId);
+		
+		if(call == null){
+			return;
+		}
+		
+		boolean release;
+		
+		synchronized(call){
+			call.status   = status;
+			call.value    = value;
+			call.finished = true;
+			release       = call.abandoned && status == Protocol.OK && call.op == Protocol.LOCK;
+		}
+		
+		call.done.countDown();
+		
+		if(release){
+			try{
+				this.send(Protocol.UNLOCK, this.requests.incrementAndGet(), call.owner, value, call.name);
+			}
+			catch(IOException e){
+			}
+		}
+	}
+	
+	private void await(Call call){
+		boolean interrupted = false;
+		
+		for(;;){
+			try{
+				call.done.await();
+				break;
+			}
+			catch(InterruptedException e){
+				interrupted = true;
+			}
+		}
+		
+		if(interrupted){
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private class Reader implements Runnable{
+		
+		public void run(){
+			ByteBuffer in = ByteBuffer.allocate(4096);
+			
+			try{
+				while(channel.read(in) >= 0){
+					in.flip();
+					
+					while(in.remaining() >= Protocol.RESPONSE_SIZE){
+						byte status    = in.get();
+						long requestId = in.getLong();
+						long value     = in.getLong();
+						complete(requestId, status, value);
+					}
+					
+					in.compact();
+				}
+			}
+			catch(IOException e){
+			}
+			finally{
+				closed = true;
+				renewal.cancel();
+				
+				for(Long requestId: calls.keySet()){
+					complete(requestId, Protocol.ERROR, 0);
+				}
+			}
+		}
+		
+	}
+	
+	private class Renewal extends TimerTask{
+		
+		public void run(){
+			try{
+				send(Protocol.PING, 0, 0, 0, "");
+			}
+			catch(IOException e){
+			}
+		}
+		
+	}
+	
+	private static class Call{
+		
+		public final long id;
+		
+		public final byte op;
+		
+		public final long owner;
+		
+		public final String name;
+		
+		public final CountDownLatch done;
+		
+		public byte status;
+		
+		public long value;
+		
+		public boolean finished;
+		
+		public boolean abandoned;
+		
+		public Call(long id, byte op, long owner, String name){
+			this.id    = id;
+			this.op    = op;
+			this.owner = owner;
+			this.name  = name;
+			this.done  = new CountDownLatch(1);
+		}
+		
+	}
+	
+}
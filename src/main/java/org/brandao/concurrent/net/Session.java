@@ -0,0 +1,116 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.brandao.concurrent.net;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conexão de um cliente em {@link LockServer}.
+ * 
+ * <p>A leitura, a escrita e o controle da concessão são feitos somente pela 
+ * thread do {@link LockServerWorker} da conexão. As respostas podem ser 
+ * produzidas por qualquer thread, pois a liberação de um nome em uma conexão 
+ * pode conceder o bloqueio a outra.</p>
+ * 
+ * @author Brandao
+ *
+ */
+class Session {
+
+	public final SocketChannel channel;
+	
+	public final LockServerWorker worker;
+	
+	public SelectionKey key;
+	
+	/**
+	 * Dados recebidos e ainda não processados.
+	 */
+	public ByteBuffer in;
+	
+	/**
+	 * Dados que serão enviados.
+	 */
+	public final ByteBuffer out;
+	
+	/**
+	 * Respostas que ainda não foram copiadas para {@link #out}.
+	 */
+	public final Queue<ByteBuffer> responses;
+	
+	/**
+	 * Indica que a conexão está na fila de envio do seu worker.
+	 */
+	public final AtomicBoolean scheduled;
+	
+	/**
+	 * Momento, em nanossegundos, da última requisição recebida.
+	 */
+	public long lastActivity;
+	
+	/**
+	 * Aquisições em espera por identificação da requisição. Alterado também pelos 
+	 * workers que concedem os nomes.
+	 */
+	public final ConcurrentMap<Long,LockTable.Waiter> waiters;
+	
+	/**
+	 * Nomes adquiridos. Alterado também pelos workers que concedem os nomes.
+	 */
+	public final ConcurrentMap<String,Boolean> names;
+	
+	public volatile boolean closed;
+	
+	public Session(SocketChannel channel, LockServerWorker worker){
+		this.channel      = channel;
+		this.worker       = worker;
+		this.in           = ByteBuffer.allocate(4096);
+		this.out          = ByteBuffer.allocate(4096);
+		this.responses    = new ConcurrentLinkedQueue<ByteBuffer>();
+		this.scheduled    = new AtomicBoolean();
+		this.waiters      = new ConcurrentHashMap<Long, LockTable.Waiter>();
+		this.names        = new ConcurrentHashMap<String, Boolean>();
+		this.lastActivity = System.nanoTime();
+	}
+	
+	/**
+	 * Envia uma resposta.
+	 * @param status situação.
+	 * @param requestId identificação da requisição.
+	 * @param value valor da resposta.
+	 */
+	public void respond(byte status, long requestId, long value){
+		if(this.closed){
+			return;
+		}
+		
+		ByteBuffer buffer = ByteBuffer.allocate(Protocol.RESPONSE_SIZE);
+		Protocol.response(buffer, status, requestId, value);
+		buffer.flip();
+		this.responses.add(buffer);
+		this.worker.schedule(this);
+	}
+	
+}
@@ -0,0 +1,50 @@
+/*
+ * Named Lock http://namedlock.brandao.org/
+ * Copyright (C) 2006-2016 Afonso Brandao. (afonso.rbn@gmail.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.brandao.concurrent;
+
+import java.lang.ref.Cleaner;
+
+/**
+ * Executa uma ação quando um proxy é descartado pelo coletor de lixo.
+ * 
+ * <p>Versão para o Java 21 ou superior. A ação é registrada em um {@link Cleaner}, 
+ * em vez de depender de {@link Object#finalize()}, e não pode manter o proxy 
+ * alcançável.</p>
+ * 
+ * @author Brandao
+ *
+ */
+final class ProxyReleaser {
+
+	private static final Cleaner CLEANER = Cleaner.create();
+	
+	private ProxyReleaser(){
+	}
+	
+	/**
+	 * Registra a ação executada no descarte de um proxy.
+	 * @param proxy proxy.
+	 * @param action ação.
+	 * @return registro que deve ser mantido pelo <code>InvocationHandler</code> do proxy.
+	 */
+	public static Object register(Object proxy, Runnable action){
+		return CLEANER.register(proxy, action);
+	}
+	
+}
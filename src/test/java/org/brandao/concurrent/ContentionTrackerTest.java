@@ -0,0 +1,132 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import junit.framework.TestCase;
+
+public class ContentionTrackerTest extends TestCase{
+
+	public void testHeavyHitters(){
+		ContentionTracker tracker = new ContentionTracker(50);
+		
+		for(int i=0;i<10000;i++){
+			tracker.record("noise" + i, 1);
+			
+			if(i % 10 == 0){
+				tracker.record("hot", 1);
+			}
+			
+			if(i % 20 == 0){
+				tracker.record("warm", 1000);
+			}
+		}
+		
+		List<ContentionTracker.Entry> byCount = tracker.getTopByCount(2);
+		TestCase.assertEquals(2, byCount.size());
+		TestCase.assertEquals("hot", byCount.get(0).getLockName());
+		TestCase.assertEquals("warm", byCount.get(1).getLockName());
+		TestCase.assertTrue(byCount.get(0).getCount() >= 1000);
+		TestCase.assertTrue(byCount.get(0).getCount() - byCount.get(0).getError() <= 1000);
+		
+		List<ContentionTracker.Entry> byWaitTime = tracker.getTopByWaitTime(1);
+		TestCase.assertEquals(1, byWaitTime.size());
+		TestCase.assertEquals("warm", byWaitTime.get(0).getLockName());
+		TestCase.assertTrue(byWaitTime.get(0).getWaitTime() >= 500000);
+		
+		tracker.reset();
+		TestCase.assertTrue(tracker.getTopByCount(10).isEmpty());
+	}
+	
+	public void testStripedSketch() throws InterruptedException{
+		final SpaceSavingSketch sketch = new SpaceSavingSketch(400, 4);
+		Thread[] threads = new Thread[4];
+		
+		for(int t=0;t<threads.length;t++){
+			threads[t] = new Thread(){
+				
+				public void run(){
+					for(int i=0;i<10000;i++){
+						sketch.offer("key" + (i % 100), i % 100, 1);
+					}
+				}
+				
+			};
+			threads[t].start();
+		}
+		
+		for(Thread th: threads){
+			th.join();
+		}
+		
+		List<SpaceSavingSketch.Counter> top = sketch.top(200);
+		TestCase.assertEquals(100, top.size());
+		
+		for(int i=0;i<top.size();i++){
+			SpaceSavingSketch.Counter c = top.get(i);
+			TestCase.assertEquals("key" + (99 - i), c.key);
+			TestCase.assertEquals(400, c.count);
+			TestCase.assertEquals(0, c.error);
+		}
+		
+		TestCase.assertEquals(3, sketch.top(3).size());
+		
+		sketch.clear();
+		TestCase.assertTrue(sketch.top(10).isEmpty());
+	}
+	
+	public void testNamedLockContention() throws InterruptedException{
+		ContentionTracker tracker = new ContentionTracker(10);
+		List<Integer> queue = new ArrayList<Integer>();
+		NamedLock namedLock = new NamedLock();
+		namedLock.setContentionTracker(tracker);
+		
+		Serializable ref = namedLock.lock("teste");
+		Thread th = new NamedLockHelper.AsyncLock(namedLock, "teste", queue);
+		try{
+			th.start();
+			Thread.sleep(500);
+			Serializable ref2 = namedLock.lock("teste2");
+			namedLock.unlock(ref2, "teste2");
+		}
+		finally{
+			namedLock.unlock(ref, "teste");
+		}
+		
+		th.join();
+		
+		List<ContentionTracker.Entry> top = tracker.getTopByWaitTime(10);
+		TestCase.assertEquals(1, top.size());
+		TestCase.assertEquals("teste", top.get(0).getLockName());
+		TestCase.assertEquals(1, top.get(0).getCount());
+		TestCase.assertTrue(top.get(0).getWaitTime() > 0);
+	}
+
+	public void testLockFactoryContention() throws InterruptedException{
+		ContentionTracker tracker = new ContentionTracker(10);
+		List<Integer> queue = new ArrayList<Integer>();
+		NamedLockFactory lockFactory = new NamedLockFactory();
+		lockFactory.setContentionTracker(tracker);
+		
+		Lock lock = lockFactory.getLock("teste");
+		Thread th = new NamedLockFactoryHelper.AsyncLock(lockFactory, "teste", queue);
+		lock.lock();
+		try{
+			th.start();
+			Thread.sleep(500);
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		th.join();
+		
+		List<ContentionTracker.Entry> top = tracker.getTopByCount(10);
+		TestCase.assertEquals(1, top.size());
+		TestCase.assertEquals("teste", top.get(0).getLockName());
+		TestCase.assertEquals(1, top.get(0).getCount());
+	}
+	
+}
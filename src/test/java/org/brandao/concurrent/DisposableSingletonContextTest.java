@@ -3,9 +3,9 @@ package org.brandao.concurrent;
 import java.lang.reflect.Proxy;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
-import org.brandao.concurrent.DisposableSingletonContext.ObjectHandler;
 
 public class DisposableSingletonContextTest extends TestCase{
 
@@ -21,6 +21,10 @@ public class DisposableSingletonContextTest extends TestCase{
 				return new Object();
 			}
 			
+			public long getInstanceSize() {
+				return 0;
+			}
+			
 		});
 		
 		Object a  = context.getBean("A", "teste");
@@ -28,10 +32,10 @@ public class DisposableSingletonContextTest extends TestCase{
 		Object b = context.getBean("B", "teste");
 		Object bb = context.getBean("B", "teste");
 		
-		Object aHandler = ((ObjectHandler) Proxy.getInvocationHandler(a)).object;
-		Object aaHandler = ((ObjectHandler) Proxy.getInvocationHandler(aa)).object;
-		Object bHandler = ((ObjectHandler) Proxy.getInvocationHandler(b)).object;
-		Object bbHandler = ((ObjectHandler) Proxy.getInvocationHandler(bb)).object;
+		Object aHandler = handlerOf(a).object;
+		Object aaHandler = handlerOf(aa).object;
+		Object bHandler = handlerOf(b).object;
+		Object bbHandler = handlerOf(bb).object;
 		
 		TestCase.assertEquals(aHandler, aaHandler);
 		TestCase.assertEquals(bHandler, bbHandler);
@@ -47,12 +51,55 @@ public class DisposableSingletonContextTest extends TestCase{
 		
 		a = context.getBean("A", "teste");
 		
-		Object newAHandler = ((ObjectHandler) Proxy.getInvocationHandler(a)).object;
+		Object newAHandler = handlerOf(a).object;
 
 		TestCase.assertTrue(aHandler != newAHandler);
 		
 	}
 
+	public void testReferenceCount() throws InterruptedException{
+		DisposableSingletonContext<String> context = 
+				new DisposableSingletonContext<String>();
+		context.registryBeanDefinition("teste", new ObjectFactory() {
+			
+			public void destroy(Object instance) {
+			}
+			
+			public Object createInstance() {
+				return new Object();
+			}
+			
+			public long getInstanceSize() {
+				return 0;
+			}
+			
+		});
+		
+		Object a  = context.getBean("A", "teste");
+		Object aa = context.getBean("A", "teste");
+		
+		Object aHandler = handlerOf(a).object;
+		
+		aa = null;
+		
+		Runtime.getRuntime().gc();
+
+		Thread.sleep(2000);
+		
+		aa = context.getBean("A", "teste");
+		
+		TestCase.assertSame(aHandler, handlerOf(aa).object);
+		
+		a  = null;
+		aa = null;
+		
+		Runtime.getRuntime().gc();
+
+		Thread.sleep(2000);
+		
+		TestCase.assertTrue(context.beans.get("teste").isEmpty());
+	}
+	
 	public void testCreateConcurrent() throws InterruptedException{
 		
 		final List<Object> list = new ArrayList<Object>();
@@ -68,6 +115,10 @@ public class DisposableSingletonContextTest extends TestCase{
 				return new Object();
 			}
 			
+			public long getInstanceSize() {
+				return 0;
+			}
+			
 		});
 		
 		list.add(context.getBean("A", "teste"));
@@ -86,10 +137,10 @@ public class DisposableSingletonContextTest extends TestCase{
 		
 		Thread.sleep(1000);
 		
-		Object reference1 = ((ObjectHandler) Proxy.getInvocationHandler(list.get(0))).object;
-		Object reference2 = ((ObjectHandler) Proxy.getInvocationHandler(list.get(1))).object;
-		Object reference3 = ((ObjectHandler) Proxy.getInvocationHandler(list.get(2))).object;
-		Object reference4 = ((ObjectHandler) Proxy.getInvocationHandler(list.get(3))).object;
+		Object reference1 = handlerOf(list.get(0)).object;
+		Object reference2 = handlerOf(list.get(1)).object;
+		Object reference3 = handlerOf(list.get(2)).object;
+		Object reference4 = handlerOf(list.get(3)).object;
 		
 		TestCase.assertEquals(
 				reference1,
@@ -109,10 +160,53 @@ public class DisposableSingletonContextTest extends TestCase{
 		
 		Object a = context.getBean("A", "teste");
 		
-		Object reference = ((ObjectHandler) Proxy.getInvocationHandler(a)).object;
+		Object reference = handlerOf(a).object;
 
 		TestCase.assertTrue(reference1 != reference);
 		
 	}
 	
-}
\ No newline at end of file
+	public void testIdleTime() throws InterruptedException{
+		DisposableSingletonContext<String> context = 
+				new DisposableSingletonContext<String>();
+		context.registryBeanDefinition("teste", new ObjectFactory() {
+			
+			public void destroy(Object instance) {
+			}
+			
+			public Object createInstance() {
+				return new Object();
+			}
+			
+			public long getInstanceSize() {
+				return 0;
+			}
+			
+		});
+		context.setIdleTime(TimeUnit.MILLISECONDS.toNanos(500));
+		
+		Object a = context.getBean("A", "teste");
+		DisposableSingletonContext<?>.ObjectHandler handler = handlerOf(a);
+		Object aHandler = handler.object;
+		handler.release();
+		
+		TestCase.assertEquals(1, context.beans.get("teste").size());
+		
+		a = context.getBean("A", "teste");
+		handler = handlerOf(a);
+		TestCase.assertSame(aHandler, handler.object);
+		handler.release();
+		
+		for(int i=0;i<50 && !context.beans.get("teste").isEmpty();i++){
+			Thread.sleep(100);
+		}
+		
+		TestCase.assertTrue(context.beans.get("teste").isEmpty());
+		context.setIdleTime(0);
+	}
+	
+	private static DisposableSingletonContext<?>.ObjectHandler handlerOf(Object proxy){
+		return (DisposableSingletonContext<?>.ObjectHandler) Proxy.getInvocationHandler(proxy);
+	}
+	
+}
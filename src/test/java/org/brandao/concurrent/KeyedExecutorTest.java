@@ -0,0 +1,115 @@
+package org.brandao.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class KeyedExecutorTest extends TestCase{
+
+	public void testSerialExecution() throws InterruptedException{
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		try{
+			KeyedExecutor<String> executor = new KeyedExecutor<String>(pool);
+			final AtomicInteger[] active = new AtomicInteger[4];
+			final List<List<Integer>> order = new ArrayList<List<Integer>>();
+			final AtomicInteger errors = new AtomicInteger();
+			final CountDownLatch done  = new CountDownLatch(1000);
+			
+			for(int i=0;i<active.length;i++){
+				active[i] = new AtomicInteger();
+				order.add(Collections.synchronizedList(new ArrayList<Integer>()));
+			}
+			
+			for(int i=0;i<1000;i++){
+				final int key   = i % active.length;
+				final int value = i;
+				executor.execute("key" + key, new Runnable() {
+					
+					public void run() {
+						if(active[key].incrementAndGet() != 1){
+							errors.incrementAndGet();
+						}
+						order.get(key).add(value);
+						Thread.yield();
+						active[key].decrementAndGet();
+						done.countDown();
+					}
+					
+				});
+			}
+			
+			TestCase.assertTrue(done.await(10, TimeUnit.SECONDS));
+			pool.shutdown();
+			TestCase.assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+			
+			TestCase.assertEquals(0, errors.get());
+			TestCase.assertEquals(0, executor.getActiveKeys());
+			
+			for(int i=0;i<active.length;i++){
+				List<Integer> values = order.get(i);
+				TestCase.assertEquals(250, values.size());
+				for(int j=0;j<values.size();j++){
+					TestCase.assertEquals(i + j*active.length, values.get(j).intValue());
+				}
+			}
+		}
+		finally{
+			pool.shutdownNow();
+		}
+	}
+	
+	public void testSubmitAndError() throws Exception{
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try{
+			KeyedExecutor<String> executor = new KeyedExecutor<String>(pool);
+			
+			Future<Integer> error = executor.submit("teste", new Callable<Integer>() {
+				
+				public Integer call() throws Exception {
+					throw new IllegalStateException("teste");
+				}
+				
+			});
+			
+			executor.execute("teste", new Runnable() {
+				
+				public void run() {
+					throw new IllegalStateException("teste");
+				}
+				
+			});
+			
+			Future<Integer> result = executor.submit("teste", new Callable<Integer>() {
+				
+				public Integer call() throws Exception {
+					return 1;
+				}
+				
+			});
+			
+			TestCase.assertEquals(new Integer(1), result.get(5, TimeUnit.SECONDS));
+			
+			try{
+				error.get();
+				TestCase.fail("expected ExecutionException");
+			}
+			catch(ExecutionException e){
+				TestCase.assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+		}
+		finally{
+			pool.shutdownNow();
+		}
+	}
+	
+}
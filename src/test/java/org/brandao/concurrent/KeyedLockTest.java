@@ -0,0 +1,90 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import junit.framework.TestCase;
+
+public class KeyedLockTest extends TestCase{
+
+	public void testCompositeKey() throws InterruptedException{
+		final KeyedLock<List<Object>> keyedLock = new KeyedLock<List<Object>>();
+		final List<Integer> queue               = new ArrayList<Integer>();
+		
+		Serializable ref  = keyedLock.lock(Arrays.<Object>asList("conta", 10L));
+		Serializable ref2 = keyedLock.lock(Arrays.<Object>asList("conta", 10L));
+		
+		TestCase.assertEquals(ref, ref2);
+		TestCase.assertEquals(1, keyedLock.getRegistrySize());
+		
+		Thread th = new Thread(){
+			
+			public void run(){
+				queue.add(keyedLock.tryLock(Arrays.<Object>asList("conta", 10L)) == null? 3 : 2);
+				Serializable ref = keyedLock.tryLock(Arrays.<Object>asList("conta", 11L));
+				queue.add(ref == null? 3 : 2);
+				keyedLock.unlock(ref, Arrays.<Object>asList("conta", 11L));
+			}
+			
+		};
+		
+		th.start();
+		th.join();
+		
+		keyedLock.unlock(ref2, Arrays.<Object>asList("conta", 10L));
+		keyedLock.unlock(ref, Arrays.<Object>asList("conta", 10L));
+		
+		TestCase.assertEquals(2, queue.size());
+		TestCase.assertEquals(new Integer(3), queue.get(0));
+		TestCase.assertEquals(new Integer(2), queue.get(1));
+		TestCase.assertEquals(0, keyedLock.getRegistrySize());
+	}
+	
+	public void testKeyHasher() throws Exception{
+		final KeyedLock<long[]> keyedLock = new KeyedLock<long[]>(new KeyHasher<long[]>(){
+			
+			public int hashCode(long[] key){
+				return Arrays.hashCode(key);
+			}
+			
+			public boolean equals(long[] a, long[] b){
+				return Arrays.equals(a, b);
+			}
+			
+		});
+		final List<Integer> queue = new ArrayList<Integer>();
+		
+		Serializable ref = keyedLock.lock(new long[]{1, 2});
+		
+		Thread th = new Thread(){
+			
+			public void run(){
+				queue.add(keyedLock.tryLock(new long[]{1, 2}) == null? 3 : 2);
+			}
+			
+		};
+		
+		th.start();
+		th.join();
+		
+		keyedLock.unlock(ref, new long[]{1, 2});
+		
+		TestCase.assertEquals(0, keyedLock.getRegistrySize());
+		TestCase.assertEquals(new Integer(3), queue.get(0));
+		
+		Integer value = keyedLock.execute(new long[]{1, 2}, new Callable<Integer>(){
+			
+			public Integer call(){
+				return 7;
+			}
+			
+		});
+		
+		TestCase.assertEquals(new Integer(7), value);
+		TestCase.assertEquals(0, keyedLock.getRegistrySize());
+	}
+	
+}
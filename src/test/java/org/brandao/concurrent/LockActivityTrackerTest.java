@@ -0,0 +1,76 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import junit.framework.TestCase;
+
+public class LockActivityTrackerTest extends TestCase{
+
+	public void testNamedLockSnapshot() throws InterruptedException{
+		LockActivityTracker tracker = new LockActivityTracker();
+		List<Integer> queue = new ArrayList<Integer>();
+		NamedLock namedLock = new NamedLock();
+		namedLock.setActivityTracker(tracker);
+		
+		Serializable ref = namedLock.lock("teste");
+		Thread th = new NamedLockHelper.AsyncLock(namedLock, "teste", queue);
+		try{
+			th.start();
+			Thread.sleep(500);
+			
+			List<LockActivityTracker.Entry> snapshot = tracker.getSnapshot();
+			TestCase.assertEquals(1, snapshot.size());
+			
+			LockActivityTracker.Entry e = snapshot.get(0);
+			TestCase.assertEquals("teste", e.getLockName());
+			TestCase.assertEquals(1, e.getHolders().size());
+			TestCase.assertEquals(Thread.currentThread(), e.getHolders().get(0).getThread());
+			TestCase.assertEquals(Thread.currentThread(), e.getHolders().get(0).getOwner());
+			TestCase.assertTrue(e.getHolders().get(0).getHoldTime() > 0);
+			TestCase.assertEquals(1, e.getWaiterCount());
+			TestCase.assertTrue(e.getOldestWaitTime() > 0);
+			TestCase.assertTrue(tracker.dump().startsWith("teste [holders="));
+		}
+		finally{
+			namedLock.unlock(ref, "teste");
+		}
+		
+		th.join();
+		
+		TestCase.assertTrue(tracker.getSnapshot().isEmpty());
+		TestCase.assertEquals("", tracker.dump());
+	}
+
+	public void testLockFactorySnapshot() throws InterruptedException{
+		LockActivityTracker tracker = new LockActivityTracker();
+		List<Integer> queue = new ArrayList<Integer>();
+		NamedLockFactory lockFactory = new NamedLockFactory();
+		lockFactory.setActivityTracker(tracker);
+		
+		Lock lock = lockFactory.getLock("teste");
+		Thread th = new NamedLockFactoryHelper.AsyncLock(lockFactory, "teste", queue);
+		lock.lock();
+		lock.lock();
+		try{
+			th.start();
+			Thread.sleep(500);
+			lock.unlock();
+			
+			List<LockActivityTracker.Entry> snapshot = tracker.getSnapshot();
+			TestCase.assertEquals(1, snapshot.size());
+			TestCase.assertEquals(1, snapshot.get(0).getHolders().size());
+			TestCase.assertEquals(1, snapshot.get(0).getWaiterCount());
+		}
+		finally{
+			lock.unlock();
+		}
+		
+		th.join();
+		
+		TestCase.assertTrue(tracker.getSnapshot().isEmpty());
+	}
+	
+}
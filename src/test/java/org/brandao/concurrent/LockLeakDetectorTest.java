@@ -0,0 +1,168 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import junit.framework.TestCase;
+
+public class LockLeakDetectorTest extends TestCase{
+
+	public void testNamedLockLeak(){
+		LockLeakDetector detector = new LockLeakDetector(1);
+		NamedLock namedLock = new NamedLock();
+		namedLock.setLeakDetector(detector);
+		
+		Serializable ref  = namedLock.lock("teste");
+		Serializable ref2 = namedLock.lock("teste2");
+		namedLock.unlock(ref2, "teste2");
+		
+		List<LockLeakException> leaks = detector.getLeaks(0, TimeUnit.SECONDS);
+		TestCase.assertEquals(1, leaks.size());
+		TestCase.assertEquals("teste", leaks.get(0).getLockName());
+		TestCase.assertEquals(Thread.currentThread().getName(), leaks.get(0).getThreadName());
+		TestCase.assertEquals("testNamedLockLeak", findTestMethod(leaks.get(0)));
+		TestCase.assertFalse(leaks.get(0).isCollected());
+		TestCase.assertTrue(detector.getLeaks(1, TimeUnit.HOURS).isEmpty());
+		
+		namedLock.unlock(ref, "teste");
+		
+		TestCase.assertTrue(detector.getLeaks(0, TimeUnit.SECONDS).isEmpty());
+		TestCase.assertEquals(0, detector.getTrackedCount());
+	}
+	
+	public void testSamplingRate(){
+		LockLeakDetector detector = new LockLeakDetector(0);
+		NamedLock namedLock = new NamedLock();
+		namedLock.setLeakDetector(detector);
+		
+		namedLock.lock("teste");
+		
+		TestCase.assertEquals(0, detector.getTrackedCount());
+	}
+	
+	public void testLockFactoryCollectedLeak() throws InterruptedException{
+		final List<LockLeakException> leaks = new ArrayList<LockLeakException>();
+		LockLeakDetector detector = new LockLeakDetector(1, new LockLeakListener(){
+			
+			public void leakDetected(LockLeakException leak){
+				leaks.add(leak);
+			}
+			
+		});
+		NamedLockFactory lockFactory = new NamedLockFactory();
+		lockFactory.setLeakDetector(detector);
+		
+		Lock lock = lockFactory.getLock("teste");
+		lock.lock();
+		lock.lock();
+		lock.unlock();
+		TestCase.assertEquals(1, detector.getTrackedCount());
+		lock.unlock();
+		TestCase.assertEquals(0, detector.getTrackedCount());
+		
+		lock = lockFactory.getLock("teste2");
+		lock.lock();
+		lock = null;
+		
+		for(int i=0;i<50 && leaks.isEmpty();i++){
+			System.gc();
+			Thread.sleep(100);
+			detector.expungeCollected();
+		}
+		
+		TestCase.assertEquals(1, leaks.size());
+		TestCase.assertEquals("teste2", leaks.get(0).getLockName());
+		TestCase.assertTrue(leaks.get(0).isCollected());
+	}
+	
+	public void testNamedLockCollectedLeak() throws InterruptedException{
+		final List<LockLeakException> leaks = new ArrayList<LockLeakException>();
+		LockLeakDetector detector = new LockLeakDetector(1, new LockLeakListener(){
+			
+			public void leakDetected(LockLeakException leak){
+				leaks.add(leak);
+			}
+			
+		});
+		NamedLock namedLock = new NamedLock();
+		namedLock.setLeakDetector(detector);
+		
+		Serializable ref = namedLock.lock("teste");
+		TestCase.assertSame(ref, namedLock.lock("teste"));
+		namedLock.unlock(ref, "teste");
+		namedLock.unlock(ref, "teste");
+		TestCase.assertEquals(0, detector.getTrackedCount());
+		
+		ref = namedLock.lock("teste2");
+		ref = null;
+		
+		for(int i=0;i<50 && leaks.isEmpty();i++){
+			System.gc();
+			Thread.sleep(100);
+			detector.expungeCollected();
+		}
+		
+		TestCase.assertEquals(1, leaks.size());
+		TestCase.assertEquals("teste2", leaks.get(0).getLockName());
+		TestCase.assertTrue(leaks.get(0).isCollected());
+		
+		/*
+		 * O bloqueio perdido continua com a thread atual.
+		 */
+		ref = namedLock.lock("teste2");
+		TestCase.assertNotNull(ref);
+		namedLock.unlock(ref, "teste2");
+	}
+	
+	public void testCollectedLeakWithoutListener() throws InterruptedException{
+		final List<Throwable> leaks = new ArrayList<Throwable>();
+		LockLeakDetector detector = new LockLeakDetector(1);
+		NamedLock namedLock = new NamedLock();
+		namedLock.setLeakDetector(detector);
+		
+		Thread current = Thread.currentThread();
+		Thread.UncaughtExceptionHandler handler = current.getUncaughtExceptionHandler();
+		
+		current.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler(){
+			
+			public void uncaughtException(Thread t, Throwable e){
+				leaks.add(e);
+			}
+			
+		});
+		
+		try{
+			Serializable ref = namedLock.lock("teste");
+			ref = null;
+			
+			for(int i=0;i<50 && leaks.isEmpty();i++){
+				System.gc();
+				Thread.sleep(100);
+				detector.expungeCollected();
+			}
+		}
+		finally{
+			current.setUncaughtExceptionHandler(handler);
+		}
+		
+		TestCase.assertEquals(1, leaks.size());
+		TestCase.assertEquals("teste", ((LockLeakException)leaks.get(0)).getLockName());
+		TestCase.assertTrue(((LockLeakException)leaks.get(0)).isCollected());
+		
+		Serializable ref = namedLock.lock("teste");
+		namedLock.unlock(ref, "teste");
+	}
+	
+	private static String findTestMethod(Throwable e){
+		for(StackTraceElement element: e.getStackTrace()){
+			if(element.getClassName().equals(LockLeakDetectorTest.class.getName())){
+				return element.getMethodName();
+			}
+		}
+		return null;
+	}
+	
+}
@@ -0,0 +1,131 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+
+import junit.framework.TestCase;
+
+public class LockOrderValidatorTest extends TestCase{
+
+	private static final LockClassifier PREFIX_CLASSIFIER = new LockClassifier() {
+		
+		public Object getLockClass(Object lockName) {
+			String name = (String)lockName;
+			return name.substring(0, name.indexOf(':'));
+		}
+		
+	};
+	
+	public void testInversion(){
+		NamedLock namedLock = new NamedLock();
+		namedLock.setLockOrderValidator(new LockOrderValidator(PREFIX_CLASSIFIER));
+		
+		Serializable refA = namedLock.lock("a:1");
+		Serializable refB = namedLock.lock("b:1");
+		namedLock.unlock(refB, "b:1");
+		namedLock.unlock(refA, "a:1");
+		
+		refB = namedLock.lock("b:2");
+		try{
+			namedLock.lock("a:2");
+			TestCase.fail("expected LockOrderViolationException");
+		}
+		catch(LockOrderViolationException e){
+			TestCase.assertEquals("b:2", e.getHeldLockName());
+			TestCase.assertEquals("a", e.getRequestedLockClass());
+		}
+		finally{
+			namedLock.unlock(refB, "b:2");
+		}
+		
+		TestCase.assertEquals(0, namedLock.locks.size());
+		TestCase.assertEquals(0, namedLock.origins.size());
+	}
+
+	public void testTransitiveInversion(){
+		final List<LockOrderViolationException> violations = 
+				new ArrayList<LockOrderViolationException>();
+		
+		NamedLock namedLock = new NamedLock();
+		namedLock.setLockOrderValidator(new LockOrderValidator(PREFIX_CLASSIFIER, 
+			new LockOrderListener() {
+				
+				public void violationDetected(LockOrderViolationException violation) {
+					violations.add(violation);
+				}
+				
+			}));
+		
+		Serializable refA = namedLock.lock("a:1");
+		Serializable refB = namedLock.lock("b:1");
+		namedLock.unlock(refB, "b:1");
+		namedLock.unlock(refA, "a:1");
+		
+		refB = namedLock.lock("b:1");
+		Serializable refC = namedLock.lock("c:1");
+		namedLock.unlock(refC, "c:1");
+		namedLock.unlock(refB, "b:1");
+		
+		for(int i=0;i<2;i++){
+			refC = namedLock.lock("c:1");
+			refA = namedLock.lock("a:1");
+			namedLock.unlock(refA, "a:1");
+			namedLock.unlock(refC, "c:1");
+		}
+		
+		TestCase.assertEquals(1, violations.size());
+		TestCase.assertEquals("c", violations.get(0).getHeldLockClass());
+		TestCase.assertEquals("a", violations.get(0).getRequestedLockClass());
+	}
+	
+	public void testSameClassAndReentrant(){
+		LockOrderValidator validator = new LockOrderValidator(PREFIX_CLASSIFIER);
+		NamedLock namedLock = new NamedLock();
+		namedLock.setLockOrderValidator(validator);
+		
+		Serializable ref1 = namedLock.lock("a:1");
+		Serializable ref2 = namedLock.lock("a:2");
+		Serializable ref3 = namedLock.lock("a:1");
+		namedLock.unlock(ref3, "a:1");
+		namedLock.unlock(ref2, "a:2");
+		namedLock.unlock(ref1, "a:1");
+		
+		ref2 = namedLock.lock("a:2");
+		ref1 = namedLock.lock("a:1");
+		namedLock.unlock(ref1, "a:1");
+		namedLock.unlock(ref2, "a:2");
+		
+		TestCase.assertFalse(validator.isOrdered("a", "a"));
+	}
+	
+	public void testLockFactoryInversion(){
+		LockOrderValidator validator = new LockOrderValidator();
+		NamedLockFactory lockFactory = new NamedLockFactory();
+		lockFactory.setLockOrderValidator(validator);
+		
+		Lock a = lockFactory.getLock("a");
+		Lock b = lockFactory.getLock("b");
+		
+		a.lock();
+		b.lock();
+		b.unlock();
+		a.unlock();
+		
+		TestCase.assertTrue(validator.isOrdered("a", "b"));
+		
+		b.lock();
+		try{
+			a.lock();
+			TestCase.fail("expected LockOrderViolationException");
+		}
+		catch(LockOrderViolationException e){
+			TestCase.assertEquals("b", e.getHeldLockClass());
+		}
+		finally{
+			b.unlock();
+		}
+	}
+	
+}
@@ -0,0 +1,57 @@
+package org.brandao.concurrent;
+
+import java.lang.reflect.Field;
+import java.net.URL;
+
+import junit.framework.TestCase;
+
+public class MultiReleaseIT extends TestCase{
+
+	private static boolean isJava21(){
+		String version = System.getProperty("java.specification.version");
+		return version.indexOf('.') == -1 && Integer.parseInt(version) >= 21;
+	}
+	
+	private static void assertLoadedVersion(Class<?> type){
+		String name = type.getName().replace('.', '/') + ".class";
+		URL resource = type.getClassLoader().getResource(name);
+		
+		TestCase.assertNotNull(resource);
+		TestCase.assertEquals("jar", resource.getProtocol());
+		
+		if(isJava21()){
+			TestCase.assertTrue(resource.toString(), 
+					resource.toString().endsWith("!/META-INF/versions/21/" + name));
+		}
+		else{
+			TestCase.assertTrue(resource.toString(), 
+					resource.toString().endsWith("!/" + name));
+		}
+	}
+	
+	private static boolean hasVarHandle(Class<?> type){
+		for(Field field: type.getDeclaredFields()){
+			if(field.getType().getName().equals("java.lang.invoke.VarHandle")){
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	public void testStrategyLockOwner(){
+		TestCase.assertEquals(LockOwner.class, StrategyLock.class.getSuperclass());
+		assertLoadedVersion(LockOwner.class);
+		TestCase.assertEquals(isJava21(), hasVarHandle(LockOwner.class));
+	}
+	
+	public void testBeanUseCount(){
+		TestCase.assertEquals(UseCount.class, DisposableSingletonContext.Bean.class.getSuperclass());
+		assertLoadedVersion(UseCount.class);
+		TestCase.assertEquals(isJava21(), hasVarHandle(UseCount.class));
+	}
+	
+	public void testProxyReleaser(){
+		assertLoadedVersion(ProxyReleaser.class);
+	}
+	
+}
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 
 import junit.framework.TestCase;
 
@@ -282,4 +283,88 @@ public class NamedLockFactoryTest  extends TestCase{
 		
 	}
 	
+	public void testUpgradableLock() throws InterruptedException{
+		
+		final NamedLockFactory namedLock = new NamedLockFactory();
+		final boolean[] result = new boolean[2];
+		
+		Thread other = new Thread(){
+			
+			public void run(){
+				UpgradableReadWriteLock lock = namedLock.getUpgradableReadWriteLock("teste");
+				result[0] = lock.readLock().tryLock();
+				if(result[0]){
+					lock.readLock().unlock();
+				}
+				result[1] = lock.upgradableLock().tryLock();
+				if(result[1]){
+					lock.upgradableLock().unlock();
+				}
+			}
+			
+		};
+		
+		UpgradableReadWriteLock lock = namedLock.getUpgradableReadWriteLock("teste");
+		lock.upgradableLock().lock();
+		try{
+			other.start();
+			other.join();
+			TestCase.assertTrue(result[0]);
+			TestCase.assertFalse(result[1]);
+			
+			lock.writeLock().lock();
+			lock.writeLock().unlock();
+		}
+		finally{
+			lock.upgradableLock().unlock();
+		}
+		
+		TestCase.assertTrue(lock.writeLock().tryLock());
+		lock.writeLock().unlock();
+	}
+	
+	public void testUpgradableLockSharedWithReadWriteLock() throws InterruptedException{
+		
+		final NamedLockFactory namedLock = new NamedLockFactory();
+		final boolean[] result = new boolean[2];
+		
+		Thread other = new Thread(){
+			
+			public void run(){
+				ReadWriteLock lock = namedLock.getReadWriteLock("teste");
+				result[0] = lock.writeLock().tryLock();
+				if(result[0]){
+					lock.writeLock().unlock();
+				}
+				result[1] = lock.readLock().tryLock();
+				if(result[1]){
+					lock.readLock().unlock();
+				}
+			}
+			
+		};
+		
+		UpgradableReadWriteLock lock = namedLock.getUpgradableReadWriteLock("teste");
+		lock.upgradableLock().lock();
+		try{
+			other.start();
+			other.join();
+			TestCase.assertFalse(result[0]);
+			TestCase.assertTrue(result[1]);
+		}
+		finally{
+			lock.upgradableLock().unlock();
+		}
+	}
+	
+	public void testUpgradableLockReaderBiased(){
+		NamedLockFactory namedLock = new NamedLockFactory(null, false, true);
+		try{
+			namedLock.getUpgradableReadWriteLock("teste");
+			TestCase.fail();
+		}
+		catch(UnsupportedOperationException e){
+		}
+	}
+	
 }
@@ -182,4 +182,47 @@ public class NamedLockHelper {
 		
 	}
 	
+	public static class AsyncPriorityLock extends Thread{
+		
+		private NamedLock namedLock;
+		
+		private String lockName;
+		
+		private int priority;
+		
+		private boolean error;
+		
+		private List<Integer> queue;
+		
+		public AsyncPriorityLock(NamedLock namedLock, 
+				String lockName, int priority, List<Integer> queue){
+			this.namedLock = namedLock;
+			this.lockName  = lockName;
+			this.priority  = priority;
+			this.queue     = queue;
+		}
+		
+		public void run(){
+			try{
+				Serializable ref = this.namedLock.lock(this.lockName, this.priority);
+				try{
+					this.queue.add(this.priority);
+				}
+				finally{
+					this.namedLock.unlock(ref, this.lockName);
+				}
+				this.error = false;
+			}
+			catch(Throwable e){
+				error = true;
+				e.printStackTrace();
+			}
+		}
+
+		public boolean isError() {
+			return error;
+		}
+		
+	}
+	
 }
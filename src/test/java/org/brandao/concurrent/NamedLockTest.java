@@ -1,9 +1,14 @@
 package org.brandao.concurrent;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
 
 import junit.framework.TestCase;
 
@@ -334,4 +339,547 @@ public class NamedLockTest extends TestCase{
 		
 	}
 	
+	public void testReentrantLock() throws InterruptedException{
+		
+		List<Integer> queue = new ArrayList<Integer>();
+		NamedLock namedLock = new NamedLock();
+		
+		Serializable ref  = namedLock.lock("teste");
+		Serializable ref2 = namedLock.lock("teste");
+		
+		TestCase.assertSame(ref, ref2);
+		TestCase.assertEquals(1, namedLock.origins.get("teste").size());
+		
+		namedLock.unlock(ref2, "teste");
+		
+		Thread th = new NamedLockHelper.AsyncTryLock(namedLock, "teste", queue);
+		th.start();
+		th.join();
+		
+		namedLock.unlock(ref, "teste");
+		
+		TestCase.assertEquals(0, namedLock.locks.size());
+		TestCase.assertEquals(0, namedLock.origins.size());
+		
+		th = new NamedLockHelper.AsyncTryLock(namedLock, "teste", queue);
+		th.start();
+		th.join();
+		
+		TestCase.assertEquals(2, queue.size());
+		TestCase.assertEquals(new Integer(3), queue.get(0));
+		TestCase.assertEquals(new Integer(2), queue.get(1));
+	}
+	
+	public void testThreadCache() throws InterruptedException{
+		
+		List<Integer> queue = new ArrayList<Integer>();
+		NamedLock namedLock = new NamedLock();
+		namedLock.setThreadCacheSize(2);
+		
+		Serializable ref = namedLock.lock("teste");
+		namedLock.unlock(ref, "teste");
+		
+		TestCase.assertNotNull(namedLock.locks.get("teste"));
+		
+		Serializable ref2 = namedLock.lock("teste");
+		Serializable ref3 = namedLock.tryLock("teste");
+		TestCase.assertNotNull(ref3);
+		TestCase.assertEquals(1, namedLock.origins.get("teste").size());
+		
+		Thread th = new NamedLockHelper.AsyncTryLock(namedLock, "teste", queue);
+		th.start();
+		th.join();
+		
+		namedLock.unlock(ref3, "teste");
+		namedLock.unlock(ref2, "teste");
+		
+		namedLock.unlock(namedLock.lock("teste2"), "teste2");
+		namedLock.unlock(namedLock.lock("teste3"), "teste3");
+		
+		TestCase.assertEquals(1, namedLock.origins.get("teste").size());
+		TestCase.assertEquals(3, namedLock.locks.size());
+		
+		th = new NamedLockHelper.AsyncTryLock(namedLock, "teste", queue);
+		th.start();
+		th.join();
+		
+		ref = namedLock.lock("teste2");
+		namedLock.evictCachedEntries();
+		
+		TestCase.assertEquals(1, namedLock.locks.size());
+		
+		namedLock.unlock(ref, "teste2");
+		
+		TestCase.assertEquals(0, namedLock.locks.size());
+		TestCase.assertEquals(0, namedLock.origins.size());
+		
+		TestCase.assertEquals(2, queue.size());
+		TestCase.assertEquals(new Integer(3), queue.get(0));
+		TestCase.assertEquals(new Integer(2), queue.get(1));
+	}
+	
+	public void testMaxEntries() throws InterruptedException{
+		
+		final NamedLock namedLock = new NamedLock();
+		namedLock.setMaxEntries(1, RegistryOverflowPolicy.FAIL);
+		
+		Serializable ref = namedLock.lock("teste");
+		
+		TestCase.assertTrue(namedLock.getRegistryMemoryUsage() > 0);
+		
+		try{
+			namedLock.lock("teste2");
+			TestCase.fail();
+		}
+		catch(RegistryOverflowException e){
+			TestCase.assertEquals("teste2", e.getLockName());
+		}
+		
+		TestCase.assertNull(namedLock.tryLock("teste2"));
+		
+		try{
+			namedLock.tryLock("teste2", 10, TimeUnit.MILLISECONDS);
+			TestCase.fail();
+		}
+		catch(RegistryOverflowException e){
+			TestCase.assertEquals("teste2", e.getLockName());
+		}
+		
+		namedLock.setMaxEntries(1, RegistryOverflowPolicy.STRIPED);
+		
+		Serializable ref2 = namedLock.lock("teste2");
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		namedLock.unlock(ref2, "teste2");
+		
+		namedLock.setMaxEntries(1, RegistryOverflowPolicy.BLOCK);
+		namedLock.unlock(ref, "teste");
+		
+		final CountDownLatch latch = new CountDownLatch(1);
+		
+		Thread th = new Thread(){
+			
+			public void run(){
+				Serializable ref = namedLock.lock("teste");
+				try{
+					latch.countDown();
+					Thread.sleep(500);
+				}
+				catch(InterruptedException e){
+				}
+				finally{
+					namedLock.unlock(ref, "teste");
+				}
+			}
+			
+		};
+		
+		th.start();
+		latch.await();
+		
+		TestCase.assertNull(namedLock.tryLock("teste2"));
+		TestCase.assertNull(namedLock.tryLock("teste2", 100, TimeUnit.MILLISECONDS));
+		
+		ref2 = namedLock.lock("teste2");
+		th.join();
+		
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		namedLock.unlock(ref2, "teste2");
+		
+		TestCase.assertEquals(0, namedLock.locks.size());
+		TestCase.assertEquals(0, namedLock.origins.size());
+		TestCase.assertEquals(0, namedLock.getRegistryMemoryUsage());
+	}
+	
+	public void testMaxEntriesWithThreadCache() throws InterruptedException{
+		NamedLock namedLock = new NamedLock();
+		namedLock.setThreadCacheSize(1);
+		namedLock.setMaxEntries(1, RegistryOverflowPolicy.BLOCK);
+		
+		Serializable ref = namedLock.lock("teste");
+		namedLock.unlock(ref, "teste");
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		
+		ref = namedLock.tryLock("teste2", 2, TimeUnit.SECONDS);
+		TestCase.assertNotNull(ref);
+		namedLock.unlock(ref, "teste2");
+		
+		ref = namedLock.lock("teste");
+		namedLock.unlock(ref, "teste");
+		
+		namedLock.evictCachedEntries();
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+	public void testReadWriteMaxEntries() throws InterruptedException{
+		NamedLock namedLock = new NamedLock();
+		namedLock.setMaxEntries(1, RegistryOverflowPolicy.FAIL);
+		
+		Serializable ref = namedLock.lockRead("teste");
+		TestCase.assertTrue(namedLock.getRegistryMemoryUsage() > 0);
+		
+		try{
+			namedLock.lockWrite("teste2");
+			TestCase.fail();
+		}
+		catch(RegistryOverflowException e){
+			TestCase.assertEquals("teste2", e.getLockName());
+		}
+		
+		Serializable ref2 = namedLock.lockRead("teste");
+		namedLock.unlock(ref2, "teste");
+		namedLock.unlock(ref, "teste");
+		
+		ref = namedLock.lockWrite("teste2");
+		TestCase.assertEquals(1, namedLock.getReadWriteRegistrySize());
+		namedLock.unlock(ref, "teste2");
+		
+		TestCase.assertEquals(0, namedLock.getReadWriteRegistrySize());
+		TestCase.assertEquals(0, namedLock.getRegistryMemoryUsage());
+	}
+	
+	public void testRegistryMemoryUsageByLockType(){
+		NamedLock namedLock = new NamedLock();
+		
+		Serializable ref = namedLock.lockRead("teste");
+		long upgradable = namedLock.getRegistryMemoryUsage();
+		namedLock.setReaderBiased(true);
+		namedLock.unlock(ref, "teste");
+		TestCase.assertEquals(0, namedLock.getRegistryMemoryUsage());
+		
+		ref = namedLock.lockRead("teste");
+		long readerBiased = namedLock.getRegistryMemoryUsage();
+		namedLock.setReaderBiased(false);
+		namedLock.unlock(ref, "teste");
+		TestCase.assertEquals(0, namedLock.getRegistryMemoryUsage());
+		
+		TestCase.assertEquals(
+				new ReaderBiasedReadWriteLockObjectFactory().getInstanceSize() - 
+				new UpgradableReadWriteLockObjectFactory().getInstanceSize(), 
+				readerBiased - upgradable);
+	}
+	
+	public void testPriorityLock() throws InterruptedException{
+		
+		final List<Integer> queue = new ArrayList<Integer>();
+		final NamedLock namedLock = new NamedLock(10, TimeUnit.SECONDS);
+		
+		Serializable ref = namedLock.lock("teste");
+		
+		Thread low  = new NamedLockHelper.AsyncPriorityLock(namedLock, "teste", 1, queue);
+		Thread high = new NamedLockHelper.AsyncPriorityLock(namedLock, "teste", 5, queue);
+		
+		low.start();
+		Thread.sleep(200);
+		high.start();
+		Thread.sleep(200);
+		
+		namedLock.unlock(ref, "teste");
+		
+		low.join();
+		high.join();
+		
+		TestCase.assertEquals(0, namedLock.locks.size());
+		TestCase.assertEquals(2, queue.size());
+		TestCase.assertEquals(new Integer(5), queue.get(0));
+		TestCase.assertEquals(new Integer(1), queue.get(1));
+	}
+	
+	public void testPriorityLockAging() throws InterruptedException{
+		
+		final List<Integer> queue = new ArrayList<Integer>();
+		final NamedLock namedLock = new NamedLock(10, TimeUnit.MILLISECONDS);
+		
+		Serializable ref = namedLock.lock("teste");
+		
+		Thread low  = new NamedLockHelper.AsyncPriorityLock(namedLock, "teste", 1, queue);
+		Thread high = new NamedLockHelper.AsyncPriorityLock(namedLock, "teste", 5, queue);
+		
+		low.start();
+		Thread.sleep(500);
+		high.start();
+		Thread.sleep(50);
+		
+		namedLock.unlock(ref, "teste");
+		
+		low.join();
+		high.join();
+		
+		TestCase.assertEquals(2, queue.size());
+		TestCase.assertEquals(new Integer(1), queue.get(0));
+		TestCase.assertEquals(new Integer(5), queue.get(1));
+	}
+	
+	public void testUpgradableLock() throws InterruptedException{
+		
+		final NamedLock namedLock = new NamedLock();
+		final List<Integer> queue = new ArrayList<Integer>();
+		
+		Serializable ref = namedLock.lockUpgradable("teste");
+		
+		Thread upgradable = new Thread(){
+			
+			public void run(){
+				Serializable ref = namedLock.lockUpgradable("teste");
+				synchronized(queue){
+					queue.add(3);
+				}
+				namedLock.unlock(ref, "teste");
+			}
+			
+		};
+		
+		Thread reader = new Thread(){
+			
+			public void run(){
+				Serializable ref = namedLock.lockRead("teste");
+				try{
+					Thread.sleep(500);
+				}
+				catch(InterruptedException e){
+				}
+				synchronized(queue){
+					queue.add(1);
+				}
+				namedLock.unlock(ref, "teste");
+			}
+			
+		};
+		
+		upgradable.start();
+		reader.start();
+		Thread.sleep(200);
+		
+		namedLock.upgrade(ref, "teste");
+		synchronized(queue){
+			queue.add(2);
+		}
+		namedLock.downgrade(ref, "teste");
+		
+		Serializable readRef = namedLock.lockRead("teste");
+		namedLock.unlock(readRef, "teste");
+		
+		Thread.sleep(200);
+		synchronized(queue){
+			TestCase.assertEquals(2, queue.size());
+		}
+		
+		namedLock.unlock(ref, "teste");
+		upgradable.join();
+		reader.join();
+		
+		TestCase.assertEquals(3, queue.size());
+		TestCase.assertEquals(new Integer(1), queue.get(0));
+		TestCase.assertEquals(new Integer(2), queue.get(1));
+		TestCase.assertEquals(new Integer(3), queue.get(2));
+		TestCase.assertEquals(0, namedLock.getReadWriteRegistrySize());
+		TestCase.assertEquals(0, namedLock.getRegistryMemoryUsage());
+	}
+	
+	public void testReaderBiasedLock() throws InterruptedException{
+		
+		final NamedLock namedLock = new NamedLock();
+		namedLock.setReaderBiased(true);
+		
+		Serializable read1 = namedLock.lockRead("teste");
+		Serializable read2 = namedLock.lockRead("teste");
+		
+		try{
+			namedLock.lockUpgradable("teste");
+			TestCase.fail("expected UnsupportedOperationException");
+		}
+		catch(UnsupportedOperationException e){
+		}
+		
+		namedLock.unlock(read1, "teste");
+		namedLock.unlock(read2, "teste");
+		
+		Serializable write = namedLock.lockWrite("teste");
+		namedLock.unlock(write, "teste");
+		
+		TestCase.assertTrue(namedLock.isReaderBiased());
+		TestCase.assertEquals(0, namedLock.getReadWriteRegistrySize());
+		TestCase.assertEquals(0, namedLock.getRegistryMemoryUsage());
+	}
+	
+	public void testUnlockAllByThread() throws InterruptedException{
+		
+		List<Integer> queue = new ArrayList<Integer>();
+		NamedLock namedLock = new NamedLock();
+		namedLock.setOwnerTracking(true);
+		
+		namedLock.lock("teste");
+		namedLock.lock("teste2");
+		namedLock.lock("teste");
+		Serializable ref = namedLock.lock("teste3");
+		namedLock.unlock(ref, "teste3");
+		
+		TestCase.assertEquals(3, namedLock.unlockAll(Thread.currentThread()));
+		TestCase.assertEquals(0, namedLock.unlockAll());
+		
+		TestCase.assertEquals(0, namedLock.locks.size());
+		TestCase.assertEquals(0, namedLock.origins.size());
+		
+		Thread th = new NamedLockHelper.AsyncTryLock(namedLock, "teste", queue);
+		th.start();
+		th.join();
+		
+		TestCase.assertEquals(1, queue.size());
+		TestCase.assertEquals(new Integer(2), queue.get(0));
+	}
+	
+	public void testUnlockAllByOwner(){
+		
+		NamedLock namedLock = new NamedLock();
+		namedLock.setOwnerTracking(true);
+		
+		Object owner = new Object();
+		Serializable ref = namedLock.lock("teste");
+		
+		namedLock.setCurrentOwner(owner);
+		try{
+			TestCase.assertSame(owner, namedLock.getCurrentOwner());
+			namedLock.lock("teste2");
+			namedLock.lock("teste3");
+		}
+		finally{
+			TestCase.assertEquals(2, namedLock.unlockAll(owner));
+			namedLock.setCurrentOwner(null);
+		}
+		
+		TestCase.assertSame(Thread.currentThread(), namedLock.getCurrentOwner());
+		TestCase.assertEquals(1, namedLock.locks.size());
+		TestCase.assertEquals(1, namedLock.origins.size());
+		
+		namedLock.unlock(ref, "teste");
+		TestCase.assertEquals(0, namedLock.unlockAll());
+		TestCase.assertEquals(0, namedLock.locks.size());
+		TestCase.assertEquals(0, namedLock.origins.size());
+	}
+	
+	public void testExecute() throws Exception{
+		
+		final NamedLock namedLock = new NamedLock();
+		final int[] counter = new int[1];
+		final Callable<Integer> increment = new Callable<Integer>() {
+			
+			public Integer call() throws Exception {
+				return ++counter[0];
+			}
+			
+		};
+		
+		final Throwable[] errors = new Throwable[1];
+		Thread[] threads = new Thread[8];
+		
+		for(int i=0;i<threads.length;i++){
+			threads[i] = new Thread(){
+				
+				public void run(){
+					try{
+						for(int j=0;j<5000;j++){
+							namedLock.execute("teste", increment);
+						}
+					}
+					catch(Throwable e){
+						errors[0] = e;
+					}
+				}
+				
+			};
+			threads[i].start();
+		}
+		
+		Serializable ref = namedLock.lock("teste");
+		try{
+			counter[0] += 5000;
+		}
+		finally{
+			namedLock.unlock(ref, "teste");
+		}
+		
+		for(Thread th: threads){
+			th.join();
+		}
+		
+		TestCase.assertNull(errors[0]);
+		TestCase.assertEquals(new Integer(45001), namedLock.execute("teste", increment));
+		
+		TestCase.assertEquals(0, namedLock.combiningSlots.size());
+		TestCase.assertEquals(0, namedLock.locks.size());
+		TestCase.assertEquals(0, namedLock.origins.size());
+	}
+	
+	public void testExecuteError() throws Exception{
+		
+		NamedLock namedLock = new NamedLock();
+		
+		try{
+			namedLock.execute("teste", new Callable<Object>() {
+				
+				public Object call() throws Exception {
+					throw new IOException("teste");
+				}
+				
+			});
+			TestCase.fail("expected IOException");
+		}
+		catch(IOException e){
+		}
+		
+		TestCase.assertEquals(0, namedLock.combiningSlots.size());
+		TestCase.assertEquals(0, namedLock.locks.size());
+		TestCase.assertEquals(0, namedLock.origins.size());
+	}
+	
+	public void testIdleTime() throws InterruptedException{
+		NamedLock namedLock = new NamedLock();
+		namedLock.setIdleTime(500, TimeUnit.MILLISECONDS);
+		
+		Serializable ref = namedLock.lock("teste");
+		Lock lock        = namedLock.locks.get("teste");
+		namedLock.unlock(ref, "teste");
+		
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		
+		ref = namedLock.lock("teste");
+		TestCase.assertSame(lock, namedLock.locks.get("teste"));
+		namedLock.unlock(ref, "teste");
+		
+		ref = namedLock.lockRead("teste");
+		namedLock.unlock(ref, "teste");
+		TestCase.assertEquals(1, namedLock.getReadWriteRegistrySize());
+		
+		for(int i=0;i<50 && (namedLock.getRegistrySize() != 0 || namedLock.getReadWriteRegistrySize() != 0);i++){
+			Thread.sleep(100);
+		}
+		
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+		TestCase.assertEquals(0, namedLock.getReadWriteRegistrySize());
+		
+		namedLock.setMaxEntries(1, RegistryOverflowPolicy.FAIL);
+		ref = namedLock.lock("teste");
+		namedLock.unlock(ref, "teste");
+		ref = namedLock.lock("teste2");
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		namedLock.unlock(ref, "teste2");
+		
+		namedLock.setIdleTime(0, TimeUnit.MILLISECONDS);
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+	public void testIdleSweeperReference() throws InterruptedException{
+		NamedLock namedLock = new NamedLock();
+		namedLock.setIdleTime(1, TimeUnit.MINUTES);
+		
+		WeakReference<NamedLock> reference = new WeakReference<NamedLock>(namedLock);
+		namedLock = null;
+		
+		for(int i=0;i<50 && reference.get() != null;i++){
+			System.gc();
+			Thread.sleep(100);
+		}
+		
+		TestCase.assertNull(reference.get());
+	}
+	
 }
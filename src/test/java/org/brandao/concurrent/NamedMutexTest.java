@@ -0,0 +1,68 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class NamedMutexTest extends TestCase{
+
+	public void testTryLock() throws InterruptedException{
+		final NamedMutex namedMutex = new NamedMutex();
+		final List<Serializable> refs = new ArrayList<Serializable>();
+		
+		Serializable ref = namedMutex.tryLock("teste");
+		
+		TestCase.assertNotNull(ref);
+		TestCase.assertNull(namedMutex.tryLock("teste"));
+		TestCase.assertTrue(namedMutex.isLocked("teste"));
+		TestCase.assertEquals(1, namedMutex.getRegistrySize());
+		
+		Thread th = new Thread(){
+			
+			public void run(){
+				refs.add(namedMutex.tryLock("teste"));
+				refs.add(namedMutex.tryLock("teste2"));
+			}
+			
+		};
+		
+		th.start();
+		th.join();
+		
+		TestCase.assertNull(refs.get(0));
+		TestCase.assertNotNull(refs.get(1));
+		
+		namedMutex.unlock(ref, "teste");
+		namedMutex.unlock(refs.get(1), "teste2");
+		
+		TestCase.assertFalse(namedMutex.isLocked("teste"));
+		TestCase.assertEquals(0, namedMutex.getRegistrySize());
+	}
+	
+	public void testInvalidReference(){
+		NamedMutex namedMutex = new NamedMutex();
+		Serializable ref  = namedMutex.tryLock("teste");
+		Serializable ref2 = namedMutex.tryLock("teste2");
+		
+		try{
+			namedMutex.unlock(ref2, "teste");
+			TestCase.fail();
+		}
+		catch(IllegalStateException e){
+		}
+		
+		namedMutex.unlock(ref, "teste");
+		
+		try{
+			namedMutex.unlock(ref, "teste");
+			TestCase.fail();
+		}
+		catch(IllegalStateException e){
+		}
+		
+		TestCase.assertEquals(1, namedMutex.getRegistrySize());
+	}
+	
+}
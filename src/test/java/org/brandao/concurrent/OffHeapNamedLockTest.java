@@ -0,0 +1,152 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class OffHeapNamedLockTest extends TestCase{
+
+	public void testLock() throws InterruptedException{
+		final OffHeapNamedLock namedLock = new OffHeapNamedLock();
+		final List<Integer> queue        = new ArrayList<Integer>();
+		
+		Serializable ref  = namedLock.lock("teste");
+		Serializable ref2 = namedLock.lock("teste");
+		
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		
+		Thread th = new Thread(){
+			
+			public void run(){
+				queue.add(namedLock.tryLock("teste") == null? 3 : 2);
+			}
+			
+		};
+		
+		th.start();
+		th.join();
+		
+		namedLock.unlock(ref2, "teste");
+		namedLock.unlock(ref, "teste");
+		
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+		
+		th = new Thread(){
+			
+			public void run(){
+				Serializable ref = namedLock.tryLock("teste");
+				queue.add(ref == null? 3 : 2);
+				namedLock.unlock(ref, "teste");
+			}
+			
+		};
+		
+		th.start();
+		th.join();
+		
+		TestCase.assertEquals(2, queue.size());
+		TestCase.assertEquals(new Integer(3), queue.get(0));
+		TestCase.assertEquals(new Integer(2), queue.get(1));
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+	public void testWait() throws InterruptedException{
+		final OffHeapNamedLock namedLock = new OffHeapNamedLock(1, 2);
+		final CountDownLatch latch       = new CountDownLatch(1);
+		
+		Thread th = new Thread(){
+			
+			public void run(){
+				Serializable ref = namedLock.lock("teste");
+				try{
+					latch.countDown();
+					Thread.sleep(500);
+				}
+				catch(InterruptedException e){
+				}
+				finally{
+					namedLock.unlock(ref, "teste");
+				}
+			}
+			
+		};
+		
+		th.start();
+		latch.await();
+		
+		TestCase.assertNull(namedLock.tryLock("teste", 100, TimeUnit.MILLISECONDS));
+		
+		Serializable ref = namedLock.lock("teste");
+		th.join();
+		
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		namedLock.unlock(ref, "teste");
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+	public void testManyNames() throws InterruptedException{
+		OffHeapNamedLock namedLock = new OffHeapNamedLock(4, 2);
+		List<Serializable> refs    = new ArrayList<Serializable>();
+		
+		for(int i=0;i<10000;i++){
+			refs.add(namedLock.lock("teste" + i));
+		}
+		
+		TestCase.assertEquals(10000, namedLock.getRegistrySize());
+		
+		for(int i=0;i<10000;i += 2){
+			namedLock.unlock(refs.get(i), "teste" + i);
+		}
+		
+		TestCase.assertEquals(5000, namedLock.getRegistrySize());
+		
+		for(int i=1;i<10000;i += 2){
+			TestCase.assertNotNull(namedLock.tryLock("teste" + i));
+			namedLock.unlock(refs.get(i), "teste" + i);
+			namedLock.unlock(refs.get(i), "teste" + i);
+		}
+		
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+	public void testMutualExclusion() throws InterruptedException{
+		final OffHeapNamedLock namedLock = new OffHeapNamedLock(2, 2);
+		final int[] counters             = new int[16];
+		Thread[] threads                 = new Thread[8];
+		
+		for(int t=0;t<threads.length;t++){
+			threads[t] = new Thread(){
+				
+				public void run(){
+					for(int i=0;i<2000;i++){
+						int name         = i % counters.length;
+						Serializable ref = namedLock.lock("teste" + name);
+						try{
+							counters[name]++;
+						}
+						finally{
+							namedLock.unlock(ref, "teste" + name);
+						}
+					}
+				}
+				
+			};
+			threads[t].start();
+		}
+		
+		for(Thread th: threads){
+			th.join();
+		}
+		
+		for(int value: counters){
+			TestCase.assertEquals(threads.length*2000/counters.length, value);
+		}
+		
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+}
@@ -0,0 +1,190 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class RangeLockTest extends TestCase{
+
+	public void testExclusive() throws InterruptedException{
+		RangeLock rangeLock = new RangeLock();
+		
+		Serializable ref  = rangeLock.lock(1000, 2000);
+		Serializable ref2 = rangeLock.lock(2000, 3000);
+		Serializable ref3 = rangeLock.tryLock(0, 1000, false);
+		
+		TestCase.assertNotNull(ref3);
+		TestCase.assertNull(rangeLock.tryLock(1999, 2001, false));
+		TestCase.assertNull(rangeLock.tryLock(500, 1500, true));
+		TestCase.assertNull(rangeLock.tryLock(1500, 1501, false, 100, TimeUnit.MILLISECONDS));
+		TestCase.assertEquals(3, rangeLock.getGrantedCount());
+		TestCase.assertEquals(0, rangeLock.getWaitingCount());
+		
+		rangeLock.unlock(ref);
+		rangeLock.unlock(ref2);
+		rangeLock.unlock(ref3);
+		
+		try{
+			rangeLock.unlock(ref);
+			TestCase.fail("expected IllegalStateException");
+		}
+		catch(IllegalStateException e){
+		}
+		
+		try{
+			rangeLock.lock(10, 10);
+			TestCase.fail("expected IllegalArgumentException");
+		}
+		catch(IllegalArgumentException e){
+		}
+		
+		TestCase.assertEquals(0, rangeLock.getGrantedCount());
+	}
+	
+	public void testInterruptAfterGrant() throws InterruptedException{
+		final RangeLock rangeLock = new RangeLock();
+		final Serializable[] result = new Serializable[1];
+		final boolean[] interrupted = new boolean[1];
+		
+		Serializable ref = rangeLock.lock(0, 1000);
+		
+		Thread thread = new Thread(){
+			
+			public void run(){
+				try{
+					result[0]      = rangeLock.lockInterruptibly(500, 1500, false);
+					interrupted[0] = Thread.currentThread().isInterrupted();
+				}
+				catch(InterruptedException e){
+				}
+			}
+			
+		};
+		
+		thread.start();
+		
+		while(rangeLock.getWaitingCount() == 0){
+			Thread.sleep(10);
+		}
+		
+		/*
+		 * A interrupção ocorre antes da concessão, mas a thread somente a trata 
+		 * após obter o bloqueio interno.
+		 */
+		rangeLock._lock.lock();
+		try{
+			thread.interrupt();
+			Thread.sleep(100);
+			rangeLock.unlock(ref);
+		}
+		finally{
+			rangeLock._lock.unlock();
+		}
+		
+		thread.join();
+		
+		TestCase.assertNotNull(result[0]);
+		TestCase.assertTrue(interrupted[0]);
+		TestCase.assertEquals(1, rangeLock.getGrantedCount());
+		
+		rangeLock.unlock(result[0]);
+		TestCase.assertEquals(0, rangeLock.getGrantedCount());
+		TestCase.assertEquals(0, rangeLock.getWaitingCount());
+	}
+	
+	public void testShared() throws InterruptedException{
+		final RangeLock rangeLock = new RangeLock();
+		final List<Integer> queue = new ArrayList<Integer>();
+		
+		Serializable ref  = rangeLock.lockShared(0, 100);
+		Serializable ref2 = rangeLock.lockShared(50, 150);
+		
+		TestCase.assertNull(rangeLock.tryLock(140, 160, false));
+		
+		Thread writer = new Thread(){
+			
+			public void run(){
+				Serializable ref = rangeLock.lock(90, 110);
+				synchronized(queue){
+					queue.add(1);
+				}
+				rangeLock.unlock(ref);
+			}
+			
+		};
+		
+		Thread reader = new Thread(){
+			
+			public void run(){
+				Serializable ref = rangeLock.lockShared(100, 120);
+				synchronized(queue){
+					queue.add(2);
+				}
+				rangeLock.unlock(ref);
+			}
+			
+		};
+		
+		writer.start();
+		Thread.sleep(200);
+		reader.start();
+		Thread.sleep(200);
+		
+		/*
+		 * O leitor espera pelo escritor que chegou antes.
+		 */
+		TestCase.assertEquals(2, rangeLock.getWaitingCount());
+		TestCase.assertNotNull(rangeLock.tryLock(200, 300, true));
+		
+		rangeLock.unlock(ref);
+		rangeLock.unlock(ref2);
+		
+		writer.join();
+		reader.join();
+		
+		TestCase.assertEquals(new Integer(1), queue.get(0));
+		TestCase.assertEquals(new Integer(2), queue.get(1));
+		TestCase.assertEquals(0, rangeLock.getWaitingCount());
+		TestCase.assertEquals(1, rangeLock.getGrantedCount());
+	}
+	
+	public void testRangeTree(){
+		Random random                     = new Random(1);
+		RangeTree tree                    = new RangeTree();
+		List<RangeTree.Interval> intervals = new ArrayList<RangeTree.Interval>();
+		
+		for(int i=0;i<2000;i++){
+			if(!intervals.isEmpty() && random.nextInt(3) == 0){
+				RangeTree.Interval value = intervals.remove(random.nextInt(intervals.size()));
+				TestCase.assertTrue(tree.remove(value));
+				TestCase.assertFalse(tree.remove(value));
+			}
+			else{
+				long start = random.nextInt(10000);
+				RangeTree.Interval value = 
+					new RangeTree.Interval(i, start, start + 1 + random.nextInt(200), random.nextBoolean());
+				intervals.add(value);
+				tree.insert(value);
+			}
+			
+			long start = random.nextInt(10000);
+			RangeTree.Interval query = 
+				new RangeTree.Interval(-1, start, start + 1 + random.nextInt(200), random.nextBoolean());
+			
+			boolean expected = false;
+			for(RangeTree.Interval value: intervals){
+				expected |= value.conflicts(query);
+			}
+			
+			RangeTree.Interval conflict = tree.findConflict(query.start, query.end, query.shared);
+			TestCase.assertEquals(expected, conflict != null);
+			TestCase.assertTrue(conflict == null || conflict.conflicts(query));
+			TestCase.assertEquals(intervals.size(), tree.size());
+		}
+	}
+	
+}
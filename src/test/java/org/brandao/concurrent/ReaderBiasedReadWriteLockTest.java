@@ -0,0 +1,139 @@
+package org.brandao.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+import junit.framework.TestCase;
+
+public class ReaderBiasedReadWriteLockTest extends TestCase{
+
+	public void testReadersExcludeWriter() throws InterruptedException{
+		
+		final ReaderBiasedReadWriteLock lock = new ReaderBiasedReadWriteLock();
+		final boolean[] result = new boolean[2];
+		
+		lock.readLock().lock();
+		
+		Thread other = new Thread(){
+			
+			public void run(){
+				result[0] = lock.readLock().tryLock();
+				if(result[0]){
+					lock.readLock().unlock();
+				}
+				result[1] = lock.writeLock().tryLock();
+				if(result[1]){
+					lock.writeLock().unlock();
+				}
+			}
+			
+		};
+		
+		other.start();
+		other.join();
+		
+		TestCase.assertTrue(result[0]);
+		TestCase.assertFalse(result[1]);
+		
+		lock.readLock().unlock();
+		TestCase.assertTrue(lock.writeLock().tryLock(100, TimeUnit.MILLISECONDS));
+		
+		other = new Thread(){
+			
+			public void run(){
+				result[0] = lock.readLock().tryLock();
+				if(result[0]){
+					lock.readLock().unlock();
+				}
+			}
+			
+		};
+		
+		other.start();
+		other.join();
+		TestCase.assertFalse(result[0]);
+		
+		lock.readLock().lock();
+		lock.writeLock().unlock();
+		lock.readLock().unlock();
+	}
+	
+	public void testReentrantReadWithWaitingWriter() throws InterruptedException{
+		
+		final ReaderBiasedReadWriteLock lock = new ReaderBiasedReadWriteLock();
+		final CountDownLatch writing = new CountDownLatch(1);
+		
+		lock.readLock().lock();
+		
+		Thread writer = new Thread(){
+			
+			public void run(){
+				lock.writeLock().lock();
+				writing.countDown();
+				lock.writeLock().unlock();
+			}
+			
+		};
+		
+		writer.start();
+		Thread.sleep(200);
+		
+		lock.readLock().lock();
+		lock.readLock().unlock();
+		TestCase.assertEquals(1, writing.getCount());
+		
+		lock.readLock().unlock();
+		TestCase.assertTrue(writing.await(5, TimeUnit.SECONDS));
+		writer.join();
+	}
+	
+	public void testMutualExclusion() throws InterruptedException{
+		
+		final ReaderBiasedReadWriteLock lock = new ReaderBiasedReadWriteLock();
+		final AtomicInteger readers = new AtomicInteger();
+		final AtomicInteger errors  = new AtomicInteger();
+		final int[] counter = new int[1];
+		
+		Thread[] threads = new Thread[8];
+		
+		for(int i=0;i<threads.length;i++){
+			final boolean write = i % 4 == 0;
+			threads[i] = new Thread(){
+				
+				public void run(){
+					Lock l = write? lock.writeLock() : lock.readLock();
+					for(int j=0;j<2000;j++){
+						l.lock();
+						try{
+							if(write){
+								if(readers.get() != 0){
+									errors.incrementAndGet();
+								}
+								counter[0]++;
+							}
+							else{
+								readers.incrementAndGet();
+								readers.decrementAndGet();
+							}
+						}
+						finally{
+							l.unlock();
+						}
+					}
+				}
+				
+			};
+			threads[i].start();
+		}
+		
+		for(Thread th: threads){
+			th.join();
+		}
+		
+		TestCase.assertEquals(0, errors.get());
+		TestCase.assertEquals(4000, counter[0]);
+	}
+	
+}
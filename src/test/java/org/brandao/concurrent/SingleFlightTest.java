@@ -0,0 +1,112 @@
+package org.brandao.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class SingleFlightTest extends TestCase{
+
+	public void testSharedExecution() throws Exception{
+		final SingleFlight<String, Integer> singleFlight = new SingleFlight<String, Integer>();
+		final AtomicInteger executions = new AtomicInteger();
+		final AtomicInteger results    = new AtomicInteger();
+		final CountDownLatch started   = new CountDownLatch(1);
+		final CountDownLatch release   = new CountDownLatch(1);
+		final Callable<Integer> action = new Callable<Integer>() {
+			
+			public Integer call() throws Exception {
+				executions.incrementAndGet();
+				started.countDown();
+				release.await();
+				return 10;
+			}
+			
+		};
+		
+		Thread[] threads = new Thread[8];
+		
+		for(int i=0;i<threads.length;i++){
+			threads[i] = new Thread(){
+				
+				public void run(){
+					try{
+						results.addAndGet(singleFlight.execute("teste", action));
+					}
+					catch(Exception e){
+						e.printStackTrace();
+					}
+				}
+				
+			};
+			threads[i].start();
+			
+			if(i == 0){
+				TestCase.assertTrue(started.await(10, TimeUnit.SECONDS));
+			}
+		}
+		
+		Thread.sleep(500);
+		TestCase.assertEquals(1, singleFlight.getActiveKeys());
+		release.countDown();
+		
+		for(Thread th: threads){
+			th.join();
+		}
+		
+		TestCase.assertEquals(1, executions.get());
+		TestCase.assertEquals(80, results.get());
+		TestCase.assertEquals(0, singleFlight.getActiveKeys());
+		TestCase.assertEquals(new Integer(10), singleFlight.execute("teste", action));
+		TestCase.assertEquals(2, executions.get());
+	}
+	
+	public void testSubmitAndError() throws Exception{
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try{
+			SingleFlight<String, Integer> singleFlight = new SingleFlight<String, Integer>(pool);
+			final CountDownLatch release = new CountDownLatch(1);
+			Callable<Integer> action = new Callable<Integer>() {
+				
+				public Integer call() throws Exception {
+					release.await();
+					throw new IllegalStateException("teste");
+				}
+				
+			};
+			
+			Future<Integer> a = singleFlight.submit("teste", action);
+			Future<Integer> b = singleFlight.submit("teste", action);
+			TestCase.assertSame(a, b);
+			release.countDown();
+			
+			try{
+				a.get(10, TimeUnit.SECONDS);
+				TestCase.fail();
+			}
+			catch(ExecutionException e){
+				TestCase.assertTrue(e.getCause() instanceof IllegalStateException);
+			}
+			
+			try{
+				singleFlight.execute("teste", action);
+				TestCase.fail();
+			}
+			catch(IllegalStateException e){
+				TestCase.assertEquals("teste", e.getMessage());
+			}
+			
+			TestCase.assertEquals(0, singleFlight.getActiveKeys());
+		}
+		finally{
+			pool.shutdownNow();
+		}
+	}
+	
+}
@@ -0,0 +1,190 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class ThinNamedLockTest extends TestCase{
+
+	public void testLock() throws InterruptedException{
+		final ThinNamedLock namedLock = new ThinNamedLock();
+		final List<Integer> queue        = new ArrayList<Integer>();
+		
+		Serializable ref  = namedLock.lock("teste");
+		Serializable ref2 = namedLock.lock("teste");
+		
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		
+		Thread th = new Thread(){
+			
+			public void run(){
+				queue.add(namedLock.tryLock("teste") == null? 3 : 2);
+			}
+			
+		};
+		
+		th.start();
+		th.join();
+		
+		namedLock.unlock(ref2, "teste");
+		namedLock.unlock(ref, "teste");
+		
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+		
+		th = new Thread(){
+			
+			public void run(){
+				Serializable ref = namedLock.tryLock("teste");
+				queue.add(ref == null? 3 : 2);
+				namedLock.unlock(ref, "teste");
+			}
+			
+		};
+		
+		th.start();
+		th.join();
+		
+		TestCase.assertEquals(2, queue.size());
+		TestCase.assertEquals(new Integer(3), queue.get(0));
+		TestCase.assertEquals(new Integer(2), queue.get(1));
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+	public void testWait() throws InterruptedException{
+		final ThinNamedLock namedLock = new ThinNamedLock();
+		final CountDownLatch latch       = new CountDownLatch(1);
+		
+		Thread th = new Thread(){
+			
+			public void run(){
+				Serializable ref = namedLock.lock("teste");
+				try{
+					latch.countDown();
+					Thread.sleep(500);
+				}
+				catch(InterruptedException e){
+				}
+				finally{
+					namedLock.unlock(ref, "teste");
+				}
+			}
+			
+		};
+		
+		th.start();
+		latch.await();
+		
+		TestCase.assertNull(namedLock.tryLock("teste", 100, TimeUnit.MILLISECONDS));
+		
+		Serializable ref = namedLock.lock("teste");
+		th.join();
+		
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		namedLock.unlock(ref, "teste");
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+	public void testManyNames() throws InterruptedException{
+		ThinNamedLock namedLock = new ThinNamedLock();
+		List<Serializable> refs    = new ArrayList<Serializable>();
+		
+		for(int i=0;i<10000;i++){
+			refs.add(namedLock.lock("teste" + i));
+		}
+		
+		TestCase.assertEquals(10000, namedLock.getRegistrySize());
+		
+		for(int i=0;i<10000;i += 2){
+			namedLock.unlock(refs.get(i), "teste" + i);
+		}
+		
+		TestCase.assertEquals(5000, namedLock.getRegistrySize());
+		
+		for(int i=1;i<10000;i += 2){
+			TestCase.assertNotNull(namedLock.tryLock("teste" + i));
+			namedLock.unlock(refs.get(i), "teste" + i);
+			namedLock.unlock(refs.get(i), "teste" + i);
+		}
+		
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+	public void testMutualExclusion() throws InterruptedException{
+		final ThinNamedLock namedLock = new ThinNamedLock();
+		final int[] counters             = new int[16];
+		Thread[] threads                 = new Thread[8];
+		
+		for(int t=0;t<threads.length;t++){
+			threads[t] = new Thread(){
+				
+				public void run(){
+					for(int i=0;i<2000;i++){
+						int name         = i % counters.length;
+						Serializable ref = namedLock.lock("teste" + name);
+						try{
+							counters[name]++;
+						}
+						finally{
+							namedLock.unlock(ref, "teste" + name);
+						}
+					}
+				}
+				
+			};
+			threads[t].start();
+		}
+		
+		for(Thread th: threads){
+			th.join();
+		}
+		
+		for(int value: counters){
+			TestCase.assertEquals(threads.length*2000/counters.length, value);
+		}
+		
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+	}
+	
+	public void testInterrupt() throws InterruptedException{
+		final ThinNamedLock namedLock = new ThinNamedLock();
+		final Throwable[] error       = new Throwable[1];
+		
+		Serializable ref = namedLock.lock("teste");
+		
+		Thread th = new Thread(){
+			
+			public void run(){
+				try{
+					namedLock.lockInterruptibly("teste");
+				}
+				catch(Throwable e){
+					error[0] = e;
+				}
+			}
+			
+		};
+		
+		th.start();
+		Thread.sleep(200);
+		th.interrupt();
+		th.join();
+		
+		TestCase.assertTrue(error[0] instanceof InterruptedException);
+		TestCase.assertEquals(1, namedLock.getRegistrySize());
+		
+		namedLock.unlock(ref, "teste");
+		TestCase.assertEquals(0, namedLock.getRegistrySize());
+		
+		try{
+			namedLock.unlock(ref, "teste");
+			TestCase.fail("expected IllegalStateException");
+		}
+		catch(IllegalStateException e){
+		}
+	}
+	
+}
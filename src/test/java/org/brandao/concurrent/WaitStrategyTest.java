@@ -0,0 +1,119 @@
+package org.brandao.concurrent;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import junit.framework.TestCase;
+
+public class WaitStrategyTest extends TestCase{
+
+	private static final WaitStrategy[] STRATEGIES = new WaitStrategy[]{
+		WaitStrategy.BUSY_SPIN,
+		WaitStrategy.SPIN_THEN_YIELD,
+		WaitStrategy.ADAPTIVE,
+		WaitStrategy.PARK
+	};
+	
+	public void testMutualExclusion() throws InterruptedException{
+		for(WaitStrategy strategy: STRATEGIES){
+			final NamedLock namedLock = new NamedLock(strategy);
+			final int[] counter = new int[1];
+			Thread[] threads = new Thread[4];
+			
+			for(int i=0;i<threads.length;i++){
+				threads[i] = new Thread(){
+					
+					public void run(){
+						for(int j=0;j<10000;j++){
+							Serializable ref = namedLock.lock("teste");
+							try{
+								counter[0]++;
+							}
+							finally{
+								namedLock.unlock(ref, "teste");
+							}
+						}
+					}
+					
+				};
+				threads[i].start();
+			}
+			
+			for(Thread th: threads){
+				th.join();
+			}
+			
+			TestCase.assertEquals(40000, counter[0]);
+			TestCase.assertEquals(0, namedLock.locks.size());
+			TestCase.assertEquals(0, namedLock.origins.size());
+		}
+	}
+	
+	public void testReentrant(){
+		Lock lock = new StrategyLock(WaitStrategy.ADAPTIVE);
+		lock.lock();
+		TestCase.assertTrue(lock.tryLock());
+		lock.unlock();
+		lock.unlock();
+		
+		try{
+			lock.unlock();
+			TestCase.fail("expected IllegalMonitorStateException");
+		}
+		catch(IllegalMonitorStateException e){
+		}
+	}
+	
+	public void testTryLockTime() throws InterruptedException{
+		for(WaitStrategy strategy: STRATEGIES){
+			List<Integer> queue = new ArrayList<Integer>();
+			NamedLock namedLock = new NamedLock(strategy);
+			
+			Serializable ref = namedLock.lock("teste");
+			Thread th = new NamedLockHelper.AsyncTryLockTime(namedLock, "teste", queue, 100, TimeUnit.MILLISECONDS);
+			try{
+				th.start();
+				th.join();
+				queue.add(1);
+			}
+			finally{
+				namedLock.unlock(ref, "teste");
+			}
+			
+			TestCase.assertEquals(2, queue.size());
+			TestCase.assertEquals(new Integer(3), queue.get(0));
+			TestCase.assertEquals(new Integer(1), queue.get(1));
+		}
+	}
+	
+	public void testLockInterruptibly() throws InterruptedException{
+		for(WaitStrategy strategy: STRATEGIES){
+			List<Integer> queue = new ArrayList<Integer>();
+			NamedLockFactory lockFactory = new NamedLockFactory(strategy);
+			NamedLockFactoryHelper.AsyncLockInterruptibly task = 
+					new NamedLockFactoryHelper.AsyncLockInterruptibly(lockFactory, "teste", queue);
+			
+			Lock lock = lockFactory.getLock("teste");
+			lock.lock();
+			try{
+				task.start();
+				Thread.sleep(100);
+				task.interrupt();
+				task.join();
+			}
+			finally{
+				lock.unlock();
+			}
+			
+			TestCase.assertEquals(0, queue.size());
+			TestCase.assertTrue(task.getError() instanceof InterruptedException);
+			
+			TestCase.assertTrue(lock.tryLock());
+			lock.unlock();
+		}
+	}
+	
+}
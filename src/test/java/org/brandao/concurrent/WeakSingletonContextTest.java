@@ -0,0 +1,48 @@
+package org.brandao.concurrent;
+
+import junit.framework.TestCase;
+
+public class WeakSingletonContextTest extends TestCase{
+
+	public void testCreate() throws InterruptedException{
+		WeakSingletonContext<String> context = 
+				new WeakSingletonContext<String>();
+		context.registryBeanDefinition("teste", new ObjectFactory() {
+			
+			public void destroy(Object instance) {
+			}
+			
+			public Object createInstance() {
+				return new Object();
+			}
+			
+			public long getInstanceSize() {
+				return 0;
+			}
+			
+		});
+		
+		Object a  = context.getBean("A", "teste");
+		Object aa = context.getBean("A", "teste");
+		Object b  = context.getBean("B", "teste");
+		Object bb = context.getBean("B", "teste");
+		
+		TestCase.assertSame(a, aa);
+		TestCase.assertSame(b, bb);
+		TestCase.assertNotSame(a, b);
+		
+		a  = null;
+		aa = null;
+		
+		Runtime.getRuntime().gc();
+
+		Thread.sleep(2000);
+		
+		Object c = context.getBean("C", "teste");
+		
+		TestCase.assertFalse(context.beans.get("teste").containsKey("A"));
+		TestCase.assertSame(b, context.getBean("B", "teste"));
+		TestCase.assertSame(c, context.getBean("C", "teste"));
+	}
+
+}
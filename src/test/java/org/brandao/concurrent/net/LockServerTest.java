@@ -0,0 +1,236 @@
+package org.brandao.concurrent.net;
+
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class LockServerTest extends TestCase{
+
+	private LockServer server;
+	
+	protected void setUp() throws Exception{
+		this.server = new LockServer(new InetSocketAddress("127.0.0.1", 0), 2, 500, TimeUnit.MILLISECONDS);
+		this.server.start();
+	}
+	
+	protected void tearDown() throws Exception{
+		this.server.stop();
+	}
+	
+	public void testLock() throws Exception{
+		RemoteNamedLock client1 = new RemoteNamedLock(this.server.getLocalAddress());
+		RemoteNamedLock client2 = new RemoteNamedLock(this.server.getLocalAddress());
+		
+		try{
+			Serializable ref  = client1.lock("teste");
+			Serializable ref2 = client1.lock("teste");
+			
+			TestCase.assertEquals(ref, ref2);
+			TestCase.assertNull(client2.tryLock("teste"));
+			TestCase.assertNull(client2.tryLock("teste", 100, TimeUnit.MILLISECONDS));
+			
+			client1.unlock(ref2, "teste");
+			TestCase.assertNull(client2.tryLock("teste"));
+			client1.unlock(ref, "teste");
+			
+			Serializable ref3 = client2.tryLock("teste");
+			TestCase.assertNotNull(ref3);
+			
+			try{
+				client1.unlock(ref3, "teste");
+				TestCase.fail("expected IllegalMonitorStateException");
+			}
+			catch(IllegalMonitorStateException e){
+			}
+			
+			try{
+				client2.unlock(ref, "teste");
+				TestCase.fail("expected IllegalStateException");
+			}
+			catch(IllegalStateException e){
+			}
+			
+			client2.unlock(ref3, "teste");
+			TestCase.assertEquals(0, this.server.getRegistrySize());
+		}
+		finally{
+			client1.close();
+			client2.close();
+		}
+	}
+	
+	public void testPipelinedMutualExclusion() throws Exception{
+		final RemoteNamedLock client1 = new RemoteNamedLock(this.server.getLocalAddress());
+		final RemoteNamedLock client2 = new RemoteNamedLock(this.server.getLocalAddress());
+		final int[] counters          = new int[4];
+		Thread[] threads              = new Thread[8];
+		
+		try{
+			for(int t=0;t<threads.length;t++){
+				final RemoteNamedLock client = t % 2 == 0? client1 : client2;
+				threads[t] = new Thread(){
+					
+					public void run(){
+						for(int i=0;i<200;i++){
+							int name         = i % counters.length;
+							Serializable ref = client.lock("teste" + name);
+							try{
+								counters[name]++;
+							}
+							finally{
+								client.unlock(ref, "teste" + name);
+							}
+						}
+					}
+					
+				};
+				threads[t].start();
+			}
+			
+			for(Thread th: threads){
+				th.join();
+			}
+			
+			for(int value: counters){
+				TestCase.assertEquals(threads.length*200/counters.length, value);
+			}
+			
+			TestCase.assertEquals(0, this.server.getRegistrySize());
+		}
+		finally{
+			client1.close();
+			client2.close();
+		}
+	}
+	
+	public void testCloseReleasesLocks() throws Exception{
+		RemoteNamedLock client1 = new RemoteNamedLock(this.server.getLocalAddress());
+		RemoteNamedLock client2 = new RemoteNamedLock(this.server.getLocalAddress());
+		
+		try{
+			TestCase.assertNotNull(client1.lock("teste"));
+			
+			client1.close();
+			
+			Serializable ref = client2.tryLock("teste", 2, TimeUnit.SECONDS);
+			TestCase.assertNotNull(ref);
+			client2.unlock(ref, "teste");
+			
+			try{
+				client1.lock("teste");
+				TestCase.fail("expected IllegalStateException");
+			}
+			catch(IllegalStateException e){
+			}
+		}
+		finally{
+			client2.close();
+		}
+	}
+	
+	public void testLeaseExpiration() throws Exception{
+		RemoteNamedLock client1 = new RemoteNamedLock(this.server.getLocalAddress(), 1, TimeUnit.MINUTES);
+		RemoteNamedLock client2 = new RemoteNamedLock(this.server.getLocalAddress(), 100, TimeUnit.MILLISECONDS);
+		
+		try{
+			TestCase.assertNotNull(client1.lock("teste"));
+			
+			Serializable ref = client2.tryLock("teste", 3, TimeUnit.SECONDS);
+			TestCase.assertNotNull(ref);
+			client2.unlock(ref, "teste");
+			
+			TestCase.assertEquals(1, this.server.getConnections());
+		}
+		finally{
+			client1.close();
+			client2.close();
+		}
+	}
+	
+	public void testInterrupt() throws Exception{
+		final RemoteNamedLock client1 = new RemoteNamedLock(this.server.getLocalAddress());
+		final RemoteNamedLock client2 = new RemoteNamedLock(this.server.getLocalAddress());
+		final Throwable[] error       = new Throwable[1];
+		
+		try{
+			Serializable ref = client1.lock("teste");
+			
+			Thread th = new Thread(){
+				
+				public void run(){
+					try{
+						client2.lockInterruptibly("teste");
+					}
+					catch(Throwable e){
+						error[0] = e;
+					}
+				}
+				
+			};
+			
+			th.start();
+			Thread.sleep(200);
+			th.interrupt();
+			th.join();
+			
+			TestCase.assertTrue(error[0] instanceof InterruptedException);
+			
+			client1.unlock(ref, "teste");
+			Thread.sleep(200);
+			TestCase.assertEquals(0, this.server.getRegistrySize());
+		}
+		finally{
+			client1.close();
+			client2.close();
+		}
+	}
+	
+	public void testInvalidFrame() throws Exception{
+		short[] lengths = new short[]{100, -1, 3, 5};
+		
+		for(short length: lengths){
+			Socket socket = new Socket();
+			
+			try{
+				socket.connect(this.server.getLocalAddress());
+				socket.setSoTimeout(5000);
+				
+				ByteBuffer frame = ByteBuffer.allocate(4 + Protocol.REQUEST_HEADER + 4);
+				frame.putInt(Protocol.REQUEST_HEADER + 4);
+				frame.put(Protocol.LOCK);
+				frame.putLong(1);
+				frame.putLong(1);
+				frame.putLong(-1);
+				frame.putShort(length);
+				frame.putInt(0);
+				
+				socket.getOutputStream().write(frame.array());
+				socket.getOutputStream().flush();
+				
+				TestCase.assertEquals(-1, socket.getInputStream().read());
+			}
+			finally{
+				socket.close();
+			}
+		}
+		
+		TestCase.assertTrue(this.server.isRunning());
+		TestCase.assertNull(this.server.getFailure());
+		
+		RemoteNamedLock client = new RemoteNamedLock(this.server.getLocalAddress());
+		
+		try{
+			Serializable ref = client.lock("teste");
+			client.unlock(ref, "teste");
+			TestCase.assertEquals(0, this.server.getRegistrySize());
+		}
+		finally{
+			client.close();
+		}
+	}
+	
+}